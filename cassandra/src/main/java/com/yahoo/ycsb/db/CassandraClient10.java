@@ -462,7 +462,7 @@ public class CassandraClient10 extends DB
         {
           col = new Column();
           col.setName(ByteBuffer.wrap(entry.getKey().getBytes("UTF-8")));
-          col.setValue(ByteBuffer.wrap(entry.getValue().toArray()));
+          col.setValue(entry.getValue().toByteBuffer());
           col.setTimestamp(System.currentTimeMillis());
 
           column = new ColumnOrSuperColumn();
@@ -436,7 +436,7 @@ public class CassandraClient7 extends DB
         {
           column = new ColumnOrSuperColumn();
           column.setColumn( new Column( ByteBuffer.wrap(entry.getKey().getBytes("UTF-8")), 
-                                        ByteBuffer.wrap(entry.getValue().toArray()),
+                                        entry.getValue().toByteBuffer(),
                                         System.currentTimeMillis()) );
                                         
           mutations.add(new Mutation().setColumn_or_supercolumn(column));
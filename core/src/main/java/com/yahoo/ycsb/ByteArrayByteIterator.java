@@ -16,10 +16,12 @@
  */
 package com.yahoo.ycsb;
 
+import java.nio.ByteBuffer;
+
 public class ByteArrayByteIterator extends ByteIterator {
 	byte[] str;
 	int off;
-	final int len;
+	int len;
 	public ByteArrayByteIterator(byte[] s) {
 		this.str = s;
 		this.off = 0;
@@ -32,6 +34,17 @@ public class ByteArrayByteIterator extends ByteIterator {
 		this.len = off + len;
 	}
 
+	/**
+	 * Point this iterator at other bytes, so that one iterator can be reused for value after value rather than
+	 * allocating one per value.
+	 */
+	public ByteArrayByteIterator reset(byte[] s, int off, int len) {
+		this.str = s;
+		this.off = off;
+		this.len = off + len;
+		return this;
+	}
+
 	@Override
 	public boolean hasNext() {
 		return off < len;
@@ -49,4 +62,22 @@ public class ByteArrayByteIterator extends ByteIterator {
 		return len - off;
 	}
 
+	/** Returns a view of the remaining bytes of the array, without copying them. */
+	@Override
+	public ByteBuffer toByteBuffer() {
+		ByteBuffer ret = ByteBuffer.wrap(str, off, len - off).slice();
+		off = len;
+		return ret;
+	}
+
+	/** Returns the remaining bytes; the array itself, without copying, if they are all of it. */
+	@Override
+	public byte[] toArray() {
+		if (off == 0 && len == str.length) {
+			off = len;
+			return str;
+		}
+		return super.toArray();
+	}
+
 }
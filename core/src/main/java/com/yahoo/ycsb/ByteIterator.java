@@ -16,6 +16,7 @@
  */
 package com.yahoo.ycsb;
 
+import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.ArrayList;
 /**
@@ -88,5 +89,14 @@ public abstract class ByteIterator implements Iterator<Byte> {
 	    }
 	    return ret;
 	}
+	/**
+	 * Consumes remaining contents of this object, and returns them as a ByteBuffer positioned at the first byte.
+	 * Subclasses that hold their bytes in an array return a view of it, without copying; the default copies the
+	 * contents with toArray(). The buffer may share the iterator's storage, so callers must not write to it. (It is
+	 * not made read-only, since clients such as Thrift's protocols read buffers through array().)
+	 */
+	public ByteBuffer toByteBuffer() {
+	    return ByteBuffer.wrap(toArray());
+	}
 
 }
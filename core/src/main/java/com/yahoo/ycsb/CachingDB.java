@@ -0,0 +1,498 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+import com.yahoo.ycsb.cache.Cache;
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.workloads.CoreWorkload;
+
+/**
+ * A decorator that puts an application cache in front of the DB: a bounded cache of whole records shared by all
+ * client threads, split into segments with a lock each.
+ *
+ * Reads are read-through: a read that misses the cache reads the whole record from the DB and caches it. Writes go
+ * to the DB and then either invalidate the cached record ("invalidate") or update it ("through"); increments,
+ * conditional updates and deletes always invalidate. Scans go to the DB. Cached values come back as plain bytes,
+ * whatever their type in the DB.
+ *
+ * Besides the overall latencies measured around the decorator, reads report whether they hit the cache under CACHE,
+ * and the reads that went to the DB are measured as BACKEND-READ (and BACKEND-MULTI-READ).
+ *
+ * Properties:
+ * <ul>
+ * <li><b>cache.policy</b>: the eviction policy: lru, tinylfu (W-TinyLFU) or clock (default lru)
+ * <li><b>cache.size</b>: the capacity of the cache (default 10000)
+ * <li><b>cache.sizeunit</b>: what the capacity counts: entries or bytes (default entries)
+ * <li><b>cache.writepolicy</b>: invalidate or through (default invalidate)
+ * <li><b>cache.segments</b>: how many independently locked segments to split the cache into, at most one per entry the
+ * cache can hold (default 16)
+ * </ul>
+ */
+public class CachingDB extends DBDecorator
+{
+	public static final String POLICY_PROPERTY="cache.policy";
+	public static final String POLICY_PROPERTY_DEFAULT="lru";
+
+	public static final String SIZE_PROPERTY="cache.size";
+	public static final String SIZE_PROPERTY_DEFAULT="10000";
+
+	public static final String SIZE_UNIT_PROPERTY="cache.sizeunit";
+	public static final String SIZE_UNIT_PROPERTY_DEFAULT="entries";
+
+	public static final String WRITE_POLICY_PROPERTY="cache.writepolicy";
+	public static final String WRITE_POLICY_PROPERTY_DEFAULT="invalidate";
+
+	public static final String SEGMENTS_PROPERTY="cache.segments";
+	public static final String SEGMENTS_PROPERTY_DEFAULT="16";
+
+	//the cache, shared by the instances of all threads
+	static Cache<String,HashMap<String,byte[]>>[] segments=null;
+	static boolean bybytes;
+	static boolean writethrough;
+	static int instances=0;
+
+	Measurements _measurements=Measurements.getMeasurements();
+
+	@Override
+	@SuppressWarnings({"unchecked","rawtypes"})
+	public void init() throws DBException
+	{
+		synchronized(CachingDB.class)
+		{
+			if (segments==null)
+			{
+				Properties p=getProperties();
+				String policy=p.getProperty(POLICY_PROPERTY,POLICY_PROPERTY_DEFAULT);
+				long size=Long.parseLong(p.getProperty(SIZE_PROPERTY,SIZE_PROPERTY_DEFAULT));
+				String unit=p.getProperty(SIZE_UNIT_PROPERTY,SIZE_UNIT_PROPERTY_DEFAULT);
+				String writepolicy=p.getProperty(WRITE_POLICY_PROPERTY,WRITE_POLICY_PROPERTY_DEFAULT);
+				int count=Integer.parseInt(p.getProperty(SEGMENTS_PROPERTY,SEGMENTS_PROPERTY_DEFAULT));
+
+				if (!unit.equals("entries") && !unit.equals("bytes"))
+				{
+					throw new DBException("Unknown "+SIZE_UNIT_PROPERTY+" \""+unit+"\"");
+				}
+				if (!writepolicy.equals("invalidate") && !writepolicy.equals("through"))
+				{
+					throw new DBException("Unknown "+WRITE_POLICY_PROPERTY+" \""+writepolicy+"\"");
+				}
+				bybytes=unit.equals("bytes");
+				writethrough=writepolicy.equals("through");
+
+				long entries=size;
+				if (bybytes)
+				{
+					//guess the number of entries from the size of the records the workload writes
+					int fieldcount=Integer.parseInt(p.getProperty(CoreWorkload.FIELD_COUNT_PROPERTY,CoreWorkload.FIELD_COUNT_PROPERTY_DEFAULT));
+					int fieldlength=Integer.parseInt(p.getProperty(CoreWorkload.FIELD_LENGTH_PROPERTY,CoreWorkload.FIELD_LENGTH_PROPERTY_DEFAULT));
+					entries=size/Math.max(1,fieldcount*(fieldlength+6L));
+				}
+				if (entries<1)
+				{
+					throw new DBException(SIZE_PROPERTY+" "+size+" is too small to cache a record");
+				}
+				//every segment must have room for an entry
+				Cache<String,HashMap<String,byte[]>>[] caches=new Cache[(int)Math.max(1,Math.min(count,entries))];
+				for (int i=0; i<caches.length; i++)
+				{
+					try
+					{
+						caches[i]=Cache.create(policy,size/caches.length,entries/caches.length);
+					}
+					catch (IllegalArgumentException e)
+					{
+						throw new DBException(e.getMessage());
+					}
+				}
+				segments=caches;
+			}
+			instances++;
+		}
+		super.init();
+	}
+
+	@Override
+	public void cleanup() throws DBException
+	{
+		super.cleanup();
+		synchronized(CachingDB.class)
+		{
+			if (--instances==0)
+			{
+				int entries=0;
+				long weight=0;
+				long evictions=0;
+				for (Cache<String,HashMap<String,byte[]>> segment : segments)
+				{
+					synchronized(segment)
+					{
+						entries+=segment.size();
+						weight+=segment.weight();
+						evictions+=segment.evictions();
+					}
+				}
+				System.err.println("Cache at the end: "+entries+" records"+(bybytes ? ", "+weight+" bytes" : "")+
+						", "+evictions+" evictions");
+				segments=null;
+			}
+		}
+	}
+
+	static String cacheKey(String table, String key)
+	{
+		return table+'/'+key;
+	}
+
+	static Cache<String,HashMap<String,byte[]>> segment(String cachekey)
+	{
+		int h=cachekey.hashCode();
+		h^=(h>>>16);
+		return segments[(h&Integer.MAX_VALUE)%segments.length];
+	}
+
+	/**
+	 * Copy the values of a record, which the caller is free to reuse, into a record to cache.
+	 */
+	static HashMap<String,byte[]> toRecord(HashMap<String,ByteIterator> values)
+	{
+		HashMap<String,byte[]> record=new HashMap<String,byte[]>();
+		for (Map.Entry<String,ByteIterator> value : values.entrySet())
+		{
+			record.put(value.getKey(),value.getValue().toArray());
+		}
+		return record;
+	}
+
+	/**
+	 * Return the values of a cached record, or of some of its fields.
+	 */
+	static void fromRecord(HashMap<String,byte[]> record, Set<String> fields, HashMap<String,ByteIterator> result)
+	{
+		if (fields==null)
+		{
+			for (Map.Entry<String,byte[]> value : record.entrySet())
+			{
+				result.put(value.getKey(),new ByteArrayByteIterator(value.getValue()));
+			}
+			return;
+		}
+		for (String field : fields)
+		{
+			byte[] value=record.get(field);
+			if (value!=null)
+			{
+				result.put(field,new ByteArrayByteIterator(value));
+			}
+		}
+	}
+
+	int weight(String cachekey, HashMap<String,byte[]> record)
+	{
+		if (!bybytes)
+		{
+			return 1;
+		}
+		int weight=cachekey.length();
+		for (Map.Entry<String,byte[]> value : record.entrySet())
+		{
+			weight+=value.getKey().length()+value.getValue().length;
+		}
+		return weight;
+	}
+
+	HashMap<String,byte[]> lookup(String cachekey)
+	{
+		Cache<String,HashMap<String,byte[]>> segment=segment(cachekey);
+		HashMap<String,byte[]> record;
+		synchronized(segment)
+		{
+			record=segment.get(cachekey);
+		}
+		_measurements.reportHit("CACHE",record!=null);
+		return record;
+	}
+
+	void cache(String cachekey, HashMap<String,byte[]> record)
+	{
+		Cache<String,HashMap<String,byte[]>> segment=segment(cachekey);
+		int weight=weight(cachekey,record);
+		synchronized(segment)
+		{
+			segment.put(cachekey,record,weight);
+		}
+	}
+
+	/**
+	 * Update a cached record with values just written, if it is cached.
+	 */
+	void merge(String cachekey, HashMap<String,byte[]> values)
+	{
+		Cache<String,HashMap<String,byte[]>> segment=segment(cachekey);
+		synchronized(segment)
+		{
+			HashMap<String,byte[]> cached=segment.get(cachekey);
+			if (cached!=null)
+			{
+				//cached records are shared with readers, so replace rather than modify them
+				HashMap<String,byte[]> record=new HashMap<String,byte[]>(cached);
+				record.putAll(values);
+				segment.put(cachekey,record,weight(cachekey,record));
+			}
+		}
+	}
+
+	void invalidate(String cachekey)
+	{
+		Cache<String,HashMap<String,byte[]>> segment=segment(cachekey);
+		synchronized(segment)
+		{
+			segment.remove(cachekey);
+		}
+	}
+
+	@Override
+	public int read(String table, String key, Set<String> fields, HashMap<String,ByteIterator> result)
+	{
+		String cachekey=cacheKey(table,key);
+		HashMap<String,byte[]> record=lookup(cachekey);
+		if (record==null)
+		{
+			HashMap<String,ByteIterator> values=new HashMap<String,ByteIterator>();
+			long st=System.nanoTime();
+			int res=_db.read(table,key,null,values);
+			_measurements.measure("BACKEND-READ",(int)((System.nanoTime()-st)/1000));
+			if (res!=0)
+			{
+				return res;
+			}
+			record=toRecord(values);
+			cache(cachekey,record);
+		}
+		fromRecord(record,fields,result);
+		return 0;
+	}
+
+	@Override
+	public int multiRead(String table, List<String> keys, Set<String> fields, Vector<HashMap<String,ByteIterator>> result)
+	{
+		List<HashMap<String,byte[]>> records=new ArrayList<HashMap<String,byte[]>>(keys.size());
+		List<String> misses=new ArrayList<String>();
+		for (String key : keys)
+		{
+			HashMap<String,byte[]> record=lookup(cacheKey(table,key));
+			records.add(record);
+			if (record==null)
+			{
+				misses.add(key);
+			}
+		}
+
+		int res=0;
+		if (!misses.isEmpty())
+		{
+			Vector<HashMap<String,ByteIterator>> values=new Vector<HashMap<String,ByteIterator>>();
+			long st=System.nanoTime();
+			res=_db.multiRead(table,misses,null,values);
+			_measurements.measure("BACKEND-MULTI-READ",(int)((System.nanoTime()-st)/1000));
+			int miss=0;
+			for (int i=0; i<keys.size(); i++)
+			{
+				if (records.get(i)==null)
+				{
+					HashMap<String,ByteIterator> missed=(miss<values.size()) ? values.get(miss) : null;
+					miss++;
+					if ( (missed!=null) && !missed.isEmpty() )
+					{
+						HashMap<String,byte[]> record=toRecord(missed);
+						cache(cacheKey(table,keys.get(i)),record);
+						records.set(i,record);
+					}
+				}
+			}
+		}
+
+		for (HashMap<String,byte[]> record : records)
+		{
+			HashMap<String,ByteIterator> values=new HashMap<String,ByteIterator>();
+			if (record!=null)
+			{
+				fromRecord(record,fields,values);
+			}
+			result.add(values);
+		}
+		return res;
+	}
+
+	@Override
+	public int update(String table, String key, HashMap<String,ByteIterator> values)
+	{
+		String cachekey=cacheKey(table,key);
+		if (!writethrough)
+		{
+			int res=_db.update(table,key,values);
+			invalidate(cachekey);
+			return res;
+		}
+		//the DB consumes the values, so keep a copy for the cache
+		HashMap<String,byte[]> written=toRecord(values);
+		int res=_db.update(table,key,toValues(written));
+		if (res==0)
+		{
+			merge(cachekey,written);
+		}
+		else
+		{
+			invalidate(cachekey);
+		}
+		return res;
+	}
+
+	@Override
+	public int insert(String table, String key, HashMap<String,ByteIterator> values)
+	{
+		String cachekey=cacheKey(table,key);
+		if (!writethrough)
+		{
+			int res=_db.insert(table,key,values);
+			invalidate(cachekey);
+			return res;
+		}
+		HashMap<String,byte[]> record=toRecord(values);
+		int res=_db.insert(table,key,toValues(record));
+		if (res==0)
+		{
+			cache(cachekey,record);
+		}
+		else
+		{
+			invalidate(cachekey);
+		}
+		return res;
+	}
+
+	static HashMap<String,ByteIterator> toValues(HashMap<String,byte[]> record)
+	{
+		HashMap<String,ByteIterator> values=new HashMap<String,ByteIterator>();
+		fromRecord(record,null,values);
+		return values;
+	}
+
+	@Override
+	public int multiInsert(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		if (!writethrough)
+		{
+			int res=_db.multiInsert(table,keys,values);
+			invalidate(table,keys);
+			return res;
+		}
+		List<HashMap<String,byte[]>> records=new ArrayList<HashMap<String,byte[]>>(keys.size());
+		List<HashMap<String,ByteIterator>> copies=new ArrayList<HashMap<String,ByteIterator>>(keys.size());
+		for (HashMap<String,ByteIterator> value : values)
+		{
+			HashMap<String,byte[]> record=toRecord(value);
+			records.add(record);
+			copies.add(toValues(record));
+		}
+		int res=_db.multiInsert(table,keys,copies);
+		for (int i=0; i<keys.size(); i++)
+		{
+			if (res==0)
+			{
+				cache(cacheKey(table,keys.get(i)),records.get(i));
+			}
+			else
+			{
+				invalidate(cacheKey(table,keys.get(i)));
+			}
+		}
+		return res;
+	}
+
+	@Override
+	public int multiUpdate(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		if (!writethrough)
+		{
+			int res=_db.multiUpdate(table,keys,values);
+			invalidate(table,keys);
+			return res;
+		}
+		List<HashMap<String,byte[]>> written=new ArrayList<HashMap<String,byte[]>>(keys.size());
+		List<HashMap<String,ByteIterator>> copies=new ArrayList<HashMap<String,ByteIterator>>(keys.size());
+		for (HashMap<String,ByteIterator> value : values)
+		{
+			HashMap<String,byte[]> record=toRecord(value);
+			written.add(record);
+			copies.add(toValues(record));
+		}
+		int res=_db.multiUpdate(table,keys,copies);
+		for (int i=0; i<keys.size(); i++)
+		{
+			if (res==0)
+			{
+				merge(cacheKey(table,keys.get(i)),written.get(i));
+			}
+			else
+			{
+				invalidate(cacheKey(table,keys.get(i)));
+			}
+		}
+		return res;
+	}
+
+	void invalidate(String table, List<String> keys)
+	{
+		for (String key : keys)
+		{
+			invalidate(cacheKey(table,key));
+		}
+	}
+
+	@Override
+	public int delete(String table, String key)
+	{
+		int res=_db.delete(table,key);
+		invalidate(cacheKey(table,key));
+		return res;
+	}
+
+	@Override
+	public int increment(String table, String key, String field, long delta)
+	{
+		int res=_db.increment(table,key,field,delta);
+		invalidate(cacheKey(table,key));
+		return res;
+	}
+
+	@Override
+	public int compareAndSet(String table, String key, String field, String expected, HashMap<String,ByteIterator> values)
+	{
+		int res=_db.compareAndSet(table,key,field,expected,values);
+		invalidate(cacheKey(table,key));
+		return res;
+	}
+}
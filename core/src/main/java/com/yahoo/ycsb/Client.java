@@ -18,9 +18,15 @@
 package com.yahoo.ycsb;
 
 
+import com.yahoo.ycsb.generator.ConstantIntegerGenerator;
+import com.yahoo.ycsb.generator.ExponentialGenerator;
+import com.yahoo.ycsb.generator.IntegerGenerator;
+import com.yahoo.ycsb.generator.MarkovOnOffGenerator;
+import com.yahoo.ycsb.generator.ParetoGenerator;
 import com.yahoo.ycsb.measurements.Measurements;
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+import com.yahoo.ycsb.trace.TraceRecorder;
 
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -32,6 +38,7 @@ import java.util.Date;
 import java.util.Enumeration;
 import java.util.Properties;
 import java.util.Vector;
+import java.util.concurrent.locks.LockSupport;
 
 //import org.apache.log4j.BasicConfigurator;
 
@@ -76,7 +83,7 @@ class StatusThread extends Thread
 		{
 			alldone=true;
 
-			int totalops=0;
+			long totalops=0;
 
 			//terminate this thread when all the worker threads are done
 			for (Thread t : _threads)
@@ -148,15 +155,19 @@ class ClientThread extends Thread
 	DB _db;
 	boolean _dotransactions;
 	Workload _workload;
-	int _opcount;
+	long _opcount;
 	double _target;
 
-	int _opsdone;
+	long _opsdone;
 	int _threadid;
 	int _threadcount;
 	Object _workloadstate;
 	Properties _props;
 
+	IntegerGenerator _arrivals;
+	long _intendedstart;
+	Measurements _measurements;
+
 
 	/**
 	 * Constructor.
@@ -170,7 +181,7 @@ class ClientThread extends Thread
 	 * @param opcount the number of operations (transactions or inserts) to do
 	 * @param targetperthreadperms target number of operations per thread per ms
 	 */
-	public ClientThread(DB db, boolean dotransactions, Workload workload, int threadid, int threadcount, Properties props, int opcount, double targetperthreadperms)
+	public ClientThread(DB db, boolean dotransactions, Workload workload, int threadid, int threadcount, Properties props, long opcount, double targetperthreadperms)
 	{
 		//TODO: consider removing threadcount and threadid
 		_db=db;
@@ -185,13 +196,58 @@ class ClientThread extends Thread
 		//System.out.println("Interval = "+interval);
 	}
 
-	public int getOpsDone()
+	public long getOpsDone()
 	{
 		return _opsdone;
 	}
 
+	/**
+	 * Wait until the next operation is scheduled to start. Operations are scheduled by adding the intervals of the arrival
+	 * process to the scheduled start of the previous one, not to when it actually started or finished, so a slow operation
+	 * does not push back the schedule: the operations after it start late and are measured from when they should have
+	 * started (as INTENDED- latencies), rather than being silently dropped.
+	 */
+	void throttle()
+	{
+		if (_arrivals==null)
+		{
+			return;
+		}
+		if (_intendedstart==0)
+		{
+			_intendedstart=System.nanoTime();
+		}
+		else
+		{
+			_intendedstart+=_arrivals.nextLong();
+		}
+		long now;
+		while ( ((now=System.nanoTime())<_intendedstart) && !_workload.isStopRequested() )
+		{
+			LockSupport.parkNanos(_intendedstart-now);
+		}
+		_measurements.setIntendedStartTimeNs(_intendedstart);
+	}
+
 	public void run()
 	{
+		Utils.initThreadRandom(_threadid);
+
+		if (_target>0)
+		{
+			try
+			{
+				_arrivals=Client.buildArrivalProcess(_props,_target);
+			}
+			catch (WorkloadException e)
+			{
+				e.printStackTrace();
+				e.printStackTrace(System.out);
+				return;
+			}
+			_measurements=Measurements.getMeasurements();
+		}
+
 		try
 		{
 			_db.init();
@@ -233,10 +289,9 @@ class ClientThread extends Thread
 		{
 			if (_dotransactions)
 			{
-				long st=System.currentTimeMillis();
-
 				while (((_opcount == 0) || (_opsdone < _opcount)) && !_workload.isStopRequested())
 				{
+					throttle();
 
 					if (!_workload.doTransaction(_db,_workloadstate))
 					{
@@ -244,35 +299,13 @@ class ClientThread extends Thread
 					}
 
 					_opsdone++;
-
-					//throttle the operations
-					if (_target>0)
-					{
-						//this is more accurate than other throttling approaches we have tried,
-						//like sleeping for (1/target throughput)-operation latency,
-						//because it smooths timing inaccuracies (from sleep() taking an int, 
-						//current time in millis) over many operations
-						while (System.currentTimeMillis()-st<((double)_opsdone)/_target)
-						{
-							try
-							{
-								sleep(1);
-							}
-							catch (InterruptedException e)
-							{
-							  // do nothing.
-							}
-
-						}
-					}
 				}
 			}
 			else
 			{
-				long st=System.currentTimeMillis();
-
 				while (((_opcount == 0) || (_opsdone < _opcount)) && !_workload.isStopRequested())
 				{
+					throttle();
 
 					if (!_workload.doInsert(_db,_workloadstate))
 					{
@@ -280,26 +313,6 @@ class ClientThread extends Thread
 					}
 
 					_opsdone++;
-
-					//throttle the operations
-					if (_target>0)
-					{
-						//this is more accurate than other throttling approaches we have tried,
-						//like sleeping for (1/target throughput)-operation latency,
-						//because it smooths timing inaccuracies (from sleep() taking an int, 
-						//current time in millis) over many operations
-						while (System.currentTimeMillis()-st<((double)_opsdone)/_target)
-						{
-							try 
-							{
-								sleep(1);
-							}
-							catch (InterruptedException e)
-							{
-							  // do nothing.
-							}
-						}
-					}
 				}
 			}
 		}
@@ -347,6 +360,78 @@ public class Client
    */
   public static final String MAX_EXECUTION_TIME = "maxexecutiontime";
 
+	/**
+	 * The seed from which every thread's random number generator is derived. Runs with the same seed and thread count
+	 * make the same random choices, though the interleaving of inserts between threads still depends on timing.
+	 * If not set, every run is different.
+	 */
+	public static final String SEED_PROPERTY="seed";
+
+	/**
+	 * How the start times of operations are spread when a target throughput is set: "constant" (evenly spaced, the
+	 * default), "poisson" (exponential intervals), "pareto" (heavy tailed intervals, see arrival.pareto.shape) or
+	 * "mmpp" (bursts of fast arrivals separated by idle periods, see arrival.mmpp.burstfactor and arrival.mmpp.burstlength).
+	 * All of them have the same mean rate, so the target throughput is kept on average.
+	 */
+	public static final String ARRIVAL_PROCESS_PROPERTY="arrivalprocess";
+	public static final String ARRIVAL_PROCESS_PROPERTY_DEFAULT="constant";
+
+	/**
+	 * The shape of the Pareto intervals; must be greater than 1. The closer to 1, the heavier the tail.
+	 */
+	public static final String ARRIVAL_PARETO_SHAPE_PROPERTY="arrival.pareto.shape";
+	public static final String ARRIVAL_PARETO_SHAPE_PROPERTY_DEFAULT="1.5";
+
+	/**
+	 * How many times faster than the target rate operations arrive during a burst.
+	 */
+	public static final String ARRIVAL_MMPP_BURST_FACTOR_PROPERTY="arrival.mmpp.burstfactor";
+	public static final String ARRIVAL_MMPP_BURST_FACTOR_PROPERTY_DEFAULT="10";
+
+	/**
+	 * The mean length of a burst, in seconds.
+	 */
+	public static final String ARRIVAL_MMPP_BURST_LENGTH_PROPERTY="arrival.mmpp.burstlength";
+	public static final String ARRIVAL_MMPP_BURST_LENGTH_PROPERTY_DEFAULT="0.1";
+
+	/**
+	 * Build the generator of the intervals, in nanoseconds, between the scheduled start times of one thread's operations.
+	 *
+	 * @param targetperthreadperms The target throughput of the thread, in operations per millisecond.
+	 */
+	public static IntegerGenerator buildArrivalProcess(Properties props, double targetperthreadperms) throws WorkloadException
+	{
+		double mean=1000000.0/targetperthreadperms;
+		String process=props.getProperty(ARRIVAL_PROCESS_PROPERTY,ARRIVAL_PROCESS_PROPERTY_DEFAULT);
+		try
+		{
+			if (process.equals("constant"))
+			{
+				return new ConstantIntegerGenerator(Math.round(mean));
+			}
+			else if (process.equals("poisson"))
+			{
+				return new ExponentialGenerator(mean);
+			}
+			else if (process.equals("pareto"))
+			{
+				double shape=Double.parseDouble(props.getProperty(ARRIVAL_PARETO_SHAPE_PROPERTY,ARRIVAL_PARETO_SHAPE_PROPERTY_DEFAULT));
+				return new ParetoGenerator(mean,shape);
+			}
+			else if (process.equals("mmpp"))
+			{
+				double burstfactor=Double.parseDouble(props.getProperty(ARRIVAL_MMPP_BURST_FACTOR_PROPERTY,ARRIVAL_MMPP_BURST_FACTOR_PROPERTY_DEFAULT));
+				double burstlength=Double.parseDouble(props.getProperty(ARRIVAL_MMPP_BURST_LENGTH_PROPERTY,ARRIVAL_MMPP_BURST_LENGTH_PROPERTY_DEFAULT));
+				return new MarkovOnOffGenerator(mean,burstfactor,burstlength*1e9);
+			}
+		}
+		catch (IllegalArgumentException e)
+		{
+			throw new WorkloadException("Bad "+process+" arrival process: "+e.getMessage());
+		}
+		throw new WorkloadException("Unknown arrival process \""+process+"\"");
+	}
+
 	public static void usageMessage()
 	{
 		System.out.println("Usage: java com.yahoo.ycsb.Client [options]");
@@ -370,6 +455,13 @@ public class Client
 		System.out.println("Required properties:");
 		System.out.println("  "+WORKLOAD_PROPERTY+": the name of the workload class to use (e.g. com.yahoo.ycsb.workloads.CoreWorkload)");
 		System.out.println("");
+		System.out.println("Optional properties:");
+		System.out.println("  "+SEED_PROPERTY+": seed for all random choices, to repeat the same operations in another run");
+		System.out.println("  "+ARRIVAL_PROCESS_PROPERTY+": how operations are spread when a target is set: constant (default),");
+		System.out.println("                  poisson, pareto or mmpp");
+		System.out.println("  "+TraceRecorder.TRACE_FILE_PROPERTY+": record every operation to this file, for replay with");
+		System.out.println("                    com.yahoo.ycsb.workloads.TraceReplayWorkload");
+		System.out.println("");
 		System.out.println("To run the transaction phase from multiple servers, start a separate client on each.");
 		System.out.println("To run the load phase from multiple servers, start a separate client on each; additionally,");
 		System.out.println("use the \"insertcount\" and \"insertstart\" properties to divide up the records to be inserted");
@@ -392,7 +484,7 @@ public class Client
 	 * loaded from conf.
 	 * @throws IOException Either failed to write to output stream or failed to close it.
 	 */
-	private static void exportMeasurements(Properties props, int opcount, long runtime)
+	private static void exportMeasurements(Properties props, long opcount, long runtime)
 			throws IOException
 	{
 		MeasurementsExporter exporter = null;
@@ -611,7 +703,14 @@ public class Client
 			System.exit(0);
 		}
 		
-		long maxExecutionTime = Integer.parseInt(props.getProperty(MAX_EXECUTION_TIME, "0"));
+		long maxExecutionTime = Long.parseLong(props.getProperty(MAX_EXECUTION_TIME, "0"));
+
+		if (props.getProperty(SEED_PROPERTY)!=null)
+		{
+			Utils.setSeed(Long.parseLong(props.getProperty(SEED_PROPERTY)));
+		}
+		//the main thread sets up the workload; give it a stream distinct from every client thread
+		Utils.initThreadRandom(-1);
 
 		//get number of threads, target and db
 		threadcount=Integer.parseInt(props.getProperty("threadcount","1"));
@@ -658,6 +757,18 @@ public class Client
 		
 		//set up measurements
 		Measurements.setProperties(props);
+
+		//start recording the operations, if requested
+		try
+		{
+			TraceRecorder.startRecording(props);
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+			e.printStackTrace(System.out);
+			System.exit(0);
+		}
 		
 		//load the workload
 		ClassLoader classLoader = Client.class.getClassLoader();
@@ -694,20 +805,31 @@ public class Client
 
 		System.err.println("Starting test.");
 
-		int opcount;
+		long opcount;
 		if (dotransactions)
 		{
-			opcount=Integer.parseInt(props.getProperty(OPERATION_COUNT_PROPERTY,"0"));
+			opcount=Long.parseLong(props.getProperty(OPERATION_COUNT_PROPERTY,"0"));
 		}
 		else
 		{
 			if (props.containsKey(INSERT_COUNT_PROPERTY))
 			{
-				opcount=Integer.parseInt(props.getProperty(INSERT_COUNT_PROPERTY,"0"));
+				opcount=Long.parseLong(props.getProperty(INSERT_COUNT_PROPERTY,"0"));
 			}
 			else
 			{
-				opcount=Integer.parseInt(props.getProperty(RECORD_COUNT_PROPERTY,"0"));
+				opcount=Long.parseLong(props.getProperty(RECORD_COUNT_PROPERTY,"0"));
+			}
+		}
+
+		if ( (opcount>0) && (opcount<threadcount) )
+		{
+			//fewer operations than threads: start only as many threads as there are operations, as an opcount of zero
+			//would mean "run forever", and tell the workload (and the target) how many threads there really are
+			threadcount=(int)opcount;
+			if (target>0)
+			{
+				targetperthreadperms=((double)target)/((double)threadcount)/1000.0;
 			}
 		}
 
@@ -715,6 +837,13 @@ public class Client
 
 		for (int threadid=0; threadid<threadcount; threadid++)
 		{
+			//hand the remainder of opcount/threadcount to the first threads, so that exactly opcount operations are done
+			long threadopcount=opcount/threadcount;
+			if (threadid<opcount%threadcount)
+			{
+				threadopcount++;
+			}
+
 			DB db=null;
 			try
 			{
@@ -726,7 +855,7 @@ public class Client
 				System.exit(0);
 			}
 
-			Thread t=new ClientThread(db,dotransactions,workload,threadid,threadcount,props,opcount/threadcount,targetperthreadperms);
+			Thread t=new ClientThread(db,dotransactions,workload,threadid,threadcount,props,threadopcount,targetperthreadperms);
 
 			threads.add(t);
 			//t.start();
@@ -759,7 +888,7 @@ public class Client
       terminator.start();
     }
     
-    int opsDone = 0;
+    long opsDone = 0;
 
 		for (Thread t : threads)
 		{
@@ -795,6 +924,16 @@ public class Client
 			System.exit(0);
 		}
 
+		try
+		{
+			TraceRecorder.stopRecording();
+		}
+		catch (IOException e)
+		{
+			System.err.println("Could not write operation trace, error: " + e.getMessage());
+			e.printStackTrace();
+		}
+
 		try
 		{
 			exportMeasurements(props, opsDone, en - st);
@@ -18,6 +18,8 @@
 package com.yahoo.ycsb;
 
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 import java.util.Vector;
@@ -29,8 +31,10 @@ import java.util.Vector;
  * load it dynamically. Any argument-based initialization should be
  * done by init().
  * 
- * Note that YCSB does not make any use of the return codes returned by this class.
- * Instead, it keeps a count of the return values and presents them to the user.
+ * YCSB keeps a count of the return codes returned by this class and presents them to the user. Zero means
+ * success; bindings that can tell why an operation failed should return the matching code from Status (e.g.
+ * Status.THROTTLED.getCode()), so that the counts tell throttling, timeouts and missing records apart and decorators
+ * such as RetryDB know which failures are worth retrying.
  * 
  * The semantics of methods such as insert, update and delete vary from database
  * to database.  In particular, operations may or may not be durable once these
@@ -40,9 +44,20 @@ import java.util.Vector;
  * to match the database's default semantics, or the semantics of your 
  * target application.  For the sake of comparison between experiments we also 
  * recommend you explain the semantics you chose when presenting performance results.
+ * 
+ * The field sets, result maps and value maps passed to a DB belong to the caller, which may reuse them for its
+ * next operation: a DB must not modify the field sets, nor hold on to any of them after the call returns. In
+ * turn, the ByteIterators a DB puts in a result are only good until its next call, so a DB may reuse them (see
+ * ByteArrayByteIterator.reset()); callers that keep results longer must copy them.
  */
 public abstract class DB
 {
+	/**
+	 * The return code of compareAndSet() when the record did not hold the expected value, so nothing was written.
+	 * Negative like the other Status codes, and clear of the small positive error codes bindings already return.
+	 */
+	public static final int CONDITION_FAILED=-9;
+
 	/**
 	 * Properties for configuring this DB.
 	 */
@@ -103,6 +118,33 @@ public abstract class DB
 	 * @return Zero on success, a non-zero error code on error.  See this class's description for a discussion of error codes.
 	 */
 	public abstract int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String,ByteIterator>> result);
+
+	/**
+	 * Perform a range scan, passing each record to a consumer as soon as it is read rather than collecting them all.
+	 *
+	 * The default adapts the materializing scan(): it collects the records in a Vector and then passes them on, so
+	 * databases that can stream their results should override it.
+	 *
+	 * @param table The name of the table
+	 * @param startkey The record key of the first record to read.
+	 * @param recordcount The number of records to read
+	 * @param fields The list of fields to read, or null for all of them
+	 * @param consumer Receives the field/value pairs of each record, in key order; may stop the scan early
+	 * @return Zero on success, a non-zero error code on error.  See this class's description for a discussion of error codes.
+	 */
+	public int scan(String table, String startkey, int recordcount, Set<String> fields, ScanConsumer consumer)
+	{
+		Vector<HashMap<String,ByteIterator>> result=new Vector<HashMap<String,ByteIterator>>();
+		int res=scan(table,startkey,recordcount,fields,result);
+		for (HashMap<String,ByteIterator> record : result)
+		{
+			if (!consumer.consume(record))
+			{
+				break;
+			}
+		}
+		return res;
+	}
 	
 	/**
 	 * Update a record in the database. Any field/value pairs in the specified values HashMap will be written into the record with the specified
@@ -134,4 +176,193 @@ public abstract class DB
 	 * @return Zero on success, a non-zero error code on error.  See this class's description for a discussion of error codes.
 	 */
 	public abstract int delete(String table, String key);
+
+	/**
+	 * Read a batch of records from the database. The default reads them one by one; databases with batched reads
+	 * should override it.
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to read.
+	 * @param fields The list of fields to read, or null for all of them
+	 * @param result A Vector to which a HashMap of field/value pairs is added for each key, in the order of the keys;
+	 * empty for records not found
+	 * @return Zero on success, a non-zero error code on error or if any record was not found.
+	 */
+	public int multiRead(String table, List<String> keys, Set<String> fields, Vector<HashMap<String,ByteIterator>> result)
+	{
+		int res=0;
+		for (String key : keys)
+		{
+			HashMap<String,ByteIterator> values=new HashMap<String,ByteIterator>();
+			int r=read(table,key,fields,values);
+			if (r!=0)
+			{
+				res=r;
+			}
+			result.add(values);
+		}
+		return res;
+	}
+
+	/**
+	 * Insert a batch of records in the database. The default inserts them one by one; databases with batched writes
+	 * should override it.
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to insert.
+	 * @param values The field/value pairs to insert in each record, in the order of the keys
+	 * @return Zero on success, a non-zero error code on error.  See this class's description for a discussion of error codes.
+	 */
+	public int multiInsert(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		int res=0;
+		for (int i=0; i<keys.size(); i++)
+		{
+			int r=insert(table,keys.get(i),values.get(i));
+			if (r!=0)
+			{
+				res=r;
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Update a batch of records in the database. The default updates them one by one; databases with batched writes
+	 * should override it.
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to update.
+	 * @param values The field/value pairs to update in each record, in the order of the keys
+	 * @return Zero on success, a non-zero error code on error.  See this class's description for a discussion of error codes.
+	 */
+	public int multiUpdate(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		int res=0;
+		for (int i=0; i<keys.size(); i++)
+		{
+			int r=update(table,keys.get(i),values.get(i));
+			if (r!=0)
+			{
+				res=r;
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Atomically add to a counter held in a field of a record. A missing record or field is a counter at zero, and is
+	 * created.
+	 *
+	 * The default reads the field, adds the delta and updates the field with the sum as a decimal string (inserting the
+	 * record if the read returned Status.NOT_FOUND; any other error of the read is returned as is). This is not atomic,
+	 * and a field that does not hold a decimal number is taken as zero; databases with a native increment should
+	 * override it.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record holding the counter.
+	 * @param field The field holding the counter.
+	 * @param delta How much to add to the counter.
+	 * @return Zero on success, a non-zero error code on error.  See this class's description for a discussion of error codes.
+	 */
+	public int increment(String table, String key, String field, long delta)
+	{
+		HashSet<String> fields=new HashSet<String>();
+		fields.add(field);
+		HashMap<String,ByteIterator> result=new HashMap<String,ByteIterator>();
+		int res=read(table,key,fields,result);
+		if ( (res!=0) && (res!=Status.NOT_FOUND.getCode()) )
+		{
+			return res;
+		}
+
+		long value=0;
+		ByteIterator old=result.get(field);
+		if (old!=null)
+		{
+			try
+			{
+				value=Long.parseLong(old.toString().trim());
+			}
+			catch (NumberFormatException e)
+			{
+				//not a counter yet
+			}
+		}
+
+		HashMap<String,ByteIterator> values=new HashMap<String,ByteIterator>();
+		values.put(field,new StringByteIterator(Long.toString(value+delta)));
+		return (res==0) ? update(table,key,values) : insert(table,key,values);
+	}
+
+	/**
+	 * Update a record only if one of its fields holds an expected value, as a single atomic step: the optimistic
+	 * concurrency control primitive (a conditional put, check-and-put or compare-and-set).
+	 *
+	 * The default reads the field and, if it holds the expected value, updates the record; a read that returns
+	 * Status.NOT_FOUND fails the condition, any other error of the read is returned as is. This is not atomic;
+	 * databases with conditional writes should override it.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to write.
+	 * @param field The field to compare.
+	 * @param expected The value the field must hold for the update to happen.
+	 * @param values A HashMap of field/value pairs to update in the record
+	 * @return Zero on success, CONDITION_FAILED if the field did not hold the expected value (or the record does not
+	 * exist), another non-zero error code on error.  See this class's description for a discussion of error codes.
+	 */
+	public int compareAndSet(String table, String key, String field, String expected, HashMap<String,ByteIterator> values)
+	{
+		HashSet<String> fields=new HashSet<String>();
+		fields.add(field);
+		HashMap<String,ByteIterator> result=new HashMap<String,ByteIterator>();
+		int res=read(table,key,fields,result);
+		if (res==Status.NOT_FOUND.getCode())
+		{
+			return CONDITION_FAILED;
+		}
+		if (res!=0)
+		{
+			return res;
+		}
+		ByteIterator current=result.get(field);
+		if ( (current==null) || !current.toString().equals(expected) )
+		{
+			return CONDITION_FAILED;
+		}
+		return update(table,key,values);
+	}
+
+	/**
+	 * Start a transaction: the operations until the next commit() or abort() are to take effect together or not at all.
+	 * The default does nothing, for databases without transactions, whose operations then take effect one by one.
+	 *
+	 * @return Zero on success, a non-zero error code on error.  See this class's description for a discussion of error codes.
+	 */
+	public int start()
+	{
+		return 0;
+	}
+
+	/**
+	 * Commit the current transaction. A non-zero return code means the transaction was aborted: CONDITION_FAILED if
+	 * it conflicted with another one, another code if it failed for another reason.
+	 *
+	 * @return Zero on success, a non-zero error code on error.  See this class's description for a discussion of error codes.
+	 */
+	public int commit()
+	{
+		return 0;
+	}
+
+	/**
+	 * Abort the current transaction, undoing its operations. The default does nothing, so the operations done so far
+	 * stay done.
+	 *
+	 * @return Zero on success, a non-zero error code on error.  See this class's description for a discussion of error codes.
+	 */
+	public int abort()
+	{
+		return 0;
+	}
 }
@@ -0,0 +1,153 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+/**
+ * A DB that adds behaviour to another DB, such as retries, and forwards every operation to it by default.
+ *
+ * Decorators are listed in the "dbdecorators" property as a comma separated list of class names, innermost first.
+ * DBFactory wraps the binding in each of them in turn and the measurements around the result, so the latencies
+ * reported for each operation include whatever the decorators do. Like a DB, a decorator needs a no-argument
+ * constructor; it is handed the DB it decorates before setProperties() and init() are called.
+ */
+public abstract class DBDecorator extends DB
+{
+	/**
+	 * The DB this decorator forwards to.
+	 */
+	protected DB _db;
+
+	public void setDecorated(DB db)
+	{
+		_db=db;
+	}
+
+	public DB getDecorated()
+	{
+		return _db;
+	}
+
+	@Override
+	public void setProperties(Properties p)
+	{
+		super.setProperties(p);
+		_db.setProperties(p);
+	}
+
+	@Override
+	public void init() throws DBException
+	{
+		_db.init();
+	}
+
+	@Override
+	public void cleanup() throws DBException
+	{
+		_db.cleanup();
+	}
+
+	@Override
+	public int read(String table, String key, Set<String> fields, HashMap<String,ByteIterator> result)
+	{
+		return _db.read(table,key,fields,result);
+	}
+
+	@Override
+	public int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String,ByteIterator>> result)
+	{
+		return _db.scan(table,startkey,recordcount,fields,result);
+	}
+
+	@Override
+	public int scan(String table, String startkey, int recordcount, Set<String> fields, ScanConsumer consumer)
+	{
+		return _db.scan(table,startkey,recordcount,fields,consumer);
+	}
+
+	@Override
+	public int update(String table, String key, HashMap<String,ByteIterator> values)
+	{
+		return _db.update(table,key,values);
+	}
+
+	@Override
+	public int insert(String table, String key, HashMap<String,ByteIterator> values)
+	{
+		return _db.insert(table,key,values);
+	}
+
+	@Override
+	public int delete(String table, String key)
+	{
+		return _db.delete(table,key);
+	}
+
+	@Override
+	public int multiRead(String table, List<String> keys, Set<String> fields, Vector<HashMap<String,ByteIterator>> result)
+	{
+		return _db.multiRead(table,keys,fields,result);
+	}
+
+	@Override
+	public int multiInsert(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		return _db.multiInsert(table,keys,values);
+	}
+
+	@Override
+	public int multiUpdate(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		return _db.multiUpdate(table,keys,values);
+	}
+
+	@Override
+	public int increment(String table, String key, String field, long delta)
+	{
+		return _db.increment(table,key,field,delta);
+	}
+
+	@Override
+	public int compareAndSet(String table, String key, String field, String expected, HashMap<String,ByteIterator> values)
+	{
+		return _db.compareAndSet(table,key,field,expected,values);
+	}
+
+	@Override
+	public int start()
+	{
+		return _db.start();
+	}
+
+	@Override
+	public int commit()
+	{
+		return _db.commit();
+	}
+
+	@Override
+	public int abort()
+	{
+		return _db.abort();
+	}
+}
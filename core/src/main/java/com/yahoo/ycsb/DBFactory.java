@@ -20,10 +20,15 @@ package com.yahoo.ycsb;
 import java.util.Properties;
 
 /**
- * Creates a DB layer by dynamically classloading the specified DB class.
+ * Creates a DB layer by dynamically classloading the specified DB class, and any decorators configured for it.
  */
 public class DBFactory
 {
+      /**
+       * A comma separated list of DBDecorator classes to wrap the DB in, innermost first.
+       */
+      public static final String DECORATORS_PROPERTY="dbdecorators";
+
       @SuppressWarnings("unchecked")
 	public static DB newDB(String dbname, Properties properties) throws UnknownDBException
       {
@@ -37,6 +42,18 @@ public class DBFactory
 	    //System.out.println("dbclass.getName() = " + dbclass.getName());
 	    
 	    ret=(DB)dbclass.newInstance();
+
+	    //wrap the binding in the decorators, innermost first
+	    String decorators=properties.getProperty(DECORATORS_PROPERTY,"").trim();
+	    if (decorators.length()>0)
+	    {
+	       for (String decoratorname : decorators.split(","))
+	       {
+		  DBDecorator decorator=(DBDecorator)classLoader.loadClass(decoratorname.trim()).newInstance();
+		  decorator.setDecorated(ret);
+		  ret=decorator;
+	       }
+	    }
 	 }
 	 catch (Exception e) 
 	 {  
@@ -48,5 +65,25 @@ public class DBFactory
 
 	 return new DBWrapper(ret);
       }
+
+      /**
+       * Create another instance of a DB, with the same decorators if it has any.
+       */
+      static DB newInstance(DB db) throws DBException
+      {
+	 try
+	 {
+	    DB copy=db.getClass().getDeclaredConstructor().newInstance();
+	    if (db instanceof DBDecorator)
+	    {
+	       ((DBDecorator)copy).setDecorated(newInstance(((DBDecorator)db).getDecorated()));
+	    }
+	    return copy;
+	 }
+	 catch (ReflectiveOperationException e)
+	 {
+	    throw new DBException(e);
+	 }
+      }
       
 }
@@ -17,25 +17,44 @@
 
 package com.yahoo.ycsb;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.TimeUnit;
 
 import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.trace.TraceRecord;
+import com.yahoo.ycsb.trace.TraceRecorder;
 
 /**
- * Wrapper around a "real" DB that measures latencies and counts return codes.
+ * Wrapper around a "real" DB that measures latencies and counts return codes, and records the operations
+ * if a trace is being recorded (see TraceRecorder).
+ *
+ * With a deadline set, operations that overrun it are abandoned (see DeadlineDB) or interrupted (see
+ * DeadlineWatchdog), depending on "deadline.mode", and their return code is Status.TIMEOUT, whatever the DB returned.
  */
 public class DBWrapper extends DB
 {
 	DB _db;
 	Measurements _measurements;
+	TraceRecorder.ThreadTrace _trace;
+
+	//the deadline of each operation in ns, or 0 for none
+	long _deadline;
+	DeadlineWatchdog.Guard _guard;
 
 	public DBWrapper(DB db)
 	{
 		_db=db;
 		_measurements=Measurements.getMeasurements();
+		TraceRecorder recorder=TraceRecorder.getRecorder();
+		if (recorder!=null)
+		{
+			_trace=recorder.newThreadTrace();
+		}
 	}
 
 	/**
@@ -60,6 +79,28 @@ public class DBWrapper extends DB
 	 */
 	public void init() throws DBException
 	{
+		Properties p=getProperties();
+		_deadline=TimeUnit.MILLISECONDS.toNanos(Long.parseLong(p.getProperty(DeadlineWatchdog.DEADLINE_PROPERTY,DeadlineWatchdog.DEADLINE_PROPERTY_DEFAULT)));
+		String mode=p.getProperty(DeadlineWatchdog.MODE_PROPERTY,DeadlineWatchdog.MODE_PROPERTY_DEFAULT);
+		if (_deadline>0)
+		{
+			if (mode.compareTo("abandon")==0)
+			{
+				DeadlineDB deadlinedb=new DeadlineDB();
+				deadlinedb.setDecorated(_db);
+				deadlinedb.setProperties(p);
+				_db=deadlinedb;
+			}
+			else if (mode.compareTo("interrupt")==0)
+			{
+				//init() runs on the thread that does the operations
+				_guard=DeadlineWatchdog.getWatchdog(_deadline).guard();
+			}
+			else if (mode.compareTo("count")!=0)
+			{
+				throw new DBException("Unknown "+DeadlineWatchdog.MODE_PROPERTY+" \""+mode+"\"");
+			}
+		}
 		_db.init();
 	}
 
@@ -69,10 +110,55 @@ public class DBWrapper extends DB
 	 */
 	public void cleanup() throws DBException
 	{
+		if (_guard!=null)
+		{
+			DeadlineWatchdog.getWatchdog(_deadline).release(_guard);
+			_guard=null;
+		}
     long st=System.nanoTime();
 		_db.cleanup();
     long en=System.nanoTime();
     _measurements.measure("CLEANUP", (int)((en-st)/1000));
+		if (_trace!=null)
+		{
+			_trace.flush();
+		}
+	}
+
+	/**
+	 * Note the start of an operation.
+	 *
+	 * @return the start time, in System.nanoTime()
+	 */
+	long begin()
+	{
+		long st=System.nanoTime();
+		if (_guard!=null)
+		{
+			_guard.begin(st);
+		}
+		return st;
+	}
+
+	/**
+	 * Measure an operation that ran from st to en and returned res: its latency, its return code and whether it met
+	 * the SLO. The SLO is counted from the operation's scheduled start if it has one, the deadline from its actual start.
+	 *
+	 * @return res, or Status.TIMEOUT's code if the operation overran its deadline
+	 */
+	int measure(String operation, long st, long en, int res)
+	{
+		boolean interrupted=(_guard!=null) && _guard.end();
+		if ( interrupted || ((_deadline>0) && (en-st>_deadline)) )
+		{
+			res=Status.TIMEOUT.getCode();
+		}
+		_measurements.measure(operation,(int)((en-st)/1000));
+		_measurements.measureIntended(operation,en);
+		_measurements.reportReturnCode(operation,res);
+		long intended=_measurements.getIntendedStartTimeNs();
+		_measurements.reportSLO(operation,en-((intended!=0) ? intended : st),res);
+		return res;
 	}
 
 	/**
@@ -86,11 +172,14 @@ public class DBWrapper extends DB
 	 */
 	public int read(String table, String key, Set<String> fields, HashMap<String,ByteIterator> result)
 	{
-		long st=System.nanoTime();
+		long st=begin();
+		if (_trace!=null)
+		{
+			_trace.record(TraceRecord.READ,table,key,fields,0,st);
+		}
 		int res=_db.read(table,key,fields,result);
 		long en=System.nanoTime();
-		_measurements.measure("READ",(int)((en-st)/1000));
-		_measurements.reportReturnCode("READ",res);
+		res=measure("READ",st,en,res);
 		return res;
 	}
 
@@ -106,13 +195,76 @@ public class DBWrapper extends DB
 	 */
 	public int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String,ByteIterator>> result)
 	{
-		long st=System.nanoTime();
+		long st=begin();
+		if (_trace!=null)
+		{
+			_trace.record(TraceRecord.SCAN,table,startkey,fields,recordcount,st);
+		}
 		int res=_db.scan(table,startkey,recordcount,fields,result);
 		long en=System.nanoTime();
-		_measurements.measure("SCAN",(int)((en-st)/1000));
-		_measurements.reportReturnCode("SCAN",res);
+		res=measure("SCAN",st,en,res);
+		return res;
+	}
+
+	/**
+	 * Perform a range scan, passing each record to a consumer as soon as it is read. Besides the scan latency, measures
+	 * the time to the first record as SCAN-FIRST-ROW and the records and bytes returned.
+	 *
+	 * @param table The name of the table
+	 * @param startkey The record key of the first record to read.
+	 * @param recordcount The number of records to read
+	 * @param fields The list of fields to read, or null for all of them
+	 * @param consumer Receives the field/value pairs of each record
+	 * @return Zero on success, a non-zero error code on error
+	 */
+	public int scan(String table, String startkey, int recordcount, Set<String> fields, ScanConsumer consumer)
+	{
+		long st=begin();
+		if (_trace!=null)
+		{
+			_trace.record(TraceRecord.SCAN,table,startkey,fields,recordcount,st);
+		}
+		MeasuringScanConsumer measuring=new MeasuringScanConsumer(consumer);
+		int res=_db.scan(table,startkey,recordcount,fields,measuring);
+		long en=System.nanoTime();
+		res=measure("SCAN",st,en,res);
+		if (measuring.records>0)
+		{
+			_measurements.measure("SCAN-FIRST-ROW",(int)((measuring.firstrow-st)/1000));
+		}
+		_measurements.reportVolume("SCAN",measuring.records,measuring.bytes,en-st);
 		return res;
 	}
+
+	/**
+	 * Counts the records and bytes of a streaming scan on their way to the workload's consumer.
+	 */
+	static class MeasuringScanConsumer implements ScanConsumer
+	{
+		final ScanConsumer consumer;
+		long firstrow;
+		long records;
+		long bytes;
+
+		MeasuringScanConsumer(ScanConsumer consumer)
+		{
+			this.consumer=consumer;
+		}
+
+		public boolean consume(HashMap<String,ByteIterator> record)
+		{
+			if (records==0)
+			{
+				firstrow=System.nanoTime();
+			}
+			records++;
+			for (ByteIterator value : record.values())
+			{
+				bytes+=value.bytesLeft();
+			}
+			return consumer.consume(record);
+		}
+	}
 	
 	/**
 	 * Update a record in the database. Any field/value pairs in the specified values HashMap will be written into the record with the specified
@@ -125,11 +277,14 @@ public class DBWrapper extends DB
 	 */
 	public int update(String table, String key, HashMap<String,ByteIterator> values)
 	{
-		long st=System.nanoTime();
+		long st=begin();
+		if (_trace!=null)
+		{
+			_trace.record(TraceRecord.UPDATE,table,key,values.keySet(),valueBytes(values),st);
+		}
 		int res=_db.update(table,key,values);
 		long en=System.nanoTime();
-		_measurements.measure("UPDATE",(int)((en-st)/1000));
-		_measurements.reportReturnCode("UPDATE",res);
+		res=measure("UPDATE",st,en,res);
 		return res;
 	}
 
@@ -144,11 +299,14 @@ public class DBWrapper extends DB
 	 */
 	public int insert(String table, String key, HashMap<String,ByteIterator> values)
 	{
-		long st=System.nanoTime();
+		long st=begin();
+		if (_trace!=null)
+		{
+			_trace.record(TraceRecord.INSERT,table,key,values.keySet(),valueBytes(values),st);
+		}
 		int res=_db.insert(table,key,values);
 		long en=System.nanoTime();
-		_measurements.measure("INSERT",(int)((en-st)/1000));
-		_measurements.reportReturnCode("INSERT",res);
+		res=measure("INSERT",st,en,res);
 		return res;
 	}
 
@@ -161,11 +319,196 @@ public class DBWrapper extends DB
 	 */
 	public int delete(String table, String key)
 	{
-		long st=System.nanoTime();
+		long st=begin();
+		if (_trace!=null)
+		{
+			_trace.record(TraceRecord.DELETE,table,key,null,0,st);
+		}
 		int res=_db.delete(table,key);
 		long en=System.nanoTime();
-		_measurements.measure("DELETE",(int)((en-st)/1000));
-		_measurements.reportReturnCode("DELETE",res);
+		res=measure("DELETE",st,en,res);
 		return res;
 	}
+
+	/**
+	 * Read a batch of records from the database. The batch is measured as a whole under MULTI-READ, and its latency
+	 * divided over its keys under MULTI-READ-PER-KEY, once per batch.
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to read.
+	 * @param fields The list of fields to read, or null for all of them
+	 * @param result A Vector to which a HashMap of field/value pairs is added for each key, in the order of the keys
+	 * @return Zero on success, a non-zero error code on error
+	 */
+	public int multiRead(String table, List<String> keys, Set<String> fields, Vector<HashMap<String,ByteIterator>> result)
+	{
+		long st=begin();
+		if (_trace!=null)
+		{
+			for (String key : keys)
+			{
+				_trace.record(TraceRecord.READ,table,key,fields,0,st);
+			}
+		}
+		int res=_db.multiRead(table,keys,fields,result);
+		return measureBatch("MULTI-READ",keys.size(),st,res);
+	}
+
+	/**
+	 * Insert a batch of records in the database, measured like multiRead().
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to insert.
+	 * @param values The field/value pairs to insert in each record, in the order of the keys
+	 * @return Zero on success, a non-zero error code on error
+	 */
+	public int multiInsert(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		long st=begin();
+		if (_trace!=null)
+		{
+			for (int i=0; i<keys.size(); i++)
+			{
+				_trace.record(TraceRecord.INSERT,table,keys.get(i),values.get(i).keySet(),valueBytes(values.get(i)),st);
+			}
+		}
+		int res=_db.multiInsert(table,keys,values);
+		return measureBatch("MULTI-INSERT",keys.size(),st,res);
+	}
+
+	/**
+	 * Update a batch of records in the database, measured like multiRead().
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to update.
+	 * @param values The field/value pairs to update in each record, in the order of the keys
+	 * @return Zero on success, a non-zero error code on error
+	 */
+	public int multiUpdate(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		long st=begin();
+		if (_trace!=null)
+		{
+			for (int i=0; i<keys.size(); i++)
+			{
+				_trace.record(TraceRecord.UPDATE,table,keys.get(i),values.get(i).keySet(),valueBytes(values.get(i)),st);
+			}
+		}
+		int res=_db.multiUpdate(table,keys,values);
+		return measureBatch("MULTI-UPDATE",keys.size(),st,res);
+	}
+
+	int measureBatch(String operation, int keys, long st, int res)
+	{
+		long en=System.nanoTime();
+		res=measure(operation,st,en,res);
+		//the amortized latency of a key, once per batch
+		_measurements.measure(operation+"-PER-KEY",(int)((en-st)/1000)/Math.max(1,keys));
+		return res;
+	}
+
+	/**
+	 * Atomically add to a counter held in a field of a record.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record holding the counter.
+	 * @param field The field holding the counter.
+	 * @param delta How much to add to the counter.
+	 * @return Zero on success, a non-zero error code on error
+	 */
+	public int increment(String table, String key, String field, long delta)
+	{
+		long st=begin();
+		if (_trace!=null)
+		{
+			//traces have no increments; replaying one as an update of the field writes the same record
+			_trace.record(TraceRecord.UPDATE,table,key,Collections.singleton(field),8,st);
+		}
+		int res=_db.increment(table,key,field,delta);
+		long en=System.nanoTime();
+		res=measure("INCREMENT",st,en,res);
+		return res;
+	}
+
+	/**
+	 * Update a record only if one of its fields holds an expected value.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to write.
+	 * @param field The field to compare.
+	 * @param expected The value the field must hold for the update to happen.
+	 * @param values A HashMap of field/value pairs to update in the record
+	 * @return Zero on success, CONDITION_FAILED if the field did not hold the expected value, another non-zero error code on error
+	 */
+	public int compareAndSet(String table, String key, String field, String expected, HashMap<String,ByteIterator> values)
+	{
+		long st=begin();
+		if (_trace!=null)
+		{
+			//traces have no conditional updates; replaying one as an update writes the same record
+			_trace.record(TraceRecord.UPDATE,table,key,values.keySet(),valueBytes(values),st);
+		}
+		int res=_db.compareAndSet(table,key,field,expected,values);
+		long en=System.nanoTime();
+		res=measure("CAS",st,en,res);
+		return res;
+	}
+
+	/**
+	 * Start a transaction.
+	 *
+	 * @return Zero on success, a non-zero error code on error
+	 */
+	public int start()
+	{
+		long st=System.nanoTime();
+		int res=_db.start();
+		long en=System.nanoTime();
+		_measurements.measure("START",(int)((en-st)/1000));
+		_measurements.reportReturnCode("START",res);
+		return res;
+	}
+
+	/**
+	 * Commit the current transaction.
+	 *
+	 * @return Zero on success, a non-zero error code if the transaction was aborted
+	 */
+	public int commit()
+	{
+		long st=System.nanoTime();
+		int res=_db.commit();
+		long en=System.nanoTime();
+		_measurements.measure("COMMIT",(int)((en-st)/1000));
+		_measurements.reportReturnCode("COMMIT",res);
+		return res;
+	}
+
+	/**
+	 * Abort the current transaction.
+	 *
+	 * @return Zero on success, a non-zero error code on error
+	 */
+	public int abort()
+	{
+		long st=System.nanoTime();
+		int res=_db.abort();
+		long en=System.nanoTime();
+		_measurements.measure("ABORT",(int)((en-st)/1000));
+		_measurements.reportReturnCode("ABORT",res);
+		return res;
+	}
+
+	/**
+	 * The total size of the values about to be written, taken before the DB consumes them.
+	 */
+	static int valueBytes(HashMap<String,ByteIterator> values)
+	{
+		long bytes=0;
+		for (ByteIterator value : values.values())
+		{
+			bytes+=value.bytesLeft();
+		}
+		return (int)Math.min(bytes,Integer.MAX_VALUE);
+	}
 }
@@ -0,0 +1,443 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Bounds every operation by the deadline: operations run on a thread of their own, and the client thread waits for
+ * them no longer than the deadline. An operation that overruns it is abandoned and returns Status.TIMEOUT; its DB
+ * instance, which may still be stuck in it, is cleaned up on that thread once (if ever) the operation returns, and
+ * the next operation gets a new DB instance, initialized afresh.
+ *
+ * Nothing is interrupted, so this works for bindings on blocking sockets and on interruptible channels alike. The
+ * price is a hand-off between threads on every operation. DBWrapper puts this in front of the DB when "deadline" is
+ * set and "deadline.mode" is abandon (the default).
+ */
+public class DeadlineDB extends DBDecorator
+{
+	/**
+	 * An operation, run against the DB instance in use when it was submitted.
+	 */
+	abstract static class Call implements Callable<Integer>
+	{
+		DB db;
+
+		abstract int run(DB db);
+
+		public Integer call()
+		{
+			return run(db);
+		}
+	}
+
+	/**
+	 * Passes records on to the workload's consumer until the scan is abandoned.
+	 */
+	static class AbandonableConsumer implements ScanConsumer
+	{
+		final ScanConsumer consumer;
+		boolean abandoned;
+
+		AbandonableConsumer(ScanConsumer consumer)
+		{
+			this.consumer=consumer;
+		}
+
+		public synchronized boolean consume(HashMap<String,ByteIterator> record)
+		{
+			return !abandoned && consumer.consume(record);
+		}
+
+		synchronized void abandon()
+		{
+			abandoned=true;
+		}
+	}
+
+	long _deadline;
+	ExecutorService _executor;
+
+	//how many operations were abandoned, and so how many DB instances were replaced
+	long _abandoned=0;
+
+	//the results of the reads, handed to the workload once the read is over; replaced when a read is abandoned, as
+	//it may still write to them
+	HashMap<String,ByteIterator> _result=new HashMap<String,ByteIterator>();
+	Vector<HashMap<String,ByteIterator>> _results=new Vector<HashMap<String,ByteIterator>>();
+
+	@Override
+	public void init() throws DBException
+	{
+		Properties p=getProperties();
+		_deadline=TimeUnit.MILLISECONDS.toNanos(Long.parseLong(p.getProperty(DeadlineWatchdog.DEADLINE_PROPERTY,DeadlineWatchdog.DEADLINE_PROPERTY_DEFAULT)));
+		start(_db);
+	}
+
+	/**
+	 * Start a thread for a DB instance, and initialize the instance on it, waiting as long as that takes.
+	 */
+	void start(final DB db) throws DBException
+	{
+		final String name=Thread.currentThread().getName();
+		ExecutorService executor=Executors.newSingleThreadExecutor(new ThreadFactory()
+		{
+			public Thread newThread(Runnable r)
+			{
+				Thread t=new Thread(r,"DeadlineDB-"+name);
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		Future<?> init=executor.submit(new Callable<Void>()
+		{
+			public Void call() throws DBException
+			{
+				db.init();
+				return null;
+			}
+		});
+		try
+		{
+			init.get();
+		}
+		catch (InterruptedException e)
+		{
+			executor.shutdown();
+			Thread.currentThread().interrupt();
+			throw new DBException(e);
+		}
+		catch (ExecutionException e)
+		{
+			executor.shutdown();
+			throw (e.getCause() instanceof DBException) ? (DBException)e.getCause() : new DBException(e.getCause());
+		}
+		_db=db;
+		_executor=executor;
+	}
+
+	/**
+	 * Give up on the DB instance in use: clean it up after the operation it is stuck in, on its own thread.
+	 */
+	void abandon()
+	{
+		final DB db=_db;
+		_executor.submit(new Callable<Void>()
+		{
+			public Void call() throws DBException
+			{
+				db.cleanup();
+				return null;
+			}
+		});
+		_executor.shutdown();
+		_executor=null;
+		_result=new HashMap<String,ByteIterator>();
+		_results=new Vector<HashMap<String,ByteIterator>>();
+		_abandoned++;
+	}
+
+	/**
+	 * Run an operation, waiting for it no longer than the deadline.
+	 *
+	 * @return its return code, Status.TIMEOUT's if it was abandoned, or Status.ERROR's if it threw or no new DB
+	 * instance could be initialized to run it
+	 */
+	int call(Call call)
+	{
+		if (_executor==null)
+		{
+			try
+			{
+				DB db=DBFactory.newInstance(_db);
+				db.setProperties(getProperties());
+				start(db);
+			}
+			catch (DBException e)
+			{
+				return Status.ERROR.getCode();
+			}
+		}
+		call.db=_db;
+		Future<Integer> future=_executor.submit(call);
+		try
+		{
+			return future.get(_deadline,TimeUnit.NANOSECONDS);
+		}
+		catch (TimeoutException e)
+		{
+			abandon();
+			return Status.TIMEOUT.getCode();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			abandon();
+			return Status.TIMEOUT.getCode();
+		}
+		catch (ExecutionException e)
+		{
+			return Status.ERROR.getCode();
+		}
+	}
+
+	@Override
+	public void cleanup() throws DBException
+	{
+		if (_abandoned>0)
+		{
+			System.err.println("DeadlineDB: "+_abandoned+" operations abandoned at the deadline");
+		}
+		if (_executor==null)
+		{
+			return;
+		}
+		final DB db=_db;
+		Future<?> cleanup=_executor.submit(new Callable<Void>()
+		{
+			public Void call() throws DBException
+			{
+				db.cleanup();
+				return null;
+			}
+		});
+		_executor.shutdown();
+		try
+		{
+			cleanup.get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new DBException(e);
+		}
+		catch (ExecutionException e)
+		{
+			throw (e.getCause() instanceof DBException) ? (DBException)e.getCause() : new DBException(e.getCause());
+		}
+	}
+
+	@Override
+	public int read(final String table, final String key, final Set<String> fields, HashMap<String,ByteIterator> result)
+	{
+		final HashMap<String,ByteIterator> values=_result;
+		values.clear();
+		int res=call(new Call()
+		{
+			int run(DB db)
+			{
+				return db.read(table,key,fields,values);
+			}
+		});
+		if (values==_result)
+		{
+			result.putAll(values);
+		}
+		return res;
+	}
+
+	@Override
+	public int scan(final String table, final String startkey, final int recordcount, final Set<String> fields, Vector<HashMap<String,ByteIterator>> result)
+	{
+		final Vector<HashMap<String,ByteIterator>> records=_results;
+		records.clear();
+		int res=call(new Call()
+		{
+			int run(DB db)
+			{
+				return db.scan(table,startkey,recordcount,fields,records);
+			}
+		});
+		if (records==_results)
+		{
+			result.addAll(records);
+		}
+		return res;
+	}
+
+	@Override
+	public int scan(final String table, final String startkey, final int recordcount, final Set<String> fields, ScanConsumer consumer)
+	{
+		final AbandonableConsumer abandonable=new AbandonableConsumer(consumer);
+		int res=call(new Call()
+		{
+			int run(DB db)
+			{
+				return db.scan(table,startkey,recordcount,fields,abandonable);
+			}
+		});
+		//an abandoned scan must not pass records on once the workload has moved on
+		abandonable.abandon();
+		return res;
+	}
+
+	@Override
+	public int update(final String table, final String key, final HashMap<String,ByteIterator> values)
+	{
+		return call(new Call()
+		{
+			int run(DB db)
+			{
+				return db.update(table,key,values);
+			}
+		});
+	}
+
+	@Override
+	public int insert(final String table, final String key, final HashMap<String,ByteIterator> values)
+	{
+		return call(new Call()
+		{
+			int run(DB db)
+			{
+				return db.insert(table,key,values);
+			}
+		});
+	}
+
+	@Override
+	public int delete(final String table, final String key)
+	{
+		return call(new Call()
+		{
+			int run(DB db)
+			{
+				return db.delete(table,key);
+			}
+		});
+	}
+
+	@Override
+	public int multiRead(final String table, final List<String> keys, final Set<String> fields, Vector<HashMap<String,ByteIterator>> result)
+	{
+		final Vector<HashMap<String,ByteIterator>> records=_results;
+		records.clear();
+		int res=call(new Call()
+		{
+			int run(DB db)
+			{
+				return db.multiRead(table,keys,fields,records);
+			}
+		});
+		if (records==_results)
+		{
+			result.addAll(records);
+		}
+		return res;
+	}
+
+	@Override
+	public int multiInsert(final String table, final List<String> keys, final List<HashMap<String,ByteIterator>> values)
+	{
+		return call(new Call()
+		{
+			int run(DB db)
+			{
+				return db.multiInsert(table,keys,values);
+			}
+		});
+	}
+
+	@Override
+	public int multiUpdate(final String table, final List<String> keys, final List<HashMap<String,ByteIterator>> values)
+	{
+		return call(new Call()
+		{
+			int run(DB db)
+			{
+				return db.multiUpdate(table,keys,values);
+			}
+		});
+	}
+
+	@Override
+	public int increment(final String table, final String key, final String field, final long delta)
+	{
+		return call(new Call()
+		{
+			int run(DB db)
+			{
+				return db.increment(table,key,field,delta);
+			}
+		});
+	}
+
+	@Override
+	public int compareAndSet(final String table, final String key, final String field, final String expected, final HashMap<String,ByteIterator> values)
+	{
+		return call(new Call()
+		{
+			int run(DB db)
+			{
+				return db.compareAndSet(table,key,field,expected,values);
+			}
+		});
+	}
+
+	/**
+	 * A transaction does not survive its DB instance being replaced: the operations after an abandoned one run outside
+	 * of any transaction, and commit() is that of the new instance.
+	 */
+	@Override
+	public int start()
+	{
+		return call(new Call()
+		{
+			int run(DB db)
+			{
+				return db.start();
+			}
+		});
+	}
+
+	@Override
+	public int commit()
+	{
+		return call(new Call()
+		{
+			int run(DB db)
+			{
+				return db.commit();
+			}
+		});
+	}
+
+	@Override
+	public int abort()
+	{
+		return call(new Call()
+		{
+			int run(DB db)
+			{
+				return db.abort();
+			}
+		});
+	}
+}
@@ -0,0 +1,164 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Interrupts DB operations that overrun their deadline, if "deadline.mode" is interrupt: a daemon thread shared by
+ * all client threads checks the operations in flight and interrupts the threads of those that have overrun it.
+ *
+ * Whether an interrupt cuts a call short depends on the binding: blocking socket reads in java.io go on regardless, so
+ * hung calls are not bounded, while interruptible channels close (so the binding has to reconnect). Either way,
+ * DBWrapper counts an operation that overran its deadline as timed out once it returns. The default mode, abandon,
+ * bounds every call without interrupting anything (see DeadlineDB); count only counts the overruns.
+ */
+public class DeadlineWatchdog extends Thread
+{
+	/**
+	 * The deadline of each operation, in milliseconds; 0 (the default) for none.
+	 */
+	public static final String DEADLINE_PROPERTY="deadline";
+	public static final String DEADLINE_PROPERTY_DEFAULT="0";
+
+	/**
+	 * What to do about operations that overrun their deadline: abandon them (see DeadlineDB), interrupt them, or only
+	 * count them as timed out once they return.
+	 */
+	public static final String MODE_PROPERTY="deadline.mode";
+	public static final String MODE_PROPERTY_DEFAULT="abandon";
+
+	/**
+	 * The operation in flight on one client thread.
+	 */
+	public static class Guard
+	{
+		final Thread _thread;
+		long _start;
+		boolean _fired;
+
+		Guard(Thread thread)
+		{
+			_thread=thread;
+		}
+
+		/**
+		 * Note that the calling thread starts an operation at the given System.nanoTime().
+		 */
+		public synchronized void begin(long st)
+		{
+			_start=st;
+			_fired=false;
+		}
+
+		/**
+		 * Note that the calling thread's operation is over.
+		 *
+		 * @return whether the watchdog interrupted it
+		 */
+		public synchronized boolean end()
+		{
+			_start=0;
+			if (_fired)
+			{
+				//don't let the interrupt spill over into the next operation
+				Thread.interrupted();
+				return true;
+			}
+			return false;
+		}
+
+		synchronized void check(long now, long deadline)
+		{
+			if ( (_start!=0) && !_fired && (now-_start>deadline) )
+			{
+				_fired=true;
+				_thread.interrupt();
+			}
+		}
+	}
+
+	static DeadlineWatchdog singleton=null;
+
+	final long _deadline;
+	final CopyOnWriteArrayList<Guard> _guards=new CopyOnWriteArrayList<Guard>();
+
+	DeadlineWatchdog(long deadline)
+	{
+		super("DeadlineWatchdog");
+		setDaemon(true);
+		_deadline=deadline;
+	}
+
+	/**
+	 * Return the watchdog, starting it if needed.
+	 *
+	 * @param deadline The deadline of each operation, in nanoseconds; taken from the first call.
+	 */
+	public static synchronized DeadlineWatchdog getWatchdog(long deadline)
+	{
+		if (singleton==null)
+		{
+			singleton=new DeadlineWatchdog(deadline);
+			singleton.start();
+		}
+		return singleton;
+	}
+
+	/**
+	 * Watch the operations of the calling thread.
+	 */
+	public Guard guard()
+	{
+		Guard guard=new Guard(Thread.currentThread());
+		_guards.add(guard);
+		return guard;
+	}
+
+	/**
+	 * Stop watching the operations of a thread.
+	 */
+	public void release(Guard guard)
+	{
+		_guards.remove(guard);
+	}
+
+	@Override
+	public void run()
+	{
+		//check often enough to catch an overrun within a quarter of the deadline, but not more often than every ms
+		long period=Math.max(TimeUnit.MILLISECONDS.toNanos(1),_deadline/4);
+		for (;;)
+		{
+			try
+			{
+				TimeUnit.NANOSECONDS.sleep(period);
+			}
+			catch (InterruptedException e)
+			{
+				return;
+			}
+			long now=System.nanoTime();
+			for (Guard guard : _guards)
+			{
+				guard.check(now,_deadline);
+			}
+		}
+	}
+}
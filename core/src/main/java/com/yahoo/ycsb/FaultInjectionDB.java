@@ -0,0 +1,377 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A decorator that makes any DB misbehave in controlled ways: it adds latency, fails operations, and simulates stalls
+ * and network partitions. It is for checking that the measurements show what is going on (tails, timeouts, retries,
+ * response times under open loop load), and for seeing how decorators such as RetryDB and HedgingDB cope.
+ *
+ * Latencies are given as distributions, in milliseconds:
+ * <ul>
+ * <li><b>constant:ms</b>
+ * <li><b>uniform:min,max</b>
+ * <li><b>exponential:mean</b>
+ * <li><b>lognormal:median,sigma</b>, sigma being that of the underlying normal distribution
+ * <li><b>bimodal:fast,slow,fraction</b>: fast, except for a fraction of the operations which are slow
+ * </ul>
+ *
+ * Properties (those marked per operation can be suffixed with .read, .scan, .update, .insert, .delete, .multiread,
+ * .multiinsert, .multiupdate, .increment or .cas to set them for one kind of operation):
+ * <ul>
+ * <li><b>fault.latency</b>: the latency added to each operation, before it goes to the DB (per operation; default none)
+ * <li><b>fault.errorrate</b>: the fraction of operations to fail without reaching the DB (per operation; default 0)
+ * <li><b>fault.errorstatus</b>: the Status they fail with, e.g. THROTTLED (default ERROR)
+ * <li><b>fault.stall.interval</b>, <b>fault.stall.duration</b>: every interval ms, all operations are held up for
+ * duration ms, as in a garbage collection pause (default none)
+ * <li><b>fault.blackout.interval</b>, <b>fault.blackout.duration</b>: every interval ms, the DB is unreachable for
+ * duration ms (default none)
+ * <li><b>fault.blackout.mode</b>: what operations do during a blackout: "fail" at once with UNAVAILABLE, or "hang"
+ * until the blackout is over and then fail with TIMEOUT (default fail)
+ * </ul>
+ * Stalls and blackouts are the same for all threads, and the first one starts one interval into the run.
+ */
+public class FaultInjectionDB extends DBDecorator
+{
+	public static final String LATENCY_PROPERTY="fault.latency";
+	public static final String ERROR_RATE_PROPERTY="fault.errorrate";
+	public static final String ERROR_STATUS_PROPERTY="fault.errorstatus";
+	public static final String ERROR_STATUS_PROPERTY_DEFAULT="ERROR";
+	public static final String STALL_INTERVAL_PROPERTY="fault.stall.interval";
+	public static final String STALL_DURATION_PROPERTY="fault.stall.duration";
+	public static final String BLACKOUT_INTERVAL_PROPERTY="fault.blackout.interval";
+	public static final String BLACKOUT_DURATION_PROPERTY="fault.blackout.duration";
+	public static final String BLACKOUT_MODE_PROPERTY="fault.blackout.mode";
+	public static final String BLACKOUT_MODE_PROPERTY_DEFAULT="fail";
+
+	static final String[] OPERATIONS={"read","scan","update","insert","delete","multiread","multiinsert","multiupdate","increment","cas"};
+
+	/**
+	 * A distribution of latencies.
+	 */
+	abstract static class Latency
+	{
+		/**
+		 * @return the next latency, in ns
+		 */
+		abstract long next(Random random);
+
+		static long nanos(double millis)
+		{
+			return (long)(millis*1000000);
+		}
+
+		/**
+		 * Parse a distribution, e.g. "lognormal:2,0.5"; null or "none" for no latency.
+		 */
+		static Latency parse(String spec)
+		{
+			if ( (spec==null) || spec.trim().equals("none") )
+			{
+				return null;
+			}
+			String[] parts=spec.trim().split(":",2);
+			String[] args=(parts.length>1) ? parts[1].split(",") : new String[0];
+			final double[] a=new double[args.length];
+			for (int i=0; i<args.length; i++)
+			{
+				a[i]=Double.parseDouble(args[i].trim());
+			}
+			String kind=parts[0].trim();
+			if (kind.equals("constant") && (a.length==1))
+			{
+				return new Latency()
+				{
+					long next(Random random)
+					{
+						return nanos(a[0]);
+					}
+				};
+			}
+			else if (kind.equals("uniform") && (a.length==2))
+			{
+				return new Latency()
+				{
+					long next(Random random)
+					{
+						return nanos(a[0]+random.nextDouble()*(a[1]-a[0]));
+					}
+				};
+			}
+			else if (kind.equals("exponential") && (a.length==1))
+			{
+				return new Latency()
+				{
+					long next(Random random)
+					{
+						return nanos(-a[0]*Math.log(1-random.nextDouble()));
+					}
+				};
+			}
+			else if (kind.equals("lognormal") && (a.length==2))
+			{
+				return new Latency()
+				{
+					long next(Random random)
+					{
+						return nanos(a[0]*Math.exp(a[1]*random.nextGaussian()));
+					}
+				};
+			}
+			else if (kind.equals("bimodal") && (a.length==3))
+			{
+				return new Latency()
+				{
+					long next(Random random)
+					{
+						return nanos((random.nextDouble()<a[2]) ? a[1] : a[0]);
+					}
+				};
+			}
+			throw new IllegalArgumentException("Can't parse latency distribution \""+spec+"\"");
+		}
+	}
+
+	/**
+	 * The faults injected into one kind of operation.
+	 */
+	static class Faults
+	{
+		Latency latency;
+		double errorrate;
+	}
+
+	//when the run started, for the schedule of stalls and blackouts, shared by all threads
+	static long startnanos=0;
+
+	final HashMap<String,Faults> _faults=new HashMap<String,Faults>();
+	int _errorcode;
+	long _stallinterval;
+	long _stallduration;
+	long _blackoutinterval;
+	long _blackoutduration;
+	boolean _hang;
+
+	//repeatable with the seed, but not the thread's workload random, so that faults do not change the operations chosen
+	Random _random;
+
+	@Override
+	public void init() throws DBException
+	{
+		synchronized(FaultInjectionDB.class)
+		{
+			if (startnanos==0)
+			{
+				startnanos=System.nanoTime();
+			}
+		}
+		Properties p=getProperties();
+		try
+		{
+			for (String operation : OPERATIONS)
+			{
+				Faults faults=new Faults();
+				faults.latency=Latency.parse(p.getProperty(LATENCY_PROPERTY+"."+operation,p.getProperty(LATENCY_PROPERTY)));
+				faults.errorrate=Double.parseDouble(p.getProperty(ERROR_RATE_PROPERTY+"."+operation,p.getProperty(ERROR_RATE_PROPERTY,"0")));
+				_faults.put(operation,faults);
+			}
+			_errorcode=Status.valueOf(p.getProperty(ERROR_STATUS_PROPERTY,ERROR_STATUS_PROPERTY_DEFAULT).trim().toUpperCase()).getCode();
+		}
+		catch (IllegalArgumentException e)
+		{
+			throw new DBException(e.getMessage());
+		}
+		_stallinterval=millis(p,STALL_INTERVAL_PROPERTY);
+		_stallduration=millis(p,STALL_DURATION_PROPERTY);
+		_blackoutinterval=millis(p,BLACKOUT_INTERVAL_PROPERTY);
+		_blackoutduration=millis(p,BLACKOUT_DURATION_PROPERTY);
+		String mode=p.getProperty(BLACKOUT_MODE_PROPERTY,BLACKOUT_MODE_PROPERTY_DEFAULT);
+		if (!mode.equals("fail") && !mode.equals("hang"))
+		{
+			throw new DBException("Unknown "+BLACKOUT_MODE_PROPERTY+" \""+mode+"\"");
+		}
+		_hang=mode.equals("hang");
+		_random=Utils.newRandom(FaultInjectionDB.class.getName());
+		super.init();
+	}
+
+	static long millis(Properties p, String property)
+	{
+		return TimeUnit.MILLISECONDS.toNanos(Long.parseLong(p.getProperty(property,"0")));
+	}
+
+	/**
+	 * How long until the end of the current stall or blackout, if one is going on.
+	 *
+	 * @return the time left in ns, or 0 if there is none going on
+	 */
+	static long remaining(long now, long interval, long duration)
+	{
+		if ( (interval<=0) || (duration<=0) )
+		{
+			return 0;
+		}
+		long elapsed=now-startnanos;
+		if (elapsed<interval)
+		{
+			return 0;
+		}
+		long into=elapsed%interval;
+		return (into<duration) ? duration-into : 0;
+	}
+
+	/**
+	 * Sleep, unless interrupted (e.g. by the DeadlineWatchdog).
+	 *
+	 * @return whether the sleep was interrupted
+	 */
+	static boolean sleep(long nanos)
+	{
+		try
+		{
+			TimeUnit.NANOSECONDS.sleep(nanos);
+			return false;
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			return true;
+		}
+	}
+
+	/**
+	 * Inject the faults of an operation that is about to go to the DB.
+	 *
+	 * @return 0 to go ahead with the operation, or the code to fail it with
+	 */
+	int inject(String operation)
+	{
+		long blackout=remaining(System.nanoTime(),_blackoutinterval,_blackoutduration);
+		if (blackout>0)
+		{
+			if (_hang)
+			{
+				sleep(blackout);
+				return Status.TIMEOUT.getCode();
+			}
+			return Status.UNAVAILABLE.getCode();
+		}
+
+		long stall=remaining(System.nanoTime(),_stallinterval,_stallduration);
+		if ( (stall>0) && sleep(stall) )
+		{
+			return Status.TIMEOUT.getCode();
+		}
+
+		Faults faults=_faults.get(operation);
+		if ( (faults.latency!=null) && sleep(faults.latency.next(_random)) )
+		{
+			return Status.TIMEOUT.getCode();
+		}
+		if ( (faults.errorrate>0) && (_random.nextDouble()<faults.errorrate) )
+		{
+			return _errorcode;
+		}
+		return 0;
+	}
+
+	@Override
+	public int read(String table, String key, Set<String> fields, HashMap<String,ByteIterator> result)
+	{
+		int res=inject("read");
+		return (res!=0) ? res : _db.read(table,key,fields,result);
+	}
+
+	@Override
+	public int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String,ByteIterator>> result)
+	{
+		int res=inject("scan");
+		return (res!=0) ? res : _db.scan(table,startkey,recordcount,fields,result);
+	}
+
+	@Override
+	public int scan(String table, String startkey, int recordcount, Set<String> fields, ScanConsumer consumer)
+	{
+		int res=inject("scan");
+		return (res!=0) ? res : _db.scan(table,startkey,recordcount,fields,consumer);
+	}
+
+	@Override
+	public int update(String table, String key, HashMap<String,ByteIterator> values)
+	{
+		int res=inject("update");
+		return (res!=0) ? res : _db.update(table,key,values);
+	}
+
+	@Override
+	public int insert(String table, String key, HashMap<String,ByteIterator> values)
+	{
+		int res=inject("insert");
+		return (res!=0) ? res : _db.insert(table,key,values);
+	}
+
+	@Override
+	public int delete(String table, String key)
+	{
+		int res=inject("delete");
+		return (res!=0) ? res : _db.delete(table,key);
+	}
+
+	@Override
+	public int multiRead(String table, List<String> keys, Set<String> fields, Vector<HashMap<String,ByteIterator>> result)
+	{
+		int res=inject("multiread");
+		return (res!=0) ? res : _db.multiRead(table,keys,fields,result);
+	}
+
+	@Override
+	public int multiInsert(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		int res=inject("multiinsert");
+		return (res!=0) ? res : _db.multiInsert(table,keys,values);
+	}
+
+	@Override
+	public int multiUpdate(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		int res=inject("multiupdate");
+		return (res!=0) ? res : _db.multiUpdate(table,keys,values);
+	}
+
+	@Override
+	public int increment(String table, String key, String field, long delta)
+	{
+		int res=inject("increment");
+		return (res!=0) ? res : _db.increment(table,key,field,delta);
+	}
+
+	@Override
+	public int compareAndSet(String table, String key, String field, String expected, HashMap<String,ByteIterator> values)
+	{
+		int res=inject("cas");
+		return (res!=0) ? res : _db.compareAndSet(table,key,field,expected,values);
+	}
+}
@@ -0,0 +1,173 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * The types of the fields of a record, field0 first.
+ *
+ * A schema is a comma separated list of entries, one per field, each a type name optionally followed by a bound and a
+ * repeat count: <code>type[:bound][*count]</code>. For example "long:1000,double,timestamp*2,binary" makes field0 a
+ * long below 1000, field1 a double, field2 and field3 timestamps and field4 binary; the fields the schema does not
+ * cover are strings. The bound is the largest long (exclusive), the largest double, or how far back in milliseconds
+ * timestamps go; strings and binary values take their length from the field length distribution instead.
+ *
+ * The schema is given by the fieldschema property, or read from the file named by the fieldschemafile property, which
+ * holds the same entries one or more per line, with lines starting with # ignored.
+ */
+public class FieldSchema
+{
+	/**
+	 * The name of the property for the schema.
+	 */
+	public static final String FIELD_SCHEMA_PROPERTY="fieldschema";
+
+	/**
+	 * The name of the property for a file to read the schema from.
+	 */
+	public static final String FIELD_SCHEMA_FILE_PROPERTY="fieldschemafile";
+
+	public static final long LONG_BOUND_DEFAULT=1L<<31;
+	public static final double DOUBLE_BOUND_DEFAULT=1000000;
+	public static final long TIMESTAMP_BOUND_DEFAULT=365L*24*60*60*1000;
+
+	final FieldType[] types;
+	final double[] bounds;
+
+	/**
+	 * Parse a schema for records of fieldcount fields.
+	 *
+	 * @throws IllegalArgumentException if the schema is malformed or has more entries than there are fields
+	 */
+	public FieldSchema(String schema, int fieldcount)
+	{
+		types=new FieldType[fieldcount];
+		bounds=new double[fieldcount];
+		Arrays.fill(types,FieldType.STRING);
+
+		int field=0;
+		for (String entry : schema.split(","))
+		{
+			entry=entry.trim();
+			if (entry.length()==0)
+			{
+				continue;
+			}
+			int count=1;
+			int star=entry.indexOf('*');
+			if (star>=0)
+			{
+				count=Integer.parseInt(entry.substring(star+1).trim());
+				entry=entry.substring(0,star);
+			}
+			double bound=0;
+			int colon=entry.indexOf(':');
+			if (colon>=0)
+			{
+				bound=Double.parseDouble(entry.substring(colon+1).trim());
+				entry=entry.substring(0,colon);
+			}
+			FieldType type=FieldType.parse(entry);
+			if (bound==0)
+			{
+				bound=defaultBound(type);
+			}
+			for (int i=0; i<count; i++, field++)
+			{
+				if (field>=fieldcount)
+				{
+					throw new IllegalArgumentException("Field schema \""+schema+"\" has more than "+fieldcount+" fields");
+				}
+				types[field]=type;
+				bounds[field]=bound;
+			}
+		}
+	}
+
+	static double defaultBound(FieldType type)
+	{
+		switch (type)
+		{
+		case LONG:
+			return LONG_BOUND_DEFAULT;
+		case DOUBLE:
+			return DOUBLE_BOUND_DEFAULT;
+		case TIMESTAMP:
+			return TIMESTAMP_BOUND_DEFAULT;
+		default:
+			return 0;
+		}
+	}
+
+	/**
+	 * Read the schema given by the fieldschema or fieldschemafile property.
+	 *
+	 * @return the schema, or null if neither property is set, so that all fields are untyped strings
+	 */
+	public static FieldSchema load(Properties p, int fieldcount) throws IOException
+	{
+		String schema=p.getProperty(FIELD_SCHEMA_PROPERTY);
+		String file=p.getProperty(FIELD_SCHEMA_FILE_PROPERTY);
+		if (file!=null)
+		{
+			StringBuilder entries=new StringBuilder();
+			BufferedReader in=new BufferedReader(new FileReader(file));
+			try
+			{
+				String line;
+				while ((line=in.readLine())!=null)
+				{
+					if (!line.trim().startsWith("#"))
+					{
+						entries.append(line).append(',');
+					}
+				}
+			}
+			finally
+			{
+				in.close();
+			}
+			schema=entries.toString();
+		}
+		return (schema==null) ? null : new FieldSchema(schema,fieldcount);
+	}
+
+	public int getFieldCount()
+	{
+		return types.length;
+	}
+
+	public FieldType getType(int field)
+	{
+		return types[field];
+	}
+
+	/**
+	 * @return the bound of the values of a numeric or timestamp field, see the class description
+	 */
+	public double getBound(int field)
+	{
+		return bounds[field];
+	}
+}
@@ -0,0 +1,51 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb;
+
+/**
+ * The type of a field: how its values are generated, and how bindings that know about types store them.
+ */
+public enum FieldType
+{
+	/** Random printable characters, as in a record without a schema. */
+	STRING,
+	/** A 64 bit integer. */
+	LONG,
+	/** A double precision floating point number. */
+	DOUBLE,
+	/** A point in time, in milliseconds since the epoch. */
+	TIMESTAMP,
+	/** Random bytes over the full range 0 to 255. */
+	BINARY;
+
+	/**
+	 * Look up a type by its name in a schema, e.g. "long".
+	 */
+	public static FieldType parse(String name)
+	{
+		try
+		{
+			return valueOf(name.trim().toUpperCase());
+		}
+		catch (IllegalArgumentException e)
+		{
+			throw new IllegalArgumentException("Unknown field type \""+name.trim()+"\"");
+		}
+	}
+}
@@ -0,0 +1,414 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * A decorator that hedges reads: if a read has not been answered within the hedge delay, the same read is sent to a
+ * second instance of the DB (with its own connection), and whichever answers first is taken. The other one is left
+ * to finish in the background, or interrupted if "hedge.cancel" is set.
+ *
+ * The hedge delay is either fixed, or a percentile of the latency of single reads observed so far, so that only
+ * about (100-percentile)% of the reads are hedged. Besides the overall read latency measured around the decorator,
+ * hedged reads are measured as READ-HEDGED and those where the second read won as READ-HEDGE-WON; the hedge rate is
+ * the number of READ-HEDGED operations over the number of READ operations, and is also the extra read load.
+ *
+ * Each instance runs its reads on two threads of its own, one per DB instance; other operations run on the calling
+ * thread against whichever DB instance is free.
+ *
+ * Properties:
+ * <ul>
+ * <li><b>hedge.delay</b>: the hedge delay in ms, or the initial one if it is adaptive (default 10)
+ * <li><b>hedge.delay.percentile</b>: if set, the percentile of the read latency to use as the hedge delay, e.g. 95
+ * <li><b>hedge.cancel</b>: whether to interrupt the read that lost (default false)
+ * </ul>
+ */
+public class HedgingDB extends DBDecorator
+{
+	public static final String DELAY_PROPERTY="hedge.delay";
+	public static final String DELAY_PROPERTY_DEFAULT="10";
+
+	public static final String DELAY_PERCENTILE_PROPERTY="hedge.delay.percentile";
+
+	public static final String CANCEL_PROPERTY="hedge.cancel";
+	public static final String CANCEL_PROPERTY_DEFAULT="false";
+
+	/**
+	 * How many recent read latencies the adaptive delay is computed from, and how often it is recomputed.
+	 */
+	static final int WINDOW=1024;
+	static final int RECOMPUTE_INTERVAL=128;
+
+	/**
+	 * A read that finished: which one, where, and how long it took.
+	 */
+	static class Completion
+	{
+		final Backend backend;
+		final long seq;
+		final long nanos;
+
+		Completion(Backend backend, long seq, long nanos)
+		{
+			this.backend=backend;
+			this.seq=seq;
+			this.nanos=nanos;
+		}
+	}
+
+	/**
+	 * One DB instance and the thread its reads run on.
+	 */
+	class Backend
+	{
+		final DB db;
+		final ExecutorService executor;
+		final HashMap<String,ByteIterator> result=new HashMap<String,ByteIterator>();
+
+		volatile boolean busy;
+		Future<?> pending;
+		int code;
+
+		Backend(DB db)
+		{
+			this.db=db;
+			executor=Executors.newSingleThreadExecutor(new ThreadFactory()
+			{
+				public Thread newThread(Runnable r)
+				{
+					Thread t=new Thread(r,"HedgingDB-"+Thread.currentThread().getName());
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+
+		void read(final long readseq, final String table, final String key, final Set<String> fields)
+		{
+			busy=true;
+			pending=executor.submit(new Runnable()
+			{
+				public void run()
+				{
+					long st=System.nanoTime();
+					result.clear();
+					try
+					{
+						code=db.read(table,key,fields,result);
+					}
+					catch (RuntimeException e)
+					{
+						code=Status.ERROR.getCode();
+					}
+					long nanos=System.nanoTime()-st;
+					busy=false;
+					_done.add(new Completion(Backend.this,readseq,nanos));
+				}
+			});
+		}
+	}
+
+	Backend[] _backends;
+
+	//backends that have finished a read, including reads that were given up on
+	final LinkedBlockingQueue<Completion> _done=new LinkedBlockingQueue<Completion>();
+	long _seq=0;
+	boolean _intransaction=false;
+
+	long _delay;
+	double _percentile;
+	boolean _cancel;
+
+	final long[] _latencies=new long[WINDOW];
+	long _samples=0;
+
+	Measurements _measurements=Measurements.getMeasurements();
+
+	@Override
+	public void init() throws DBException
+	{
+		Properties p=getProperties();
+		_delay=TimeUnit.MILLISECONDS.toNanos(Long.parseLong(p.getProperty(DELAY_PROPERTY,DELAY_PROPERTY_DEFAULT)));
+		_percentile=Double.parseDouble(p.getProperty(DELAY_PERCENTILE_PROPERTY,"0"));
+		_cancel=Boolean.parseBoolean(p.getProperty(CANCEL_PROPERTY,CANCEL_PROPERTY_DEFAULT));
+
+		DB second=DBFactory.newInstance(_db);
+		second.setProperties(p);
+		super.init();
+		second.init();
+		_backends=new Backend[] {new Backend(_db),new Backend(second)};
+	}
+
+	@Override
+	public void cleanup() throws DBException
+	{
+		for (Backend backend : _backends)
+		{
+			idle(backend);
+			backend.executor.shutdown();
+			backend.db.cleanup();
+		}
+	}
+
+	/**
+	 * Wait for the next read to finish, and note its latency.
+	 *
+	 * @param timeout How long to wait, in ns, or a negative number to wait as long as it takes.
+	 * @return the read that finished, or null if none did in time
+	 */
+	Completion next(long timeout)
+	{
+		Completion completion;
+		try
+		{
+			completion=(timeout<0) ? _done.take() : _done.poll(timeout,TimeUnit.NANOSECONDS);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			return null;
+		}
+		if (completion!=null)
+		{
+			sample(completion.nanos);
+		}
+		return completion;
+	}
+
+	/**
+	 * Wait until a backend is not running any read.
+	 */
+	DB idle(Backend backend)
+	{
+		while (backend.busy)
+		{
+			if ( (next(-1)==null) && Thread.currentThread().isInterrupted() )
+			{
+				break;
+			}
+		}
+		return backend.db;
+	}
+
+	/**
+	 * Return a backend that is not running any read, waiting for one if need be.
+	 */
+	Backend idle()
+	{
+		if (_intransaction)
+		{
+			idle(_backends[0]);
+			return _backends[0];
+		}
+		for (;;)
+		{
+			for (Backend backend : _backends)
+			{
+				if (!backend.busy)
+				{
+					return backend;
+				}
+			}
+			next(-1);
+		}
+	}
+
+	void sample(long nanos)
+	{
+		_latencies[(int)(_samples%WINDOW)]=nanos;
+		_samples++;
+		if ( (_percentile>0) && (_samples%RECOMPUTE_INTERVAL==0) )
+		{
+			long[] sorted=Arrays.copyOf(_latencies,(int)Math.min(_samples,WINDOW));
+			Arrays.sort(sorted);
+			_delay=sorted[(int)Math.min(sorted.length-1,Math.floor(sorted.length*_percentile/100.0))];
+		}
+	}
+
+	@Override
+	public int read(String table, String key, Set<String> fields, HashMap<String,ByteIterator> result)
+	{
+		if (_intransaction)
+		{
+			return idle().db.read(table,key,fields,result);
+		}
+		long st=System.nanoTime();
+		long seq=++_seq;
+		Backend first=idle();
+		first.read(seq,table,key,fields);
+
+		Backend winner=await(seq,_delay);
+		Backend second=null;
+		if (winner==null)
+		{
+			for (Backend backend : _backends)
+			{
+				if ( (backend!=first) && !backend.busy )
+				{
+					second=backend;
+					second.read(seq,table,key,fields);
+					break;
+				}
+			}
+			winner=await(seq,-1);
+		}
+		if (winner==null)
+		{
+			//interrupted while waiting
+			return Status.TIMEOUT.getCode();
+		}
+
+		if (second!=null)
+		{
+			long en=System.nanoTime();
+			_measurements.measure("READ-HEDGED",(int)((en-st)/1000));
+			if (winner==second)
+			{
+				_measurements.measure("READ-HEDGE-WON",(int)((en-st)/1000));
+			}
+			Backend loser=(winner==first) ? second : first;
+			if (_cancel && loser.busy)
+			{
+				loser.pending.cancel(true);
+			}
+		}
+		result.putAll(winner.result);
+		return winner.code;
+	}
+
+	/**
+	 * Wait for a backend to finish the given read, skipping reads that were given up on.
+	 *
+	 * @param timeout How long to wait, in ns, or a negative number to wait as long as it takes.
+	 * @return the backend, or null if it took longer than the timeout
+	 */
+	Backend await(long seq, long timeout)
+	{
+		long deadline=System.nanoTime()+timeout;
+		for (;;)
+		{
+			Completion completion=next( (timeout<0) ? -1 : Math.max(0,deadline-System.nanoTime()) );
+			if (completion==null)
+			{
+				return null;
+			}
+			if (completion.seq==seq)
+			{
+				return completion.backend;
+			}
+		}
+	}
+
+	@Override
+	public int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String,ByteIterator>> result)
+	{
+		return idle().db.scan(table,startkey,recordcount,fields,result);
+	}
+
+	@Override
+	public int scan(String table, String startkey, int recordcount, Set<String> fields, ScanConsumer consumer)
+	{
+		return idle().db.scan(table,startkey,recordcount,fields,consumer);
+	}
+
+	@Override
+	public int update(String table, String key, HashMap<String,ByteIterator> values)
+	{
+		return idle().db.update(table,key,values);
+	}
+
+	@Override
+	public int insert(String table, String key, HashMap<String,ByteIterator> values)
+	{
+		return idle().db.insert(table,key,values);
+	}
+
+	@Override
+	public int delete(String table, String key)
+	{
+		return idle().db.delete(table,key);
+	}
+
+	@Override
+	public int multiRead(String table, List<String> keys, Set<String> fields, Vector<HashMap<String,ByteIterator>> result)
+	{
+		return idle().db.multiRead(table,keys,fields,result);
+	}
+
+	@Override
+	public int multiInsert(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		return idle().db.multiInsert(table,keys,values);
+	}
+
+	@Override
+	public int multiUpdate(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		return idle().db.multiUpdate(table,keys,values);
+	}
+
+	@Override
+	public int increment(String table, String key, String field, long delta)
+	{
+		return idle().db.increment(table,key,field,delta);
+	}
+
+	@Override
+	public int compareAndSet(String table, String key, String field, String expected, HashMap<String,ByteIterator> values)
+	{
+		return idle().db.compareAndSet(table,key,field,expected,values);
+	}
+
+	/**
+	 * Transactions are not hedged: all their operations, reads included, go to the first DB instance.
+	 */
+	@Override
+	public int start()
+	{
+		_intransaction=true;
+		return idle(_backends[0]).start();
+	}
+
+	@Override
+	public int commit()
+	{
+		_intransaction=false;
+		return idle(_backends[0]).commit();
+	}
+
+	@Override
+	public int abort()
+	{
+		_intransaction=false;
+		return idle(_backends[0]).abort();
+	}
+}
@@ -16,6 +16,8 @@
  */
 package com.yahoo.ycsb;
 
+import java.nio.ByteBuffer;
+
 /**
  *  A ByteIterator that generates a random sequence of bytes.
  */
@@ -84,4 +86,26 @@ public class RandomByteIterator extends ByteIterator {
   public long bytesLeft() {
     return len - off - bufOff;
   }
+
+  /**
+   * Generates the remaining bytes straight into the array behind the
+   * returned buffer, so there is nothing to copy afterwards.
+   */
+  @Override
+  public ByteBuffer toByteBuffer() {
+    long left = bytesLeft();
+    if(left != (int)left) { throw new ArrayIndexOutOfBoundsException("Too much data to fit in one buffer!"); }
+    byte[] bytes = new byte[(int)left];
+    int pos = 0;
+    //the bytes already generated but not yet returned come first
+    while(pos < bytes.length && bufOff < buf.length) {
+      bytes[pos++] = buf[bufOff++];
+    }
+    for(int i = pos; i < bytes.length; i += 6) {
+      fillBytesImpl(bytes, i);
+    }
+    off = len;
+    bufOff = 0;
+    return ByteBuffer.wrap(bytes);
+  }
 }
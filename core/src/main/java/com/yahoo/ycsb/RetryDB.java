@@ -0,0 +1,398 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * A decorator that retries operations failing with a transient status (see Status), with exponential backoff and
+ * full jitter: before attempt n+1 it sleeps for a random time between zero and min(max, initial*multiplier^(n-1)).
+ *
+ * Operations that are not idempotent (increment, compareAndSet and commit) are only retried when the status says they
+ * did not take effect (THROTTLED or UNAVAILABLE), not after a TIMEOUT. Streaming scans are only retried if no record
+ * has been passed on yet.
+ *
+ * Besides the overall latency measured around the decorator, operations that needed more than one attempt report
+ * the number of attempts they made as return codes of OP-ATTEMPTS, and the latency of those that succeeded in the
+ * end as OP-RETRIED.
+ *
+ * Properties:
+ * <ul>
+ * <li><b>retry.maxattempts</b>: the most attempts to make for one operation (default 3)
+ * <li><b>retry.backoff.initial</b>: the longest sleep before the second attempt, in ms (default 10)
+ * <li><b>retry.backoff.max</b>: the longest sleep before any attempt, in ms (default 1000)
+ * <li><b>retry.backoff.multiplier</b>: how much the longest sleep grows with each attempt (default 2)
+ * </ul>
+ */
+public class RetryDB extends DBDecorator
+{
+	public static final String MAX_ATTEMPTS_PROPERTY="retry.maxattempts";
+	public static final String MAX_ATTEMPTS_PROPERTY_DEFAULT="3";
+
+	public static final String BACKOFF_INITIAL_PROPERTY="retry.backoff.initial";
+	public static final String BACKOFF_INITIAL_PROPERTY_DEFAULT="10";
+
+	public static final String BACKOFF_MAX_PROPERTY="retry.backoff.max";
+	public static final String BACKOFF_MAX_PROPERTY_DEFAULT="1000";
+
+	public static final String BACKOFF_MULTIPLIER_PROPERTY="retry.backoff.multiplier";
+	public static final String BACKOFF_MULTIPLIER_PROPERTY_DEFAULT="2";
+
+	/**
+	 * One attempt at an operation.
+	 */
+	abstract static class Attempt
+	{
+		abstract int attempt();
+
+		/**
+		 * Whether the operation may be tried again after failing with the given status.
+		 */
+		boolean retryable(Status status)
+		{
+			return status.isTransient();
+		}
+	}
+
+	/**
+	 * An attempt at an operation that must not be repeated unless it certainly did not take effect.
+	 */
+	abstract static class NonIdempotentAttempt extends Attempt
+	{
+		@Override
+		boolean retryable(Status status)
+		{
+			return status.isRejected();
+		}
+	}
+
+	/**
+	 * The values of a write, copied so that every attempt can be handed them afresh: a DB consumes the iterators it
+	 * is given, so passing the caller's values again would write empty values.
+	 */
+	static class Values
+	{
+		final HashMap<String,ByteIterator> _map=new HashMap<String,ByteIterator>();
+		final String[] _fields;
+		final byte[][] _bytes;
+		final ByteArrayByteIterator[] _iterators;
+		//typed values are kept as they are, so that the DB still sees their type
+		final TypedValue[] _typed;
+
+		Values(HashMap<String,ByteIterator> values)
+		{
+			int n=values.size();
+			_fields=new String[n];
+			_bytes=new byte[n][];
+			_iterators=new ByteArrayByteIterator[n];
+			_typed=new TypedValue[n];
+			int i=0;
+			for (Map.Entry<String,ByteIterator> value : values.entrySet())
+			{
+				_fields[i]=value.getKey();
+				if (value.getValue() instanceof TypedValue)
+				{
+					_typed[i]=(TypedValue)value.getValue();
+				}
+				else
+				{
+					_bytes[i]=value.getValue().toArray();
+					_iterators[i]=new ByteArrayByteIterator(_bytes[i]);
+				}
+				i++;
+			}
+		}
+
+		/**
+		 * @return the values, ready to be consumed by one attempt
+		 */
+		HashMap<String,ByteIterator> fresh()
+		{
+			for (int i=0; i<_fields.length; i++)
+			{
+				_map.put(_fields[i],(_typed[i]!=null) ? _typed[i].copy() : _iterators[i].reset(_bytes[i],0,_bytes[i].length));
+			}
+			return _map;
+		}
+
+		static List<Values> copy(List<HashMap<String,ByteIterator>> values)
+		{
+			List<Values> copies=new ArrayList<Values>(values.size());
+			for (HashMap<String,ByteIterator> value : values)
+			{
+				copies.add(new Values(value));
+			}
+			return copies;
+		}
+
+		static List<HashMap<String,ByteIterator>> fresh(List<Values> values)
+		{
+			List<HashMap<String,ByteIterator>> fresh=new ArrayList<HashMap<String,ByteIterator>>(values.size());
+			for (Values value : values)
+			{
+				fresh.add(value.fresh());
+			}
+			return fresh;
+		}
+	}
+
+	int _maxattempts;
+	long _initialnanos;
+	long _maxnanos;
+	double _multiplier;
+
+	//repeatable with the seed, but not the thread's workload random, so that retries do not change the operations chosen
+	Random _random;
+
+	Measurements _measurements=Measurements.getMeasurements();
+
+	@Override
+	public void init() throws DBException
+	{
+		Properties p=getProperties();
+		_maxattempts=Math.max(1,Integer.parseInt(p.getProperty(MAX_ATTEMPTS_PROPERTY,MAX_ATTEMPTS_PROPERTY_DEFAULT)));
+		_initialnanos=TimeUnit.MILLISECONDS.toNanos(Long.parseLong(p.getProperty(BACKOFF_INITIAL_PROPERTY,BACKOFF_INITIAL_PROPERTY_DEFAULT)));
+		_maxnanos=TimeUnit.MILLISECONDS.toNanos(Long.parseLong(p.getProperty(BACKOFF_MAX_PROPERTY,BACKOFF_MAX_PROPERTY_DEFAULT)));
+		_multiplier=Double.parseDouble(p.getProperty(BACKOFF_MULTIPLIER_PROPERTY,BACKOFF_MULTIPLIER_PROPERTY_DEFAULT));
+		_random=Utils.newRandom(RetryDB.class.getName());
+		super.init();
+	}
+
+	/**
+	 * Make attempts at an operation until one succeeds, fails for good or the attempts run out.
+	 *
+	 * @return the return code of the last attempt
+	 */
+	int retry(String operation, Attempt attempt)
+	{
+		long st=System.nanoTime();
+		int res=attempt.attempt();
+		int attempts=1;
+		while ( (attempts<_maxattempts) && attempt.retryable(Status.of(res)) )
+		{
+			backoff(attempts);
+			res=attempt.attempt();
+			attempts++;
+		}
+		if (attempts>1)
+		{
+			_measurements.reportReturnCode(operation+"-ATTEMPTS",attempts);
+			if (res==0)
+			{
+				_measurements.measure(operation+"-RETRIED",(int)((System.nanoTime()-st)/1000));
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Sleep before the next attempt.
+	 *
+	 * @param attempts The number of attempts made so far.
+	 */
+	void backoff(int attempts)
+	{
+		long ceiling=(long)Math.min(_maxnanos,_initialnanos*Math.pow(_multiplier,attempts-1));
+		long sleep=(long)(_random.nextDouble()*ceiling);
+		try
+		{
+			TimeUnit.NANOSECONDS.sleep(sleep);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public int read(final String table, final String key, final Set<String> fields, final HashMap<String,ByteIterator> result)
+	{
+		return retry("READ",new Attempt()
+		{
+			int attempt()
+			{
+				result.clear();
+				return _db.read(table,key,fields,result);
+			}
+		});
+	}
+
+	@Override
+	public int scan(final String table, final String startkey, final int recordcount, final Set<String> fields, final Vector<HashMap<String,ByteIterator>> result)
+	{
+		return retry("SCAN",new Attempt()
+		{
+			int attempt()
+			{
+				result.clear();
+				return _db.scan(table,startkey,recordcount,fields,result);
+			}
+		});
+	}
+
+	@Override
+	public int scan(final String table, final String startkey, final int recordcount, final Set<String> fields, final ScanConsumer consumer)
+	{
+		return retry("SCAN",new Attempt()
+		{
+			boolean consumed=false;
+
+			int attempt()
+			{
+				return _db.scan(table,startkey,recordcount,fields,new ScanConsumer()
+				{
+					public boolean consume(HashMap<String,ByteIterator> record)
+					{
+						consumed=true;
+						return consumer.consume(record);
+					}
+				});
+			}
+
+			@Override
+			boolean retryable(Status status)
+			{
+				return !consumed && super.retryable(status);
+			}
+		});
+	}
+
+	@Override
+	public int update(final String table, final String key, HashMap<String,ByteIterator> values)
+	{
+		final Values copy=new Values(values);
+		return retry("UPDATE",new Attempt()
+		{
+			int attempt()
+			{
+				return _db.update(table,key,copy.fresh());
+			}
+		});
+	}
+
+	@Override
+	public int insert(final String table, final String key, HashMap<String,ByteIterator> values)
+	{
+		final Values copy=new Values(values);
+		return retry("INSERT",new Attempt()
+		{
+			int attempt()
+			{
+				return _db.insert(table,key,copy.fresh());
+			}
+		});
+	}
+
+	@Override
+	public int delete(final String table, final String key)
+	{
+		return retry("DELETE",new Attempt()
+		{
+			int attempt()
+			{
+				return _db.delete(table,key);
+			}
+		});
+	}
+
+	@Override
+	public int multiRead(final String table, final List<String> keys, final Set<String> fields, final Vector<HashMap<String,ByteIterator>> result)
+	{
+		return retry("MULTI-READ",new Attempt()
+		{
+			int attempt()
+			{
+				result.clear();
+				return _db.multiRead(table,keys,fields,result);
+			}
+		});
+	}
+
+	@Override
+	public int multiInsert(final String table, final List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		final List<Values> copies=Values.copy(values);
+		return retry("MULTI-INSERT",new Attempt()
+		{
+			int attempt()
+			{
+				return _db.multiInsert(table,keys,Values.fresh(copies));
+			}
+		});
+	}
+
+	@Override
+	public int multiUpdate(final String table, final List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		final List<Values> copies=Values.copy(values);
+		return retry("MULTI-UPDATE",new Attempt()
+		{
+			int attempt()
+			{
+				return _db.multiUpdate(table,keys,Values.fresh(copies));
+			}
+		});
+	}
+
+	@Override
+	public int increment(final String table, final String key, final String field, final long delta)
+	{
+		return retry("INCREMENT",new NonIdempotentAttempt()
+		{
+			int attempt()
+			{
+				return _db.increment(table,key,field,delta);
+			}
+		});
+	}
+
+	@Override
+	public int compareAndSet(final String table, final String key, final String field, final String expected, HashMap<String,ByteIterator> values)
+	{
+		final Values copy=new Values(values);
+		return retry("CAS",new NonIdempotentAttempt()
+		{
+			int attempt()
+			{
+				return _db.compareAndSet(table,key,field,expected,copy.fresh());
+			}
+		});
+	}
+
+	@Override
+	public int commit()
+	{
+		return retry("COMMIT",new NonIdempotentAttempt()
+		{
+			int attempt()
+			{
+				return _db.commit();
+			}
+		});
+	}
+}
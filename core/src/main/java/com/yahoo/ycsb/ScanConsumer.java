@@ -0,0 +1,50 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb;
+
+import java.util.HashMap;
+
+/**
+ * Receives the records of a streaming scan one at a time, as the database returns them, instead of
+ * having the whole result materialized first.
+ *
+ * A database may reuse the HashMap and ByteIterators it passes in for the next record, so a consumer
+ * that wants to keep a record must copy it.
+ */
+public interface ScanConsumer
+{
+	/**
+	 * A consumer that reads every record and keeps none, for workloads that only time the scan.
+	 */
+	public static final ScanConsumer DISCARD=new ScanConsumer()
+	{
+		public boolean consume(HashMap<String,ByteIterator> record)
+		{
+			return true;
+		}
+	};
+
+	/**
+	 * Take the next record of the scan.
+	 *
+	 * @param record The field/value pairs of the record
+	 * @return true to go on with the scan, false to stop it early
+	 */
+	public boolean consume(HashMap<String,ByteIterator> record);
+}
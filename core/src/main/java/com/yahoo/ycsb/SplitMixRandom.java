@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.Random;
+
+/**
+ * A SplitMix64 generator behind the java.util.Random interface, so it can be handed to code that expects a Random.
+ *
+ * Unlike java.util.Random it keeps its state in plain fields rather than an AtomicLong, so it is cheaper but must not be
+ * shared between threads. Each instance is one stream; streams with the same seed and stream id produce the same sequence,
+ * and streams with different stream ids are statistically independent.
+ */
+public class SplitMixRandom extends Random
+{
+	private static final long serialVersionUID = 1L;
+
+	static final long GOLDEN_GAMMA=0x9E3779B97F4A7C15L;
+
+	static final double DOUBLE_UNIT=1.0/(1L<<53);
+
+	long _state;
+	long _gamma;
+
+	/**
+	 * Create a generator with the specified seed.
+	 */
+	public SplitMixRandom(long seed)
+	{
+		this(seed,GOLDEN_GAMMA);
+	}
+
+	SplitMixRandom(long seed, long gamma)
+	{
+		super(0);
+		_state=seed;
+		_gamma=gamma;
+	}
+
+	/**
+	 * Create the generator for one stream derived from a seed. The stream ids need not be consecutive or assigned in any order.
+	 */
+	public static SplitMixRandom stream(long seed, long streamid)
+	{
+		long s=seed+streamid*GOLDEN_GAMMA;
+		return new SplitMixRandom(mix64(s),mixGamma(s+GOLDEN_GAMMA));
+	}
+
+	/**
+	 * Return a new generator whose stream is independent of this one, advancing this generator.
+	 */
+	public SplitMixRandom split()
+	{
+		return new SplitMixRandom(nextLong(),mixGamma(nextSeed()));
+	}
+
+	@Override
+	public synchronized void setSeed(long seed)
+	{
+		//called by the Random constructor before our fields are assigned
+		_state=seed;
+		_gamma=GOLDEN_GAMMA;
+	}
+
+	@Override
+	protected int next(int bits)
+	{
+		return (int)(nextLong()>>>(64-bits));
+	}
+
+	@Override
+	public long nextLong()
+	{
+		return mix64(nextSeed());
+	}
+
+	@Override
+	public int nextInt()
+	{
+		return (int)nextLong();
+	}
+
+	@Override
+	public double nextDouble()
+	{
+		return (nextLong()>>>11)*DOUBLE_UNIT;
+	}
+
+	long nextSeed()
+	{
+		return _state+=_gamma;
+	}
+
+	/**
+	 * The 64 bit finalizer from MurmurHash3, as used by SplitMix64.
+	 */
+	static long mix64(long z)
+	{
+		z=(z^(z>>>33))*0xFF51AFD7ED558CCDL;
+		z=(z^(z>>>33))*0xC4CEB9FE1A85EC53L;
+		return z^(z>>>33);
+	}
+
+	/**
+	 * Turn an arbitrary value into an odd gamma with enough bit transitions to give a good stream.
+	 */
+	static long mixGamma(long z)
+	{
+		z=(z^(z>>>33))*0xFF51AFD7ED558CCDL;
+		z=(z^(z>>>33))*0xC4CEB9FE1A85EC53L;
+		z=(z^(z>>>33))|1L;
+		int n=Long.bitCount(z^(z>>>1));
+		return (n<24) ? z^0xAAAAAAAAAAAAAAAAL : z;
+	}
+}
@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+/**
+ * The return codes of DB operations, grouped by what a caller can do about them.
+ *
+ * DB methods return ints, and the codes here are the ones bindings should return when they can tell the cause of a
+ * failure. Bindings that only know that something went wrong return ERROR (or any other code not listed here, which
+ * is taken as ERROR). Keeping the codes distinct lets the return code counts of a run tell a throttled database from
+ * a missing record or a broken one.
+ */
+public enum Status
+{
+	OK(0,Kind.SUCCESS),
+	/**
+	 * A failure of unknown cause.
+	 */
+	ERROR(-1,Kind.PERMANENT),
+	/**
+	 * The record does not exist.
+	 */
+	NOT_FOUND(-3,Kind.NOT_FOUND),
+	/**
+	 * The record did not hold the expected value, so nothing was written; the same code as DB.CONDITION_FAILED.
+	 */
+	CONDITION_FAILED(DB.CONDITION_FAILED,Kind.CONDITION_FAILED),
+	/**
+	 * The operation did not complete in time; it may or may not have taken effect.
+	 */
+	TIMEOUT(-4,Kind.TRANSIENT),
+	/**
+	 * The database turned the operation away because of its rate or capacity limits; it did not take effect.
+	 */
+	THROTTLED(-5,Kind.TRANSIENT),
+	/**
+	 * The database could not be reached or had no server for the record; the operation did not take effect.
+	 */
+	UNAVAILABLE(-6,Kind.TRANSIENT),
+	/**
+	 * The database rejected the operation as malformed.
+	 */
+	BAD_REQUEST(-7,Kind.PERMANENT),
+	/**
+	 * The binding does not support the operation.
+	 */
+	NOT_IMPLEMENTED(-8,Kind.PERMANENT);
+
+	/**
+	 * What a status means to the caller.
+	 */
+	public enum Kind
+	{
+		SUCCESS,
+		NOT_FOUND,
+		CONDITION_FAILED,
+		/**
+		 * The same operation may well succeed if tried again later.
+		 */
+		TRANSIENT,
+		/**
+		 * Trying again will not help.
+		 */
+		PERMANENT
+	}
+
+	final int _code;
+	final Kind _kind;
+
+	Status(int code, Kind kind)
+	{
+		_code=code;
+		_kind=kind;
+	}
+
+	/**
+	 * @return the int a DB method returns for this status
+	 */
+	public int getCode()
+	{
+		return _code;
+	}
+
+	public Kind getKind()
+	{
+		return _kind;
+	}
+
+	public boolean isOk()
+	{
+		return _kind==Kind.SUCCESS;
+	}
+
+	public boolean isTransient()
+	{
+		return _kind==Kind.TRANSIENT;
+	}
+
+	/**
+	 * Whether the operation certainly did not take effect, so it can be retried even if it is not idempotent.
+	 */
+	public boolean isRejected()
+	{
+		return (this==THROTTLED) || (this==UNAVAILABLE);
+	}
+
+	/**
+	 * @return the status of a return code; codes not listed here are ERROR
+	 */
+	public static Status of(int code)
+	{
+		switch (code)
+		{
+		case 0:
+			return OK;
+		case -3:
+			return NOT_FOUND;
+		case DB.CONDITION_FAILED:
+			return CONDITION_FAILED;
+		case -4:
+			return TIMEOUT;
+		case -5:
+			return THROTTLED;
+		case -6:
+			return UNAVAILABLE;
+		case -7:
+			return BAD_REQUEST;
+		case -8:
+			return NOT_IMPLEMENTED;
+		default:
+			return ERROR;
+		}
+	}
+}
@@ -0,0 +1,208 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Date;
+
+/**
+ * A field value with a type, for bindings that store numbers, timestamps and binary values in their native encoding.
+ *
+ * It is also a ByteIterator over a plain encoding of the value, so bindings that know nothing of types store it as
+ * before: numbers and timestamps (in milliseconds since the epoch) as decimal strings, binary values as their bytes.
+ */
+public class TypedValue extends ByteIterator
+{
+	private static final Charset ASCII=Charset.forName("US-ASCII");
+
+	final FieldType type;
+	final long longvalue;
+	final double doublevalue;
+	final byte[] bytesvalue;
+
+	//the plain encoding, made the first time the value is iterated over
+	ByteArrayByteIterator encoded;
+
+	TypedValue(FieldType type, long longvalue, double doublevalue, byte[] bytesvalue)
+	{
+		this.type=type;
+		this.longvalue=longvalue;
+		this.doublevalue=doublevalue;
+		this.bytesvalue=bytesvalue;
+	}
+
+	public static TypedValue ofLong(long value)
+	{
+		return new TypedValue(FieldType.LONG,value,0,null);
+	}
+
+	public static TypedValue ofDouble(double value)
+	{
+		return new TypedValue(FieldType.DOUBLE,0,value,null);
+	}
+
+	public static TypedValue ofTimestamp(long millis)
+	{
+		return new TypedValue(FieldType.TIMESTAMP,millis,0,null);
+	}
+
+	public static TypedValue ofBinary(byte[] value)
+	{
+		return new TypedValue(FieldType.BINARY,0,0,value);
+	}
+
+	/**
+	 * Wrap a value as read from a database that returns typed objects: Long or Integer, Double or Float, Date, or
+	 * byte[]. Anything else is taken as a string.
+	 */
+	public static ByteIterator of(Object value)
+	{
+		if ( (value instanceof Long) || (value instanceof Integer) )
+		{
+			return ofLong(((Number)value).longValue());
+		}
+		if ( (value instanceof Double) || (value instanceof Float) )
+		{
+			return ofDouble(((Number)value).doubleValue());
+		}
+		if (value instanceof Date)
+		{
+			return ofTimestamp(((Date)value).getTime());
+		}
+		if (value instanceof byte[])
+		{
+			return ofBinary((byte[])value);
+		}
+		return new StringByteIterator(String.valueOf(value));
+	}
+
+	/**
+	 * @return the same value, not yet iterated over
+	 */
+	public TypedValue copy()
+	{
+		return new TypedValue(type,longvalue,doublevalue,bytesvalue);
+	}
+
+	public FieldType getType()
+	{
+		return type;
+	}
+
+	/**
+	 * @return the value of a LONG, or the milliseconds since the epoch of a TIMESTAMP
+	 */
+	public long getLong()
+	{
+		return longvalue;
+	}
+
+	public double getDouble()
+	{
+		return doublevalue;
+	}
+
+	public Date getDate()
+	{
+		return new Date(longvalue);
+	}
+
+	public byte[] getBytes()
+	{
+		return bytesvalue;
+	}
+
+	/**
+	 * @return the value as the Java object document stores take: Long, Double, Date or byte[]
+	 */
+	public Object getObject()
+	{
+		switch (type)
+		{
+		case LONG:
+			return longvalue;
+		case DOUBLE:
+			return doublevalue;
+		case TIMESTAMP:
+			return getDate();
+		default:
+			return bytesvalue;
+		}
+	}
+
+	/**
+	 * @return the plain encoding of a number or timestamp
+	 */
+	String plain()
+	{
+		return (type==FieldType.DOUBLE) ? Double.toString(doublevalue) : Long.toString(longvalue);
+	}
+
+	ByteArrayByteIterator encoded()
+	{
+		if (encoded==null)
+		{
+			encoded=new ByteArrayByteIterator( (type==FieldType.BINARY) ? bytesvalue : plain().getBytes(ASCII) );
+		}
+		return encoded;
+	}
+
+	@Override
+	public boolean hasNext()
+	{
+		return encoded().hasNext();
+	}
+
+	@Override
+	public byte nextByte()
+	{
+		return encoded().nextByte();
+	}
+
+	@Override
+	public long bytesLeft()
+	{
+		return encoded().bytesLeft();
+	}
+
+	@Override
+	public byte[] toArray()
+	{
+		return encoded().toArray();
+	}
+
+	@Override
+	public ByteBuffer toByteBuffer()
+	{
+		return encoded().toByteBuffer();
+	}
+
+	@Override
+	public String toString()
+	{
+		if ( (encoded==null) && (type!=FieldType.BINARY) )
+		{
+			//consume the value without encoding it
+			encoded=new ByteArrayByteIterator(new byte[0]);
+			return plain();
+		}
+		return super.toString();
+	}
+}
@@ -18,6 +18,7 @@
 package com.yahoo.ycsb;
 
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Utility functions.
@@ -26,15 +27,75 @@ public class Utils
 {
   private static final Random rand = new Random();
   private static final ThreadLocal<Random> rng = new ThreadLocal<Random>();
+  private static final ThreadLocal<Long> streams = new ThreadLocal<Long>();
 
+  private static volatile boolean seeded = false;
+  private static volatile long seed;
+  //stream ids for threads that never called initThreadRandom(), clear of the ids client threads use
+  private static final AtomicLong otherstreams = new AtomicLong(1L << 32);
+
+  /**
+   * Return the random number generator of the calling thread.
+   */
   public static Random random() {
     Random ret = rng.get();
     if(ret == null) {
-      ret = new Random(rand.nextLong());
+      ret = seeded ? SplitMixRandom.stream(seed, otherstreams.getAndIncrement()) : new SplitMixRandom(rand.nextLong());
       rng.set(ret);
     }
     return ret;
   }
+
+  /**
+   * Make every thread's generator derive from the given seed, so runs with the same seed see
+   * the same random choices. Call this before any thread (including the calling one) has used random().
+   */
+  public static void setSeed(long s) {
+    seed = s;
+    seeded = true;
+  }
+
+  /**
+   * Give the calling thread the generator for the given stream. When a seed has been set, a
+   * thread's sequence then depends only on the seed and the stream id, not on the order in which
+   * threads happen to start; otherwise the thread just gets a fresh unseeded generator.
+   */
+  public static void initThreadRandom(long streamid) {
+    rng.set(seeded ? SplitMixRandom.stream(seed, streamid) : new SplitMixRandom(rand.nextLong()));
+    streams.set(streamid);
+  }
+
+  /**
+   * Return a new generator for the calling thread that is separate from random(), for choices
+   * (such as backoff jitter or injected faults) that should repeat with the seed without
+   * changing the operations the workload chooses. Generators for different purposes on the same
+   * thread are independent of each other.
+   */
+  public static Random newRandom(String purpose) {
+    if(!seeded) {
+      return new SplitMixRandom(rand.nextLong());
+    }
+    Long streamid = streams.get();
+    return SplitMixRandom.stream(seed + FNVhash64(purpose.hashCode()),
+        (streamid != null) ? streamid : otherstreams.getAndIncrement());
+  }
+
+  /**
+   * Return a uniformly distributed long in [0, bound). Bounds that fit in an int are
+   * delegated to Random.nextInt().
+   */
+  public static long randomLong(long bound) {
+    Random r = random();
+    if (bound <= Integer.MAX_VALUE) {
+      return r.nextInt((int)bound);
+    }
+    long bits, val;
+    do {
+      bits = r.nextLong() >>> 1;
+      val = bits % bound;
+    } while (bits - val + (bound - 1) < 0);
+    return val;
+  }
       /**
        * Generate a random ASCII string of a given length.
        */
@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.cache;
+
+/**
+ * A bounded cache with some eviction policy. Entries have a weight (1 each to bound the number of entries, or their
+ * size to bound the bytes), and the cache evicts entries as needed to keep their total weight within its capacity.
+ *
+ * Caches are not thread safe; callers must synchronize on them.
+ */
+public abstract class Cache<K,V>
+{
+	final long _capacity;
+	long _weight=0;
+	long _evictions=0;
+
+	protected Cache(long capacity)
+	{
+		_capacity=capacity;
+	}
+
+	/**
+	 * Create a cache.
+	 *
+	 * @param policy The eviction policy: lru, tinylfu or clock.
+	 * @param capacity The most weight the cache holds.
+	 * @param entries About how many entries the cache will hold, for policies that keep statistics.
+	 */
+	public static <K,V> Cache<K,V> create(String policy, long capacity, long entries)
+	{
+		if (policy.equals("lru"))
+		{
+			return new LruCache<K,V>(capacity);
+		}
+		else if (policy.equals("tinylfu"))
+		{
+			return new TinyLfuCache<K,V>(capacity,entries);
+		}
+		else if (policy.equals("clock"))
+		{
+			return new ClockCache<K,V>(capacity);
+		}
+		throw new IllegalArgumentException("Unknown cache policy \""+policy+"\"");
+	}
+
+	/**
+	 * Look up an entry, noting the access.
+	 *
+	 * @return the value, or null if it is not cached
+	 */
+	public abstract V get(K key);
+
+	/**
+	 * Add or replace an entry, then evict entries if the cache holds too much. An entry heavier than the whole cache
+	 * is evicted at once.
+	 */
+	public abstract void put(K key, V value, int weight);
+
+	/**
+	 * Remove an entry if it is cached.
+	 */
+	public abstract void remove(K key);
+
+	/**
+	 * @return the number of entries cached
+	 */
+	public abstract int size();
+
+	/**
+	 * @return the total weight of the entries cached
+	 */
+	public long weight()
+	{
+		return _weight;
+	}
+
+	/**
+	 * @return how many entries have been evicted to make room
+	 */
+	public long evictions()
+	{
+		return _evictions;
+	}
+}
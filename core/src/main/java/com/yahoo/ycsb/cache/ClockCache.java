@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.cache;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * CLOCK, the one-bit approximation of LRU: entries sit in a ring of slots with a referenced bit that accesses set. To
+ * evict, a hand sweeps the ring, clearing the bits it finds set and evicting the first entry whose bit is clear.
+ */
+public class ClockCache<K,V> extends Cache<K,V>
+{
+	static class Slot<K,V>
+	{
+		K key;
+		V value;
+		int weight;
+		boolean referenced;
+	}
+
+	final HashMap<K,Slot<K,V>> _index=new HashMap<K,Slot<K,V>>();
+	final ArrayList<Slot<K,V>> _ring=new ArrayList<Slot<K,V>>();
+	//slots of removed entries, to be reused
+	final ArrayDeque<Slot<K,V>> _free=new ArrayDeque<Slot<K,V>>();
+	int _hand=0;
+
+	public ClockCache(long capacity)
+	{
+		super(capacity);
+	}
+
+	@Override
+	public V get(K key)
+	{
+		Slot<K,V> slot=_index.get(key);
+		if (slot==null)
+		{
+			return null;
+		}
+		slot.referenced=true;
+		return slot.value;
+	}
+
+	@Override
+	public void put(K key, V value, int weight)
+	{
+		Slot<K,V> slot=_index.get(key);
+		if (slot!=null)
+		{
+			_weight+=weight-slot.weight;
+			slot.referenced=true;
+		}
+		else
+		{
+			slot=_free.poll();
+			if (slot==null)
+			{
+				slot=new Slot<K,V>();
+				_ring.add(slot);
+			}
+			slot.key=key;
+			slot.referenced=false;
+			_index.put(key,slot);
+			_weight+=weight;
+		}
+		slot.value=value;
+		slot.weight=weight;
+
+		while (_weight>_capacity)
+		{
+			Slot<K,V> candidate=_ring.get(_hand);
+			_hand=(_hand+1)%_ring.size();
+			if (candidate.key==null)
+			{
+				continue;
+			}
+			if (candidate.referenced)
+			{
+				candidate.referenced=false;
+			}
+			else
+			{
+				remove(candidate.key);
+				_evictions++;
+			}
+		}
+	}
+
+	@Override
+	public void remove(K key)
+	{
+		Slot<K,V> slot=_index.remove(key);
+		if (slot!=null)
+		{
+			_weight-=slot.weight;
+			slot.key=null;
+			slot.value=null;
+			_free.add(slot);
+		}
+	}
+
+	@Override
+	public int size()
+	{
+		return _index.size();
+	}
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.cache;
+
+/**
+ * Estimates how often keys have been seen recently: a count-min sketch of 4-bit counters, all halved once the
+ * number of increments reaches ten times the width, so that old popularity fades.
+ */
+public class FrequencySketch
+{
+	static final int DEPTH=4;
+	static final int MAX_COUNT=15;
+
+	final byte[] _counters;
+	final int _mask;
+	final long _resetinterval;
+	long _increments=0;
+
+	/**
+	 * @param entries About how many keys the sketch should tell apart.
+	 */
+	public FrequencySketch(long entries)
+	{
+		int width=Integer.highestOneBit((int)Math.max(16,Math.min(entries,1<<28))-1)<<1;
+		_counters=new byte[DEPTH*width];
+		_mask=width-1;
+		_resetinterval=10L*width;
+	}
+
+	static long mix(long z)
+	{
+		z=(z^(z>>>33))*0xff51afd7ed558ccdL;
+		z=(z^(z>>>33))*0xc4ceb9fe1a85ec53L;
+		return z^(z>>>33);
+	}
+
+	int index(long hash, int row)
+	{
+		//double hashing: one counter per row
+		int h=(int)hash+row*(int)(hash>>>32);
+		return row*(_mask+1)+(h&_mask);
+	}
+
+	public void increment(Object key)
+	{
+		long hash=mix(key.hashCode());
+		int min=frequency(hash);
+		if (min>=MAX_COUNT)
+		{
+			return;
+		}
+		//conservative update: only raise the counters at the minimum
+		for (int row=0; row<DEPTH; row++)
+		{
+			int i=index(hash,row);
+			if (_counters[i]==min)
+			{
+				_counters[i]++;
+			}
+		}
+		if (++_increments>=_resetinterval)
+		{
+			for (int i=0; i<_counters.length; i++)
+			{
+				_counters[i]>>=1;
+			}
+			_increments/=2;
+		}
+	}
+
+	public int frequency(Object key)
+	{
+		return frequency(mix(key.hashCode()));
+	}
+
+	int frequency(long hash)
+	{
+		int min=MAX_COUNT;
+		for (int row=0; row<DEPTH; row++)
+		{
+			min=Math.min(min,_counters[index(hash,row)]);
+		}
+		return min;
+	}
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Evicts the least recently used entries.
+ */
+public class LruCache<K,V> extends Cache<K,V>
+{
+	static class Entry<V>
+	{
+		final V value;
+		final int weight;
+
+		Entry(V value, int weight)
+		{
+			this.value=value;
+			this.weight=weight;
+		}
+	}
+
+	final LinkedHashMap<K,Entry<V>> _entries=new LinkedHashMap<K,Entry<V>>(16,0.75f,true);
+
+	public LruCache(long capacity)
+	{
+		super(capacity);
+	}
+
+	@Override
+	public V get(K key)
+	{
+		Entry<V> entry=_entries.get(key);
+		return (entry==null) ? null : entry.value;
+	}
+
+	@Override
+	public void put(K key, V value, int weight)
+	{
+		Entry<V> old=_entries.put(key,new Entry<V>(value,weight));
+		_weight+=weight-((old==null) ? 0 : old.weight);
+		Iterator<Entry<V>> eldest=_entries.values().iterator();
+		while (_weight>_capacity)
+		{
+			_weight-=eldest.next().weight;
+			eldest.remove();
+			_evictions++;
+		}
+	}
+
+	@Override
+	public void remove(K key)
+	{
+		Entry<V> old=_entries.remove(key);
+		if (old!=null)
+		{
+			_weight-=old.weight;
+		}
+	}
+
+	@Override
+	public int size()
+	{
+		return _entries.size();
+	}
+}
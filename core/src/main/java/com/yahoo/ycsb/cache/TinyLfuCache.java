@@ -0,0 +1,231 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.cache;
+
+import java.util.HashMap;
+
+/**
+ * W-TinyLFU: new entries go into a small LRU window (1% of the capacity). Entries pushed out of the window are only
+ * admitted into the main cache if they have been seen more often recently, according to a FrequencySketch, than the
+ * entry the main cache would evict for them. The main cache is a segmented LRU: entries start in the probation
+ * segment and move to the protected segment (80% of the main cache) when accessed again.
+ */
+public class TinyLfuCache<K,V> extends Cache<K,V>
+{
+	static final int WINDOW=0;
+	static final int PROBATION=1;
+	static final int PROTECTED=2;
+
+	static class Node<K,V>
+	{
+		K key;
+		V value;
+		int weight;
+		int region;
+		Node<K,V> prev;
+		Node<K,V> next;
+	}
+
+	/**
+	 * A doubly linked list of nodes, least recently used first.
+	 */
+	static class Queue<K,V>
+	{
+		final Node<K,V> head=new Node<K,V>();
+		long weight=0;
+
+		Queue()
+		{
+			head.prev=head;
+			head.next=head;
+		}
+
+		Node<K,V> first()
+		{
+			return (head.next==head) ? null : head.next;
+		}
+
+		Node<K,V> last()
+		{
+			return (head.prev==head) ? null : head.prev;
+		}
+
+		void add(Node<K,V> node)
+		{
+			node.prev=head.prev;
+			node.next=head;
+			head.prev.next=node;
+			head.prev=node;
+			weight+=node.weight;
+		}
+
+		void remove(Node<K,V> node)
+		{
+			node.prev.next=node.next;
+			node.next.prev=node.prev;
+			node.prev=null;
+			node.next=null;
+			weight-=node.weight;
+		}
+
+		void touch(Node<K,V> node)
+		{
+			remove(node);
+			add(node);
+		}
+	}
+
+	final HashMap<K,Node<K,V>> _data=new HashMap<K,Node<K,V>>();
+	@SuppressWarnings({"unchecked","rawtypes"})
+	final Queue<K,V>[] _regions=new Queue[] {new Queue<K,V>(),new Queue<K,V>(),new Queue<K,V>()};
+	final FrequencySketch _sketch;
+	final long _windowmax;
+	final long _protectedmax;
+
+	/**
+	 * @param entries About how many entries the cache will hold, to size the frequency sketch.
+	 */
+	public TinyLfuCache(long capacity, long entries)
+	{
+		super(capacity);
+		_sketch=new FrequencySketch(entries);
+		_windowmax=Math.max(1,capacity/100);
+		_protectedmax=(long)((capacity-_windowmax)*0.8);
+	}
+
+	@Override
+	public V get(K key)
+	{
+		_sketch.increment(key);
+		Node<K,V> node=_data.get(key);
+		if (node==null)
+		{
+			return null;
+		}
+		access(node);
+		return node.value;
+	}
+
+	void access(Node<K,V> node)
+	{
+		if (node.region==PROBATION)
+		{
+			move(node,PROTECTED);
+			//make room in the protected segment by demoting its least recently used entries
+			Queue<K,V> protect=_regions[PROTECTED];
+			while ( (protect.weight>_protectedmax) && (protect.first()!=node) )
+			{
+				move(protect.first(),PROBATION);
+			}
+		}
+		else
+		{
+			_regions[node.region].touch(node);
+		}
+	}
+
+	void move(Node<K,V> node, int region)
+	{
+		_regions[node.region].remove(node);
+		node.region=region;
+		_regions[region].add(node);
+	}
+
+	@Override
+	public void put(K key, V value, int weight)
+	{
+		_sketch.increment(key);
+		Node<K,V> node=_data.get(key);
+		if (node!=null)
+		{
+			Queue<K,V> queue=_regions[node.region];
+			queue.remove(node);
+			_weight+=weight-node.weight;
+			node.value=value;
+			node.weight=weight;
+			queue.add(node);
+		}
+		else
+		{
+			node=new Node<K,V>();
+			node.key=key;
+			node.value=value;
+			node.weight=weight;
+			node.region=WINDOW;
+			_data.put(key,node);
+			_regions[WINDOW].add(node);
+			_weight+=weight;
+		}
+		evict();
+	}
+
+	void evict()
+	{
+		//entries leaving the window become candidates at the end of the probation segment
+		Queue<K,V> window=_regions[WINDOW];
+		Node<K,V> candidate=null;
+		while ( (window.weight>_windowmax) && (window.first()!=null) )
+		{
+			candidate=window.first();
+			move(candidate,PROBATION);
+		}
+
+		Queue<K,V> probation=_regions[PROBATION];
+		while (_weight>_capacity)
+		{
+			Node<K,V> victim=probation.first();
+			if (victim==null)
+			{
+				victim=(_regions[PROTECTED].first()!=null) ? _regions[PROTECTED].first() : window.first();
+			}
+			else if ( (candidate!=null) && (candidate!=victim) && (candidate.region==PROBATION) )
+			{
+				//admit the candidate only if it is more popular than the victim
+				if (_sketch.frequency(candidate.key)<=_sketch.frequency(victim.key))
+				{
+					victim=candidate;
+					candidate=null;
+				}
+			}
+			evict(victim);
+		}
+	}
+
+	void evict(Node<K,V> node)
+	{
+		remove(node.key);
+		_evictions++;
+	}
+
+	@Override
+	public void remove(K key)
+	{
+		Node<K,V> node=_data.remove(key);
+		if (node!=null)
+		{
+			_regions[node.region].remove(node);
+			_weight-=node.weight;
+		}
+	}
+
+	@Override
+	public int size()
+	{
+		return _data.size();
+	}
+}
@@ -0,0 +1,137 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A CounterGenerator whose lastLong() only moves past a value once that value, and every value before it, has been
+ * acknowledged. Use it for insert keys: hand out keys with nextLong(), acknowledge() them once the insert has completed,
+ * and choose keys to read from the range up to lastLong(). Readers then never target keys whose insert is still in flight.
+ *
+ * Acknowledgements are recorded without locks in a sliding window of slots, one per outstanding value. A slot holds the value
+ * that was acknowledged into it, so a slot is reused simply by overwriting it once the window has moved past its old value.
+ * The limit (the highest contiguously acknowledged value) is advanced with compare-and-set by whichever thread sees that the
+ * next value has been acknowledged.
+ *
+ * If a value is still unacknowledged when acknowledgements arrive a full window beyond it (e.g. it was reserved in a block
+ * that its thread never used up), the limit is moved past it rather than letting the window overflow.
+ */
+public class AcknowledgedCounterGenerator extends CounterGenerator
+{
+	/**
+	 * The default number of values that may be outstanding (handed out but not yet acknowledged) at once.
+	 */
+	public static final int WINDOW_SIZE_DEFAULT=1<<16;
+
+	final AtomicLongArray window;
+	final int windowmask;
+	final AtomicLong limit;
+	final AtomicBoolean warnedoverflow;
+
+	/**
+	 * Create a counter that starts at countstart.
+	 */
+	public AcknowledgedCounterGenerator(long countstart)
+	{
+		this(countstart,1,WINDOW_SIZE_DEFAULT);
+	}
+
+	/**
+	 * Create a counter that starts at countstart, reserves blocksize values at a time and tracks up to windowsize outstanding
+	 * values.
+	 *
+	 * @param windowsize The number of outstanding values to track. Must be a power of two.
+	 */
+	public AcknowledgedCounterGenerator(long countstart, int blocksize, int windowsize)
+	{
+		super(countstart,blocksize);
+		if ( (windowsize<=0) || ((windowsize&(windowsize-1))!=0) )
+		{
+			throw new IllegalArgumentException("Acknowledgement window size must be a power of two, got "+windowsize);
+		}
+		window=new AtomicLongArray(windowsize);
+		for (int i=0; i<windowsize; i++)
+		{
+			window.set(i,-1);
+		}
+		windowmask=windowsize-1;
+		limit=new AtomicLong(countstart-1);
+		warnedoverflow=new AtomicBoolean(false);
+	}
+
+	/**
+	 * Return the largest value such that it, and every value before it, has been acknowledged.
+	 */
+	@Override
+	public long lastLong()
+	{
+		return limit.get();
+	}
+
+	/**
+	 * Mark a value returned by nextLong() as done, e.g. because the insert of that key has completed (successfully or not).
+	 */
+	public void acknowledge(long value)
+	{
+		long current=limit.get();
+		if (value<=current)
+		{
+			return;
+		}
+
+		if (value-current>window.length())
+		{
+			//give up on the values that are a full window behind, so this value's slot can be reused
+			if (warnedoverflow.compareAndSet(false,true))
+			{
+				System.err.println("WARNING: insert key "+(current+1)+" still unacknowledged "+window.length()+" keys later; treating older keys as acknowledged");
+			}
+			long newlimit=value-window.length();
+			while ( (current=limit.get()) < newlimit )
+			{
+				limit.compareAndSet(current,newlimit);
+			}
+		}
+
+		window.set((int)(value&windowmask),value);
+
+		//advance the limit over every contiguously acknowledged value
+		for (;;)
+		{
+			current=limit.get();
+			long next=current+1;
+			if (window.get((int)(next&windowmask))!=next)
+			{
+				return;
+			}
+			limit.compareAndSet(current,next);
+		}
+	}
+
+	/**
+	 * The copy shares the sequence and the acknowledgements of this counter, but reserves its own blocks.
+	 */
+	@Override
+	public AcknowledgedCounterGenerator clone()
+	{
+		return (AcknowledgedCounterGenerator)super.clone();
+	}
+}
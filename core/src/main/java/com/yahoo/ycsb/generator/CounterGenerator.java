@@ -17,36 +17,78 @@
 
 package com.yahoo.ycsb.generator;
 
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Generates a sequence of integers 0, 1, ...
+ * 
+ * Clones of a counter share its sequence. A counter created with a block size greater than one reserves that many values
+ * from the shared sequence at a time and hands them out one by one, so threads touch the shared counter once per block
+ * instead of once per value. Such a counter must then only be used by one thread; give each thread its own clone.
  */
 public class CounterGenerator extends IntegerGenerator
 {
-	final AtomicInteger counter;
+	final AtomicLong counter;
+
+	final int blocksize;
+
+	/**
+	 * The next value of the reserved block, and the end (exclusive) of the block.
+	 */
+	long blocknext,blockend;
 
 	/**
 	 * Create a counter that starts at countstart
 	 */
-	public CounterGenerator(int countstart)
+	public CounterGenerator(long countstart)
+	{
+		this(countstart,1);
+	}
+
+	/**
+	 * Create a counter that starts at countstart and reserves blocksize values at a time.
+	 */
+	public CounterGenerator(long countstart, int blocksize)
 	{
-		counter=new AtomicInteger(countstart);
-		setLastInt(counter.get()-1);
+		if (blocksize<1)
+		{
+			throw new IllegalArgumentException("Counter block size must be positive, got "+blocksize);
+		}
+		counter=new AtomicLong(countstart);
+		this.blocksize=blocksize;
+		blocknext=blockend=0;
+		setLastLong(counter.get()-1);
 	}
 	
 	/**
-	 * If the generator returns numeric (integer) values, return the next value as an int. Default is to return -1, which
+	 * If the generator returns numeric (integer) values, return the next value as a long. Default is to return -1, which
 	 * is appropriate for generators that do not return numeric values.
 	 */
-	public int nextInt() 
+	public long nextLong() 
 	{
-		int ret = counter.getAndIncrement();
-		setLastInt(ret);
+		long ret;
+		if (blocksize==1)
+		{
+			ret = counter.getAndIncrement();
+		}
+		else
+		{
+			if (blocknext==blockend)
+			{
+				blocknext=counter.getAndAdd(blocksize);
+				blockend=blocknext+blocksize;
+			}
+			ret = blocknext++;
+		}
+		setLastLong(ret);
 		return ret;
 	}
+
+	/**
+	 * Return the largest value handed out (or reserved in a block) so far, by any clone of this counter.
+	 */
 	@Override
-	public int lastInt()
+	public long lastLong()
 	{
 	                return counter.get() - 1;
 	}
@@ -54,4 +96,15 @@ public class CounterGenerator extends IntegerGenerator
 	public double mean() {
 		throw new UnsupportedOperationException("Can't compute mean of non-stationary distribution!");
 	}
+
+	/**
+	 * The copy shares the sequence of this counter, but reserves its own blocks.
+	 */
+	@Override
+	public CounterGenerator clone()
+	{
+		CounterGenerator ret=(CounterGenerator)super.clone();
+		ret.blocknext=ret.blockend=0;
+		return ret;
+	}
 }
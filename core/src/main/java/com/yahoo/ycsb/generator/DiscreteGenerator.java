@@ -111,4 +111,15 @@ public class DiscreteGenerator extends Generator
 		_values.add(new Pair(weight,value));
 	}
 
+	/**
+	 * The copy gets its own list of values, since iterating over a shared Vector locks it.
+	 */
+	@Override
+	public DiscreteGenerator clone()
+	{
+		DiscreteGenerator ret=(DiscreteGenerator)super.clone();
+		ret._values=new Vector<Pair>(_values);
+		return ret;
+	}
+
 }
@@ -0,0 +1,187 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import com.yahoo.ycsb.Utils;
+
+/**
+ * Chooses items in [0, items) with a popularity that changes over time.
+ *
+ * A base generator draws popularity ranks (0 being the most popular), which are mapped to items in a way that depends
+ * on the time since the generator was created:
+ * <ul>
+ * <li>Drift: the ranks are shifted by an offset that grows at a fixed speed, so the hot items slide across the item space
+ * and wrap around.
+ * <li>Reshuffle: every reshuffle interval, the ranks are mapped through a new random permutation, so a different set of
+ * items suddenly becomes hot.
+ * <li>Flash crowds: in each flash crowd interval, with some probability, a small random set of items receives a fixed
+ * share of the requests for a while.
+ * </ul>
+ * Everything is derived from the elapsed time and the seed, so all copies of a generator (one per thread) agree on which
+ * items are hot at any moment without sharing any state.
+ */
+public class DriftingPopularityGenerator extends IntegerGenerator
+{
+	IntegerGenerator _ranks;
+	final long _items;
+	final long _seed;
+	final long _startnanos;
+
+	double _itemspermilli=0;
+	long _reshuffleinterval=0;
+
+	long _flashinterval=0;
+	double _flashprobability;
+	long _flashduration;
+	long _flashitems;
+	double _flashfraction;
+
+	//the permutations of the current reshuffle epoch and flash crowd window; each copy caches its own
+	long _epoch=-1;
+	FeistelPermutation _epochpermutation;
+	long _flashwindow=-1;
+	FeistelPermutation _flashpermutation;
+
+	/**
+	 * Create a generator whose popularity does not change until drift, reshuffles or flash crowds are set up.
+	 *
+	 * @param ranks The generator of popularity ranks; must return values in [0, items).
+	 * @param items The number of items.
+	 * @param seed The seed of the reshuffle and flash crowd randomness.
+	 */
+	public DriftingPopularityGenerator(IntegerGenerator ranks, long items, long seed)
+	{
+		_ranks=ranks;
+		_items=items;
+		_seed=seed;
+		_startnanos=System.nanoTime();
+	}
+
+	/**
+	 * Make the hot items slide across the item space.
+	 *
+	 * @param fractionpersecond The fraction of the item space the ranks move by per second.
+	 */
+	public void setDrift(double fractionpersecond)
+	{
+		_itemspermilli=fractionpersecond*_items/1000.0;
+	}
+
+	/**
+	 * Reassign the popularity of all items every interval.
+	 *
+	 * @param intervalmillis The time between reshuffles, or 0 for no reshuffles.
+	 */
+	public void setReshuffleInterval(long intervalmillis)
+	{
+		_reshuffleinterval=intervalmillis;
+	}
+
+	/**
+	 * Add flash crowds.
+	 *
+	 * @param intervalmillis Time is divided into windows of this length, each of which may have one flash crowd; 0 for none.
+	 * @param probability The probability that a window has a flash crowd.
+	 * @param durationmillis How long a flash crowd lasts.
+	 * @param items How many items a flash crowd goes to.
+	 * @param fraction The fraction of requests that go to the flash crowd while it lasts.
+	 */
+	public void setFlashCrowds(long intervalmillis, double probability, long durationmillis, long items, double fraction)
+	{
+		_flashinterval=intervalmillis;
+		_flashprobability=probability;
+		_flashduration=Math.min(durationmillis,intervalmillis);
+		_flashitems=Math.max(1,Math.min(items,_items));
+		_flashfraction=fraction;
+	}
+
+	@Override
+	public long nextLong()
+	{
+		return nextLong((System.nanoTime()-_startnanos)/1000000);
+	}
+
+	/**
+	 * Return the next item as chosen the given number of milliseconds after the generator was created.
+	 */
+	public long nextLong(long elapsedmillis)
+	{
+		long item;
+		if ( (_flashinterval>0) && inFlashCrowd(elapsedmillis) && (Utils.random().nextDouble()<_flashfraction) )
+		{
+			item=_flashpermutation.permute(Utils.randomLong(_flashitems));
+		}
+		else
+		{
+			long rank=_ranks.nextLong();
+			if (_reshuffleinterval>0)
+			{
+				long epoch=elapsedmillis/_reshuffleinterval;
+				if (epoch!=_epoch)
+				{
+					_epochpermutation=new FeistelPermutation(_items,FeistelPermutation.mix64(_seed+epoch));
+					_epoch=epoch;
+				}
+				rank=_epochpermutation.permute(rank);
+			}
+			long offset=(long)((elapsedmillis*_itemspermilli)%_items);
+			item=(rank+offset)%_items;
+		}
+		setLastLong(item);
+		return item;
+	}
+
+	/**
+	 * Whether a flash crowd is going on; if so, sets up _flashpermutation for the current window.
+	 */
+	boolean inFlashCrowd(long elapsedmillis)
+	{
+		long window=elapsedmillis/_flashinterval;
+		long h=FeistelPermutation.mix64(~_seed+window*0x9E3779B97F4A7C15L);
+		if ( (h>>>11)*0x1.0p-53>=_flashprobability )
+		{
+			return false;
+		}
+		long start=(_flashinterval>_flashduration) ? (FeistelPermutation.mix64(h)>>>1)%(_flashinterval-_flashduration) : 0;
+		long intowindow=elapsedmillis-window*_flashinterval;
+		if ( (intowindow<start) || (intowindow>=start+_flashduration) )
+		{
+			return false;
+		}
+		if (window!=_flashwindow)
+		{
+			_flashpermutation=new FeistelPermutation(_items,h);
+			_flashwindow=window;
+		}
+		return true;
+	}
+
+	@Override
+	public double mean()
+	{
+		throw new UnsupportedOperationException("Can't compute mean of non-stationary distribution!");
+	}
+
+	@Override
+	public DriftingPopularityGenerator clone()
+	{
+		DriftingPopularityGenerator copy=(DriftingPopularityGenerator)super.clone();
+		copy._ranks=_ranks.clone();
+		return copy;
+	}
+}
@@ -62,27 +62,18 @@ public class ExponentialGenerator extends IntegerGenerator
 
 	/****************************************************************************************/
 	
-	/** 
-	 * Generate the next item. this distribution will be skewed toward lower integers; e.g. 0 will
-	 * be the most popular, 1 the next most popular, etc.
-	 * @param itemcount The number of items in the distribution.
-	 * @return The next item in the sequence.
-	 */
-	@Override
-	public int nextInt()
-	{
-		return (int)nextLong();
-	}
-
 	/**
-	 * Generate the next item as a long.
+	 * Generate the next item as a long. This distribution will be skewed toward lower integers; e.g. 0 will
+	 * be the most popular, 1 the next most popular, etc.
 	 * 
-	 * @param itemcount The number of items in the distribution.
 	 * @return The next item in the sequence.
 	 */
+	@Override
 	public long nextLong()
 	{
-		return (long) (-Math.log(Utils.random().nextDouble()) / _gamma);
+		long ret=(long) (-Math.log(Utils.random().nextDouble()) / _gamma);
+		setLastLong(ret);
+		return ret;
 	}
 
 	@Override
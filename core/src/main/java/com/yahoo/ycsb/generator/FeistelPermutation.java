@@ -0,0 +1,154 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+/**
+ * A seeded, collision-free permutation of the integers [0, domain). Unlike hashing a value and taking the
+ * result modulo the item count, every input maps to a distinct output, so no item is unreachable and no item
+ * receives the popularity of two ranks.
+ *
+ * The permutation is a balanced Feistel network over the smallest even number of bits that covers the domain.
+ * Outputs that fall outside the domain are fed back through the network ("cycle walking") until they land
+ * inside it. Since the network covers less than four times the domain, this takes fewer than four passes
+ * on average.
+ *
+ * Instances are immutable and may be shared between threads.
+ */
+public class FeistelPermutation
+{
+	/**
+	 * Number of Feistel rounds. Four rounds are enough for the network to behave like a random permutation.
+	 */
+	public static final int ROUNDS=4;
+
+	long _domain;
+	int _halfbits;
+	long _halfmask;
+	long[] _roundkeys;
+
+	/**
+	 * Create a permutation of [0, domain) with the specified seed. Two permutations with the same domain
+	 * and seed are identical.
+	 *
+	 * @param domain The number of values to permute. Must be positive.
+	 * @param seed The seed that selects one of the possible permutations.
+	 */
+	public FeistelPermutation(long domain, long seed)
+	{
+		if (domain<=0)
+		{
+			throw new IllegalArgumentException("Permutation domain must be positive, got "+domain);
+		}
+		_domain=domain;
+
+		int bits=64-Long.numberOfLeadingZeros(domain-1);
+		_halfbits=Math.max(1,(bits+1)/2);
+		_halfmask=(_halfbits==32) ? 0xFFFFFFFFL : (1L<<_halfbits)-1;
+
+		_roundkeys=new long[ROUNDS];
+		long state=seed;
+		for (int i=0; i<ROUNDS; i++)
+		{
+			state+=0x9E3779B97F4A7C15L;
+			_roundkeys[i]=mix64(state);
+		}
+	}
+
+	/**
+	 * @return the number of values in the permuted domain
+	 */
+	public long getDomain()
+	{
+		return _domain;
+	}
+
+	/**
+	 * Map a value in [0, domain) to its position in the permutation.
+	 */
+	public long permute(long value)
+	{
+		if ( (value<0) || (value>=_domain) )
+		{
+			throw new IllegalArgumentException("Value "+value+" outside of permutation domain [0,"+_domain+")");
+		}
+		do
+		{
+			value=encrypt(value);
+		}
+		while ( (value<0) || (value>=_domain) );
+		return value;
+	}
+
+	/**
+	 * Map a position in the permutation back to the value that produced it; the inverse of permute().
+	 */
+	public long unpermute(long value)
+	{
+		if ( (value<0) || (value>=_domain) )
+		{
+			throw new IllegalArgumentException("Value "+value+" outside of permutation domain [0,"+_domain+")");
+		}
+		do
+		{
+			value=decrypt(value);
+		}
+		while ( (value<0) || (value>=_domain) );
+		return value;
+	}
+
+	long encrypt(long value)
+	{
+		long left=(value>>>_halfbits)&_halfmask;
+		long right=value&_halfmask;
+		for (int i=0; i<ROUNDS; i++)
+		{
+			long next=left^round(right,i);
+			left=right;
+			right=next;
+		}
+		return (left<<_halfbits)|right;
+	}
+
+	long decrypt(long value)
+	{
+		long left=(value>>>_halfbits)&_halfmask;
+		long right=value&_halfmask;
+		for (int i=ROUNDS-1; i>=0; i--)
+		{
+			long prev=right^round(left,i);
+			right=left;
+			left=prev;
+		}
+		return (left<<_halfbits)|right;
+	}
+
+	long round(long half, int i)
+	{
+		return mix64(half^_roundkeys[i])&_halfmask;
+	}
+
+	/**
+	 * The 64 bit finalizer from MurmurHash3; every input bit affects every output bit.
+	 */
+	static long mix64(long z)
+	{
+		z=(z^(z>>>33))*0xFF51AFD7ED558CCDL;
+		z=(z^(z>>>33))*0xC4CEB9FE1A85EC53L;
+		return z^(z>>>33);
+	}
+}
@@ -19,8 +19,11 @@ package com.yahoo.ycsb.generator;
 
 /**
  * An expression that generates a sequence of string values, following some distribution (Uniform, Zipfian, Sequential, etc.)
+ * 
+ * Generators can be cloned into per-thread instances, so that client threads do not share (and contend on) the state
+ * that every call to nextString() updates.
  */
-public abstract class Generator 
+public abstract class Generator implements Cloneable
 {
 	/**
 	 * Generate the next string in the distribution.
@@ -33,5 +36,24 @@ public abstract class Generator
 	 * been called, lastString() should return something reasonable.
 	 */
 	public abstract String lastString();
+
+	/**
+	 * Create a copy of this generator for the use of a single client thread. The copy produces the same distribution, draws its
+	 * randomness from the calling thread's Utils.random(), and keeps its own last value. Precomputed, read-only state may be shared
+	 * with the original. Subclasses that hold other mutable state must override this to copy it.
+	 */
+	@Override
+	public Generator clone()
+	{
+		try
+		{
+			return (Generator)super.clone();
+		}
+		catch (CloneNotSupportedException e)
+		{
+			//can't happen, Generator implements Cloneable
+			throw new IllegalStateException(e);
+		}
+	}
 }
 
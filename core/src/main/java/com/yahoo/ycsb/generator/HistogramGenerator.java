@@ -93,18 +93,18 @@ public class HistogramGenerator extends IntegerGenerator {
 	}
 
 	@Override
-	public int nextInt() {
-		int number = Utils.random().nextInt((int)area);
+	public long nextLong() {
+		long number = Utils.randomLong(area);
 		int i;
 		
 		for(i = 0; i < (buckets.length - 1); i++){
 			number -= buckets[i];
 			if(number <= 0){
-				return (int)((i+1)*block_size);
+				return (i+1)*block_size;
 			}
 		}
 		
-		return (int)(i * block_size);
+		return i * block_size;
 	}
 
 	@Override
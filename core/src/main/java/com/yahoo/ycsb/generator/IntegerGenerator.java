@@ -18,35 +18,45 @@
 package com.yahoo.ycsb.generator;
 
 /**
- * A generator that is capable of generating ints as well as strings
+ * A generator that is capable of generating integers as well as strings. Values are 64 bit, so that
+ * keyspaces and operation counts can exceed 2^31; nextInt() and lastInt() are conveniences for
+ * generators whose values are known to be small, such as field lengths.
  * 
  * @author cooperb
  *
  */
 public abstract class IntegerGenerator extends Generator 
 {
-	int lastint;
+	long lastlong;
 	
 	/**
 	 * Set the last value generated. IntegerGenerator subclasses must use this call
-	 * to properly set the last string value, or the lastString() and lastInt() calls won't work.
+	 * to properly set the last string value, or the lastString() and lastLong() calls won't work.
 	 */
-	protected void setLastInt(int last)
+	protected void setLastLong(long last)
 	{
-		lastint=last;
+		lastlong=last;
 	}
 	
 	/**
-	 * Return the next value as an int. When overriding this method, be sure to call setLastString() properly, or the lastString() call won't work.
+	 * Return the next value as a long. When overriding this method, be sure to call setLastLong() properly, or the lastString() call won't work.
 	 */
-	public abstract int nextInt();
+	public abstract long nextLong();
+
+	/**
+	 * Return the next value as an int. Only use this for generators whose values fit in an int.
+	 */
+	public int nextInt()
+	{
+		return (int)nextLong();
+	}
 	
 	/**
 	 * Generate the next string in the distribution.
 	 */
 	public String nextString()
 	{
-		return ""+nextInt();
+		return ""+nextLong();
 	}
 	
 	/**
@@ -57,19 +67,33 @@ public abstract class IntegerGenerator extends Generator
 	@Override
 	public String lastString()
 	{
-		return ""+lastInt();
+		return ""+lastLong();
 	}
 	
 	/**
-	 * Return the previous int generated by the distribution. This call is unique to IntegerGenerator subclasses, and assumes
-	 * IntegerGenerator subclasses always return ints for nextInt() (e.g. not arbitrary strings).
+	 * Return the previous value generated by the distribution. This call is unique to IntegerGenerator subclasses, and assumes
+	 * IntegerGenerator subclasses always return integers for nextLong() (e.g. not arbitrary strings).
+	 */
+	public long lastLong()
+	{
+		return lastlong;
+	}
+
+	/**
+	 * Return the previous value generated by the distribution as an int. Only use this for generators whose values fit in an int.
 	 */
 	public int lastInt()
 	{
-		return lastint;
+		return (int)lastLong();
 	}
 	/**
 	 * Return the expected value (mean) of the values this generator will return.
 	 */
 	public abstract double mean();
+
+	@Override
+	public IntegerGenerator clone()
+	{
+		return (IntegerGenerator)super.clone();
+	}
 }
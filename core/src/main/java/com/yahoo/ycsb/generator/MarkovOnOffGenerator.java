@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import com.yahoo.ycsb.Utils;
+
+/**
+ * A generator of the intervals between the arrivals of a Markov-modulated on/off process: bursts, during which arrivals
+ * form a Poisson process, alternate with idle periods without arrivals. Burst and idle lengths are exponentially
+ * distributed.
+ *
+ * Since the state is carried from one interval to the next, each thread needs its own copy (see Generator.clone()).
+ */
+public class MarkovOnOffGenerator extends IntegerGenerator
+{
+	double _burstrate;
+	double _meanburst;
+	double _meanidle;
+
+	boolean _inburst;
+	double _remaining=-1;
+
+	/**
+	 * Create an on/off process with the given mean rate.
+	 *
+	 * @param meaninterval The mean interval between arrivals, over bursts and idle periods alike.
+	 * @param burstfactor How many times the mean rate arrivals come at during a burst. Must be at least 1.
+	 * @param meanburst The mean length of a burst, in the same unit as the intervals.
+	 */
+	public MarkovOnOffGenerator(double meaninterval, double burstfactor, double meanburst)
+	{
+		if (burstfactor<1)
+		{
+			throw new IllegalArgumentException("Burst factor must be at least 1, got "+burstfactor);
+		}
+		_burstrate=burstfactor/meaninterval;
+		_meanburst=meanburst;
+		//bursts must take 1/burstfactor of the time for the mean rate to come out right
+		_meanidle=meanburst*(burstfactor-1);
+	}
+
+	@Override
+	public long nextLong()
+	{
+		if (_remaining<0)
+		{
+			//start in a burst or an idle period in proportion to the time spent in each
+			_inburst=Utils.random().nextDouble()*(_meanburst+_meanidle)<_meanburst;
+			_remaining=exponential(_inburst ? _meanburst : _meanidle);
+		}
+
+		double interval=0;
+		for (;;)
+		{
+			if (_inburst)
+			{
+				double next=exponential(1.0/_burstrate);
+				if (next<=_remaining)
+				{
+					_remaining-=next;
+					interval+=next;
+					break;
+				}
+			}
+			//the rest of this period passes without an arrival
+			interval+=_remaining;
+			_inburst=!_inburst;
+			_remaining=exponential(_inburst ? _meanburst : _meanidle);
+		}
+		long ret=(long)interval;
+		setLastLong(ret);
+		return ret;
+	}
+
+	static double exponential(double mean)
+	{
+		return -Math.log(1.0-Utils.random().nextDouble())*mean;
+	}
+
+	@Override
+	public double mean()
+	{
+		return (_meanburst+_meanidle)/(_burstrate*_meanburst);
+	}
+}
@@ -0,0 +1,61 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import com.yahoo.ycsb.Utils;
+
+/**
+ * A generator of a Pareto distribution, e.g. of heavy-tailed time intervals: most intervals are a little shorter than
+ * the mean, and a few are very long. The smaller the shape, the heavier the tail.
+ */
+public class ParetoGenerator extends IntegerGenerator
+{
+	double _scale;
+	double _shape;
+
+	/**
+	 * Create a Pareto generator with the given mean and shape.
+	 *
+	 * @param mean The mean of the distribution.
+	 * @param shape The shape (tail index) of the distribution. Must be greater than 1, or the mean would be infinite.
+	 */
+	public ParetoGenerator(double mean, double shape)
+	{
+		if (shape<=1)
+		{
+			throw new IllegalArgumentException("Pareto shape must be greater than 1, got "+shape);
+		}
+		_shape=shape;
+		_scale=mean*(shape-1)/shape;
+	}
+
+	@Override
+	public long nextLong()
+	{
+		//1-nextDouble() is in (0,1], so the power is finite
+		long ret=(long)(_scale/Math.pow(1.0-Utils.random().nextDouble(),1.0/_shape));
+		setLastLong(ret);
+		return ret;
+	}
+
+	@Override
+	public double mean()
+	{
+		return _scale*_shape/(_shape-1);
+	}
+}
@@ -17,8 +17,6 @@
 
 package com.yahoo.ycsb.generator;
 
-import com.yahoo.ycsb.Utils;
-
 /**
  * A generator of a zipfian distribution. It produces a sequence of items, such that some items are more popular than others, according
  * to a zipfian distribution. When you construct an instance of this class, you specify the number of items in the set to draw from, either
@@ -27,14 +25,29 @@ import com.yahoo.ycsb.Utils;
  * 
  * Unlike @ZipfianGenerator, this class scatters the "popular" items across the itemspace. Use this, instead of @ZipfianGenerator, if you
  * don't want the head of the distribution (the popular items) clustered together.
+ * 
+ * Popularity ranks are mapped to items with a seeded @FeistelPermutation over exactly itemcount items, so every item has exactly
+ * one rank: the hot set has the size the zipfian constant implies, no item is unreachable and no item is doubly popular.
  */
 public class ScrambledZipfianGenerator extends IntegerGenerator 
 {
 	public static final double ZETAN=26.46902820178302;
         public static final double USED_ZIPFIAN_CONSTANT=0.99;
 	public static final long ITEM_COUNT=10000000000L;
+
+	/**
+	 * Item counts up to this size compute zeta directly, which is cheap. Larger item counts draw ranks from the precomputed
+	 * ITEM_COUNT distribution and reject the ranks beyond the item count, which leaves an exact zipfian over the item count.
+	 */
+	public static final long MAX_DIRECT_ZETA_ITEM_COUNT=1000000L;
+
+	/**
+	 * The permutation seed used when none is specified.
+	 */
+	public static final long DEFAULT_SEED=0;
 	
 	ZipfianGenerator gen;
+	FeistelPermutation _permutation;
 	long _min,_max,_itemcount;
 	
 	/******************************* Constructors **************************************/
@@ -74,42 +87,54 @@ public class ScrambledZipfianGenerator extends IntegerGenerator
 	
 	/**
 	 * Create a zipfian generator for items between min and max (inclusive) for the specified zipfian constant. If you 
-	 * use a zipfian constant other than 0.99, this will take a long time to complete because we need to recompute zeta.
+	 * use a zipfian constant other than 0.99 with a large number of items, this will take a long time to complete because we need to recompute zeta.
 	 * @param min The smallest integer to generate in the sequence.
 	 * @param max The largest integer to generate in the sequence.
 	 * @param _zipfianconstant The zipfian constant to use.
 	 */
         public ScrambledZipfianGenerator(long min, long max, double _zipfianconstant)
+	{
+		this(min,max,_zipfianconstant,DEFAULT_SEED);
+	}
+
+	/**
+	 * Create a zipfian generator for items between min and max (inclusive) for the specified zipfian constant, scattering
+	 * the popular items with the permutation selected by seed.
+	 * @param min The smallest integer to generate in the sequence.
+	 * @param max The largest integer to generate in the sequence.
+	 * @param _zipfianconstant The zipfian constant to use.
+	 * @param seed The seed of the permutation that maps popularity ranks to items.
+	 */
+	public ScrambledZipfianGenerator(long min, long max, double _zipfianconstant, long seed)
 	{
 		_min=min;
 		_max=max;
 		_itemcount=_max-_min+1;
-		if (_zipfianconstant == USED_ZIPFIAN_CONSTANT) 
+		if ( (_zipfianconstant == USED_ZIPFIAN_CONSTANT) && (_itemcount > MAX_DIRECT_ZETA_ITEM_COUNT) )
 		{
 		    gen=new ZipfianGenerator(0,ITEM_COUNT,_zipfianconstant,ZETAN);
 		} else {
-		    gen=new ZipfianGenerator(0,ITEM_COUNT,_zipfianconstant);
+		    gen=new ZipfianGenerator(0,_itemcount-1,_zipfianconstant);
 		}
+		_permutation=new FeistelPermutation(_itemcount,seed);
 	}
 	
 	/**************************************************************************************************/
 	
-	/**
-	 * Return the next int in the sequence.
-	 */
-	@Override
-	public int nextInt() {
-		return (int)nextLong();
-	}
-
 	/**
 	 * Return the next long in the sequence.
 	 */
+	@Override
 	public long nextLong()
 	{
-		long ret=gen.nextLong();
-		ret=_min+Utils.FNVhash64(ret)%_itemcount;
-		setLastInt((int)ret);
+		long rank;
+		do
+		{
+			rank=gen.nextLong();
+		}
+		while (rank>=_itemcount);
+		long ret=_min+_permutation.permute(rank);
+		setLastLong(ret);
 		return ret;
 	}
 	
@@ -127,11 +152,19 @@ public class ScrambledZipfianGenerator extends IntegerGenerator
 		}
 	}
 
+	@Override
+	public ScrambledZipfianGenerator clone()
+	{
+		ScrambledZipfianGenerator ret=(ScrambledZipfianGenerator)super.clone();
+		ret.gen=gen.clone();
+		return ret;
+	}
+
 	/**
 	 * since the values are scrambled (hopefully uniformly), the mean is simply the middle of the range.
 	 */
 	@Override
 	public double mean() {
-		return ((double)(((long)_min) +(long)_max))/2.0;
+		return _min/2.0+_max/2.0;
 	}
 }
@@ -28,19 +28,19 @@ public class SkewedLatestGenerator extends IntegerGenerator
 	public SkewedLatestGenerator(CounterGenerator basis)
 	{
 		_basis=basis;
-		_zipfian=new ZipfianGenerator(_basis.lastInt());
-		nextInt();
+		_zipfian=new ZipfianGenerator(_basis.lastLong());
+		nextLong();
 	}
 
 	/**
 	 * Generate the next string in the distribution, skewed Zipfian favoring the items most recently returned by the basis generator.
 	 */
-	public int nextInt()
+	public long nextLong()
 	{
-		int max=_basis.lastInt();
-		int nextint=max-_zipfian.nextInt(max);
-		setLastInt(nextint);
-		return nextint;
+		long max=_basis.lastLong();
+		long nextlong=max-_zipfian.nextLong(max);
+		setLastLong(nextlong);
+		return nextlong;
 	}
 
 	public static void main(String[] args)
@@ -58,4 +58,15 @@ public class SkewedLatestGenerator extends IntegerGenerator
 		throw new UnsupportedOperationException("Can't compute mean of non-stationary distribution!");
 	}
 
+	/**
+	 * The copy follows the same basis generator as the original.
+	 */
+	@Override
+	public SkewedLatestGenerator clone()
+	{
+		SkewedLatestGenerator ret=(SkewedLatestGenerator)super.clone();
+		ret._zipfian=_zipfian.clone();
+		return ret;
+	}
+
 }
@@ -63,5 +63,13 @@ public class UniformGenerator extends Generator
 		}
 		return _laststring;
 	}
+
+	@Override
+	public UniformGenerator clone()
+	{
+		UniformGenerator ret=(UniformGenerator)super.clone();
+		ret._gen=(UniformIntegerGenerator)_gen.clone();
+		return ret;
+	}
 }
 
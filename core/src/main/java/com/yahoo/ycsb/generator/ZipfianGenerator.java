@@ -285,7 +285,7 @@ public class ZipfianGenerator extends IntegerGenerator
 		}
 
 		long ret=base+(long)((itemcount) * Math.pow(eta*u - eta + 1, alpha));
-		setLastInt((int)ret);
+		setLastLong(ret);
 		return ret;
 	}
 
@@ -295,16 +295,6 @@ public class ZipfianGenerator extends IntegerGenerator
 	 * popular items scattered throughout the item space, use ScrambledZipfianGenerator instead.
 	 */
 	@Override
-	public int nextInt() 
-	{
-		return (int)nextLong(items);
-	}
-
-	/**
-	 * Return the next value, skewed by the Zipfian distribution. The 0th item will be the most popular, followed by the 1st, followed
-	 * by the 2nd, etc. (Or, if min != 0, the min-th item is the most popular, the min+1th item the next most popular, etc.) If you want the
-	 * popular items scattered throughout the item space, use ScrambledZipfianGenerator instead.
-	 */
 	public long nextLong()
 	{
 		return nextLong(items);
@@ -315,6 +305,12 @@ public class ZipfianGenerator extends IntegerGenerator
 		new ZipfianGenerator(ScrambledZipfianGenerator.ITEM_COUNT);
 	}
 
+	@Override
+	public ZipfianGenerator clone()
+	{
+		return (ZipfianGenerator)super.clone();
+	}
+
 	/**
 	 * @todo Implement ZipfianGenerator.mean()
 	 */
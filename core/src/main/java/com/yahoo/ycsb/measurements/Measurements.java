@@ -19,7 +19,12 @@ package com.yahoo.ycsb.measurements;
 
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import com.yahoo.ycsb.DeadlineWatchdog;
+import com.yahoo.ycsb.Status;
 
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
@@ -35,6 +40,12 @@ public class Measurements
 
 	private static final String MEASUREMENT_TYPE_DEFAULT = "histogram";
 
+	/**
+	 * The latency target of each operation, in milliseconds, for reporting the fraction of operations that meet it;
+	 * defaults to the deadline, if one is set.
+	 */
+	public static final String SLO_PROPERTY = "slo";
+
 	static Measurements singleton=null;
 	
 	static Properties measurementproperties=null;
@@ -56,9 +67,42 @@ public class Measurements
 		return singleton;
 	}
 
+	/**
+	 * The prefix of the measurements of latency from the scheduled (rather than the actual) start of an operation.
+	 */
+	public static final String INTENDED_PREFIX="INTENDED-";
+
 	HashMap<String,OneMeasurement> data;
+
+	/**
+	 * For each operation reported with reportVolume(): records, bytes and nanoseconds spent.
+	 */
+	HashMap<String,long[]> volumes=new HashMap<String,long[]>();
+
+	/**
+	 * The SLO in ns, or 0 for none, and for each operation reported with reportSLO(): the operations, and those
+	 * that missed the SLO.
+	 */
+	long slo;
+	HashMap<String,long[]> slocounts=new HashMap<String,long[]>();
+
+	/**
+	 * For each operation reported with reportHit(): the lookups, and those that hit.
+	 */
+	HashMap<String,long[]> hits=new HashMap<String,long[]>();
 	boolean histogram=true;
 
+	/**
+	 * When each thread's current operation was scheduled to start, in System.nanoTime(), or 0 if it is not paced.
+	 */
+	final ThreadLocal<long[]> intendedstart=new ThreadLocal<long[]>()
+	{
+		protected long[] initialValue()
+		{
+			return new long[1];
+		}
+	};
+
 	private Properties _props;
 	
       /**
@@ -78,6 +122,9 @@ public class Measurements
 		{
 			histogram=false;
 		}
+
+		String deadline=_props.getProperty(DeadlineWatchdog.DEADLINE_PROPERTY,DeadlineWatchdog.DEADLINE_PROPERTY_DEFAULT);
+		slo=TimeUnit.MILLISECONDS.toNanos(Long.parseLong(_props.getProperty(SLO_PROPERTY,deadline)));
 	}
 	
 	OneMeasurement constructOneMeasurement(String name)
@@ -119,6 +166,38 @@ public class Measurements
 		}
 	}
 
+      /**
+       * Set when the calling thread's next operation was scheduled to start, so that its latency can also be measured from
+       * then. With paced (open loop) load, this includes any time the operation spent waiting behind earlier, slow operations.
+       *
+       * @param time The scheduled start in System.nanoTime(), or 0 if operations are not scheduled.
+       */
+	public void setIntendedStartTimeNs(long time)
+	{
+		intendedstart.get()[0]=time;
+	}
+
+      /**
+       * Return when the calling thread's current operation was scheduled to start, or 0 if it was not scheduled.
+       */
+	public long getIntendedStartTimeNs()
+	{
+		return intendedstart.get()[0];
+	}
+
+      /**
+       * Report the latency of an operation that ended at endtime, from when it was scheduled to start, as INTENDED-operation.
+       * Does nothing if the calling thread's operations are not scheduled.
+       */
+	public void measureIntended(String operation, long endtime)
+	{
+		long intended=getIntendedStartTimeNs();
+		if (intended!=0)
+		{
+			measure(INTENDED_PREFIX+operation,(int)((endtime-intended)/1000));
+		}
+	}
+
       /**
        * Report a return code for a single DB operaiton.
        */
@@ -137,6 +216,78 @@ public class Measurements
 		data.get(operation).reportReturnCode(code);
 	}
 	
+      /**
+       * Report how much data an operation returned, and how long it took, for the throughput of operations returning
+       * many records, such as scans.
+       */
+	public void reportVolume(String operation, long records, long bytes, long nanos)
+	{
+		synchronized(volumes)
+		{
+			long[] volume=volumes.get(operation);
+			if (volume==null)
+			{
+				volume=new long[3];
+				volumes.put(operation,volume);
+			}
+			volume[0]+=records;
+			volume[1]+=bytes;
+			volume[2]+=nanos;
+		}
+	}
+
+      /**
+       * Report whether an operation met the SLO: it did if it got an answer (success, not found or a failed
+       * condition) within the SLO. Does nothing if there is no SLO.
+       *
+       * @param nanos The latency of the operation.
+       * @param code The return code of the operation.
+       */
+	public void reportSLO(String operation, long nanos, int code)
+	{
+		if (slo<=0)
+		{
+			return;
+		}
+		Status.Kind kind=Status.of(code).getKind();
+		boolean missed=(nanos>slo) || (kind==Status.Kind.TRANSIENT) || (kind==Status.Kind.PERMANENT);
+		synchronized(slocounts)
+		{
+			long[] counts=slocounts.get(operation);
+			if (counts==null)
+			{
+				counts=new long[2];
+				slocounts.put(operation,counts);
+			}
+			counts[0]++;
+			if (missed)
+			{
+				counts[1]++;
+			}
+		}
+	}
+
+      /**
+       * Report whether a lookup, e.g. in a cache, found what it looked for.
+       */
+	public void reportHit(String operation, boolean hit)
+	{
+		synchronized(hits)
+		{
+			long[] counts=hits.get(operation);
+			if (counts==null)
+			{
+				counts=new long[2];
+				hits.put(operation,counts);
+			}
+			counts[0]++;
+			if (hit)
+			{
+				counts[1]++;
+			}
+		}
+	}
+
   /**
    * Export the current measurements to a suitable format.
    * 
@@ -149,6 +300,38 @@ public class Measurements
     {
       measurement.exportMeasurements(exporter);
     }
+    synchronized(volumes)
+    {
+      for (Map.Entry<String,long[]> volume : volumes.entrySet())
+      {
+        long[] v=volume.getValue();
+        double seconds=v[2]/1000000000.0;
+        exporter.write(volume.getKey(), "Records", (double)v[0]);
+        exporter.write(volume.getKey(), "Bytes", (double)v[1]);
+        exporter.write(volume.getKey(), "Throughput(records/sec)", (seconds==0) ? 0 : v[0]/seconds);
+        exporter.write(volume.getKey(), "Throughput(bytes/sec)", (seconds==0) ? 0 : v[1]/seconds);
+      }
+    }
+    synchronized(slocounts)
+    {
+      for (Map.Entry<String,long[]> counts : slocounts.entrySet())
+      {
+        long[] c=counts.getValue();
+        exporter.write(counts.getKey(), "SLO(ms)", slo/1000000.0);
+        exporter.write(counts.getKey(), "WithinSLO(%)", (c[0]==0) ? 0 : 100.0*(c[0]-c[1])/c[0]);
+        exporter.write(counts.getKey(), "MissedSLO", (double)c[1]);
+      }
+    }
+    synchronized(hits)
+    {
+      for (Map.Entry<String,long[]> counts : hits.entrySet())
+      {
+        long[] c=counts.getValue();
+        exporter.write(counts.getKey(), "Hits", (double)c[1]);
+        exporter.write(counts.getKey(), "Misses", (double)(c[0]-c[1]));
+        exporter.write(counts.getKey(), "HitRatio(%)", (c[0]==0) ? 0 : 100.0*c[1]/c[0]);
+      }
+    }
   }
 	
       /**
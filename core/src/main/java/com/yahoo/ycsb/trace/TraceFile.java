@@ -0,0 +1,182 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.trace;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A memory-mapped, read-only binary trace.
+ *
+ * A trace file is a sequence of fixed-size blocks. The first block is the header: magic number, format version,
+ * block size and the wall clock time (in milliseconds) at which the trace started. Every other block holds whole
+ * TraceRecords, followed by an END marker unless the block is exactly full. Because no record crosses a block
+ * boundary, the blocks can be divided between readers without any coordination: reader i of n reads blocks
+ * i, i+n, i+2n, ...
+ *
+ * The file is mapped in segments of whole blocks, so traces larger than 2GB can be read. A TraceFile may be shared
+ * between threads; each thread reads through its own Cursor.
+ */
+public class TraceFile
+{
+	public static final int MAGIC=0x59435342;
+
+	public static final int VERSION=1;
+
+	public static final int DEFAULT_BLOCK_SIZE=1<<16;
+
+	/**
+	 * The largest number of bytes mapped as one segment.
+	 */
+	static final int SEGMENT_SIZE=1<<30;
+
+	String _filename;
+	int _blocksize;
+	long _starttime;
+	long _blockcount;
+	int _blockspersegment;
+	MappedByteBuffer[] _segments;
+
+	/**
+	 * Map a trace file.
+	 *
+	 * @throws IOException if the file cannot be read or is not a trace
+	 */
+	public TraceFile(String filename) throws IOException
+	{
+		_filename=filename;
+		RandomAccessFile file=new RandomAccessFile(filename,"r");
+		try
+		{
+			FileChannel channel=file.getChannel();
+			ByteBuffer header=channel.map(FileChannel.MapMode.READ_ONLY,0,Math.min(channel.size(),20));
+			if ( (header.remaining()<20) || (header.getInt()!=MAGIC) )
+			{
+				throw new IOException(filename+" is not a trace file");
+			}
+			int version=header.getInt();
+			if (version!=VERSION)
+			{
+				throw new IOException(filename+" has trace format version "+version+", expected "+VERSION);
+			}
+			_blocksize=header.getInt();
+			_starttime=header.getLong();
+
+			long size=channel.size();
+			if ( (_blocksize<=0) || (size%_blocksize!=0) )
+			{
+				throw new IOException(filename+" is truncated: "+size+" bytes is not a whole number of "+_blocksize+" byte blocks");
+			}
+			_blockcount=size/_blocksize-1;
+			_blockspersegment=Math.max(1,SEGMENT_SIZE/_blocksize);
+
+			long segmentcount=(_blockcount+_blockspersegment-1)/_blockspersegment;
+			_segments=new MappedByteBuffer[(int)segmentcount];
+			for (int i=0; i<segmentcount; i++)
+			{
+				long first=1+(long)i*_blockspersegment;
+				long blocks=Math.min(_blockspersegment,_blockcount+1-first);
+				_segments[i]=channel.map(FileChannel.MapMode.READ_ONLY,first*_blocksize,blocks*_blocksize);
+			}
+		}
+		finally
+		{
+			//the mappings stay valid after the file is closed
+			file.close();
+		}
+	}
+
+	/**
+	 * @return the number of data blocks, not counting the header
+	 */
+	public long getBlockCount()
+	{
+		return _blockcount;
+	}
+
+	public int getBlockSize()
+	{
+		return _blocksize;
+	}
+
+	/**
+	 * @return the wall clock time, in milliseconds, at which the trace was started
+	 */
+	public long getStartTime()
+	{
+		return _starttime;
+	}
+
+	/**
+	 * Return a cursor over one partition of the trace.
+	 *
+	 * @param partition The partition to read, from 0 to partitions-1.
+	 * @param partitions The number of partitions the trace is divided into, e.g. the number of threads.
+	 */
+	public Cursor cursor(int partition, int partitions)
+	{
+		return new Cursor(partition,partitions);
+	}
+
+	/**
+	 * Reads the records of every partitions'th block. Not thread safe; use one cursor per thread.
+	 */
+	public class Cursor
+	{
+		long _block;
+		final int _stride;
+		ByteBuffer _current;
+
+		Cursor(int partition, int partitions)
+		{
+			_block=partition;
+			_stride=partitions;
+		}
+
+		/**
+		 * Read the next record of this partition into record.
+		 *
+		 * @return false if the partition has no more records
+		 */
+		public boolean next(TraceRecord record)
+		{
+			while ( (_current==null) || !record.readFrom(_current) )
+			{
+				if (_block>=_blockcount)
+				{
+					return false;
+				}
+				_current=block(_block);
+				_block+=_stride;
+			}
+			return true;
+		}
+	}
+
+	ByteBuffer block(long block)
+	{
+		ByteBuffer buf=_segments[(int)(block/_blockspersegment)].duplicate();
+		int offset=(int)(block%_blockspersegment)*_blocksize;
+		buf.position(offset);
+		buf.limit(offset+_blocksize);
+		return buf.slice();
+	}
+}
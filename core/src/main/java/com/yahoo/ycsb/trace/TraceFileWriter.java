@@ -0,0 +1,129 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.trace;
+
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Writes a trace file in the format read by TraceFile. Not thread safe: either use it from one thread, or fill blocks
+ * on several threads and pass them to writeBlock() from one thread.
+ */
+public class TraceFileWriter implements Closeable
+{
+	FileOutputStream _out;
+	FileChannel _channel;
+	int _blocksize;
+	ByteBuffer _current;
+
+	/**
+	 * Create (or overwrite) a trace file.
+	 *
+	 * @param starttime The wall clock time, in milliseconds, that record timestamps are relative to.
+	 */
+	public TraceFileWriter(String filename, int blocksize, long starttime) throws IOException
+	{
+		if (blocksize<64)
+		{
+			throw new IllegalArgumentException("Trace block size must be at least 64 bytes, got "+blocksize);
+		}
+		_blocksize=blocksize;
+		_out=new FileOutputStream(filename);
+		_channel=_out.getChannel();
+
+		ByteBuffer header=newBlock();
+		header.putInt(TraceFile.MAGIC);
+		header.putInt(TraceFile.VERSION);
+		header.putInt(blocksize);
+		header.putLong(starttime);
+		writeBlock(header);
+	}
+
+	public int getBlockSize()
+	{
+		return _blocksize;
+	}
+
+	/**
+	 * Allocate an empty block for the caller to fill with TraceRecord.writeTo().
+	 */
+	public ByteBuffer newBlock()
+	{
+		return ByteBuffer.allocate(_blocksize);
+	}
+
+	/**
+	 * Append one record, starting a new block when the current one is full.
+	 *
+	 * @throws IOException if the record is too large for a block, or cannot be written
+	 */
+	public void write(TraceRecord record) throws IOException
+	{
+		if (_current==null)
+		{
+			_current=newBlock();
+		}
+		if (!record.writeTo(_current))
+		{
+			writeBlock(_current);
+			_current.clear();
+			if (!record.writeTo(_current))
+			{
+				throw new IOException("Trace record for key "+record.key+" does not fit in a "+_blocksize+" byte block");
+			}
+		}
+	}
+
+	/**
+	 * Append a block filled up to its position. Records the caller has written to the block are terminated with an END
+	 * marker; anything after it is ignored by readers. The block may be reused once this returns.
+	 */
+	public void writeBlock(ByteBuffer block) throws IOException
+	{
+		if (block.hasRemaining())
+		{
+			block.put(TraceRecord.END);
+		}
+		block.clear();
+		while (block.hasRemaining())
+		{
+			_channel.write(block);
+		}
+	}
+
+	/**
+	 * Write any partially filled block and close the file.
+	 */
+	public void close() throws IOException
+	{
+		try
+		{
+			if ( (_current!=null) && (_current.position()>0) )
+			{
+				writeBlock(_current);
+			}
+		}
+		finally
+		{
+			_out.close();
+		}
+	}
+}
@@ -0,0 +1,199 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.trace;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * One operation of a trace. Instances are mutable so that a reader or writer can reuse one record for every operation.
+ *
+ * A record is encoded as:
+ * <ul>
+ * <li>op (byte): one of the operation codes below; 0 marks the end of the records in a block
+ * <li>thread (short): the client thread that issued the operation
+ * <li>timestamp (long): when the operation was issued, in microseconds since the start of the trace
+ * <li>fieldmask (long): bit i set means field "field"+i was read or written; ALL_FIELDS means all fields
+ * <li>length (int): the number of value bytes written for inserts and updates, the record count for scans
+ * <li>table, key (each a short length followed by that many bytes of UTF-8)
+ * </ul>
+ */
+public class TraceRecord
+{
+	public static final byte END=0;
+	public static final byte READ=1;
+	public static final byte UPDATE=2;
+	public static final byte INSERT=3;
+	public static final byte SCAN=4;
+	public static final byte DELETE=5;
+
+	/**
+	 * The field mask for operations on all fields of a record.
+	 */
+	public static final long ALL_FIELDS=-1;
+
+	/**
+	 * The prefix of the field names a field mask refers to, as used by CoreWorkload.
+	 */
+	public static final String FIELD_PREFIX="field";
+
+	static final int FIXED_SIZE=1+2+8+8+4+2+2;
+
+	static final Charset UTF8=Charset.forName("UTF-8");
+
+	public byte op;
+	public int thread;
+	public long timestamp;
+	public long fieldmask;
+	public int length;
+	public String table;
+	public String key;
+
+	/**
+	 * Append this record to a buffer.
+	 *
+	 * @return false, leaving the buffer unchanged, if the buffer has no room for the record
+	 */
+	public boolean writeTo(ByteBuffer buf)
+	{
+		byte[] tablebytes=table.getBytes(UTF8);
+		byte[] keybytes=key.getBytes(UTF8);
+		if (FIXED_SIZE+tablebytes.length+keybytes.length>buf.remaining())
+		{
+			return false;
+		}
+		buf.put(op);
+		buf.putShort((short)thread);
+		buf.putLong(timestamp);
+		buf.putLong(fieldmask);
+		buf.putInt(length);
+		buf.putShort((short)tablebytes.length);
+		buf.put(tablebytes);
+		buf.putShort((short)keybytes.length);
+		buf.put(keybytes);
+		return true;
+	}
+
+	/**
+	 * Read the next record from a buffer.
+	 *
+	 * @return false if there are no more records in the buffer
+	 */
+	public boolean readFrom(ByteBuffer buf)
+	{
+		if (!buf.hasRemaining())
+		{
+			return false;
+		}
+		op=buf.get();
+		if (op==END)
+		{
+			return false;
+		}
+		thread=buf.getShort()&0xFFFF;
+		timestamp=buf.getLong();
+		fieldmask=buf.getLong();
+		length=buf.getInt();
+		table=readString(buf);
+		key=readString(buf);
+		return true;
+	}
+
+	static String readString(ByteBuffer buf)
+	{
+		int len=buf.getShort()&0xFFFF;
+		String ret;
+		if (buf.hasArray())
+		{
+			ret=new String(buf.array(),buf.arrayOffset()+buf.position(),len,UTF8);
+			buf.position(buf.position()+len);
+		}
+		else
+		{
+			byte[] bytes=new byte[len];
+			buf.get(bytes);
+			ret=new String(bytes,UTF8);
+		}
+		return ret;
+	}
+
+	/**
+	 * The field mask for a set of field names; null means all fields. Names that are not "field"+i for some i below 63
+	 * cannot be represented and make the mask ALL_FIELDS.
+	 */
+	public static long fieldMask(Set<String> fields)
+	{
+		if (fields==null)
+		{
+			return ALL_FIELDS;
+		}
+		long mask=0;
+		for (String field : fields)
+		{
+			int i=fieldIndex(field);
+			if (i<0)
+			{
+				return ALL_FIELDS;
+			}
+			mask|=1L<<i;
+		}
+		return mask;
+	}
+
+	/**
+	 * The field names of a field mask; null for ALL_FIELDS.
+	 */
+	public static HashSet<String> fieldSet(long mask)
+	{
+		if (mask==ALL_FIELDS)
+		{
+			return null;
+		}
+		HashSet<String> fields=new HashSet<String>();
+		for (int i=0; i<63; i++)
+		{
+			if ((mask&(1L<<i))!=0)
+			{
+				fields.add(FIELD_PREFIX+i);
+			}
+		}
+		return fields;
+	}
+
+	static int fieldIndex(String field)
+	{
+		int digits=field.length()-FIELD_PREFIX.length();
+		if (!field.startsWith(FIELD_PREFIX) || (digits<1) || (digits>2) || ( (digits==2) && (field.charAt(FIELD_PREFIX.length())=='0') ))
+		{
+			return -1;
+		}
+		int i=0;
+		for (int c=FIELD_PREFIX.length(); c<field.length(); c++)
+		{
+			char ch=field.charAt(c);
+			if ( (ch<'0') || (ch>'9') )
+			{
+				return -1;
+			}
+			i=i*10+(ch-'0');
+		}
+		return (i<63) ? i : -1;
+	}
+}
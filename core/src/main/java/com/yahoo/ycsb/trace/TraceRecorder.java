@@ -0,0 +1,274 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.trace;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records every operation of a run to a trace file that TraceReplayWorkload can replay.
+ *
+ * Each client thread fills its own block through a ThreadTrace, without any locking. Full blocks are queued for a
+ * background thread that appends them to the file, so the client threads never wait for the disk unless the queue
+ * is full. The blocks written are then recycled. Threads are numbered in the order their ThreadTrace was created.
+ *
+ * Like Measurements, there is one recorder per run, set up with startRecording() and closed with stopRecording().
+ */
+public class TraceRecorder
+{
+	public static final String TRACE_FILE_PROPERTY="tracerecord.file";
+
+	public static final String BLOCK_SIZE_PROPERTY="tracerecord.blocksize";
+
+	/**
+	 * The number of full blocks that may wait for the writer before client threads have to wait for it.
+	 */
+	static final int QUEUE_LENGTH=256;
+
+	static final ByteBuffer END_OF_TRACE=ByteBuffer.allocate(0);
+
+	static TraceRecorder singleton=null;
+
+	/**
+	 * Start recording if the properties name a trace file.
+	 */
+	public static synchronized void startRecording(Properties p) throws IOException
+	{
+		String filename=p.getProperty(TRACE_FILE_PROPERTY);
+		if (filename!=null)
+		{
+			int blocksize=Integer.parseInt(p.getProperty(BLOCK_SIZE_PROPERTY,""+TraceFile.DEFAULT_BLOCK_SIZE));
+			singleton=new TraceRecorder(new TraceFileWriter(filename,blocksize,System.currentTimeMillis()));
+		}
+	}
+
+	/**
+	 * @return the recorder of this run, or null if operations are not being recorded
+	 */
+	public static synchronized TraceRecorder getRecorder()
+	{
+		return singleton;
+	}
+
+	/**
+	 * Write out everything recorded and close the trace. Call after every ThreadTrace has been flushed.
+	 */
+	public static synchronized void stopRecording() throws IOException
+	{
+		if (singleton!=null)
+		{
+			try
+			{
+				singleton.close();
+			}
+			finally
+			{
+				singleton=null;
+			}
+		}
+	}
+
+	final TraceFileWriter _writer;
+	final BlockingQueue<ByteBuffer> _full=new ArrayBlockingQueue<ByteBuffer>(QUEUE_LENGTH);
+	final ConcurrentLinkedQueue<ByteBuffer> _free=new ConcurrentLinkedQueue<ByteBuffer>();
+	final AtomicInteger _threads=new AtomicInteger();
+	final AtomicLong _startnanos=new AtomicLong();
+	final Thread _writerthread;
+	volatile IOException _error;
+
+	TraceRecorder(TraceFileWriter writer)
+	{
+		_writer=writer;
+		_writerthread=new Thread("trace writer")
+		{
+			public void run()
+			{
+				writeBlocks();
+			}
+		};
+		_writerthread.setDaemon(true);
+		_writerthread.start();
+	}
+
+	/**
+	 * Create the trace buffer for a new client thread.
+	 */
+	public ThreadTrace newThreadTrace()
+	{
+		return new ThreadTrace(_threads.getAndIncrement());
+	}
+
+	void writeBlocks()
+	{
+		for (;;)
+		{
+			ByteBuffer block;
+			try
+			{
+				block=_full.take();
+			}
+			catch (InterruptedException e)
+			{
+				return;
+			}
+			if (block==END_OF_TRACE)
+			{
+				return;
+			}
+			if (_error==null)
+			{
+				try
+				{
+					_writer.writeBlock(block);
+				}
+				catch (IOException e)
+				{
+					//keep draining the queue so client threads don't block; the error is reported by close()
+					_error=e;
+				}
+			}
+			block.clear();
+			_free.add(block);
+		}
+	}
+
+	void submit(ByteBuffer block)
+	{
+		boolean interrupted=false;
+		for (;;)
+		{
+			try
+			{
+				_full.put(block);
+				break;
+			}
+			catch (InterruptedException e)
+			{
+				interrupted=true;
+			}
+		}
+		if (interrupted)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	ByteBuffer allocate()
+	{
+		ByteBuffer block=_free.poll();
+		return (block!=null) ? block : _writer.newBlock();
+	}
+
+	void close() throws IOException
+	{
+		submit(END_OF_TRACE);
+		try
+		{
+			_writerthread.join();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		_writer.close();
+		if (_error!=null)
+		{
+			throw _error;
+		}
+	}
+
+	/**
+	 * The trace buffer of one client thread. Not thread safe.
+	 */
+	public class ThreadTrace
+	{
+		final int _thread;
+		final TraceRecord _record=new TraceRecord();
+		ByteBuffer _block;
+		boolean _warnedsize=false;
+
+		ThreadTrace(int thread)
+		{
+			_thread=thread;
+		}
+
+		/**
+		 * Record one operation.
+		 *
+		 * @param op One of the TraceRecord operation codes.
+		 * @param fields The fields read or written, or null for all fields.
+		 * @param length The number of value bytes written, or the number of records to scan.
+		 * @param issuenanos The System.nanoTime() at which the operation was issued.
+		 */
+		public void record(byte op, String table, String key, Set<String> fields, int length, long issuenanos)
+		{
+			long start=_startnanos.get();
+			if (start==0)
+			{
+				_startnanos.compareAndSet(0,issuenanos);
+				start=_startnanos.get();
+			}
+
+			TraceRecord record=_record;
+			record.op=op;
+			record.thread=_thread;
+			record.timestamp=Math.max(0,(issuenanos-start)/1000);
+			record.fieldmask=TraceRecord.fieldMask(fields);
+			record.length=length;
+			record.table=table;
+			record.key=key;
+
+			if (_block==null)
+			{
+				_block=allocate();
+			}
+			if (!record.writeTo(_block))
+			{
+				if (_block.position()>0)
+				{
+					submit(_block);
+					_block=allocate();
+				}
+				if (!record.writeTo(_block) && !_warnedsize)
+				{
+					_warnedsize=true;
+					System.err.println("WARNING: not recording operations on key "+key+", which does not fit in a trace block");
+				}
+			}
+		}
+
+		/**
+		 * Hand any partially filled block to the writer.
+		 */
+		public void flush()
+		{
+			if ( (_block!=null) && (_block.position()>0) )
+			{
+				submit(_block);
+				_block=null;
+			}
+		}
+	}
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.workloads;
+
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.Set;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * A workload of optimistic updates (see DB.compareAndSet()): read a field, then write a new value to it only if it
+ * still holds the value read, and on a conflict read again and retry. With many threads and few records, or a skewed
+ * request distribution, the threads keep overwriting each other's reads; the fewer records, the higher the contention.
+ *
+ * Each optimistic update is measured as a whole under OPTIMISTIC-UPDATE, whose return codes tell those that succeeded (0)
+ * from those that gave up after too many conflicts or failed; OPTIMISTIC-UPDATE-RETRIES counts them by the number of
+ * retries they took. The successful ones over the run time give the effective throughput.
+ *
+ * Properties to control the client, besides those of CoreWorkload:
+ * <UL>
+ * <LI><b>optimisticupdateproportion</b>: what proportion of operations should be optimistic updates (default: 1)
+ * <LI><b>optimisticupdate.maxretries</b>: how many times to retry after a conflict before giving up (default: 10)
+ * </ul>
+ * The defaults of readproportion and updateproportion are 0.
+ */
+public class CompareAndSetWorkload extends CoreWorkload
+{
+	public static final String OPTIMISTIC_UPDATE_PROPORTION_PROPERTY="optimisticupdateproportion";
+
+	public static final String OPTIMISTIC_UPDATE_PROPORTION_PROPERTY_DEFAULT="1";
+
+	public static final String MAX_RETRIES_PROPERTY="optimisticupdate.maxretries";
+
+	public static final String MAX_RETRIES_PROPERTY_DEFAULT="10";
+
+	int maxretries;
+
+	@Override
+	public void init(Properties p) throws WorkloadException
+	{
+		setDefault(p,READ_PROPORTION_PROPERTY,"0");
+		setDefault(p,UPDATE_PROPORTION_PROPERTY,"0");
+		super.init(p);
+
+		double proportion=Double.parseDouble(p.getProperty(OPTIMISTIC_UPDATE_PROPORTION_PROPERTY,OPTIMISTIC_UPDATE_PROPORTION_PROPERTY_DEFAULT));
+		if (proportion>0)
+		{
+			operationchooser.addValue(proportion,"OPTIMISTICUPDATE");
+		}
+		maxretries=Integer.parseInt(p.getProperty(MAX_RETRIES_PROPERTY,MAX_RETRIES_PROPERTY_DEFAULT));
+	}
+
+	@Override
+	void doOperation(DB db, ThreadState state, String op)
+	{
+		if (op.compareTo("OPTIMISTICUPDATE")==0)
+		{
+			doTransactionOptimisticUpdate(db,state);
+		}
+		else
+		{
+			super.doOperation(db,state,op);
+		}
+	}
+
+	public void doTransactionOptimisticUpdate(DB db, ThreadState state)
+	{
+		//choose a random key and field
+		long keynum=nextTargetKeynum(state);
+		String keyname=buildKeyName(keynum);
+		int field=state.fieldchooser.nextInt();
+		String fieldname=fieldnames[field];
+		Set<String> fields=fieldsets.get(field);
+
+		long st=System.nanoTime();
+		int retries=0;
+		int res;
+		for (;;)
+		{
+			HashMap<String,ByteIterator> result=state.emptyResult();
+			res=db.read(table,keyname,fields,result);
+			if (res!=0)
+			{
+				break;
+			}
+			ByteIterator current=result.get(fieldname);
+			String expected=(current==null) ? "" : current.toString();
+
+			HashMap<String,ByteIterator> values=new HashMap<String,ByteIterator>();
+			values.put(fieldname,buildValue(state,field));
+			res=db.compareAndSet(table,keyname,fieldname,expected,values);
+			if ( (res!=DB.CONDITION_FAILED) || (retries==maxretries) )
+			{
+				break;
+			}
+			retries++;
+		}
+		long en=System.nanoTime();
+
+		Measurements measurements=Measurements.getMeasurements();
+		measurements.measure("OPTIMISTIC-UPDATE",(int)((en-st)/1000));
+		measurements.measureIntended("OPTIMISTIC-UPDATE",en);
+		measurements.reportReturnCode("OPTIMISTIC-UPDATE",res);
+		measurements.reportReturnCode("OPTIMISTIC-UPDATE-RETRIES",retries);
+	}
+}
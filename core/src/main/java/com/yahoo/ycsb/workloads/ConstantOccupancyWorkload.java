@@ -16,8 +16,15 @@
  */
 package com.yahoo.ycsb.workloads;
 
+import java.util.HashMap;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.Utils;
 import com.yahoo.ycsb.WorkloadException;
 import com.yahoo.ycsb.Client;
 import com.yahoo.ycsb.generator.IntegerGenerator;
@@ -31,8 +38,25 @@ import com.yahoo.ycsb.generator.IntegerGenerator;
  * <LI><b>disksize</b>: how many bytes of storage can the disk store? (default 100,000,000)
  * <LI><b>occupancy</b>: what fraction of the available storage should be used? (default 0.9)
  * <LI><b>requestdistribution</b>: what distribution should be used to select the records to operate on - uniform, zipfian or latest (default: histogram)
+ * <LI><b>storageages</b>: how many times the transaction phase should rewrite the data set (default 10)
+ * <LI><b>churn</b>: how the transaction phase keeps the data set at a constant size - none, oldest or random (default: none)
  * </ul> 
  *
+ * <p>
+ * Without churn, the transaction phase is an ordinary CoreWorkload run of storageages times as many operations as
+ * there are records, and inserts grow the data set. With churn, every insert replaces a record: "oldest" deletes the
+ * record inserted longest ago, "random" a random one. The data set then stays at the target occupancy while it is
+ * rewritten storageages times, which is what makes compaction and write amplification show up. In churn mode inserts
+ * default to all of the operations, and the number of operations is set so that the inserts rewrite the data set
+ * storageages times.
+ * </p>
+ *
+ * <p>
+ * The records are kept in as many slots as there are records to begin with; a record that replaces another takes its
+ * slot, with the key number of the old record plus the record count. The request distribution chooses among slots, so
+ * reads and updates always find a live record.
+ * </p>
+ *
  *
  * <p> See also:
  * Russell Sears, Catharine van Ingen.
@@ -51,6 +75,30 @@ public class ConstantOccupancyWorkload extends CoreWorkload {
 	double occupancy;
 	
 	long object_count;
+
+	/**
+	 * The key number of the record in each slot; negative (the complement of the key number) while the record is being replaced.
+	 */
+	AtomicLongArray slotkeys;
+
+	/**
+	 * The size of the record in each slot, in bytes.
+	 */
+	AtomicIntegerArray slotsizes;
+
+	/**
+	 * The next slot to churn in oldest-first order.
+	 */
+	AtomicLong nextoldest;
+
+	AtomicLong livebytes;
+
+	/**
+	 * Old records whose delete failed, so that they are still stored though no slot holds them.
+	 */
+	AtomicLong strandedrecords;
+
+	boolean randomchurn;
 	
 	public static final String STORAGE_AGE_PROPERTY = "storageages";
 	public static final long   STORAGE_AGE_PROPERTY_DEFAULT = 10;
@@ -60,6 +108,9 @@ public class ConstantOccupancyWorkload extends CoreWorkload {
 	
 	public static final String OCCUPANCY_PROPERTY = "occupancy";
 	public static final double OCCUPANCY_PROPERTY_DEFAULT = 0.9;
+
+	public static final String CHURN_PROPERTY = "churn";
+	public static final String CHURN_PROPERTY_DEFAULT = "none";
 	
 	@Override
 	public void init(Properties p) throws WorkloadException
@@ -81,11 +132,135 @@ public class ConstantOccupancyWorkload extends CoreWorkload {
                 if(object_count == 0) {
                     throw new IllegalStateException("Object count was zero.  Perhaps disksize is too low?");
                 }
+		String churn = p.getProperty(CHURN_PROPERTY, CHURN_PROPERTY_DEFAULT);
+		long operationcount = storageages*object_count;
+		if(churn.compareTo("none") != 0) {
+			if(churn.compareTo("oldest") == 0) {
+				randomchurn = false;
+			} else if(churn.compareTo("random") == 0) {
+				randomchurn = true;
+			} else {
+				throw new WorkloadException("Unknown churn \""+churn+"\"");
+			}
+			if(Double.parseDouble(p.getProperty(DELETE_PROPORTION_PROPERTY, DELETE_PROPORTION_PROPERTY_DEFAULT)) > 0) {
+				throw new WorkloadException("Churn does its own deletes; "+DELETE_PROPORTION_PROPERTY+" can't be used with it");
+			}
+			if(p.getProperty(INSERT_PROPORTION_PROPERTY) == null) {
+				p.setProperty(INSERT_PROPORTION_PROPERTY, "1");
+				p.setProperty(READ_PROPORTION_PROPERTY, p.getProperty(READ_PROPORTION_PROPERTY, "0"));
+				p.setProperty(UPDATE_PROPORTION_PROPERTY, p.getProperty(UPDATE_PROPORTION_PROPERTY, "0"));
+			}
+			double insertproportion = Double.parseDouble(p.getProperty(INSERT_PROPORTION_PROPERTY));
+			if(insertproportion <= 0) {
+				throw new WorkloadException("Churn needs inserts, but "+INSERT_PROPORTION_PROPERTY+" is "+insertproportion);
+			}
+			operationcount = (long)Math.ceil(operationcount/insertproportion);
+
+			if(object_count > Integer.MAX_VALUE) {
+				throw new WorkloadException("Churn keeps a slot per record, so it can't handle "+object_count+" records; lower "+
+						DISK_SIZE_PROPERTY+" or "+OCCUPANCY_PROPERTY);
+			}
+
+			//the records of the load phase are assumed to be of the mean size
+			long meansize = Math.round(fieldsize*fieldcount);
+			slotkeys = new AtomicLongArray((int)object_count);
+			slotsizes = new AtomicIntegerArray((int)object_count);
+			for(int i = 0; i < object_count; i++) {
+				slotkeys.set(i, i);
+				slotsizes.set(i, (int)meansize);
+			}
+			nextoldest = new AtomicLong();
+			livebytes = new AtomicLong(meansize*object_count);
+			strandedrecords = new AtomicLong();
+		}
 		p.setProperty(Client.RECORD_COUNT_PROPERTY, object_count+"");
-		p.setProperty(Client.OPERATION_COUNT_PROPERTY, (storageages*object_count)+"");
+		p.setProperty(Client.OPERATION_COUNT_PROPERTY, operationcount+"");
 		p.setProperty(Client.INSERT_COUNT_PROPERTY, object_count+"");
 
 		super.init(p);
 	}
 
+	/**
+	 * @return the bytes of data currently live, or -1 if not churning
+	 */
+	public long getLiveBytes()
+	{
+		return (livebytes == null) ? -1 : livebytes.get();
+	}
+
+	@Override
+	long nextKeynum(ThreadState state)
+	{
+		if(slotkeys == null) {
+			return super.nextKeynum(state);
+		}
+		long keynum = slotkeys.get(slot(state.keychooser.nextLong()));
+		//a record being replaced is still there until the new one is in
+		return (keynum < 0) ? ~keynum : keynum;
+	}
+
+	int slot(long keynum)
+	{
+		long slot = keynum%object_count;
+		return (int)((slot < 0) ? slot+object_count : slot);
+	}
+
+	/**
+	 * With churn, insert a new record in place of an old one: claim a slot, insert the new record, publish it in the slot,
+	 * then delete the old record. If the insert fails, the old record stays in its slot.
+	 */
+	@Override
+	public void doTransactionInsert(DB db, ThreadState state)
+	{
+		if(slotkeys == null) {
+			super.doTransactionInsert(db, state);
+			return;
+		}
+
+		int slot;
+		long oldkey;
+		for(;;) {
+			slot = randomchurn ? (int)Utils.randomLong(object_count) : slot(nextoldest.getAndIncrement());
+			oldkey = slotkeys.get(slot);
+			if((oldkey >= 0) && slotkeys.compareAndSet(slot, oldkey, ~oldkey)) {
+				break;
+			}
+			//another thread is replacing the record in this slot; choose another
+		}
+
+		long newkey = oldkey+object_count;
+		HashMap<String, ByteIterator> values = buildValues(state);
+		int size = 0;
+		for(ByteIterator value : values.values()) {
+			size += value.bytesLeft();
+		}
+		int res = -1;
+		try {
+			res = db.insert(table, buildKeyName(newkey), values);
+		} finally {
+			if(res == 0) {
+				slotkeys.set(slot, newkey);
+				livebytes.addAndGet(size-slotsizes.getAndSet(slot, size));
+			} else {
+				slotkeys.set(slot, oldkey);
+			}
+		}
+		if((res == 0) && (db.delete(table, buildKeyName(oldkey)) != 0)) {
+			strandedrecords.incrementAndGet();
+		}
+	}
+
+	@Override
+	public void cleanup() throws WorkloadException
+	{
+		if(livebytes != null) {
+			System.err.println("Live data at the end: "+object_count+" records, "+livebytes.get()+" bytes ("+
+					(100.0*livebytes.get()/disksize)+"% of "+disksize+")");
+			if(strandedrecords.get() > 0) {
+				System.err.println("Old records that could not be deleted (and still take space): "+strandedrecords.get());
+			}
+		}
+		super.cleanup();
+	}
+
 }
@@ -19,10 +19,12 @@ package com.yahoo.ycsb.workloads;
 
 import java.util.Properties;
 import com.yahoo.ycsb.*;
+import com.yahoo.ycsb.generator.AcknowledgedCounterGenerator;
 import com.yahoo.ycsb.generator.CounterGenerator;
 import com.yahoo.ycsb.generator.DiscreteGenerator;
+import com.yahoo.ycsb.generator.DriftingPopularityGenerator;
 import com.yahoo.ycsb.generator.ExponentialGenerator;
-import com.yahoo.ycsb.generator.Generator;
+import com.yahoo.ycsb.generator.FeistelPermutation;
 import com.yahoo.ycsb.generator.ConstantIntegerGenerator;
 import com.yahoo.ycsb.generator.HotspotIntegerGenerator;
 import com.yahoo.ycsb.generator.HistogramGenerator;
@@ -34,9 +36,14 @@ import com.yahoo.ycsb.generator.ZipfianGenerator;
 import com.yahoo.ycsb.measurements.Measurements;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * The core benchmark scenario. Represents a set of clients doing simple CRUD operations. The relative 
@@ -47,6 +54,8 @@ import java.util.Vector;
  * <UL>
  * <LI><b>fieldcount</b>: the number of fields in a record (default: 10)
  * <LI><b>fieldlength</b>: the size of each field (default: 100)
+ * <LI><b>fieldschema</b>: the types of the fields - string, long, double, timestamp or binary; see FieldSchema for the syntax (default: all strings)
+ * <LI><b>fieldschemafile</b>: a file to read the field schema from instead
  * <LI><b>readallfields</b>: should reads read all fields (true) or just one (false) (default: true)
  * <LI><b>writeallfields</b>: should updates and read/modify/writes update all fields (true) or just one (false) (default: false)
  * <LI><b>readproportion</b>: what proportion of operations should be reads (default: 0.95)
@@ -54,10 +63,26 @@ import java.util.Vector;
  * <LI><b>insertproportion</b>: what proportion of operations should be inserts (default: 0)
  * <LI><b>scanproportion</b>: what proportion of operations should be scans (default: 0)
  * <LI><b>readmodifywriteproportion</b>: what proportion of operations should be read a record, modify it, write it back (default: 0)
- * <LI><b>requestdistribution</b>: what distribution should be used to select the records to operate on - uniform, zipfian, hotspot, or latest (default: uniform)
+ * <LI><b>deleteproportion</b>: what proportion of operations should be deletes (default: 0)
+ * <LI><b>deletedkeyproportion</b>: when there are deletes, what proportion of reads, updates and scans should go to deleted records (default: 0)
+ * <LI><b>reusedeletedkeys</b>: when there are deletes, should inserts reinsert deleted records (true) before new ones (false) (default: false)
+ * <LI><b>requestdistribution</b>: what distribution should be used to select the records to operate on - uniform, zipfian, hotspot, exponential, latest or drifting (default: uniform)
+ * <LI><b>zipfianconstant</b>: for the zipfian distribution, the skew of popularity; larger is more skewed (default: 0.99)
+ * <LI><b>drifting.base</b>: for the drifting distribution, the popularity of records before it drifts - uniform, zipfian or hotspot (default: zipfian)
+ * <LI><b>drifting.speed</b>: for the drifting distribution, what fraction of the keyspace the popular records move by per second (default: 0)
+ * <LI><b>drifting.reshuffleinterval</b>: for the drifting distribution, the seconds between reassignments of popularity to random records, or 0 for none (default: 0)
+ * <LI><b>drifting.flashcrowd.interval</b>: for the drifting distribution, the seconds per window that may have a flash crowd, or 0 for none (default: 0)
+ * <LI><b>drifting.flashcrowd.probability</b>: the probability that a window has a flash crowd (default: 1)
+ * <LI><b>drifting.flashcrowd.duration</b>: the seconds a flash crowd lasts (default: 10)
+ * <LI><b>drifting.flashcrowd.keys</b>: the number of random records a flash crowd goes to (default: 100)
+ * <LI><b>drifting.flashcrowd.fraction</b>: the fraction of operations that go to the flash crowd while it lasts (default: 0.5)
  * <LI><b>maxscanlength</b>: for scans, what is the maximum number of records to scan (default: 1000)
  * <LI><b>scanlengthdistribution</b>: for scans, what distribution should be used to choose the number of records to scan, for each scan, between 1 and maxscanlength (default: uniform)
+ * <LI><b>batchsize</b>: how many records each read, update and insert of the transaction phase should access in one batch (multiRead, multiUpdate, multiInsert), or the maximum for a batch size distribution other than constant (default: 1, no batching)
+ * <LI><b>batchsizedistribution</b>: what distribution should be used to choose the size of each batch - constant, uniform or zipfian (favoring small batches) (default: constant)
  * <LI><b>insertorder</b>: should records be inserted in order by key ("ordered"), or in hashed order ("hashed") (default: hashed)
+ * <LI><b>insertkeyblocksize</b>: how many insert keys each thread reserves at a time in the transaction phase (default: 1)
+ * <LI><b>keyscrambleseed</b>: seed of the permutation that scatters hashed keys and zipfian popularity over the keyspace (default: 0)
  * </ul> 
  */
 public class CoreWorkload extends Workload
@@ -88,6 +113,21 @@ public class CoreWorkload extends Workload
 
 	int fieldcount;
 
+	/**
+	 * The field names, built once rather than concatenated for every operation.
+	 */
+	String[] fieldnames;
+
+	/**
+	 * For each field, an unmodifiable set of just that field, shared by all threads as the fields of one-field reads.
+	 */
+	List<Set<String>> fieldsets;
+
+	/**
+	 * The types of the fields, or null if they are all untyped strings.
+	 */
+	FieldSchema fieldschema;
+
 	/**
 	 * The name of the property for the field length distribution. Options are "uniform", "zipfian" (favoring short records), "constant", and "histogram".
 	 * 
@@ -197,9 +237,47 @@ public class CoreWorkload extends Workload
 	 * The default proportion of transactions that are scans.
 	 */
 	public static final String READMODIFYWRITE_PROPORTION_PROPERTY_DEFAULT="0.0";
+
+	/**
+	 * The name of the property for the proportion of transactions that are deletes.
+	 */
+	public static final String DELETE_PROPORTION_PROPERTY="deleteproportion";
+
+	/**
+	 * The default proportion of transactions that are deletes.
+	 */
+	public static final String DELETE_PROPORTION_PROPERTY_DEFAULT="0.0";
+
+	/**
+	 * The name of the property for the proportion of reads, updates and scans that go to deleted records, e.g. to measure
+	 * the cost of reading through tombstones. The rest go to live records. Only used when there are deletes.
+	 */
+	public static final String DELETED_KEY_PROPORTION_PROPERTY="deletedkeyproportion";
+
+	/**
+	 * The default proportion of reads, updates and scans that go to deleted records.
+	 */
+	public static final String DELETED_KEY_PROPORTION_PROPERTY_DEFAULT="0.0";
+
+	/**
+	 * The name of the property for deciding whether inserts reinsert deleted records (true) before inserting new ones
+	 * (false). Reinserting keeps the keyspace from growing, for steady-state churn.
+	 */
+	public static final String REUSE_DELETED_KEYS_PROPERTY="reusedeletedkeys";
+
+	/**
+	 * The default for reusing deleted records.
+	 */
+	public static final String REUSE_DELETED_KEYS_PROPERTY_DEFAULT="false";
+
+	/**
+	 * How many times to redraw a key from the request distribution before settling for the nearest key that is live
+	 * (or deleted) as wanted.
+	 */
+	static final int LIVENESS_REDRAWS=8;
 	
 	/**
-	 * The name of the property for the the distribution of requests across the keyspace. Options are "uniform", "zipfian" and "latest"
+	 * The name of the property for the the distribution of requests across the keyspace. Options are "uniform", "zipfian", "hotspot", "exponential" and "latest"
 	 */
 	public static final String REQUEST_DISTRIBUTION_PROPERTY="requestdistribution";
 	
@@ -208,6 +286,16 @@ public class CoreWorkload extends Workload
 	 */
 	public static final String REQUEST_DISTRIBUTION_PROPERTY_DEFAULT="uniform";
 
+	/**
+	 * The name of the property for the zipfian constant of the "zipfian" request distribution.
+	 */
+	public static final String ZIPFIAN_CONSTANT_PROPERTY="zipfianconstant";
+
+	/**
+	 * The default zipfian constant.
+	 */
+	public static final String ZIPFIAN_CONSTANT_PROPERTY_DEFAULT=""+ZipfianGenerator.ZIPFIAN_CONSTANT;
+
 	/**
 	 * The name of the property for the max scan length (number of records)
 	 */
@@ -228,6 +316,28 @@ public class CoreWorkload extends Workload
 	 */
 	public static final String SCAN_LENGTH_DISTRIBUTION_PROPERTY_DEFAULT="uniform";
 	
+	/**
+	 * The name of the property for the number of records each read, update and insert of the transaction phase accesses
+	 * in one batch, or the maximum batch size if the batch size distribution is not constant. 1 means no batching.
+	 */
+	public static final String BATCH_SIZE_PROPERTY="batchsize";
+
+	/**
+	 * The default batch size.
+	 */
+	public static final String BATCH_SIZE_PROPERTY_DEFAULT="1";
+
+	/**
+	 * The name of the property for the batch size distribution. Options are "constant", "uniform" and "zipfian" (favoring
+	 * small batches).
+	 */
+	public static final String BATCH_SIZE_DISTRIBUTION_PROPERTY="batchsizedistribution";
+
+	/**
+	 * The default batch size distribution.
+	 */
+	public static final String BATCH_SIZE_DISTRIBUTION_PROPERTY_DEFAULT="constant";
+
 	/**
 	 * The name of the property for the order to insert records. Options are "ordered" or "hashed"
 	 */
@@ -237,6 +347,17 @@ public class CoreWorkload extends Workload
 	 * Default insert order.
 	 */
 	public static final String INSERT_ORDER_PROPERTY_DEFAULT="hashed";
+
+	/**
+	 * The name of the property for the seed of the permutation used to scramble key names (for "hashed" inserts) and the
+	 * popularity of keys (for the "zipfian" request distribution). The load and transaction phases must use the same seed.
+	 */
+	public static final String KEY_SCRAMBLE_SEED_PROPERTY="keyscrambleseed";
+
+	/**
+	 * Default key scramble seed.
+	 */
+	public static final String KEY_SCRAMBLE_SEED_PROPERTY_DEFAULT="0";
 	
 	/**
    * Percentage data items that constitute the hot set.
@@ -257,22 +378,147 @@ public class CoreWorkload extends Workload
    * Default value of the percentage operations accessing the hot set.
    */
   public static final String HOTSPOT_OPN_FRACTION_DEFAULT = "0.8";
+
+	/**
+	 * The name of the property for the base distribution of the "drifting" request distribution: "uniform", "zipfian" or "hotspot".
+	 */
+	public static final String DRIFTING_BASE_PROPERTY="drifting.base";
+
+	public static final String DRIFTING_BASE_PROPERTY_DEFAULT="zipfian";
+
+	/**
+	 * The name of the property for the fraction of the keyspace by which the popular records drift per second.
+	 */
+	public static final String DRIFTING_SPEED_PROPERTY="drifting.speed";
+
+	public static final String DRIFTING_SPEED_PROPERTY_DEFAULT="0";
+
+	/**
+	 * The name of the property for the seconds between reshuffles of popularity, 0 for none.
+	 */
+	public static final String DRIFTING_RESHUFFLE_INTERVAL_PROPERTY="drifting.reshuffleinterval";
+
+	public static final String DRIFTING_RESHUFFLE_INTERVAL_PROPERTY_DEFAULT="0";
+
+	/**
+	 * The names of the properties for flash crowds: the seconds per window that may have one (0 for none), the probability
+	 * that a window has one, its length in seconds, the number of records it goes to and the fraction of operations it takes.
+	 */
+	public static final String FLASH_CROWD_INTERVAL_PROPERTY="drifting.flashcrowd.interval";
+
+	public static final String FLASH_CROWD_INTERVAL_PROPERTY_DEFAULT="0";
+
+	public static final String FLASH_CROWD_PROBABILITY_PROPERTY="drifting.flashcrowd.probability";
+
+	public static final String FLASH_CROWD_PROBABILITY_PROPERTY_DEFAULT="1";
+
+	public static final String FLASH_CROWD_DURATION_PROPERTY="drifting.flashcrowd.duration";
+
+	public static final String FLASH_CROWD_DURATION_PROPERTY_DEFAULT="10";
+
+	public static final String FLASH_CROWD_KEYS_PROPERTY="drifting.flashcrowd.keys";
+
+	public static final String FLASH_CROWD_KEYS_PROPERTY_DEFAULT="100";
+
+	public static final String FLASH_CROWD_FRACTION_PROPERTY="drifting.flashcrowd.fraction";
+
+	public static final String FLASH_CROWD_FRACTION_PROPERTY_DEFAULT="0.5";
 	
+	/**
+	 * The name of the property for the number of insert keys a thread reserves at a time during the transaction phase.
+	 * Larger blocks make threads touch the shared insert key counter less often, but leave up to blocksize-1 reserved
+	 * keys per thread not yet inserted, and make each thread insert its own run of consecutive keys.
+	 */
+	public static final String INSERT_KEY_BLOCK_SIZE_PROPERTY="insertkeyblocksize";
+
+	/**
+	 * Default insert key block size.
+	 */
+	public static final String INSERT_KEY_BLOCK_SIZE_PROPERTY_DEFAULT="1";
+
+	/**
+	 * The state of one client thread. The generators of the workload are shared templates; each thread draws from its own
+	 * clones of them.
+	 */
+	public static class ThreadState
+	{
+		IntegerGenerator keychooser;
+
+		IntegerGenerator fieldchooser;
+
+		IntegerGenerator scanlength;
+
+		IntegerGenerator batchsize;
+
+		IntegerGenerator fieldlengthgenerator;
+
+		DiscreteGenerator operationchooser;
+
+		AcknowledgedCounterGenerator transactioninsertkeysequence;
+
+		protected ThreadState(CoreWorkload workload)
+		{
+			keychooser=workload.keychooser.clone();
+			fieldchooser=workload.fieldchooser.clone();
+			scanlength=workload.scanlength.clone();
+			batchsize=(workload.batchsize==null) ? null : workload.batchsize.clone();
+			fieldlengthgenerator=workload.fieldlengthgenerator.clone();
+			operationchooser=workload.operationchooser.clone();
+			transactioninsertkeysequence=workload.transactioninsertkeysequence.clone();
+		}
+
+		/**
+		 * The result map of the reads whose results the workload does not keep, reused from one read to the next.
+		 */
+		final HashMap<String,ByteIterator> result=new HashMap<String,ByteIterator>();
+
+		/**
+		 * Return the thread's reusable result map, emptied.
+		 */
+		HashMap<String,ByteIterator> emptyResult()
+		{
+			result.clear();
+			return result;
+		}
+	}
+
 	IntegerGenerator keysequence;
 
 	DiscreteGenerator operationchooser;
 
 	IntegerGenerator keychooser;
 
-	Generator fieldchooser;
+	IntegerGenerator fieldchooser;
 
-	CounterGenerator transactioninsertkeysequence;
+	AcknowledgedCounterGenerator transactioninsertkeysequence;
 	
 	IntegerGenerator scanlength;
+
+	/**
+	 * The batch size generator; null if not batching.
+	 */
+	IntegerGenerator batchsize;
 	
 	boolean orderedinserts;
 
-	int recordcount;
+	/**
+	 * Maps key numbers to key names for hashed inserts. A permutation rather than a hash, so that no two key numbers share a key name.
+	 */
+	FeistelPermutation keyscrambler;
+
+	long recordcount;
+
+	/**
+	 * Which records have been deleted; null if there are no deletes.
+	 */
+	KeyLiveness liveness;
+
+	double deletedkeyproportion;
+
+	/**
+	 * Deleted records waiting to be reinserted, if reusedeletedkeys is set.
+	 */
+	ConcurrentLinkedQueue<Long> deletedkeys;
 	
 	protected static IntegerGenerator getFieldLengthGenerator(Properties p) throws WorkloadException{
 		IntegerGenerator fieldlengthgenerator;
@@ -306,6 +552,25 @@ public class CoreWorkload extends Workload
 		table = p.getProperty(TABLENAME_PROPERTY,TABLENAME_PROPERTY_DEFAULT);
 		
 		fieldcount=Integer.parseInt(p.getProperty(FIELD_COUNT_PROPERTY,FIELD_COUNT_PROPERTY_DEFAULT));
+		fieldnames=new String[fieldcount];
+		fieldsets=new ArrayList<Set<String>>(fieldcount);
+		for (int i=0; i<fieldcount; i++)
+		{
+			fieldnames[i]=("field"+i).intern();
+			fieldsets.add(Collections.singleton(fieldnames[i]));
+		}
+		try
+		{
+			fieldschema=FieldSchema.load(p,fieldcount);
+		}
+		catch (IOException e)
+		{
+			throw new WorkloadException("Can't read the field schema",e);
+		}
+		catch (IllegalArgumentException e)
+		{
+			throw new WorkloadException(e.getMessage());
+		}
 		fieldlengthgenerator = CoreWorkload.getFieldLengthGenerator(p);
 		
 		double readproportion=Double.parseDouble(p.getProperty(READ_PROPORTION_PROPERTY,READ_PROPORTION_PROPERTY_DEFAULT));
@@ -313,28 +578,24 @@ public class CoreWorkload extends Workload
 		double insertproportion=Double.parseDouble(p.getProperty(INSERT_PROPORTION_PROPERTY,INSERT_PROPORTION_PROPERTY_DEFAULT));
 		double scanproportion=Double.parseDouble(p.getProperty(SCAN_PROPORTION_PROPERTY,SCAN_PROPORTION_PROPERTY_DEFAULT));
 		double readmodifywriteproportion=Double.parseDouble(p.getProperty(READMODIFYWRITE_PROPORTION_PROPERTY,READMODIFYWRITE_PROPORTION_PROPERTY_DEFAULT));
-		recordcount=Integer.parseInt(p.getProperty(Client.RECORD_COUNT_PROPERTY));
+		double deleteproportion=Double.parseDouble(p.getProperty(DELETE_PROPORTION_PROPERTY,DELETE_PROPORTION_PROPERTY_DEFAULT));
+		recordcount=Long.parseLong(p.getProperty(Client.RECORD_COUNT_PROPERTY));
 		String requestdistrib=p.getProperty(REQUEST_DISTRIBUTION_PROPERTY,REQUEST_DISTRIBUTION_PROPERTY_DEFAULT);
 		int maxscanlength=Integer.parseInt(p.getProperty(MAX_SCAN_LENGTH_PROPERTY,MAX_SCAN_LENGTH_PROPERTY_DEFAULT));
 		String scanlengthdistrib=p.getProperty(SCAN_LENGTH_DISTRIBUTION_PROPERTY,SCAN_LENGTH_DISTRIBUTION_PROPERTY_DEFAULT);
 		
-		int insertstart=Integer.parseInt(p.getProperty(INSERT_START_PROPERTY,INSERT_START_PROPERTY_DEFAULT));
+		long insertstart=Long.parseLong(p.getProperty(INSERT_START_PROPERTY,INSERT_START_PROPERTY_DEFAULT));
 		
 		readallfields=Boolean.parseBoolean(p.getProperty(READ_ALL_FIELDS_PROPERTY,READ_ALL_FIELDS_PROPERTY_DEFAULT));
 		writeallfields=Boolean.parseBoolean(p.getProperty(WRITE_ALL_FIELDS_PROPERTY,WRITE_ALL_FIELDS_PROPERTY_DEFAULT));
 		
+		long keyscrambleseed=Long.parseLong(p.getProperty(KEY_SCRAMBLE_SEED_PROPERTY,KEY_SCRAMBLE_SEED_PROPERTY_DEFAULT));
+		keyscrambler=new FeistelPermutation(Long.MAX_VALUE,keyscrambleseed);
+		
 		if (p.getProperty(INSERT_ORDER_PROPERTY,INSERT_ORDER_PROPERTY_DEFAULT).compareTo("hashed")==0)
 		{
 			orderedinserts=false;
 		}
-		else if (requestdistrib.compareTo("exponential")==0)
-		{
-                    double percentile = Double.parseDouble(p.getProperty(ExponentialGenerator.EXPONENTIAL_PERCENTILE_PROPERTY,
-                                                                         ExponentialGenerator.EXPONENTIAL_PERCENTILE_DEFAULT));
-                    double frac       = Double.parseDouble(p.getProperty(ExponentialGenerator.EXPONENTIAL_FRAC_PROPERTY,
-                                                                         ExponentialGenerator.EXPONENTIAL_FRAC_DEFAULT));
-                    keychooser = new ExponentialGenerator(percentile, recordcount*frac);
-		}
 		else
 		{
 			orderedinserts=true;
@@ -367,7 +628,22 @@ public class CoreWorkload extends Workload
 			operationchooser.addValue(readmodifywriteproportion,"READMODIFYWRITE");
 		}
 
-		transactioninsertkeysequence=new CounterGenerator(recordcount);
+		if (deleteproportion>0)
+		{
+			operationchooser.addValue(deleteproportion,"DELETE");
+
+			//track the records there are to begin with and those the inserts are expected to add, as for zipfian below
+			long opcount=Long.parseLong(p.getProperty(Client.OPERATION_COUNT_PROPERTY,"0"));
+			liveness=new KeyLiveness(recordcount+(long)(((double)opcount)*insertproportion*2.0));
+			deletedkeyproportion=Double.parseDouble(p.getProperty(DELETED_KEY_PROPORTION_PROPERTY,DELETED_KEY_PROPORTION_PROPERTY_DEFAULT));
+			if (Boolean.parseBoolean(p.getProperty(REUSE_DELETED_KEYS_PROPERTY,REUSE_DELETED_KEYS_PROPERTY_DEFAULT)))
+			{
+				deletedkeys=new ConcurrentLinkedQueue<Long>();
+			}
+		}
+
+		int insertkeyblocksize=Integer.parseInt(p.getProperty(INSERT_KEY_BLOCK_SIZE_PROPERTY,INSERT_KEY_BLOCK_SIZE_PROPERTY_DEFAULT));
+		transactioninsertkeysequence=new AcknowledgedCounterGenerator(recordcount,insertkeyblocksize,AcknowledgedCounterGenerator.WINDOW_SIZE_DEFAULT);
 		if (requestdistrib.compareTo("uniform")==0)
 		{
 			keychooser=new UniformIntegerGenerator(0,recordcount-1);
@@ -381,10 +657,19 @@ public class CoreWorkload extends Workload
 			//plus the number of predicted keys as the total keyspace. then, if the generator picks a key that hasn't been inserted yet, will
 			//just ignore it and pick another key. this way, the size of the keyspace doesn't change from the perspective of the scrambled zipfian generator
 			
-			int opcount=Integer.parseInt(p.getProperty(Client.OPERATION_COUNT_PROPERTY));
-			int expectednewkeys=(int)(((double)opcount)*insertproportion*2.0); //2 is fudge factor
+			long opcount=Long.parseLong(p.getProperty(Client.OPERATION_COUNT_PROPERTY));
+			long expectednewkeys=(long)(((double)opcount)*insertproportion*2.0); //2 is fudge factor
 			
-			keychooser=new ScrambledZipfianGenerator(recordcount+expectednewkeys);
+			double zipfianconstant=Double.parseDouble(p.getProperty(ZIPFIAN_CONSTANT_PROPERTY,ZIPFIAN_CONSTANT_PROPERTY_DEFAULT));
+			keychooser=new ScrambledZipfianGenerator(0,recordcount+expectednewkeys-1,zipfianconstant,keyscrambleseed);
+		}
+		else if (requestdistrib.compareTo("exponential")==0)
+		{
+                    double percentile = Double.parseDouble(p.getProperty(ExponentialGenerator.EXPONENTIAL_PERCENTILE_PROPERTY,
+                                                                         ExponentialGenerator.EXPONENTIAL_PERCENTILE_DEFAULT));
+                    double frac       = Double.parseDouble(p.getProperty(ExponentialGenerator.EXPONENTIAL_FRAC_PROPERTY,
+                                                                         ExponentialGenerator.EXPONENTIAL_FRAC_DEFAULT));
+                    keychooser = new ExponentialGenerator(percentile, recordcount*frac);
 		}
 		else if (requestdistrib.compareTo("latest")==0)
 		{
@@ -399,6 +684,10 @@ public class CoreWorkload extends Workload
       keychooser = new HotspotIntegerGenerator(0, recordcount - 1, 
           hotsetfraction, hotopnfraction);
     }
+		else if (requestdistrib.compareTo("drifting")==0)
+		{
+			keychooser=buildDriftingKeyChooser(p,insertproportion,keyscrambleseed);
+		}
 		else
 		{
 			throw new WorkloadException("Unknown request distribution \""+requestdistrib+"\"");
@@ -418,35 +707,101 @@ public class CoreWorkload extends Workload
 		{
 			throw new WorkloadException("Distribution \""+scanlengthdistrib+"\" not allowed for scan length");
 		}
+
+		int maxbatchsize=Integer.parseInt(p.getProperty(BATCH_SIZE_PROPERTY,BATCH_SIZE_PROPERTY_DEFAULT));
+		String batchsizedistrib=p.getProperty(BATCH_SIZE_DISTRIBUTION_PROPERTY,BATCH_SIZE_DISTRIBUTION_PROPERTY_DEFAULT);
+		if (batchsizedistrib.compareTo("constant")==0)
+		{
+			batchsize=(maxbatchsize>1) ? new ConstantIntegerGenerator(maxbatchsize) : null;
+		}
+		else if (batchsizedistrib.compareTo("uniform")==0)
+		{
+			batchsize=new UniformIntegerGenerator(1,maxbatchsize);
+		}
+		else if (batchsizedistrib.compareTo("zipfian")==0)
+		{
+			batchsize=new ZipfianGenerator(1,maxbatchsize);
+		}
+		else
+		{
+			throw new WorkloadException("Distribution \""+batchsizedistrib+"\" not allowed for batch size");
+		}
 	}
 
 	public String buildKeyName(long keynum) {
  		if (!orderedinserts)
  		{
- 			keynum=Utils.hash(keynum);
+ 			keynum=keyscrambler.permute(keynum);
  		}
 		return "user"+keynum;
 	}
-	HashMap<String, ByteIterator> buildValues() {
+	HashMap<String, ByteIterator> buildValues(ThreadState state) {
  		HashMap<String,ByteIterator> values=new HashMap<String,ByteIterator>();
 
  		for (int i=0; i<fieldcount; i++)
  		{
- 			String fieldkey="field"+i;
- 			ByteIterator data= new RandomByteIterator(fieldlengthgenerator.nextInt());
- 			values.put(fieldkey,data);
+ 			values.put(fieldnames[i],buildValue(state,i));
  		}
 		return values;
 	}
-	HashMap<String, ByteIterator> buildUpdate() {
+	HashMap<String, ByteIterator> buildUpdate(ThreadState state) {
 		//update a random field
 		HashMap<String, ByteIterator> values=new HashMap<String,ByteIterator>();
-		String fieldname="field"+fieldchooser.nextString();
-		ByteIterator data = new RandomByteIterator(fieldlengthgenerator.nextInt());
-		values.put(fieldname,data);
+		int field=state.fieldchooser.nextInt();
+		values.put(fieldnames[field],buildValue(state,field));
 		return values;
 	}
 
+	/**
+	 * Generate a value of the type of a field: random characters for an untyped field, as without a schema.
+	 */
+	ByteIterator buildValue(ThreadState state, int field)
+	{
+		FieldType type=(fieldschema==null) ? FieldType.STRING : fieldschema.getType(field);
+		switch (type)
+		{
+		case LONG:
+			return TypedValue.ofLong(Utils.randomLong((long)fieldschema.getBound(field)));
+		case DOUBLE:
+			return TypedValue.ofDouble(Utils.random().nextDouble()*fieldschema.getBound(field));
+		case TIMESTAMP:
+			return TypedValue.ofTimestamp(System.currentTimeMillis()-Utils.randomLong((long)fieldschema.getBound(field)));
+		case BINARY:
+			byte[] bytes=new byte[state.fieldlengthgenerator.nextInt()];
+			Utils.random().nextBytes(bytes);
+			return TypedValue.ofBinary(bytes);
+		default:
+			return new RandomByteIterator(state.fieldlengthgenerator.nextInt());
+		}
+	}
+
+	/**
+	 * Choose a random field.
+	 */
+	String nextFieldName(ThreadState state)
+	{
+		return fieldnames[state.fieldchooser.nextInt()];
+	}
+
+	/**
+	 * Choose the fields of a read: null for all of them if readallfields is set, else a random one. The set is shared,
+	 * and must not be modified.
+	 */
+	Set<String> nextReadFields(ThreadState state)
+	{
+		return readallfields ? null : fieldsets.get(state.fieldchooser.nextInt());
+	}
+
+	/**
+	 * Create the state of one client thread: private copies of the generators, so that the threads do not share the
+	 * state that each generated value updates.
+	 */
+	@Override
+	public Object initThread(Properties p, int mythreadid, int threadcount) throws WorkloadException
+	{
+		return new ThreadState(this);
+	}
+
 	/**
 	 * Do one insert operation. Because it will be called concurrently from multiple client threads, this 
 	 * function must be thread safe. However, avoid synchronized, or the threads will block waiting for each 
@@ -455,9 +810,10 @@ public class CoreWorkload extends Workload
 	 */
 	public boolean doInsert(DB db, Object threadstate)
 	{
-		int keynum=keysequence.nextInt();
+		ThreadState state=(ThreadState)threadstate;
+		long keynum=keysequence.nextLong();
 		String dbkey = buildKeyName(keynum);
-		HashMap<String, ByteIterator> values = buildValues();
+		HashMap<String, ByteIterator> values = buildValues(state);
 		if (db.insert(table,dbkey,values) == 0)
 			return true;
 		else
@@ -472,143 +828,264 @@ public class CoreWorkload extends Workload
 	 */
 	public boolean doTransaction(DB db, Object threadstate)
 	{
-		String op=operationchooser.nextString();
+		ThreadState state=(ThreadState)threadstate;
+		doOperation(db,state,state.operationchooser.nextString());
+		return true;
+	}
 
+	/**
+	 * Do one transaction operation of the given kind, as chosen by the operation chooser. Subclasses that add kinds of
+	 * operations to the chooser handle them here.
+	 */
+	void doOperation(DB db, ThreadState state, String op)
+	{
 		if (op.compareTo("READ")==0)
 		{
-			doTransactionRead(db);
+			doTransactionRead(db,state);
 		}
 		else if (op.compareTo("UPDATE")==0)
 		{
-			doTransactionUpdate(db);
+			doTransactionUpdate(db,state);
 		}
 		else if (op.compareTo("INSERT")==0)
 		{
-			doTransactionInsert(db);
+			doTransactionInsert(db,state);
 		}
 		else if (op.compareTo("SCAN")==0)
 		{
-			doTransactionScan(db);
+			doTransactionScan(db,state);
+		}
+		else if (op.compareTo("DELETE")==0)
+		{
+			doTransactionDelete(db,state);
 		}
 		else
 		{
-			doTransactionReadModifyWrite(db);
+			doTransactionReadModifyWrite(db,state);
 		}
-		
-		return true;
 	}
 
-    int nextKeynum() {
-        int keynum;
-        if(keychooser instanceof ExponentialGenerator) {
+	/**
+	 * Build the key chooser of the "drifting" request distribution. As for zipfian, the keyspace includes the expected
+	 * inserts, so popularity drifts over records as they are inserted too; keys not yet inserted are skipped by nextKeynum().
+	 */
+	IntegerGenerator buildDriftingKeyChooser(Properties p, double insertproportion, long seed) throws WorkloadException
+	{
+		long opcount=Long.parseLong(p.getProperty(Client.OPERATION_COUNT_PROPERTY,"0"));
+		long items=recordcount+(long)(((double)opcount)*insertproportion*2.0);
+
+		String base=p.getProperty(DRIFTING_BASE_PROPERTY,DRIFTING_BASE_PROPERTY_DEFAULT);
+		IntegerGenerator ranks;
+		if (base.compareTo("uniform")==0)
+		{
+			ranks=new UniformIntegerGenerator(0,items-1);
+		}
+		else if (base.compareTo("zipfian")==0)
+		{
+			double zipfianconstant=Double.parseDouble(p.getProperty(ZIPFIAN_CONSTANT_PROPERTY,ZIPFIAN_CONSTANT_PROPERTY_DEFAULT));
+			ranks=new ZipfianGenerator(0,items-1,zipfianconstant);
+		}
+		else if (base.compareTo("hotspot")==0)
+		{
+			double hotsetfraction=Double.parseDouble(p.getProperty(HOTSPOT_DATA_FRACTION,HOTSPOT_DATA_FRACTION_DEFAULT));
+			double hotopnfraction=Double.parseDouble(p.getProperty(HOTSPOT_OPN_FRACTION,HOTSPOT_OPN_FRACTION_DEFAULT));
+			ranks=new HotspotIntegerGenerator(0,items-1,hotsetfraction,hotopnfraction);
+		}
+		else
+		{
+			throw new WorkloadException("Unknown drifting base distribution \""+base+"\"");
+		}
+
+		DriftingPopularityGenerator gen=new DriftingPopularityGenerator(ranks,items,seed);
+		gen.setDrift(Double.parseDouble(p.getProperty(DRIFTING_SPEED_PROPERTY,DRIFTING_SPEED_PROPERTY_DEFAULT)));
+		gen.setReshuffleInterval(seconds(p,DRIFTING_RESHUFFLE_INTERVAL_PROPERTY,DRIFTING_RESHUFFLE_INTERVAL_PROPERTY_DEFAULT));
+		gen.setFlashCrowds(seconds(p,FLASH_CROWD_INTERVAL_PROPERTY,FLASH_CROWD_INTERVAL_PROPERTY_DEFAULT),
+				Double.parseDouble(p.getProperty(FLASH_CROWD_PROBABILITY_PROPERTY,FLASH_CROWD_PROBABILITY_PROPERTY_DEFAULT)),
+				seconds(p,FLASH_CROWD_DURATION_PROPERTY,FLASH_CROWD_DURATION_PROPERTY_DEFAULT),
+				Long.parseLong(p.getProperty(FLASH_CROWD_KEYS_PROPERTY,FLASH_CROWD_KEYS_PROPERTY_DEFAULT)),
+				Double.parseDouble(p.getProperty(FLASH_CROWD_FRACTION_PROPERTY,FLASH_CROWD_FRACTION_PROPERTY_DEFAULT)));
+		return gen;
+	}
+
+	/**
+	 * Set a property if it is not set, for subclasses whose defaults differ from CoreWorkload's.
+	 */
+	static void setDefault(Properties p, String name, String value)
+	{
+		if (p.getProperty(name)==null)
+		{
+			p.setProperty(name,value);
+		}
+	}
+
+	/**
+	 * Parse a property given in (possibly fractional) seconds, returning milliseconds.
+	 */
+	static long seconds(Properties p, String name, String def)
+	{
+		return (long)(Double.parseDouble(p.getProperty(name,def))*1000);
+	}
+
+    long nextKeynum(ThreadState state) {
+        long keynum;
+        if(state.keychooser instanceof ExponentialGenerator) {
             do
                 {
-                    keynum=transactioninsertkeysequence.lastInt() - keychooser.nextInt();
+                    keynum=state.transactioninsertkeysequence.lastLong() - state.keychooser.nextLong();
                 }
             while(keynum < 0);
         } else {
             do
                 {
-                    keynum=keychooser.nextInt();
+                    keynum=state.keychooser.nextLong();
                 }
-            while (keynum > transactioninsertkeysequence.lastInt());
+            while (keynum > state.transactioninsertkeysequence.lastLong());
         }
         return keynum;
     }
 
-	public void doTransactionRead(DB db)
+	/**
+	 * Choose the key of a read, update or scan: when there are deletes, a live key, or a deleted one for the given
+	 * proportion of operations.
+	 */
+	long nextTargetKeynum(ThreadState state)
 	{
-		//choose a random key
-		int keynum = nextKeynum();
-		
-		String keyname = buildKeyName(keynum);
-		
-		HashSet<String> fields=null;
+		long keynum=nextKeynum(state);
+		if (liveness==null)
+		{
+			return keynum;
+		}
+		boolean live=(liveness.deletedCount()==0) || (Utils.random().nextDouble()>=deletedkeyproportion);
+		return nextKeynum(state,keynum,live);
+	}
 
-		if (!readallfields)
+	/**
+	 * Choose the keys of a batch with nextTargetKeynum(), all distinct, as bindings may fail or reject a batch that
+	 * names a record twice. A key that keeps being drawn again is left out, so the batch can come out smaller.
+	 */
+	ArrayList<String> nextTargetKeys(ThreadState state, int count)
+	{
+		ArrayList<String> keys=new ArrayList<String>(count);
+		HashSet<Long> chosen=new HashSet<Long>();
+		for (int i=0; i<count; i++)
 		{
-			//read a random field  
-			String fieldname="field"+fieldchooser.nextString();
+			long keynum=nextTargetKeynum(state);
+			for (int j=0; chosen.contains(keynum) && (j<LIVENESS_REDRAWS); j++)
+			{
+				keynum=nextTargetKeynum(state);
+			}
+			if (chosen.add(keynum))
+			{
+				keys.add(buildKeyName(keynum));
+			}
+		}
+		return keys;
+	}
 
-			fields=new HashSet<String>();
-			fields.add(fieldname);
+	/**
+	 * Starting from a key drawn from the request distribution, find one that is live (or deleted) as wanted. Redraws keep
+	 * the request distribution; when too much of it is the wrong kind, the nearest key of the right kind is taken instead.
+	 * If there is no such key at all, the key drawn is returned.
+	 */
+	long nextKeynum(ThreadState state, long keynum, boolean live)
+	{
+		for (int i=0; (liveness.isLive(keynum)!=live) && (i<LIVENESS_REDRAWS); i++)
+		{
+			keynum=nextKeynum(state);
 		}
+		if (liveness.isLive(keynum)!=live)
+		{
+			long nearest=liveness.nearest(keynum,state.transactioninsertkeysequence.lastLong(),live);
+			if (nearest>=0)
+			{
+				keynum=nearest;
+			}
+		}
+		return keynum;
+	}
+
+	public void doTransactionRead(DB db, ThreadState state)
+	{
+		if (state.batchsize!=null)
+		{
+			doTransactionMultiRead(db,state);
+			return;
+		}
+
+		//choose a random key
+		long keynum = nextTargetKeynum(state);
+		
+		String keyname = buildKeyName(keynum);
+		
+		//read all fields, or a random one
+		Set<String> fields=nextReadFields(state);
 
-		db.read(table,keyname,fields,new HashMap<String,ByteIterator>());
+		db.read(table,keyname,fields,state.emptyResult());
 	}
 	
-	public void doTransactionReadModifyWrite(DB db)
+	public void doTransactionReadModifyWrite(DB db, ThreadState state)
 	{
 		//choose a random key
-		int keynum = nextKeynum();
+		long keynum = nextTargetKeynum(state);
 
 		String keyname = buildKeyName(keynum);
 
-		HashSet<String> fields=null;
-
-		if (!readallfields)
-		{
-			//read a random field  
-			String fieldname="field"+fieldchooser.nextString();
-
-			fields=new HashSet<String>();
-			fields.add(fieldname);
-		}
+		//read all fields, or a random one
+		Set<String> fields=nextReadFields(state);
 		
 		HashMap<String,ByteIterator> values;
 
 		if (writeallfields)
 		{
 		   //new data for all the fields
-		   values = buildValues();
+		   values = buildValues(state);
 		}
 		else
 		{
 		   //update a random field
-		   values = buildUpdate();
+		   values = buildUpdate(state);
 		}
 
 		//do the transaction
 		
 		long st=System.nanoTime();
 
-		db.read(table,keyname,fields,new HashMap<String,ByteIterator>());
+		db.read(table,keyname,fields,state.emptyResult());
 		
 		db.update(table,keyname,values);
 
 		long en=System.nanoTime();
 		
 		Measurements.getMeasurements().measure("READ-MODIFY-WRITE", (int)((en-st)/1000));
+		Measurements.getMeasurements().measureIntended("READ-MODIFY-WRITE", en);
 	}
 	
-	public void doTransactionScan(DB db)
+	public void doTransactionScan(DB db, ThreadState state)
 	{
 		//choose a random key
-		int keynum = nextKeynum();
+		long keynum = nextTargetKeynum(state);
 
 		String startkeyname = buildKeyName(keynum);
 		
 		//choose a random scan length
-		int len=scanlength.nextInt();
+		int len=state.scanlength.nextInt();
 
-		HashSet<String> fields=null;
+		//read all fields, or a random one
+		Set<String> fields=nextReadFields(state);
 
-		if (!readallfields)
-		{
-			//read a random field  
-			String fieldname="field"+fieldchooser.nextString();
-
-			fields=new HashSet<String>();
-			fields.add(fieldname);
-		}
-
-		db.scan(table,startkeyname,len,fields,new Vector<HashMap<String,ByteIterator>>());
+		db.scan(table,startkeyname,len,fields,ScanConsumer.DISCARD);
 	}
 
-	public void doTransactionUpdate(DB db)
+	public void doTransactionUpdate(DB db, ThreadState state)
 	{
+		if (state.batchsize!=null)
+		{
+			doTransactionMultiUpdate(db,state);
+			return;
+		}
+
 		//choose a random key
-		int keynum = nextKeynum();
+		long keynum = nextTargetKeynum(state);
 
 		String keyname=buildKeyName(keynum);
 
@@ -617,25 +1094,155 @@ public class CoreWorkload extends Workload
 		if (writeallfields)
 		{
 		   //new data for all the fields
-		   values = buildValues();
+		   values = buildValues(state);
 		}
 		else
 		{
 		   //update a random field
-		   values = buildUpdate();
+		   values = buildUpdate(state);
 		}
 
 		db.update(table,keyname,values);
 	}
 
-	public void doTransactionInsert(DB db)
+	public void doTransactionDelete(DB db, ThreadState state)
 	{
+		//claim a live key, so that no other thread deletes it too, and readers of live keys leave it alone from now on
+		long keynum=-1;
+		for (int i=0; i<LIVENESS_REDRAWS; i++)
+		{
+			long candidate=nextKeynum(state,nextKeynum(state),true);
+			if (liveness.markDeleted(candidate))
+			{
+				keynum=candidate;
+				break;
+			}
+		}
+		if (keynum<0)
+		{
+			//nothing left to delete: count the delete as not found rather than let it pass for a successful one
+			Measurements.getMeasurements().reportReturnCode("DELETE",Status.NOT_FOUND.getCode());
+			return;
+		}
+
+		db.delete(table,buildKeyName(keynum));
+
+		if (deletedkeys!=null)
+		{
+			deletedkeys.add(keynum);
+		}
+	}
+
+	public void doTransactionInsert(DB db, ThreadState state)
+	{
+		if (state.batchsize!=null)
+		{
+			doTransactionMultiInsert(db,state);
+			return;
+		}
+
+		Long deleted=(deletedkeys==null) ? null : deletedkeys.poll();
+		if (deleted!=null)
+		{
+			doTransactionReinsert(db,state,deleted);
+			return;
+		}
+
 		//choose the next key
-		int keynum=transactioninsertkeysequence.nextInt();
+		long keynum=state.transactioninsertkeysequence.nextLong();
 
 		String dbkey = buildKeyName(keynum);
 
-		HashMap<String, ByteIterator> values = buildValues();
-		db.insert(table,dbkey,values);
+		try
+		{
+			HashMap<String, ByteIterator> values = buildValues(state);
+			db.insert(table,dbkey,values);
+		}
+		finally
+		{
+			//only now may readers choose this key
+			state.transactioninsertkeysequence.acknowledge(keynum);
+		}
+	}
+
+	/**
+	 * Insert a deleted record again. It stays marked deleted until the insert is done.
+	 */
+	void doTransactionReinsert(DB db, ThreadState state, long keynum)
+	{
+		try
+		{
+			HashMap<String, ByteIterator> values = buildValues(state);
+			db.insert(table,buildKeyName(keynum),values);
+		}
+		finally
+		{
+			liveness.markLive(keynum);
+		}
+	}
+
+	public void doTransactionMultiRead(DB db, ThreadState state)
+	{
+		//choose a batch of distinct random keys
+		ArrayList<String> keys=nextTargetKeys(state,state.batchsize.nextInt());
+
+		//read all fields, or a random one
+		Set<String> fields=nextReadFields(state);
+
+		db.multiRead(table,keys,fields,new Vector<HashMap<String,ByteIterator>>(keys.size()));
+	}
+
+	public void doTransactionMultiUpdate(DB db, ThreadState state)
+	{
+		//choose a batch of distinct random keys
+		ArrayList<String> keys=nextTargetKeys(state,state.batchsize.nextInt());
+		ArrayList<HashMap<String,ByteIterator>> values=new ArrayList<HashMap<String,ByteIterator>>(keys.size());
+		for (int i=0; i<keys.size(); i++)
+		{
+			values.add(writeallfields ? buildValues(state) : buildUpdate(state));
+		}
+
+		db.multiUpdate(table,keys,values);
+	}
+
+	public void doTransactionMultiInsert(DB db, ThreadState state)
+	{
+		//choose the next keys, reinserting deleted records first
+		int n=state.batchsize.nextInt();
+		long[] keynums=new long[n];
+		boolean[] reinserted=new boolean[n];
+		ArrayList<String> keys=new ArrayList<String>(n);
+		ArrayList<HashMap<String,ByteIterator>> values=new ArrayList<HashMap<String,ByteIterator>>(n);
+		for (int i=0; i<n; i++)
+		{
+			Long deleted=(deletedkeys==null) ? null : deletedkeys.poll();
+			reinserted[i]=(deleted!=null);
+			keynums[i]=reinserted[i] ? deleted : state.transactioninsertkeysequence.nextLong();
+			keys.add(buildKeyName(keynums[i]));
+		}
+
+		try
+		{
+			for (int i=0; i<n; i++)
+			{
+				values.add(buildValues(state));
+			}
+			db.multiInsert(table,keys,values);
+		}
+		finally
+		{
+			//only now may readers choose these keys
+			for (int i=0; i<n; i++)
+			{
+				if (reinserted[i])
+				{
+					liveness.markLive(keynums[i]);
+				}
+				else
+				{
+					state.transactioninsertkeysequence.acknowledge(keynums[i]);
+				}
+			}
+		}
 	}
 }
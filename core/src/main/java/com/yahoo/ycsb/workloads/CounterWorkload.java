@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.workloads;
+
+import java.util.Properties;
+
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.WorkloadException;
+
+/**
+ * A workload of atomic counter increments (see DB.increment()): each record holds fieldcount counters, and the request
+ * distribution, skewed by default, decides which counters are hot. The load phase creates every counter at zero.
+ *
+ * Besides increments, the transaction phase can do any of CoreWorkload's operations, e.g. reads of the counters, in the
+ * proportions given; but updates and read-modify-writes overwrite counters with random bytes, which the databases that
+ * keep counters as numbers then fail to increment.
+ *
+ * Properties to control the client, besides those of CoreWorkload:
+ * <UL>
+ * <LI><b>incrementproportion</b>: what proportion of operations should be increments (default: 1)
+ * <LI><b>incrementdelta</b>: how much each increment adds (default: 1)
+ * </ul>
+ * The defaults of some CoreWorkload properties differ: readproportion and updateproportion are 0, requestdistribution is
+ * zipfian and fieldcount is 1.
+ */
+public class CounterWorkload extends CoreWorkload
+{
+	public static final String INCREMENT_PROPORTION_PROPERTY="incrementproportion";
+
+	public static final String INCREMENT_PROPORTION_PROPERTY_DEFAULT="1";
+
+	public static final String INCREMENT_DELTA_PROPERTY="incrementdelta";
+
+	public static final String INCREMENT_DELTA_PROPERTY_DEFAULT="1";
+
+	long delta;
+
+	@Override
+	public void init(Properties p) throws WorkloadException
+	{
+		setDefault(p,READ_PROPORTION_PROPERTY,"0");
+		setDefault(p,UPDATE_PROPORTION_PROPERTY,"0");
+		setDefault(p,REQUEST_DISTRIBUTION_PROPERTY,"zipfian");
+		setDefault(p,FIELD_COUNT_PROPERTY,"1");
+		super.init(p);
+
+		double incrementproportion=Double.parseDouble(p.getProperty(INCREMENT_PROPORTION_PROPERTY,INCREMENT_PROPORTION_PROPERTY_DEFAULT));
+		if (incrementproportion>0)
+		{
+			operationchooser.addValue(incrementproportion,"INCREMENT");
+		}
+		delta=Long.parseLong(p.getProperty(INCREMENT_DELTA_PROPERTY,INCREMENT_DELTA_PROPERTY_DEFAULT));
+	}
+
+	/**
+	 * Create the counters of one record, at zero.
+	 */
+	@Override
+	public boolean doInsert(DB db, Object threadstate)
+	{
+		String dbkey=buildKeyName(keysequence.nextLong());
+		boolean ok=true;
+		for (int i=0; i<fieldcount; i++)
+		{
+			ok&=(db.increment(table,dbkey,fieldnames[i],0)==0);
+		}
+		return ok;
+	}
+
+	@Override
+	void doOperation(DB db, ThreadState state, String op)
+	{
+		if (op.compareTo("INCREMENT")==0)
+		{
+			doTransactionIncrement(db,state);
+		}
+		else
+		{
+			super.doOperation(db,state,op);
+		}
+	}
+
+	public void doTransactionIncrement(DB db, ThreadState state)
+	{
+		//choose a random counter
+		long keynum=nextTargetKeynum(state);
+		String keyname=buildKeyName(keynum);
+		String fieldname=nextFieldName(state);
+
+		db.increment(table,keyname,fieldname,delta);
+	}
+}
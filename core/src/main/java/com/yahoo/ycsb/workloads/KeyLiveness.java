@@ -0,0 +1,234 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.workloads;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Tracks which records of a keyspace have been deleted, one bit per key number, so that concurrent client threads can
+ * agree on which keys are live without locking.
+ *
+ * The bits are kept in pages that are only allocated once a key in them is deleted, so a keyspace with few deletes
+ * costs little memory. Key numbers at or beyond the capacity are not tracked: they are always live and cannot be deleted.
+ */
+public class KeyLiveness
+{
+	static final int PAGE_SHIFT=16;
+	static final long PAGE_BITS=1L<<PAGE_SHIFT;
+	static final int PAGE_WORDS=(int)(PAGE_BITS/64);
+
+	final long _capacity;
+	final AtomicReferenceArray<AtomicLongArray> _pages;
+	final AtomicLong _deleted=new AtomicLong();
+
+	/**
+	 * @param capacity The number of key numbers tracked, starting at 0.
+	 */
+	public KeyLiveness(long capacity)
+	{
+		long pages=(capacity+PAGE_BITS-1)>>>PAGE_SHIFT;
+		if (pages>Integer.MAX_VALUE)
+		{
+			throw new IllegalArgumentException("Too many keys to track: "+capacity);
+		}
+		_capacity=capacity;
+		_pages=new AtomicReferenceArray<AtomicLongArray>((int)pages);
+	}
+
+	public long capacity()
+	{
+		return _capacity;
+	}
+
+	/**
+	 * @return the number of keys currently deleted
+	 */
+	public long deletedCount()
+	{
+		return _deleted.get();
+	}
+
+	public boolean isLive(long keynum)
+	{
+		if ( (keynum<0) || (keynum>=_capacity) )
+		{
+			return true;
+		}
+		AtomicLongArray page=_pages.get((int)(keynum>>>PAGE_SHIFT));
+		return (page==null) || ((page.get(word(keynum))&bit(keynum))==0);
+	}
+
+	/**
+	 * Mark a key deleted.
+	 *
+	 * @return true if this call deleted the key, false if it was already deleted or is not tracked
+	 */
+	public boolean markDeleted(long keynum)
+	{
+		if ( (keynum<0) || (keynum>=_capacity) )
+		{
+			return false;
+		}
+		AtomicLongArray page=page(keynum);
+		int word=word(keynum);
+		long bit=bit(keynum);
+		for (;;)
+		{
+			long old=page.get(word);
+			if ((old&bit)!=0)
+			{
+				return false;
+			}
+			if (page.compareAndSet(word,old,old|bit))
+			{
+				_deleted.incrementAndGet();
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Mark a key live again, e.g. once it has been reinserted.
+	 *
+	 * @return true if this call revived the key, false if it was live already
+	 */
+	public boolean markLive(long keynum)
+	{
+		if ( (keynum<0) || (keynum>=_capacity) )
+		{
+			return false;
+		}
+		AtomicLongArray page=_pages.get((int)(keynum>>>PAGE_SHIFT));
+		if (page==null)
+		{
+			return false;
+		}
+		int word=word(keynum);
+		long bit=bit(keynum);
+		for (;;)
+		{
+			long old=page.get(word);
+			if ((old&bit)==0)
+			{
+				return false;
+			}
+			if (page.compareAndSet(word,old,old&~bit))
+			{
+				_deleted.decrementAndGet();
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Find the first key at or after a key, wrapping around to 0 after the limit, that is live (or deleted).
+	 *
+	 * @param keynum Where to start looking.
+	 * @param limit The largest key number to consider.
+	 * @param live Whether to look for a live or a deleted key.
+	 * @return the key found, or -1 if there is none
+	 */
+	public long nearest(long keynum, long limit, boolean live)
+	{
+		if (limit<0)
+		{
+			return -1;
+		}
+		if ( (keynum<0) || (keynum>limit) )
+		{
+			keynum=0;
+		}
+		long found=scan(keynum,limit,live);
+		if ( (found<0) && (keynum>0) )
+		{
+			found=scan(0,keynum-1,live);
+		}
+		return found;
+	}
+
+	/**
+	 * Find the first key in [from, to] that is live (or deleted), a word at a time.
+	 */
+	long scan(long from, long to, boolean live)
+	{
+		long end=Math.min(to,_capacity-1);
+		long k=from;
+		while (k<=end)
+		{
+			AtomicLongArray page=_pages.get((int)(k>>>PAGE_SHIFT));
+			if (page==null)
+			{
+				if (live)
+				{
+					return k;
+				}
+				//nothing deleted in this page; skip to the next one
+				k=((k>>>PAGE_SHIFT)+1)<<PAGE_SHIFT;
+				continue;
+			}
+			long bits=page.get(word(k));
+			if (live)
+			{
+				bits=~bits;
+			}
+			//ignore the keys before k in this word
+			bits&=-1L<<(k&63);
+			if (bits!=0)
+			{
+				long found=(k&~63L)+Long.numberOfTrailingZeros(bits);
+				if (found<=end)
+				{
+					return found;
+				}
+				break;
+			}
+			k=(k|63)+1;
+		}
+		if ( live && (to>=_capacity) )
+		{
+			//untracked keys are live
+			return Math.max(from,_capacity);
+		}
+		return -1;
+	}
+
+	AtomicLongArray page(long keynum)
+	{
+		int index=(int)(keynum>>>PAGE_SHIFT);
+		AtomicLongArray page=_pages.get(index);
+		if (page==null)
+		{
+			_pages.compareAndSet(index,null,new AtomicLongArray(PAGE_WORDS));
+			page=_pages.get(index);
+		}
+		return page;
+	}
+
+	static int word(long keynum)
+	{
+		return (int)((keynum&(PAGE_BITS-1))>>>6);
+	}
+
+	static long bit(long keynum)
+	{
+		return 1L<<(keynum&63);
+	}
+}
@@ -0,0 +1,197 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.RandomByteIterator;
+import com.yahoo.ycsb.ScanConsumer;
+import com.yahoo.ycsb.Workload;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.trace.TraceFile;
+import com.yahoo.ycsb.trace.TraceRecord;
+
+/**
+ * Replays the operations of a binary trace (see TraceFile): the operation type, table, key, fields, value sizes and
+ * scan lengths are taken from the trace, and the values written are random bytes of the recorded size.
+ *
+ * The trace is memory-mapped and its blocks are divided between the client threads, so threads read without locking.
+ * Each thread stops once its share of the trace is done, so run with operationcount=0 (or insertcount=0 for -load).
+ * Both phases replay the trace.
+ *
+ * Properties to control the client:
+ * <UL>
+ * <LI><b>tracereplay.file</b>: the trace to replay (required)
+ * <LI><b>tracereplay.speed</b>: how fast to replay relative to the original timing: 1 replays at the recorded pace, 10 ten times
+ * faster, and 0 as fast as possible (default: 1)
+ * <LI><b>fieldcount</b>: the number of fields to write for inserts and updates that the trace records as touching all fields (default: 10)
+ * </ul>
+ */
+public class TraceReplayWorkload extends Workload
+{
+	public static final String TRACE_FILE_PROPERTY="tracereplay.file";
+
+	public static final String SPEED_PROPERTY="tracereplay.speed";
+
+	public static final String SPEED_PROPERTY_DEFAULT="1";
+
+	TraceFile trace;
+
+	double speed;
+
+	int fieldcount;
+
+	/**
+	 * The System.nanoTime() at which the first operation was replayed; the trace's timestamps are relative to it.
+	 */
+	final AtomicLong replaystart=new AtomicLong();
+
+	static class ThreadState
+	{
+		final TraceFile.Cursor cursor;
+
+		final TraceRecord record=new TraceRecord();
+
+		ThreadState(TraceFile.Cursor cursor)
+		{
+			this.cursor=cursor;
+		}
+	}
+
+	public void init(Properties p) throws WorkloadException
+	{
+		String filename=p.getProperty(TRACE_FILE_PROPERTY);
+		if (filename==null)
+		{
+			throw new WorkloadException("Missing property: "+TRACE_FILE_PROPERTY);
+		}
+		try
+		{
+			trace=new TraceFile(filename);
+		}
+		catch (IOException e)
+		{
+			throw new WorkloadException(e);
+		}
+		speed=Double.parseDouble(p.getProperty(SPEED_PROPERTY,SPEED_PROPERTY_DEFAULT));
+		fieldcount=Integer.parseInt(p.getProperty(CoreWorkload.FIELD_COUNT_PROPERTY,CoreWorkload.FIELD_COUNT_PROPERTY_DEFAULT));
+	}
+
+	public Object initThread(Properties p, int mythreadid, int threadcount) throws WorkloadException
+	{
+		return new ThreadState(trace.cursor(mythreadid,threadcount));
+	}
+
+	public boolean doInsert(DB db, Object threadstate)
+	{
+		return doTransaction(db,threadstate);
+	}
+
+	public boolean doTransaction(DB db, Object threadstate)
+	{
+		ThreadState state=(ThreadState)threadstate;
+		TraceRecord record=state.record;
+		if (!state.cursor.next(record))
+		{
+			return false;
+		}
+
+		if (speed>0)
+		{
+			waitUntilDue(record.timestamp);
+		}
+
+		switch (record.op)
+		{
+		case TraceRecord.READ:
+			db.read(record.table,record.key,TraceRecord.fieldSet(record.fieldmask),new HashMap<String,ByteIterator>());
+			break;
+		case TraceRecord.UPDATE:
+			db.update(record.table,record.key,buildValues(record));
+			break;
+		case TraceRecord.INSERT:
+			db.insert(record.table,record.key,buildValues(record));
+			break;
+		case TraceRecord.SCAN:
+			db.scan(record.table,record.key,record.length,TraceRecord.fieldSet(record.fieldmask),ScanConsumer.DISCARD);
+			break;
+		case TraceRecord.DELETE:
+			db.delete(record.table,record.key);
+			break;
+		default:
+			System.err.println("Skipping trace record with unknown operation "+record.op);
+		}
+		return true;
+	}
+
+	/**
+	 * Sleep until the (scaled) trace timestamp, in microseconds, comes due. Operations that are already late run at once.
+	 */
+	void waitUntilDue(long timestamp)
+	{
+		long start=replaystart.get();
+		if (start==0)
+		{
+			replaystart.compareAndSet(0,System.nanoTime());
+			start=replaystart.get();
+		}
+		long due=start+(long)(timestamp*1000/speed);
+		long now;
+		while ( ((now=System.nanoTime())<due) && !isStopRequested() )
+		{
+			LockSupport.parkNanos(due-now);
+		}
+	}
+
+	/**
+	 * Random values for the fields of an insert or update, dividing the recorded value size between them.
+	 */
+	HashMap<String,ByteIterator> buildValues(TraceRecord record)
+	{
+		HashSet<String> fields=TraceRecord.fieldSet(record.fieldmask);
+		if (fields==null)
+		{
+			fields=new HashSet<String>();
+			for (int i=0; i<fieldcount; i++)
+			{
+				fields.add(TraceRecord.FIELD_PREFIX+i);
+			}
+		}
+		HashMap<String,ByteIterator> values=new HashMap<String,ByteIterator>();
+		int n=Math.max(1,fields.size());
+		int remainder=record.length%n;
+		for (String field : fields)
+		{
+			int len=record.length/n;
+			if (remainder>0)
+			{
+				len++;
+				remainder--;
+			}
+			values.put(field,new RandomByteIterator(len));
+		}
+		return values;
+	}
+}
@@ -0,0 +1,180 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.workloads;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Properties;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.Utils;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * A workload of multi-key transactions: each operation starts a transaction, reads some records, writes new values to
+ * some of them and commits (see DB.start(), DB.commit() and DB.abort()). If a read or write fails, the transaction is
+ * aborted. The load phase is the same as CoreWorkload's.
+ *
+ * Each transaction is measured as a whole under TRANSACTION, whose return codes tell committed (0) from aborted
+ * transactions: bindings return Status.CONDITION_FAILED's code from commit() for a transaction aborted because it
+ * conflicted with another one, so conflict aborts are counted apart from failures. Commit and abort latencies are
+ * measured under COMMIT and ABORT. Running with a skewed request
+ * distribution and more threads gives the abort rate and throughput under growing contention.
+ *
+ * The keys of a transaction are drawn from the request distribution. The correlation makes transactions touch
+ * neighbouring records, as transactions over related rows (an order and its lines, say) do.
+ *
+ * Properties to control the client, besides those of CoreWorkload (whose operation proportions are not used):
+ * <UL>
+ * <LI><b>transaction.readcount</b>: how many records each transaction reads (default: 2)
+ * <LI><b>transaction.writecount</b>: how many records each transaction writes; the records read first, then further ones if
+ * there are more writes than reads (default: 2)
+ * <LI><b>transaction.correlation</b>: the probability that each key after the first is the one following the previous key,
+ * rather than drawn independently (default: 0)
+ * </ul>
+ */
+public class TransactionalWorkload extends CoreWorkload
+{
+	public static final String READ_COUNT_PROPERTY="transaction.readcount";
+
+	public static final String READ_COUNT_PROPERTY_DEFAULT="2";
+
+	public static final String WRITE_COUNT_PROPERTY="transaction.writecount";
+
+	public static final String WRITE_COUNT_PROPERTY_DEFAULT="2";
+
+	public static final String CORRELATION_PROPERTY="transaction.correlation";
+
+	public static final String CORRELATION_PROPERTY_DEFAULT="0";
+
+	int readcount;
+
+	int writecount;
+
+	double correlation;
+
+	@Override
+	public void init(Properties p) throws WorkloadException
+	{
+		super.init(p);
+		readcount=Integer.parseInt(p.getProperty(READ_COUNT_PROPERTY,READ_COUNT_PROPERTY_DEFAULT));
+		writecount=Integer.parseInt(p.getProperty(WRITE_COUNT_PROPERTY,WRITE_COUNT_PROPERTY_DEFAULT));
+		correlation=Double.parseDouble(p.getProperty(CORRELATION_PROPERTY,CORRELATION_PROPERTY_DEFAULT));
+		if ( (readcount<0) || (writecount<0) || (readcount+writecount==0) )
+		{
+			throw new WorkloadException("Transactions need reads or writes, got "+readcount+" reads and "+writecount+" writes");
+		}
+		if (Math.max(readcount,writecount)>recordcount)
+		{
+			throw new WorkloadException("Transactions can't touch more than the "+recordcount+" records there are");
+		}
+	}
+
+	@Override
+	public boolean doTransaction(DB db, Object threadstate)
+	{
+		ThreadState state=(ThreadState)threadstate;
+		long[] keys=chooseKeys(state,Math.max(readcount,writecount));
+
+		long st=System.nanoTime();
+		int res=doMultiKeyTransaction(db,state,keys);
+		long en=System.nanoTime();
+
+		Measurements measurements=Measurements.getMeasurements();
+		measurements.measure("TRANSACTION",(int)((en-st)/1000));
+		measurements.measureIntended("TRANSACTION",en);
+		measurements.reportReturnCode("TRANSACTION",res);
+		return true;
+	}
+
+	/**
+	 * Choose distinct keys, each either drawn from the request distribution or, with the probability of the correlation,
+	 * following the previous one. A key drawn again is redrawn a few times, then the next one not chosen yet is taken.
+	 */
+	long[] chooseKeys(ThreadState state, int count)
+	{
+		long[] keys=new long[count];
+		HashSet<Long> chosen=new HashSet<Long>();
+		for (int i=0; i<count; i++)
+		{
+			long keynum;
+			if ( (i>0) && (correlation>0) && (Utils.random().nextDouble()<correlation)
+					&& (keys[i-1]<state.transactioninsertkeysequence.lastLong()) && !chosen.contains(keys[i-1]+1) )
+			{
+				keynum=keys[i-1]+1;
+			}
+			else
+			{
+				keynum=nextTargetKeynum(state);
+				for (int j=0; chosen.contains(keynum) && (j<LIVENESS_REDRAWS); j++)
+				{
+					keynum=nextTargetKeynum(state);
+				}
+				//a distribution too skewed to draw another key in time: take the next key not chosen yet
+				long last=state.transactioninsertkeysequence.lastLong();
+				while (chosen.contains(keynum))
+				{
+					keynum=(keynum<last) ? keynum+1 : 0;
+				}
+			}
+			chosen.add(keynum);
+			keys[i]=keynum;
+		}
+		return keys;
+	}
+
+	/**
+	 * Run one transaction.
+	 *
+	 * @return 0 if the transaction committed, the failing return code if it was aborted
+	 */
+	int doMultiKeyTransaction(DB db, ThreadState state, long[] keys)
+	{
+		int res=db.start();
+		if (res!=0)
+		{
+			return res;
+		}
+
+		for (int i=0; i<readcount; i++)
+		{
+			res=db.read(table,buildKeyName(keys[i]),nextReadFields(state),state.emptyResult());
+			if (res!=0)
+			{
+				db.abort();
+				return res;
+			}
+		}
+
+		for (int i=0; i<writecount; i++)
+		{
+			HashMap<String,ByteIterator> values=writeallfields ? buildValues(state) : buildUpdate(state);
+			res=db.update(table,buildKeyName(keys[i]),values);
+			if (res!=0)
+			{
+				db.abort();
+				return res;
+			}
+		}
+
+		return db.commit();
+	}
+}
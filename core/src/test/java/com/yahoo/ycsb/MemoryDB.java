@@ -0,0 +1,87 @@
+package com.yahoo.ycsb;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.Vector;
+
+/**
+ * A DB that keeps its records in memory, for tests. Only the abstract operations and the transaction hooks are
+ * implemented, so the other operations are DB's defaults.
+ */
+public class MemoryDB extends DB {
+  public final TreeMap<String, HashMap<String, String>> records = new TreeMap<String, HashMap<String, String>>();
+  public int starts;
+  public int commits;
+  public int aborts;
+
+  public String get(String key, String field) {
+    HashMap<String, String> record = records.get(key);
+    return (record == null) ? null : record.get(field);
+  }
+
+  void copy(HashMap<String, String> record, Set<String> fields, HashMap<String, ByteIterator> result) {
+    for (Map.Entry<String, String> field : record.entrySet()) {
+      if (fields == null || fields.contains(field.getKey())) {
+        result.put(field.getKey(), new StringByteIterator(field.getValue()));
+      }
+    }
+  }
+
+  public int read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+    HashMap<String, String> record = records.get(key);
+    if (record == null) {
+      return Status.NOT_FOUND.getCode();
+    }
+    copy(record, fields, result);
+    return 0;
+  }
+
+  public int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+    for (HashMap<String, String> record : records.tailMap(startkey).values()) {
+      if (result.size() == recordcount) {
+        break;
+      }
+      HashMap<String, ByteIterator> values = new HashMap<String, ByteIterator>();
+      copy(record, fields, values);
+      result.add(values);
+    }
+    return 0;
+  }
+
+  public int update(String table, String key, HashMap<String, ByteIterator> values) {
+    HashMap<String, String> record = records.get(key);
+    if (record == null) {
+      return Status.NOT_FOUND.getCode();
+    }
+    StringByteIterator.putAllAsStrings(record, values);
+    return 0;
+  }
+
+  public int insert(String table, String key, HashMap<String, ByteIterator> values) {
+    HashMap<String, String> record = new HashMap<String, String>();
+    StringByteIterator.putAllAsStrings(record, values);
+    records.put(key, record);
+    return 0;
+  }
+
+  public int delete(String table, String key) {
+    return (records.remove(key) == null) ? Status.NOT_FOUND.getCode() : 0;
+  }
+
+  public int start() {
+    starts++;
+    return 0;
+  }
+
+  public int commit() {
+    commits++;
+    return 0;
+  }
+
+  public int abort() {
+    aborts++;
+    return 0;
+  }
+}
@@ -1,5 +1,7 @@
 package com.yahoo.ycsb;
 
+import java.nio.ByteBuffer;
+
 import org.testng.annotations.Test;
 import static org.testng.AssertJUnit.*;
 
@@ -19,4 +21,29 @@ public class TestByteIterator {
     assertFalse(itor.hasNext());
     assertEquals(0, itor.bytesLeft());
   }
+
+  @Test
+  public void testRandomByteBuffer() {
+    int size = 100;
+    ByteIterator itor = new RandomByteIterator(size);
+    itor.nextByte();
+    itor.nextByte();
+    ByteBuffer buf = itor.toByteBuffer();
+    assertEquals(size - 2, buf.remaining());
+    assertFalse(itor.hasNext());
+    assertEquals(0, itor.bytesLeft());
+  }
+
+  @Test
+  public void testByteArrayByteBufferIsAView() {
+    byte[] bytes = "0123456789".getBytes();
+    ByteIterator itor = new ByteArrayByteIterator(bytes, 2, 5);
+    itor.nextByte();
+    ByteBuffer buf = itor.toByteBuffer();
+    assertEquals(4, buf.remaining());
+    assertEquals('3', buf.get(0));
+    assertSame(bytes, buf.array());
+    assertFalse(itor.hasNext());
+    assertEquals(0, itor.bytesLeft());
+  }
 }
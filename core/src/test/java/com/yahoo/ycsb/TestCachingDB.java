@@ -0,0 +1,82 @@
+package com.yahoo.ycsb;
+
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+public class TestCachingDB {
+  /**
+   * Has every record, with one field; counts its reads.
+   */
+  public static class CountingDB extends DB {
+    static int reads;
+
+    public int read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+      reads++;
+      result.put("f", new StringByteIterator(key));
+      return 0;
+    }
+
+    public int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+      return 0;
+    }
+
+    public int update(String table, String key, HashMap<String, ByteIterator> values) {
+      return 0;
+    }
+
+    public int insert(String table, String key, HashMap<String, ByteIterator> values) {
+      return 0;
+    }
+
+    public int delete(String table, String key) {
+      return 0;
+    }
+  }
+
+  DB newDB(int size, int segments) throws Exception {
+    Measurements.setProperties(new Properties());
+    CountingDB.reads = 0;
+    Properties p = new Properties();
+    p.setProperty(DBFactory.DECORATORS_PROPERTY, CachingDB.class.getName());
+    p.setProperty(CachingDB.SIZE_PROPERTY, Integer.toString(size));
+    p.setProperty(CachingDB.SEGMENTS_PROPERTY, Integer.toString(segments));
+    DB db = DBFactory.newDB(CountingDB.class.getName(), p);
+    db.init();
+    return db;
+  }
+
+  @Test
+  public void testReadsThroughCache() throws Exception {
+    DB db = newDB(100, 4);
+    HashMap<String, ByteIterator> result = new HashMap<String, ByteIterator>();
+    assertEquals(0, db.read("t", "k", null, result));
+    result.clear();
+    assertEquals(0, db.read("t", "k", null, result));
+    assertEquals("k", result.get("f").toString());
+    assertEquals(1, CountingDB.reads);
+    db.cleanup();
+  }
+
+  @Test
+  public void testMoreSegmentsThanEntries() throws Exception {
+    DB db = newDB(4, 16);
+    assertEquals(4, CachingDB.segments.length);
+    HashMap<String, ByteIterator> result = new HashMap<String, ByteIterator>();
+    db.read("t", "k", null, result);
+    db.read("t", "k", null, result);
+    assertEquals(1, CountingDB.reads);
+    db.cleanup();
+  }
+
+  @Test(expectedExceptions = DBException.class)
+  public void testRejectsEmptyCache() throws Exception {
+    newDB(0, 16);
+  }
+}
@@ -0,0 +1,143 @@
+package com.yahoo.ycsb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.Vector;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+/**
+ * Tests the default implementations of DB's optional operations, on top of MemoryDB's basic ones.
+ */
+public class TestDB {
+  @Test
+  public void testIncrementCreatesAndAdds() {
+    MemoryDB db = new MemoryDB();
+    assertEquals(0, db.increment("t", "k", "c", 5));
+    assertEquals("5", db.get("k", "c"));
+    assertEquals(0, db.increment("t", "k", "c", -2));
+    assertEquals("3", db.get("k", "c"));
+    //another counter of the same record
+    assertEquals(0, db.increment("t", "k", "d", 1));
+    assertEquals("1", db.get("k", "d"));
+    assertEquals("3", db.get("k", "c"));
+  }
+
+  @Test
+  public void testIncrementTakesNonNumbersAsZero() {
+    MemoryDB db = new MemoryDB();
+    db.records.put("k", new HashMap<String, String>());
+    db.records.get("k").put("c", "not a number");
+    assertEquals(0, db.increment("t", "k", "c", 7));
+    assertEquals("7", db.get("k", "c"));
+  }
+
+  @Test
+  public void testIncrementPassesReadErrorsOn() {
+    MemoryDB db = new MemoryDB() {
+      public int read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+        return Status.UNAVAILABLE.getCode();
+      }
+    };
+    //only a record that is not found is created
+    assertEquals(Status.UNAVAILABLE.getCode(), db.increment("t", "k", "c", 1));
+    assertFalse(db.records.containsKey("k"));
+  }
+
+  @Test
+  public void testCompareAndSet() {
+    MemoryDB db = new MemoryDB();
+    HashMap<String, ByteIterator> values = new HashMap<String, ByteIterator>();
+    values.put("f", new StringByteIterator("old"));
+    db.insert("t", "k", values);
+
+    values.put("f", new StringByteIterator("new"));
+    assertEquals(DB.CONDITION_FAILED, db.compareAndSet("t", "k", "f", "other", values));
+    assertEquals("old", db.get("k", "f"));
+    values.put("f", new StringByteIterator("new"));
+    assertEquals(0, db.compareAndSet("t", "k", "f", "old", values));
+    assertEquals("new", db.get("k", "f"));
+    //a missing record or field never holds the expected value
+    assertEquals(DB.CONDITION_FAILED, db.compareAndSet("t", "k", "g", "new", values));
+    assertEquals(DB.CONDITION_FAILED, db.compareAndSet("t", "missing", "f", "new", values));
+    assertFalse(db.records.containsKey("missing"));
+  }
+
+  @Test
+  public void testCompareAndSetPassesReadErrorsOn() {
+    MemoryDB db = new MemoryDB() {
+      public int read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+        return Status.TIMEOUT.getCode();
+      }
+    };
+    HashMap<String, ByteIterator> values = new HashMap<String, ByteIterator>();
+    values.put("f", new StringByteIterator("new"));
+    assertEquals(Status.TIMEOUT.getCode(), db.compareAndSet("t", "k", "f", "old", values));
+  }
+
+  @Test
+  public void testMultiOperations() {
+    MemoryDB db = new MemoryDB();
+    List<String> keys = Arrays.asList("a", "b", "c");
+    List<HashMap<String, ByteIterator>> values = new ArrayList<HashMap<String, ByteIterator>>();
+    for (String key : keys) {
+      HashMap<String, ByteIterator> record = new HashMap<String, ByteIterator>();
+      record.put("f", new StringByteIterator(key + "1"));
+      values.add(record);
+    }
+    assertEquals(0, db.multiInsert("t", keys, values));
+    assertEquals(3, db.records.size());
+
+    values.get(1).put("f", new StringByteIterator("b2"));
+    assertEquals(0, db.multiUpdate("t", keys.subList(1, 2), values.subList(1, 2)));
+    assertEquals("b2", db.get("b", "f"));
+
+    //results come back in the order of the keys, empty for records not found
+    Vector<HashMap<String, ByteIterator>> result = new Vector<HashMap<String, ByteIterator>>();
+    assertEquals(Status.NOT_FOUND.getCode(), db.multiRead("t", Arrays.asList("c", "missing", "b"), null, result));
+    assertEquals(3, result.size());
+    assertEquals("c1", result.get(0).get("f").toString());
+    assertTrue(result.get(1).isEmpty());
+    assertEquals("b2", result.get(2).get("f").toString());
+
+    //a failed update of one record fails the batch, but not the others
+    values.get(0).put("f", new StringByteIterator("a2"));
+    assertEquals(Status.NOT_FOUND.getCode(), db.multiUpdate("t", Arrays.asList("a", "missing"), values.subList(0, 2)));
+    assertEquals("a2", db.get("a", "f"));
+  }
+
+  @Test
+  public void testScanConsumerAdapter() {
+    MemoryDB db = new MemoryDB();
+    for (int i = 0; i < 5; i++) {
+      HashMap<String, ByteIterator> record = new HashMap<String, ByteIterator>();
+      record.put("f", new StringByteIterator("v" + i));
+      db.insert("t", "k" + i, record);
+    }
+
+    final List<String> seen = new ArrayList<String>();
+    ScanConsumer consumer = new ScanConsumer() {
+      public boolean consume(HashMap<String, ByteIterator> record) {
+        seen.add(record.get("f").toString());
+        return true;
+      }
+    };
+    assertEquals(0, db.scan("t", "k1", 3, null, consumer));
+    assertEquals(Arrays.asList("v1", "v2", "v3"), seen);
+
+    //the consumer can stop the scan early
+    seen.clear();
+    consumer = new ScanConsumer() {
+      public boolean consume(HashMap<String, ByteIterator> record) {
+        seen.add(record.get("f").toString());
+        return seen.size() < 2;
+      }
+    };
+    assertEquals(0, db.scan("t", "k0", 5, null, consumer));
+    assertEquals(Arrays.asList("v0", "v1"), seen);
+  }
+}
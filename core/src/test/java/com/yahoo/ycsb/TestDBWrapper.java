@@ -0,0 +1,59 @@
+package com.yahoo.ycsb;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.Vector;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+public class TestDBWrapper {
+  /**
+   * Keeps the exported measurements, as "metric measurement".
+   */
+  static class MapExporter implements MeasurementsExporter {
+    final HashMap<String, Double> values = new HashMap<String, Double>();
+
+    public void write(String metric, String measurement, int i) {
+      values.put(metric + " " + measurement, (double) i);
+    }
+
+    public void write(String metric, String measurement, double d) {
+      values.put(metric + " " + measurement, d);
+    }
+
+    public void close() {
+    }
+  }
+
+  @Test
+  public void testMeasuresBatches() throws Exception {
+    Measurements.setProperties(new Properties());
+    MemoryDB memory = new MemoryDB();
+    DBWrapper db = new DBWrapper(memory);
+    db._measurements = new Measurements(new Properties());
+    db.setProperties(new Properties());
+    db.init();
+
+    HashMap<String, ByteIterator> record = new HashMap<String, ByteIterator>();
+    record.put("f", new StringByteIterator("v"));
+    assertEquals(0, db.multiInsert("t", Arrays.asList("a", "b", "c"), Arrays.asList(record, record, record)));
+    assertEquals(Status.NOT_FOUND.getCode(),
+        db.multiRead("t", Arrays.asList("a", "missing"), null, new Vector<HashMap<String, ByteIterator>>()));
+
+    MapExporter exporter = new MapExporter();
+    db._measurements.exportMeasurements(exporter);
+    //a batch is one operation, and its latency is spread over its keys, measured once per batch
+    assertEquals(1.0, exporter.values.get("MULTI-INSERT Operations"));
+    assertEquals(1.0, exporter.values.get("MULTI-INSERT-PER-KEY Operations"));
+    assertEquals(1.0, exporter.values.get("MULTI-INSERT Return=0"));
+    assertEquals(1.0, exporter.values.get("MULTI-READ Operations"));
+    assertEquals(1.0, exporter.values.get("MULTI-READ-PER-KEY Operations"));
+    assertEquals(1.0, exporter.values.get("MULTI-READ Return=" + Status.NOT_FOUND.getCode()));
+    db.cleanup();
+  }
+}
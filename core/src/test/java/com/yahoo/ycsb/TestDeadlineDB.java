@@ -0,0 +1,110 @@
+package com.yahoo.ycsb;
+
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+public class TestDeadlineDB {
+  /**
+   * Hangs on reads of the key "hang" until released, ignoring interrupts like a blocking socket read would.
+   */
+  public static class HangingDB extends MemoryDB {
+    static final AtomicInteger inits = new AtomicInteger();
+    static final AtomicInteger cleanups = new AtomicInteger();
+    static final CountDownLatch release = new CountDownLatch(1);
+
+    public void init() {
+      inits.incrementAndGet();
+    }
+
+    public void cleanup() {
+      cleanups.incrementAndGet();
+    }
+
+    public int read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+      if (key.equals("hang")) {
+        boolean done = false;
+        while (!done) {
+          try {
+            release.await();
+            done = true;
+          } catch (InterruptedException e) {
+            //go on hanging
+          }
+        }
+      }
+      result.put("f", new StringByteIterator(key));
+      return 0;
+    }
+  }
+
+  DBWrapper wrap(DB db, Properties p) throws DBException {
+    Measurements.setProperties(p);
+    DBWrapper wrapper = new DBWrapper(db);
+    wrapper._measurements = new Measurements(p);
+    wrapper.setProperties(p);
+    wrapper.init();
+    return wrapper;
+  }
+
+  @Test
+  public void testAbandonsHungCall() throws Exception {
+    Properties p = new Properties();
+    p.setProperty(DeadlineWatchdog.DEADLINE_PROPERTY, "50");
+    DBWrapper db = wrap(new HangingDB(), p);
+    assertTrue(db._db instanceof DeadlineDB);
+    assertEquals(1, HangingDB.inits.get());
+
+    HashMap<String, ByteIterator> result = new HashMap<String, ByteIterator>();
+    assertEquals(0, db.read("t", "a", null, result));
+    assertEquals("a", result.get("f").toString());
+
+    long st = System.nanoTime();
+    result.clear();
+    assertEquals(Status.TIMEOUT.getCode(), db.read("t", "hang", null, result));
+    assertTrue(System.nanoTime() - st < TimeUnit.SECONDS.toNanos(5));
+    assertTrue(result.isEmpty());
+
+    //the next operation runs on a new DB instance
+    assertEquals(0, db.read("t", "b", null, result));
+    assertEquals("b", result.get("f").toString());
+    assertEquals(2, HangingDB.inits.get());
+    assertEquals(0, HangingDB.cleanups.get());
+
+    //the hung instance is cleaned up once its call returns
+    HangingDB.release.countDown();
+    for (int i = 0; (i < 500) && (HangingDB.cleanups.get() == 0); i++) {
+      Thread.sleep(10);
+    }
+    assertEquals(1, HangingDB.cleanups.get());
+    db.cleanup();
+    assertEquals(2, HangingDB.cleanups.get());
+  }
+
+  @Test
+  public void testOtherModes() throws Exception {
+    Properties p = new Properties();
+    p.setProperty(DeadlineWatchdog.DEADLINE_PROPERTY, "50");
+    p.setProperty(DeadlineWatchdog.MODE_PROPERTY, "count");
+    DBWrapper db = wrap(new MemoryDB(), p);
+    assertTrue(db._db instanceof MemoryDB);
+    assertNull(db._guard);
+    db.cleanup();
+
+    p.setProperty(DeadlineWatchdog.MODE_PROPERTY, "none");
+    try {
+      wrap(new MemoryDB(), p);
+      fail();
+    } catch (DBException e) {
+      //expected
+    }
+  }
+}
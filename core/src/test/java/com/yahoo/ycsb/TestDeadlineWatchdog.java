@@ -0,0 +1,31 @@
+package com.yahoo.ycsb;
+
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestDeadlineWatchdog {
+  @Test
+  public void testInterruptsOverrunningOperation() {
+    DeadlineWatchdog watchdog = DeadlineWatchdog.getWatchdog(TimeUnit.MILLISECONDS.toNanos(20));
+    DeadlineWatchdog.Guard guard = watchdog.guard();
+    try {
+      guard.begin(System.nanoTime());
+      boolean interrupted = false;
+      try {
+        Thread.sleep(10000);
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+      assertTrue(interrupted);
+      assertTrue(guard.end());
+
+      guard.begin(System.nanoTime());
+      assertFalse(guard.end());
+      assertFalse(Thread.currentThread().isInterrupted());
+    } finally {
+      watchdog.release(guard);
+    }
+  }
+}
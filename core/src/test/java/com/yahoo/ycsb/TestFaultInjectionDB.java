@@ -0,0 +1,61 @@
+package com.yahoo.ycsb;
+
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+public class TestFaultInjectionDB {
+  DB newDB(Properties p) throws Exception {
+    Measurements.setProperties(new Properties());
+    p.setProperty(DBFactory.DECORATORS_PROPERTY, FaultInjectionDB.class.getName());
+    p.setProperty(BasicDB.VERBOSE, "false");
+    DB db = DBFactory.newDB(BasicDB.class.getName(), p);
+    db.init();
+    return db;
+  }
+
+  @Test
+  public void testErrors() throws Exception {
+    Properties p = new Properties();
+    p.setProperty(FaultInjectionDB.ERROR_RATE_PROPERTY + ".read", "1");
+    p.setProperty(FaultInjectionDB.ERROR_STATUS_PROPERTY, "throttled");
+    DB db = newDB(p);
+    assertEquals(Status.THROTTLED.getCode(), db.read("t", "k", null, new HashMap<String, ByteIterator>()));
+    assertEquals(0, db.delete("t", "k"));
+  }
+
+  @Test
+  public void testLatency() throws Exception {
+    Properties p = new Properties();
+    p.setProperty(FaultInjectionDB.LATENCY_PROPERTY, "constant:50");
+    DB db = newDB(p);
+    long st = System.nanoTime();
+    assertEquals(0, db.delete("t", "k"));
+    assertTrue(System.nanoTime() - st >= 50000000L);
+  }
+
+  @Test
+  public void testDistributions() {
+    Random random = new Random(1);
+    assertEquals(2000000L, FaultInjectionDB.Latency.parse("constant:2").next(random));
+    assertNull(FaultInjectionDB.Latency.parse("none"));
+    FaultInjectionDB.Latency bimodal = FaultInjectionDB.Latency.parse("bimodal:1, 100, 0.1");
+    int slow = 0;
+    for (int i = 0; i < 10000; i++) {
+      if (bimodal.next(random) == 100000000L) {
+        slow++;
+      }
+    }
+    assertTrue(slow > 800 && slow < 1200);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testBadDistribution() {
+    FaultInjectionDB.Latency.parse("lognormal:1");
+  }
+}
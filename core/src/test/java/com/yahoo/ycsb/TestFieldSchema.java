@@ -0,0 +1,42 @@
+package com.yahoo.ycsb;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestFieldSchema {
+  @Test
+  public void testParse() {
+    FieldSchema schema = new FieldSchema("long:1000, double, timestamp*2,binary", 6);
+    assertEquals(FieldType.LONG, schema.getType(0));
+    assertEquals(1000.0, schema.getBound(0));
+    assertEquals(FieldType.DOUBLE, schema.getType(1));
+    assertEquals(FieldSchema.DOUBLE_BOUND_DEFAULT, schema.getBound(1));
+    assertEquals(FieldType.TIMESTAMP, schema.getType(2));
+    assertEquals(FieldType.TIMESTAMP, schema.getType(3));
+    assertEquals(FieldType.BINARY, schema.getType(4));
+    assertEquals(FieldType.STRING, schema.getType(5));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testTooManyFields() {
+    new FieldSchema("long*3", 2);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testUnknownType() {
+    new FieldSchema("varint", 2);
+  }
+
+  @Test
+  public void testTypedValueEncoding() {
+    assertEquals("42", TypedValue.ofLong(42).toString());
+    ByteIterator value = TypedValue.ofDouble(1.5);
+    assertEquals(3, value.bytesLeft());
+    assertEquals("1.5", value.toString());
+    assertFalse(value.hasNext());
+    byte[] bytes = new byte[] {0, -1, 7};
+    assertEquals(3, TypedValue.ofBinary(bytes).toArray().length);
+    assertEquals(FieldType.LONG, ((TypedValue) TypedValue.of(Integer.valueOf(3))).getType());
+    assertTrue(TypedValue.of("text") instanceof StringByteIterator);
+  }
+}
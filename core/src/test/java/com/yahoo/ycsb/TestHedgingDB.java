@@ -0,0 +1,69 @@
+package com.yahoo.ycsb;
+
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+public class TestHedgingDB {
+  /**
+   * The first instance is slow to read; the others answer at once. Each instance reads its own number.
+   */
+  public static class SlowFirstDB extends DB {
+    static final AtomicInteger instances = new AtomicInteger();
+    final int instance = instances.getAndIncrement();
+
+    public int read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+      if (instance == 0) {
+        try {
+          Thread.sleep(2000);
+        } catch (InterruptedException e) {
+          return Status.TIMEOUT.getCode();
+        }
+      }
+      result.put("instance", new StringByteIterator(Integer.toString(instance)));
+      return 0;
+    }
+
+    public int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+      return 0;
+    }
+
+    public int update(String table, String key, HashMap<String, ByteIterator> values) {
+      return 0;
+    }
+
+    public int insert(String table, String key, HashMap<String, ByteIterator> values) {
+      return 0;
+    }
+
+    public int delete(String table, String key) {
+      return 0;
+    }
+  }
+
+  @Test
+  public void testSecondReadWins() throws Exception {
+    Measurements.setProperties(new Properties());
+    SlowFirstDB.instances.set(0);
+    Properties p = new Properties();
+    p.setProperty(DBFactory.DECORATORS_PROPERTY, HedgingDB.class.getName());
+    p.setProperty(HedgingDB.DELAY_PROPERTY, "10");
+    p.setProperty(HedgingDB.CANCEL_PROPERTY, "true");
+    DB db = DBFactory.newDB(SlowFirstDB.class.getName(), p);
+    db.init();
+
+    long st = System.currentTimeMillis();
+    HashMap<String, ByteIterator> result = new HashMap<String, ByteIterator>();
+    assertEquals(0, db.read("t", "k", null, result));
+    assertTrue(System.currentTimeMillis() - st < 1000);
+    assertEquals("1", result.get("instance").toString());
+    db.cleanup();
+  }
+}
@@ -0,0 +1,117 @@
+package com.yahoo.ycsb;
+
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+public class TestRetryDB {
+  /**
+   * Fails the first failures calls of every operation with the given status.
+   */
+  public static class FlakyDB extends DB {
+    static Status status = Status.THROTTLED;
+    static int failures;
+    int calls;
+    //the value of field f, as the last update read it
+    String written;
+
+    int call() {
+      return (calls++ < failures) ? status.getCode() : 0;
+    }
+
+    public int read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+      return call();
+    }
+
+    public int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+      return call();
+    }
+
+    public int update(String table, String key, HashMap<String, ByteIterator> values) {
+      //consume the values on every attempt, like a real DB
+      written = values.get("f").toString();
+      return call();
+    }
+
+    public int insert(String table, String key, HashMap<String, ByteIterator> values) {
+      return call();
+    }
+
+    public int delete(String table, String key) {
+      return call();
+    }
+
+    public int increment(String table, String key, String field, long delta) {
+      return call();
+    }
+  }
+
+  DB newDB(Status status, int failures, int maxattempts) throws Exception {
+    Measurements.setProperties(new Properties());
+    FlakyDB.status = status;
+    FlakyDB.failures = failures;
+    Properties p = new Properties();
+    p.setProperty(DBFactory.DECORATORS_PROPERTY, RetryDB.class.getName());
+    p.setProperty(RetryDB.MAX_ATTEMPTS_PROPERTY, Integer.toString(maxattempts));
+    p.setProperty(RetryDB.BACKOFF_INITIAL_PROPERTY, "1");
+    DB db = DBFactory.newDB(FlakyDB.class.getName(), p);
+    db.init();
+    return db;
+  }
+
+  @Test
+  public void testStatusCodes() {
+    for (Status status : Status.values()) {
+      assertSame(status, Status.of(status.getCode()));
+    }
+    assertSame(Status.ERROR, Status.of(42));
+    //bindings such as mapkeeper return 2 for any error
+    assertSame(Status.ERROR, Status.of(2));
+    assertSame(Status.CONDITION_FAILED, Status.of(DB.CONDITION_FAILED));
+  }
+
+  @Test
+  public void testRetriesTransientFailures() throws Exception {
+    DB db = newDB(Status.THROTTLED, 2, 3);
+    assertEquals(0, db.delete("t", "k"));
+  }
+
+  @Test
+  public void testRetriedWriteSeesValues() throws Exception {
+    DB db = newDB(Status.UNAVAILABLE, 2, 3);
+    HashMap<String, ByteIterator> values = new HashMap<String, ByteIterator>();
+    values.put("f", new StringByteIterator("value"));
+    assertEquals(0, db.update("t", "k", values));
+    FlakyDB flaky = (FlakyDB) ((DBDecorator) ((DBWrapper) db)._db).getDecorated();
+    assertEquals(3, flaky.calls);
+    assertEquals("value", flaky.written);
+  }
+
+  @Test
+  public void testGivesUp() throws Exception {
+    DB db = newDB(Status.TIMEOUT, 4, 3);
+    assertEquals(Status.TIMEOUT.getCode(), db.delete("t", "k"));
+    //the fifth call succeeds
+    assertEquals(0, db.delete("t", "k"));
+  }
+
+  @Test
+  public void testDoesNotRetryPermanentFailures() throws Exception {
+    DB db = newDB(Status.NOT_FOUND, 1, 3);
+    assertEquals(Status.NOT_FOUND.getCode(), db.read("t", "k", null, new HashMap<String, ByteIterator>()));
+  }
+
+  @Test
+  public void testRetriesNonIdempotentOnlyIfRejected() throws Exception {
+    DB db = newDB(Status.TIMEOUT, 1, 3);
+    assertEquals(Status.TIMEOUT.getCode(), db.increment("t", "k", "f", 1));
+    db = newDB(Status.UNAVAILABLE, 1, 3);
+    assertEquals(0, db.increment("t", "k", "f", 1));
+  }
+}
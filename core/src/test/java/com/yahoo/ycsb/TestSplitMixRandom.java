@@ -0,0 +1,45 @@
+package com.yahoo.ycsb;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestSplitMixRandom {
+  @Test
+  public void testStreamsRepeat() {
+    SplitMixRandom a = SplitMixRandom.stream(42, 3);
+    SplitMixRandom b = SplitMixRandom.stream(42, 3);
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(a.nextLong(), b.nextLong());
+      assertEquals(a.nextInt(17), b.nextInt(17));
+    }
+  }
+
+  @Test
+  public void testStreamsDiffer() {
+    SplitMixRandom a = SplitMixRandom.stream(42, 0);
+    SplitMixRandom b = SplitMixRandom.stream(42, 1);
+    SplitMixRandom c = SplitMixRandom.stream(43, 0);
+    int same = 0;
+    for (int i = 0; i < 1000; i++) {
+      long v = a.nextLong();
+      if (v == b.nextLong() || v == c.nextLong()) {
+        same++;
+      }
+    }
+    assertEquals(0, same);
+  }
+
+  @Test
+  public void testRanges() {
+    SplitMixRandom r = new SplitMixRandom(7);
+    double sum = 0;
+    for (int i = 0; i < 100000; i++) {
+      double d = r.nextDouble();
+      assertTrue(d >= 0 && d < 1);
+      sum += d;
+      int n = r.nextInt(10);
+      assertTrue(n >= 0 && n < 10);
+    }
+    assertEquals(0.5, sum / 100000, 0.01);
+  }
+}
@@ -0,0 +1,70 @@
+package com.yahoo.ycsb.cache;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestCache {
+  @Test
+  public void testLruEvictsLeastRecentlyUsed() {
+    Cache<String, String> cache = Cache.create("lru", 2, 2);
+    cache.put("a", "A", 1);
+    cache.put("b", "B", 1);
+    assertEquals("A", cache.get("a"));
+    cache.put("c", "C", 1);
+    assertNull(cache.get("b"));
+    assertEquals("A", cache.get("a"));
+    assertEquals(1, cache.evictions());
+  }
+
+  @Test
+  public void testClockGivesSecondChance() {
+    Cache<String, String> cache = Cache.create("clock", 2, 2);
+    cache.put("a", "A", 1);
+    cache.put("b", "B", 1);
+    cache.get("a");
+    cache.put("c", "C", 1);
+    assertEquals("A", cache.get("a"));
+    assertNull(cache.get("b"));
+    assertEquals(2, cache.size());
+  }
+
+  @Test
+  public void testTinyLfuKeepsPopularEntries() {
+    Cache<Integer, Integer> cache = Cache.create("tinylfu", 100, 100);
+    for (int round = 0; round < 10; round++) {
+      for (int i = 0; i < 50; i++) {
+        if (cache.get(i) == null) {
+          cache.put(i, i, 1);
+        }
+      }
+    }
+    //a scan of keys seen once should not push out the popular ones
+    for (int i = 1000; i < 2000; i++) {
+      cache.get(i);
+      cache.put(i, i, 1);
+    }
+    int kept = 0;
+    for (int i = 0; i < 50; i++) {
+      if (cache.get(i) != null) {
+        kept++;
+      }
+    }
+    assertTrue("kept " + kept, kept >= 45);
+    assertTrue(cache.weight() <= 100);
+  }
+
+  @Test
+  public void testWeights() {
+    for (String policy : new String[] {"lru", "tinylfu", "clock"}) {
+      Cache<String, String> cache = Cache.create(policy, 100, 10);
+      cache.put("a", "A", 60);
+      cache.put("b", "B", 30);
+      assertEquals(policy, 90, cache.weight());
+      cache.put("c", "C", 500);
+      assertNull(policy, cache.get("c"));
+      assertTrue(policy, cache.weight() <= 100);
+      cache.remove("a");
+      assertTrue(policy, cache.weight() <= 40);
+    }
+  }
+}
@@ -0,0 +1,66 @@
+package com.yahoo.ycsb.generator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestAcknowledgedCounterGenerator {
+  @Test
+  public void testLimitWaitsForGaps() {
+    AcknowledgedCounterGenerator gen = new AcknowledgedCounterGenerator(10);
+    assertEquals(9, gen.lastLong());
+    long a = gen.nextLong();
+    long b = gen.nextLong();
+    long c = gen.nextLong();
+    gen.acknowledge(c);
+    gen.acknowledge(b);
+    assertEquals(9, gen.lastLong());
+    gen.acknowledge(a);
+    assertEquals(12, gen.lastLong());
+  }
+
+  @Test
+  public void testOutOfOrderAcknowledgements() {
+    final AcknowledgedCounterGenerator gen = new AcknowledgedCounterGenerator(0, 8, 1024);
+    final int perthread = 20000;
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int t = 0; t < 4; t++) {
+      final AcknowledgedCounterGenerator mine = gen.clone();
+      final long seed = t;
+      threads.add(new Thread() {
+        public void run() {
+          Random r = new Random(seed);
+          List<Long> pending = new ArrayList<Long>();
+          for (int i = 0; i < perthread; i++) {
+            pending.add(mine.nextLong());
+            if (pending.size() == 16) {
+              Collections.shuffle(pending, r);
+              for (long v : pending) {
+                mine.acknowledge(v);
+              }
+              pending.clear();
+            }
+          }
+          for (long v : pending) {
+            mine.acknowledge(v);
+          }
+        }
+      });
+    }
+    for (Thread t : threads) {
+      t.start();
+    }
+    for (Thread t : threads) {
+      try {
+        t.join();
+      } catch (InterruptedException e) {
+        fail();
+      }
+    }
+    assertEquals(4 * perthread - 1, gen.lastLong());
+  }
+}
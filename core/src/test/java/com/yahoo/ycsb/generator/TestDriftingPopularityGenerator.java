@@ -0,0 +1,43 @@
+package com.yahoo.ycsb.generator;
+
+import java.util.HashSet;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestDriftingPopularityGenerator {
+  @Test
+  public void testDrift() {
+    DriftingPopularityGenerator gen = new DriftingPopularityGenerator(new ConstantIntegerGenerator(0), 1000, 1);
+    gen.setDrift(0.1);
+    assertEquals(0, gen.nextLong(0));
+    assertEquals(100, gen.nextLong(1000));
+    assertEquals(500, gen.nextLong(5000));
+    assertEquals(0, gen.nextLong(10000));
+  }
+
+  @Test
+  public void testReshuffle() {
+    DriftingPopularityGenerator gen = new DriftingPopularityGenerator(new ConstantIntegerGenerator(0), 1000000, 1);
+    gen.setReshuffleInterval(1000);
+    long first = gen.nextLong(0);
+    assertEquals(first, gen.nextLong(999));
+    assertTrue(first != gen.nextLong(1000));
+    assertEquals(first, gen.clone().nextLong(500));
+  }
+
+  @Test
+  public void testFlashCrowd() {
+    DriftingPopularityGenerator gen = new DriftingPopularityGenerator(new ConstantIntegerGenerator(0), 1000000, 1);
+    gen.setFlashCrowds(1000, 1, 1000, 10, 1);
+    HashSet<Long> crowd = new HashSet<Long>();
+    for (int i = 0; i < 1000; i++) {
+      crowd.add(gen.nextLong(i % 1000));
+    }
+    assertEquals(10, crowd.size());
+    assertFalse(crowd.contains(0L));
+    for (int i = 0; i < 1000; i++) {
+      assertFalse(crowd.contains(gen.nextLong(1000 + i)));
+    }
+  }
+}
@@ -0,0 +1,43 @@
+package com.yahoo.ycsb.generator;
+
+import java.util.BitSet;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestFeistelPermutation {
+  @Test
+  public void testBijective() {
+    long[] domains = {1, 2, 3, 7, 1000, 4096, 65537};
+    for (long domain : domains) {
+      FeistelPermutation perm = new FeistelPermutation(domain, 42);
+      BitSet seen = new BitSet((int)domain);
+      for (long i = 0; i < domain; i++) {
+        long p = perm.permute(i);
+        assertTrue(p >= 0 && p < domain);
+        assertFalse(seen.get((int)p));
+        seen.set((int)p);
+        assertEquals(i, perm.unpermute(p));
+      }
+      assertEquals(domain, seen.cardinality());
+    }
+  }
+
+  @Test
+  public void testSeeded() {
+    FeistelPermutation a = new FeistelPermutation(Long.MAX_VALUE, 7);
+    FeistelPermutation b = new FeistelPermutation(Long.MAX_VALUE, 7);
+    FeistelPermutation c = new FeistelPermutation(Long.MAX_VALUE, 8);
+    int differ = 0;
+    for (long i = 0; i < 1000; i++) {
+      long p = a.permute(i);
+      assertTrue(p >= 0);
+      assertEquals(p, b.permute(i));
+      assertEquals(i, a.unpermute(p));
+      if (p != c.permute(i)) {
+        differ++;
+      }
+    }
+    assertTrue(differ > 990);
+  }
+}
@@ -0,0 +1,64 @@
+package com.yahoo.ycsb.trace;
+
+import java.io.File;
+import java.util.BitSet;
+import java.util.HashSet;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestTraceFile {
+  @Test
+  public void testRoundTripAcrossPartitions() throws Exception {
+    File file = File.createTempFile("trace", ".bin");
+    file.deleteOnExit();
+    int count = 5000;
+    TraceFileWriter writer = new TraceFileWriter(file.getPath(), 256, 1234);
+    TraceRecord record = new TraceRecord();
+    for (int i = 0; i < count; i++) {
+      record.op = (i % 2 == 0) ? TraceRecord.READ : TraceRecord.UPDATE;
+      record.thread = i % 3;
+      record.timestamp = i * 10L;
+      record.fieldmask = (i % 2 == 0) ? TraceRecord.ALL_FIELDS : 1L << (i % 10);
+      record.length = i;
+      record.table = "usertable";
+      record.key = "user" + i;
+      writer.write(record);
+    }
+    writer.close();
+
+    TraceFile trace = new TraceFile(file.getPath());
+    assertEquals(1234, trace.getStartTime());
+    assertTrue(trace.getBlockCount() > 3);
+
+    BitSet seen = new BitSet(count);
+    for (int p = 0; p < 3; p++) {
+      TraceFile.Cursor cursor = trace.cursor(p, 3);
+      long last = -1;
+      while (cursor.next(record)) {
+        int i = record.length;
+        assertFalse(seen.get(i));
+        seen.set(i);
+        assertTrue(record.timestamp > last);
+        last = record.timestamp;
+        assertEquals("user" + i, record.key);
+        assertEquals("usertable", record.table);
+        assertEquals(i % 3, record.thread);
+        assertEquals((i % 2 == 0) ? TraceRecord.ALL_FIELDS : 1L << (i % 10), record.fieldmask);
+      }
+    }
+    assertEquals(count, seen.cardinality());
+  }
+
+  @Test
+  public void testFieldMask() {
+    HashSet<String> fields = new HashSet<String>();
+    fields.add("field0");
+    fields.add("field9");
+    fields.add("field62");
+    assertEquals(fields, TraceRecord.fieldSet(TraceRecord.fieldMask(fields)));
+    assertNull(TraceRecord.fieldSet(TraceRecord.fieldMask(null)));
+    fields.add("other");
+    assertEquals(TraceRecord.ALL_FIELDS, TraceRecord.fieldMask(fields));
+  }
+}
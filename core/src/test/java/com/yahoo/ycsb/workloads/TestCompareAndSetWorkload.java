@@ -0,0 +1,89 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import java.util.HashMap;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.Client;
+import com.yahoo.ycsb.MemoryDB;
+import com.yahoo.ycsb.measurements.Measurements;
+
+public class TestCompareAndSetWorkload {
+  /**
+   * Lets another writer change the field just before each of the first conflicts compare-and-sets.
+   */
+  static class ConflictingDB extends MemoryDB {
+    int conflicts;
+    int attempts;
+
+    public int compareAndSet(String table, String key, String field, String expected, HashMap<String, ByteIterator> values) {
+      attempts++;
+      if (conflicts > 0) {
+        conflicts--;
+        records.get(key).put(field, "other" + attempts);
+      }
+      return super.compareAndSet(table, key, field, expected, values);
+    }
+  }
+
+  CompareAndSetWorkload workload;
+  CoreWorkload.ThreadState state;
+
+  ConflictingDB newDB(int maxretries) throws Exception {
+    Properties p = new Properties();
+    p.setProperty(Client.RECORD_COUNT_PROPERTY, "1");
+    p.setProperty(CoreWorkload.FIELD_COUNT_PROPERTY, "1");
+    p.setProperty(CoreWorkload.FIELD_LENGTH_PROPERTY, "8");
+    p.setProperty(CompareAndSetWorkload.MAX_RETRIES_PROPERTY, Integer.toString(maxretries));
+    Measurements.setProperties(p);
+    workload = new CompareAndSetWorkload();
+    workload.init(p);
+    state = (CoreWorkload.ThreadState) workload.initThread(new Properties(), 0, 1);
+    ConflictingDB db = new ConflictingDB();
+    assertTrue(workload.doInsert(db, state));
+    return db;
+  }
+
+  String field(ConflictingDB db) {
+    return db.records.firstEntry().getValue().get("field0");
+  }
+
+  @Test
+  public void testRetriesConflicts() throws Exception {
+    ConflictingDB db = newDB(10);
+    db.conflicts = 3;
+    workload.doTransactionOptimisticUpdate(db, state);
+    assertEquals(4, db.attempts);
+    //the last attempt wrote a new value over the other writer's
+    assertFalse(field(db).startsWith("other"));
+  }
+
+  @Test
+  public void testGivesUpAfterMaxRetries() throws Exception {
+    ConflictingDB db = newDB(2);
+    db.conflicts = 5;
+    workload.doTransactionOptimisticUpdate(db, state);
+    assertEquals(3, db.attempts);
+    assertEquals("other3", field(db));
+  }
+}
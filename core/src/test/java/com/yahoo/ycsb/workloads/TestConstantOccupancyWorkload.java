@@ -0,0 +1,152 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.measurements.Measurements;
+
+public class TestConstantOccupancyWorkload {
+  static final int RECORDS = 10;
+
+  /**
+   * Keeps the keys of the records it stores; fails inserts while failinserts is set.
+   */
+  static class StoreDB extends DB {
+    final List<String> inserted = new ArrayList<String>();
+    final List<String> deleted = new ArrayList<String>();
+    final Set<String> stored = new HashSet<String>();
+    boolean failinserts;
+
+    public int read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+      return stored.contains(key) ? 0 : -3;
+    }
+
+    public int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+      return 0;
+    }
+
+    public int update(String table, String key, HashMap<String, ByteIterator> values) {
+      return 0;
+    }
+
+    public int insert(String table, String key, HashMap<String, ByteIterator> values) {
+      if (failinserts) {
+        return -1;
+      }
+      inserted.add(key);
+      stored.add(key);
+      return 0;
+    }
+
+    public int delete(String table, String key) {
+      deleted.add(key);
+      return stored.remove(key) ? 0 : -3;
+    }
+  }
+
+  ConstantOccupancyWorkload newWorkload(String churn) throws Exception {
+    Properties p = new Properties();
+    //ten records of 10 fields of 100 bytes
+    p.setProperty(ConstantOccupancyWorkload.DISK_SIZE_PROPERTY, Integer.toString(RECORDS * 1000));
+    p.setProperty(ConstantOccupancyWorkload.OCCUPANCY_PROPERTY, "1");
+    p.setProperty(ConstantOccupancyWorkload.CHURN_PROPERTY, churn);
+    p.setProperty(CoreWorkload.FIELD_LENGTH_DISTRIBUTION_PROPERTY, "constant");
+    p.setProperty(CoreWorkload.INSERT_ORDER_PROPERTY, "ordered");
+    Measurements.setProperties(p);
+    ConstantOccupancyWorkload workload = new ConstantOccupancyWorkload();
+    workload.init(p);
+    return workload;
+  }
+
+  StoreDB load(ConstantOccupancyWorkload workload) {
+    StoreDB db = new StoreDB();
+    for (int i = 0; i < RECORDS; i++) {
+      db.stored.add(workload.buildKeyName(i));
+    }
+    return db;
+  }
+
+  @Test
+  public void testOldestChurn() throws Exception {
+    ConstantOccupancyWorkload workload = newWorkload("oldest");
+    StoreDB db = load(workload);
+    CoreWorkload.ThreadState state = (CoreWorkload.ThreadState) workload.initThread(new Properties(), 0, 1);
+    for (int i = 0; i < 2 * RECORDS; i++) {
+      workload.doTransactionInsert(db, state);
+    }
+    //every insert replaces the record inserted longest ago
+    for (int i = 0; i < 2 * RECORDS; i++) {
+      assertEquals(workload.buildKeyName(RECORDS + i), db.inserted.get(i));
+      assertEquals(workload.buildKeyName(i), db.deleted.get(i));
+    }
+    assertEquals(RECORDS, db.stored.size());
+    for (int slot = 0; slot < RECORDS; slot++) {
+      assertEquals(2 * RECORDS + slot, workload.slotkeys.get(slot));
+    }
+    assertEquals(RECORDS * 1000, workload.getLiveBytes());
+  }
+
+  @Test
+  public void testRandomChurn() throws Exception {
+    ConstantOccupancyWorkload workload = newWorkload("random");
+    StoreDB db = load(workload);
+    CoreWorkload.ThreadState state = (CoreWorkload.ThreadState) workload.initThread(new Properties(), 0, 1);
+    for (int i = 0; i < 5 * RECORDS; i++) {
+      workload.doTransactionInsert(db, state);
+    }
+    //the data set keeps its size, and each slot holds the latest record of its line of replacements
+    assertEquals(RECORDS, db.stored.size());
+    assertEquals(5 * RECORDS, db.deleted.size());
+    for (int slot = 0; slot < RECORDS; slot++) {
+      long keynum = workload.slotkeys.get(slot);
+      assertEquals(slot, keynum % RECORDS);
+      assertTrue(db.stored.contains(workload.buildKeyName(keynum)));
+    }
+    assertEquals(RECORDS * 1000, workload.getLiveBytes());
+  }
+
+  @Test
+  public void testFailedInsertKeepsOldRecord() throws Exception {
+    ConstantOccupancyWorkload workload = newWorkload("oldest");
+    StoreDB db = load(workload);
+    CoreWorkload.ThreadState state = (CoreWorkload.ThreadState) workload.initThread(new Properties(), 0, 1);
+    db.failinserts = true;
+    workload.doTransactionInsert(db, state);
+    assertTrue(db.deleted.isEmpty());
+    assertEquals(0, workload.slotkeys.get(0));
+    assertEquals(RECORDS, db.stored.size());
+
+    //the next insert replaces the next oldest record
+    db.failinserts = false;
+    workload.doTransactionInsert(db, state);
+    assertEquals(workload.buildKeyName(1), db.deleted.get(0));
+    assertEquals(RECORDS + 1, workload.slotkeys.get(1));
+  }
+}
@@ -0,0 +1,134 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.Client;
+import com.yahoo.ycsb.MemoryDB;
+import com.yahoo.ycsb.measurements.Measurements;
+
+public class TestCoreWorkload {
+  /**
+   * Keeps the keys of every batch.
+   */
+  static class BatchDB extends MemoryDB {
+    final List<List<String>> batches = new ArrayList<List<String>>();
+
+    public int multiRead(String table, List<String> keys, Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+      batches.add(new ArrayList<String>(keys));
+      return super.multiRead(table, keys, fields, result);
+    }
+
+    public int multiUpdate(String table, List<String> keys, List<HashMap<String, ByteIterator>> values) {
+      batches.add(new ArrayList<String>(keys));
+      return super.multiUpdate(table, keys, values);
+    }
+
+    public int multiInsert(String table, List<String> keys, List<HashMap<String, ByteIterator>> values) {
+      batches.add(new ArrayList<String>(keys));
+      return super.multiInsert(table, keys, values);
+    }
+  }
+
+  CoreWorkload workload;
+  CoreWorkload.ThreadState state;
+
+  BatchDB load(Properties p, int records) throws Exception {
+    p.setProperty(Client.RECORD_COUNT_PROPERTY, Integer.toString(records));
+    p.setProperty(CoreWorkload.FIELD_COUNT_PROPERTY, "1");
+    p.setProperty(CoreWorkload.FIELD_LENGTH_PROPERTY, "8");
+    p.setProperty(CoreWorkload.INSERT_ORDER_PROPERTY, "ordered");
+    Measurements.setProperties(p);
+    workload = new CoreWorkload();
+    workload.init(p);
+    state = (CoreWorkload.ThreadState) workload.initThread(new Properties(), 0, 1);
+    BatchDB db = new BatchDB();
+    for (int i = 0; i < records; i++) {
+      assertTrue(workload.doInsert(db, state));
+    }
+    return db;
+  }
+
+  @Test
+  public void testTransactionsUseBatches() throws Exception {
+    Properties p = new Properties();
+    p.setProperty(CoreWorkload.BATCH_SIZE_PROPERTY, "4");
+    p.setProperty(CoreWorkload.READ_PROPORTION_PROPERTY, "0.4");
+    p.setProperty(CoreWorkload.UPDATE_PROPORTION_PROPERTY, "0.4");
+    p.setProperty(CoreWorkload.INSERT_PROPORTION_PROPERTY, "0.2");
+    BatchDB db = load(p, 100);
+    for (int i = 0; i < 100; i++) {
+      workload.doTransaction(db, state);
+    }
+    assertEquals(100, db.batches.size());
+    for (List<String> batch : db.batches) {
+      assertEquals(4, batch.size());
+    }
+    assertTrue(db.records.size() > 100);
+    assertEquals(0, (db.records.size() - 100) % 4);
+  }
+
+  @Test
+  public void testBatchesHaveDistinctKeys() throws Exception {
+    Properties p = new Properties();
+    p.setProperty(CoreWorkload.BATCH_SIZE_PROPERTY, "4");
+    p.setProperty(CoreWorkload.READ_PROPORTION_PROPERTY, "0.5");
+    p.setProperty(CoreWorkload.UPDATE_PROPORTION_PROPERTY, "0.5");
+    //few records, so that batches often draw a key twice
+    BatchDB db = load(p, 5);
+    for (int i = 0; i < 100; i++) {
+      workload.doTransaction(db, state);
+    }
+    assertEquals(100, db.batches.size());
+    for (List<String> batch : db.batches) {
+      assertTrue(batch.size() <= 4);
+      assertEquals(batch.size(), new HashSet<String>(batch).size());
+    }
+  }
+
+  @Test
+  public void testBatchedInsertsReinsertDeletedKeys() throws Exception {
+    Properties p = new Properties();
+    p.setProperty(CoreWorkload.BATCH_SIZE_PROPERTY, "3");
+    p.setProperty(CoreWorkload.DELETE_PROPORTION_PROPERTY, "0.1");
+    p.setProperty(CoreWorkload.REUSE_DELETED_KEYS_PROPERTY, "true");
+    BatchDB db = load(p, 10);
+    workload.doTransactionDelete(db, state);
+    workload.doTransactionDelete(db, state);
+    assertEquals(8, db.records.size());
+
+    workload.doTransactionInsert(db, state);
+    List<String> batch = db.batches.get(0);
+    assertEquals(3, batch.size());
+    //the two deleted records come back, then a new one
+    assertEquals(11, db.records.size());
+    assertEquals(workload.buildKeyName(10), batch.get(2));
+    assertTrue(workload.liveness.isLive(Long.parseLong(batch.get(0).substring(4))));
+  }
+}
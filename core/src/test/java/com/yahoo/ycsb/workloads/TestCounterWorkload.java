@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import java.util.HashMap;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+import com.yahoo.ycsb.Client;
+import com.yahoo.ycsb.MemoryDB;
+import com.yahoo.ycsb.measurements.Measurements;
+
+public class TestCounterWorkload {
+  @Test
+  public void testIncrementsCounters() throws Exception {
+    Properties p = new Properties();
+    p.setProperty(Client.RECORD_COUNT_PROPERTY, "10");
+    p.setProperty(Client.OPERATION_COUNT_PROPERTY, "100");
+    p.setProperty(CoreWorkload.FIELD_COUNT_PROPERTY, "2");
+    p.setProperty(CounterWorkload.INCREMENT_DELTA_PROPERTY, "3");
+    Measurements.setProperties(p);
+    CounterWorkload workload = new CounterWorkload();
+    workload.init(p);
+    Object state = workload.initThread(new Properties(), 0, 1);
+
+    //the load phase creates every counter at zero
+    MemoryDB db = new MemoryDB();
+    for (int i = 0; i < 10; i++) {
+      assertTrue(workload.doInsert(db, state));
+    }
+    assertEquals(10, db.records.size());
+    for (HashMap<String, String> record : db.records.values()) {
+      assertEquals(2, record.size());
+      for (String counter : record.values()) {
+        assertEquals("0", counter);
+      }
+    }
+
+    for (int i = 0; i < 100; i++) {
+      workload.doTransaction(db, state);
+    }
+    long sum = 0;
+    for (HashMap<String, String> record : db.records.values()) {
+      for (String counter : record.values()) {
+        sum += Long.parseLong(counter);
+      }
+    }
+    assertEquals(300, sum);
+  }
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.workloads;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestKeyLiveness {
+  @Test
+  public void testDeleteAndRevive() {
+    KeyLiveness liveness = new KeyLiveness(200000);
+    assertTrue(liveness.isLive(70000));
+    assertTrue(liveness.markDeleted(70000));
+    assertFalse(liveness.markDeleted(70000));
+    assertFalse(liveness.isLive(70000));
+    assertTrue(liveness.isLive(70001));
+    assertEquals(1, liveness.deletedCount());
+    assertTrue(liveness.markLive(70000));
+    assertFalse(liveness.markLive(70000));
+    assertTrue(liveness.isLive(70000));
+    assertEquals(0, liveness.deletedCount());
+  }
+
+  @Test
+  public void testUntrackedKeysAreLive() {
+    KeyLiveness liveness = new KeyLiveness(100);
+    assertFalse(liveness.markDeleted(100));
+    assertTrue(liveness.isLive(100));
+    for (long k = 0; k < 100; k++) {
+      liveness.markDeleted(k);
+    }
+    assertEquals(100, liveness.nearest(5, 150, true));
+    assertEquals(-1, liveness.nearest(5, 99, true));
+  }
+
+  @Test
+  public void testNearest() {
+    KeyLiveness liveness = new KeyLiveness(1000000);
+    assertEquals(-1, liveness.nearest(10, 999999, false));
+    liveness.markDeleted(500000);
+    liveness.markDeleted(7);
+    assertEquals(500000, liveness.nearest(10, 999999, false));
+    //wraps around past the limit
+    assertEquals(7, liveness.nearest(500001, 999999, false));
+    //keys past the limit are not considered
+    assertEquals(7, liveness.nearest(10, 400000, false));
+    assertEquals(500001, liveness.nearest(500000, 999999, true));
+    for (long k = 64; k < 200; k++) {
+      liveness.markDeleted(k);
+    }
+    assertEquals(200, liveness.nearest(64, 999999, true));
+    assertEquals(64, liveness.nearest(8, 999999, false));
+  }
+
+  @Test
+  public void testConcurrentDeletesClaimEachKeyOnce() throws InterruptedException {
+    final KeyLiveness liveness = new KeyLiveness(10000);
+    final AtomicLong claimed = new AtomicLong();
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int t = 0; t < 4; t++) {
+      threads.add(new Thread() {
+        public void run() {
+          for (long k = 0; k < 10000; k++) {
+            if (liveness.markDeleted(k)) {
+              claimed.incrementAndGet();
+            }
+          }
+        }
+      });
+    }
+    for (Thread t : threads) {
+      t.start();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+    assertEquals(10000, claimed.get());
+    assertEquals(10000, liveness.deletedCount());
+  }
+}
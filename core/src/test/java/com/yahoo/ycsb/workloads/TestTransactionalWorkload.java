@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import java.util.HashSet;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+import com.yahoo.ycsb.Client;
+import com.yahoo.ycsb.MemoryDB;
+import com.yahoo.ycsb.measurements.Measurements;
+
+public class TestTransactionalWorkload {
+  TransactionalWorkload newWorkload(int records, int reads, int writes, double correlation) throws Exception {
+    return newWorkload(new Properties(), records, reads, writes, correlation);
+  }
+
+  TransactionalWorkload newWorkload(Properties p, int records, int reads, int writes, double correlation) throws Exception {
+    p.setProperty(Client.RECORD_COUNT_PROPERTY, Integer.toString(records));
+    p.setProperty(CoreWorkload.FIELD_COUNT_PROPERTY, "2");
+    p.setProperty(CoreWorkload.FIELD_LENGTH_PROPERTY, "8");
+    p.setProperty(CoreWorkload.INSERT_ORDER_PROPERTY, "ordered");
+    p.setProperty(TransactionalWorkload.READ_COUNT_PROPERTY, Integer.toString(reads));
+    p.setProperty(TransactionalWorkload.WRITE_COUNT_PROPERTY, Integer.toString(writes));
+    p.setProperty(TransactionalWorkload.CORRELATION_PROPERTY, Double.toString(correlation));
+    Measurements.setProperties(p);
+    TransactionalWorkload workload = new TransactionalWorkload();
+    workload.init(p);
+    return workload;
+  }
+
+  MemoryDB load(CoreWorkload workload, Object state, int records) {
+    MemoryDB db = new MemoryDB();
+    for (int i = 0; i < records; i++) {
+      assertTrue(workload.doInsert(db, state));
+    }
+    return db;
+  }
+
+  @Test
+  public void testCommits() throws Exception {
+    TransactionalWorkload workload = newWorkload(20, 2, 3, 0);
+    Object state = workload.initThread(new Properties(), 0, 1);
+    MemoryDB db = load(workload, state, 20);
+    for (int i = 0; i < 50; i++) {
+      workload.doTransaction(db, state);
+    }
+    assertEquals(50, db.starts);
+    assertEquals(50, db.commits);
+    assertEquals(0, db.aborts);
+  }
+
+  @Test
+  public void testAbortsOnFailedRead() throws Exception {
+    //every transaction reads all three records, one of which is gone
+    TransactionalWorkload workload = newWorkload(3, 3, 1, 0);
+    Object state = workload.initThread(new Properties(), 0, 1);
+    MemoryDB db = load(workload, state, 3);
+    db.records.remove(workload.buildKeyName(1));
+    for (int i = 0; i < 10; i++) {
+      workload.doTransaction(db, state);
+    }
+    assertEquals(10, db.starts);
+    assertEquals(0, db.commits);
+    assertEquals(10, db.aborts);
+  }
+
+  @Test
+  public void testCorrelatedKeys() throws Exception {
+    TransactionalWorkload workload = newWorkload(1000, 3, 3, 1);
+    CoreWorkload.ThreadState state = (CoreWorkload.ThreadState) workload.initThread(new Properties(), 0, 1);
+    for (int i = 0; i < 100; i++) {
+      long[] keys = workload.chooseKeys(state, 3);
+      HashSet<Long> distinct = new HashSet<Long>();
+      for (long key : keys) {
+        distinct.add(key);
+      }
+      assertEquals(3, distinct.size());
+      if (keys[0] < 998) {
+        assertEquals(keys[0] + 1, keys[1]);
+        assertEquals(keys[0] + 2, keys[2]);
+      }
+    }
+  }
+
+  @Test
+  public void testKeysOfSkewedDistribution() throws Exception {
+    //every key is drawn from a single hot record
+    Properties p = new Properties();
+    p.setProperty(CoreWorkload.REQUEST_DISTRIBUTION_PROPERTY, "hotspot");
+    p.setProperty(CoreWorkload.HOTSPOT_DATA_FRACTION, "0.1");
+    p.setProperty(CoreWorkload.HOTSPOT_OPN_FRACTION, "1");
+    TransactionalWorkload workload = newWorkload(p, 10, 3, 3, 0);
+    CoreWorkload.ThreadState state = (CoreWorkload.ThreadState) workload.initThread(new Properties(), 0, 1);
+    long[] keys = workload.chooseKeys(state, 3);
+    HashSet<Long> distinct = new HashSet<Long>();
+    for (long key : keys) {
+      distinct.add(key);
+      assertTrue((key >= 0) && (key < 10));
+    }
+    assertEquals(3, distinct.size());
+  }
+}
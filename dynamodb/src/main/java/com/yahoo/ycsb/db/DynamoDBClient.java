@@ -17,7 +17,13 @@
 package com.yahoo.ycsb.db;
 
 import java.io.FileInputStream;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
@@ -36,19 +42,30 @@ import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
 import com.amazonaws.services.dynamodb.model.AttributeValue;
 import com.amazonaws.services.dynamodb.model.AttributeValueUpdate;
+import com.amazonaws.services.dynamodb.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodb.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodb.model.BatchResponse;
+import com.amazonaws.services.dynamodb.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodb.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodb.model.ConditionalCheckFailedException;
 import com.amazonaws.services.dynamodb.model.DeleteItemRequest;
 import com.amazonaws.services.dynamodb.model.DeleteItemResult;
 import com.amazonaws.services.dynamodb.model.GetItemRequest;
 import com.amazonaws.services.dynamodb.model.GetItemResult;
 import com.amazonaws.services.dynamodb.model.Key;
+import com.amazonaws.services.dynamodb.model.KeysAndAttributes;
 import com.amazonaws.services.dynamodb.model.PutItemRequest;
 import com.amazonaws.services.dynamodb.model.PutItemResult;
+import com.amazonaws.services.dynamodb.model.PutRequest;
+import com.amazonaws.services.dynamodb.model.ProvisionedThroughputExceededException;
 import com.amazonaws.services.dynamodb.model.ScanRequest;
 import com.amazonaws.services.dynamodb.model.ScanResult;
 import com.amazonaws.services.dynamodb.model.UpdateItemRequest;
+import com.amazonaws.services.dynamodb.model.WriteRequest;
 import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.DB;
 import com.yahoo.ycsb.DBException;
+import com.yahoo.ycsb.Status;
 import com.yahoo.ycsb.StringByteIterator;
 
 /**
@@ -58,8 +75,12 @@ import com.yahoo.ycsb.StringByteIterator;
 public class DynamoDBClient extends DB {
 
     private static final int OK = 0;
-    private static final int SERVER_ERROR = 1;
-    private static final int CLIENT_ERROR = 2;
+    // the most items DynamoDB takes in one BatchGetItem / BatchWriteItem
+    private static final int MAX_BATCH_GET = 100;
+    private static final int MAX_BATCH_WRITE = 25;
+    // how often the unprocessed part of a batch is resubmitted before the batch is reported throttled
+    private static final int MAX_BATCH_ROUNDS = 8;
+    private static final long BATCH_BACKOFF_MILLIS = 20;
     private AmazonDynamoDBClient dynamoDB;
     private String primaryKeyName;
     private boolean debug = false;
@@ -132,17 +153,17 @@ public class DynamoDBClient extends DB {
             res = dynamoDB.getItem(req);
         }catch (AmazonServiceException ex) {
             logger.error(ex.getMessage());
-            return SERVER_ERROR;
+            return serviceError(ex);
         }catch (AmazonClientException ex){
             logger.error(ex.getMessage());
-            return CLIENT_ERROR;
+            return clientError(ex);
         }
 
-        if (null != res.getItem())
-        {
-            result.putAll(extractResult(res.getItem()));
-            logger.debug("Result: " + res.toString());
+        if (null == res.getItem()) {
+            return Status.NOT_FOUND.getCode();
         }
+        result.putAll(extractResult(res.getItem()));
+        logger.debug("Result: " + res.toString());
         return OK;
     }
 
@@ -163,10 +184,10 @@ public class DynamoDBClient extends DB {
             gres = dynamoDB.getItem(greq);
         }catch (AmazonServiceException ex) {
             logger.error(ex.getMessage());
-            return SERVER_ERROR;
+            return serviceError(ex);
         }catch (AmazonClientException ex){
             logger.error(ex.getMessage());
-           return CLIENT_ERROR;
+           return clientError(ex);
         }
 
         if (null != gres.getItem()) {
@@ -187,11 +208,11 @@ public class DynamoDBClient extends DB {
             }catch (AmazonServiceException ex) {
                 logger.error(ex.getMessage());
               ex.printStackTrace();
-             return SERVER_ERROR;
+             return serviceError(ex);
             }catch (AmazonClientException ex){
                 logger.error(ex.getMessage());
                ex.printStackTrace();
-             return CLIENT_ERROR;
+             return clientError(ex);
             }
 
             count += res.getCount();
@@ -223,10 +244,10 @@ public class DynamoDBClient extends DB {
             dynamoDB.updateItem(req);
         }catch (AmazonServiceException ex) {
             logger.error(ex.getMessage());
-            return SERVER_ERROR;
+            return serviceError(ex);
         }catch (AmazonClientException ex){
             logger.error(ex.getMessage());
-            return CLIENT_ERROR;
+            return clientError(ex);
         }
         return OK;
     }
@@ -244,10 +265,127 @@ public class DynamoDBClient extends DB {
             res = dynamoDB.putItem(putItemRequest);
         }catch (AmazonServiceException ex) {
             logger.error(ex.getMessage());
-            return SERVER_ERROR;
+            return serviceError(ex);
         }catch (AmazonClientException ex){
             logger.error(ex.getMessage());
-            return CLIENT_ERROR;
+            return clientError(ex);
+        }
+        return OK;
+    }
+
+    /**
+     * Reads the keys with BatchGetItem, 100 keys per request, and puts the
+     * records back in the order of the keys since DynamoDB returns them in
+     * no particular order.
+     */
+    @Override
+    public int multiRead(String table, List<String> keys, Set<String> fields,
+            Vector<HashMap<String, ByteIterator>> result) {
+        logger.debug("multiread " + keys.size() + " keys from table: " + table);
+        Set<String> attributes = null;
+        if (null != fields) {
+            // the primary key is needed to match the items with the keys
+            attributes = new HashSet<String>(fields);
+            attributes.add(primaryKeyName);
+        }
+
+        Map<String, HashMap<String, ByteIterator>> found = new HashMap<String, HashMap<String, ByteIterator>>(keys.size());
+        for (int from = 0; from < keys.size(); from += MAX_BATCH_GET) {
+            List<Key> batch = new ArrayList<Key>();
+            for (String key : keys.subList(from, Math.min(keys.size(), from + MAX_BATCH_GET))) {
+                batch.add(createPrimaryKey(key));
+            }
+            Map<String, KeysAndAttributes> requestItems = new HashMap<String, KeysAndAttributes>();
+            requestItems.put(table, new KeysAndAttributes().withKeys(batch).withAttributesToGet(attributes));
+
+            for (int round = 0; null != requestItems && !requestItems.isEmpty(); round++) {
+                if (round > 0 && !backoff(round)) {
+                    return Status.THROTTLED.getCode();
+                }
+                BatchGetItemResult res = null;
+                try {
+                    res = dynamoDB.batchGetItem(new BatchGetItemRequest().withRequestItems(requestItems));
+                }catch (AmazonServiceException ex) {
+                    logger.error(ex.getMessage());
+                    return serviceError(ex);
+                }catch (AmazonClientException ex){
+                    logger.error(ex.getMessage());
+                    return clientError(ex);
+                }
+                BatchResponse response = res.getResponses().get(table);
+                if (null != response) {
+                    for (Map<String, AttributeValue> item : response.getItems()) {
+                        String key = item.get(primaryKeyName).getS();
+                        HashMap<String, ByteIterator> record = extractResult(item);
+                        if (null != fields && !fields.contains(primaryKeyName)) {
+                            record.remove(primaryKeyName);
+                        }
+                        found.put(key, record);
+                    }
+                }
+                // throttled keys come back unprocessed; ask for them again after a backoff
+                requestItems = res.getUnprocessedKeys();
+            }
+        }
+
+        for (String key : keys) {
+            HashMap<String, ByteIterator> record = found.get(key);
+            result.add(null == record ? new HashMap<String, ByteIterator>() : record);
+        }
+        return OK;
+    }
+
+    /**
+     * Waits before resubmitting the unprocessed part of a batch, doubling the wait every round.
+     *
+     * @return false if the batch has had its rounds (or the thread was interrupted), so the caller should give up
+     */
+    private boolean backoff(int round) {
+        if (round > MAX_BATCH_ROUNDS) {
+            return false;
+        }
+        try {
+            Thread.sleep(BATCH_BACKOFF_MILLIS << (round - 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Inserts the records with BatchWriteItem, 25 records per request.
+     */
+    @Override
+    public int multiInsert(String table, List<String> keys, List<HashMap<String, ByteIterator>> values) {
+        logger.debug("multiinsert " + keys.size() + " keys to table: " + table);
+        for (int from = 0; from < keys.size(); from += MAX_BATCH_WRITE) {
+            List<WriteRequest> batch = new ArrayList<WriteRequest>();
+            for (int i = from; i < Math.min(keys.size(), from + MAX_BATCH_WRITE); i++) {
+                Map<String, AttributeValue> attributes = createAttributes(values.get(i));
+                attributes.put(primaryKeyName, new AttributeValue(keys.get(i)));
+                batch.add(new WriteRequest().withPutRequest(new PutRequest().withItem(attributes)));
+            }
+            Map<String, List<WriteRequest>> requestItems = new HashMap<String, List<WriteRequest>>();
+            requestItems.put(table, batch);
+
+            for (int round = 0; null != requestItems && !requestItems.isEmpty(); round++) {
+                if (round > 0 && !backoff(round)) {
+                    return Status.THROTTLED.getCode();
+                }
+                BatchWriteItemResult res = null;
+                try {
+                    res = dynamoDB.batchWriteItem(new BatchWriteItemRequest().withRequestItems(requestItems));
+                }catch (AmazonServiceException ex) {
+                    logger.error(ex.getMessage());
+                    return serviceError(ex);
+                }catch (AmazonClientException ex){
+                    logger.error(ex.getMessage());
+                    return clientError(ex);
+                }
+                // throttled writes come back unprocessed; send them again after a backoff
+                requestItems = res.getUnprocessedItems();
+            }
         }
         return OK;
     }
@@ -262,14 +400,48 @@ public class DynamoDBClient extends DB {
             res = dynamoDB.deleteItem(req);
         }catch (AmazonServiceException ex) {
             logger.error(ex.getMessage());
-            return SERVER_ERROR;
+            return serviceError(ex);
         }catch (AmazonClientException ex){
             logger.error(ex.getMessage());
-            return CLIENT_ERROR;
+            return clientError(ex);
         }
         return OK;
     }
 
+    /**
+     * The status of a request DynamoDB turned down: throttling and server side errors are worth retrying, anything
+     * else is a bad request.
+     */
+    private static int serviceError(AmazonServiceException ex) {
+        if (ex instanceof ProvisionedThroughputExceededException
+                || "ThrottlingException".equals(ex.getErrorCode())) {
+            return Status.THROTTLED.getCode();
+        }
+        if (ex instanceof ConditionalCheckFailedException) {
+            return Status.CONDITION_FAILED.getCode();
+        }
+        if (ex.getStatusCode() >= 500) {
+            return Status.UNAVAILABLE.getCode();
+        }
+        return Status.BAD_REQUEST.getCode();
+    }
+
+    /**
+     * The status of a request that got no answer from DynamoDB: a timeout, a connection that could not be made, or
+     * an error of unknown cause.
+     */
+    private static int clientError(AmazonClientException ex) {
+        for (Throwable t = ex.getCause(); t != null; t = t.getCause()) {
+            if (t instanceof SocketTimeoutException) {
+                return Status.TIMEOUT.getCode();
+            }
+            if (t instanceof ConnectException || t instanceof UnknownHostException) {
+                return Status.UNAVAILABLE.getCode();
+            }
+        }
+        return Status.ERROR.getCode();
+    }
+
     private static Map<String, AttributeValue> createAttributes(
             HashMap<String, ByteIterator> values) {
         Map<String, AttributeValue> attributes = new HashMap<String, AttributeValue>(
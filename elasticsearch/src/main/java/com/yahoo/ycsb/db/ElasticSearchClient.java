@@ -3,7 +3,7 @@ package com.yahoo.ycsb.db;
 import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.DB;
 import com.yahoo.ycsb.DBException;
-import com.yahoo.ycsb.StringByteIterator;
+import com.yahoo.ycsb.TypedValue;
 import java.util.HashMap;
 import java.util.Map.Entry;
 import java.util.Properties;
@@ -93,6 +93,17 @@ public class ElasticSearchClient extends DB {
         }
     }
 
+    /**
+     * Typed values go into the source as JSON numbers, dates and binary;
+     * untyped values as strings.
+     */
+    private static Object toSourceValue(ByteIterator value) {
+        if (value instanceof TypedValue) {
+            return ((TypedValue) value).getObject();
+        }
+        return value.toString();
+    }
+
     /**
      * Insert a record in the database. Any field/value pairs in the specified
      * values HashMap will be written into the record with the specified record
@@ -109,8 +120,8 @@ public class ElasticSearchClient extends DB {
         try {
             final XContentBuilder doc = jsonBuilder().startObject();
 
-            for (Entry<String, String> entry : StringByteIterator.getStringMap(values).entrySet()) {
-                doc.field(entry.getKey(), entry.getValue());
+            for (Entry<String, ByteIterator> entry : values.entrySet()) {
+                doc.field(entry.getKey(), toSourceValue(entry.getValue()));
             }
 
             doc.endObject();
@@ -168,11 +179,11 @@ public class ElasticSearchClient extends DB {
             if (response.isExists()) {
                 if (fields != null) {
                     for (String field : fields) {
-                        result.put(field, new StringByteIterator((String) response.getSource().get(field)));
+                        result.put(field, TypedValue.of(response.getSource().get(field)));
                     }
                 } else {
                     for (String field : response.getSource().keySet()) {
-                        result.put(field, new StringByteIterator((String) response.getSource().get(field)));
+                        result.put(field, TypedValue.of(response.getSource().get(field)));
                     }
                 }
                 return 0;
@@ -202,8 +213,8 @@ public class ElasticSearchClient extends DB {
                     .actionGet();
 
             if (response.isExists()) {
-                for (Entry<String, String> entry : StringByteIterator.getStringMap(values).entrySet()) {
-                    response.getSource().put(entry.getKey(), entry.getValue());
+                for (Entry<String, ByteIterator> entry : values.entrySet()) {
+                    response.getSource().put(entry.getKey(), toSourceValue(entry.getValue()));
                 }
 
                 client.prepareIndex(indexKey, table, key)
@@ -251,7 +262,7 @@ public class ElasticSearchClient extends DB {
                 entry = new HashMap<String, ByteIterator>(fields.size());
 
                 for (String field : fields) {
-                    entry.put(field, new StringByteIterator((String) hit.getSource().get(field)));
+                    entry.put(field, TypedValue.of(hit.getSource().get(field)));
                 }
 
                 result.add(entry);
@@ -21,9 +21,12 @@ package com.yahoo.ycsb.db;
 import com.yahoo.ycsb.DBException;
 import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.ByteArrayByteIterator;
+import com.yahoo.ycsb.ScanConsumer;
+import com.yahoo.ycsb.Status;
 import com.yahoo.ycsb.StringByteIterator;
 
 import java.io.IOException;
+import java.net.SocketTimeoutException;
 import java.util.*;
 //import java.util.HashMap;
 //import java.util.Properties;
@@ -41,6 +44,7 @@ import org.apache.hadoop.hbase.client.Delete;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.RetriesExhaustedException;
 //import org.apache.hadoop.hbase.io.Cell;
 //import org.apache.hadoop.hbase.io.RowResult;
 import org.apache.hadoop.hbase.util.Bytes;
@@ -62,10 +66,13 @@ public class HBaseClient extends com.yahoo.ycsb.DB
     public String _columnFamily="";
     public byte _columnFamilyBytes[];
 
-    public static final int Ok=0;
-    public static final int ServerError=-1;
+    // the value iterators handed out by read(), reused by the next read
+    private final ArrayList<ByteArrayByteIterator> _values = new ArrayList<ByteArrayByteIterator>();
+
+    public static final int Ok=Status.OK.getCode();
+    public static final int ServerError=Status.ERROR.getCode();
     public static final int HttpError=-2;
-    public static final int NoMatchingRecord=-3;
+    public static final int NoMatchingRecord=Status.NOT_FOUND.getCode();
 
     public static final Object tableLock = new Object();
 
@@ -146,7 +153,7 @@ public class HBaseClient extends com.yahoo.ycsb.DB
             catch (IOException e)
             {
                 System.err.println("Error accessing HBase table: "+e);
-                return ServerError;
+                return errorCode(e);
             }
         }
 
@@ -170,7 +177,7 @@ public class HBaseClient extends com.yahoo.ycsb.DB
         catch (IOException e)
         {
             System.err.println("Error doing get: "+e);
-            return ServerError;
+            return errorCode(e);
         }
         catch (ConcurrentModificationException e)
         {
@@ -178,17 +185,47 @@ public class HBaseClient extends com.yahoo.ycsb.DB
             return ServerError;
         }
 
+  int i = 0;
   for (KeyValue kv : r.raw()) {
     result.put(
         Bytes.toString(kv.getQualifier()),
-        new ByteArrayByteIterator(kv.getValue()));
+        valueIterator(i++, kv));
     if (_debug) {
       System.out.println("Result for field: "+Bytes.toString(kv.getQualifier())+
           " is: "+Bytes.toString(kv.getValue()));
     }
 
   }
-    return Ok;
+    return r.isEmpty() ? NoMatchingRecord : Ok;
+    }
+
+    /**
+     * Return the status code of a failed call: a timeout, HBase giving up on reaching the region server, or else
+     * ServerError.
+     */
+    static int errorCode(IOException e)
+    {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SocketTimeoutException) {
+                return Status.TIMEOUT.getCode();
+            }
+        }
+        if (e instanceof RetriesExhaustedException) {
+            return Status.UNAVAILABLE.getCode();
+        }
+        return ServerError;
+    }
+
+    /**
+     * Return the i-th reusable iterator, pointed at the value of a cell without copying it.
+     */
+    private ByteIterator valueIterator(int i, KeyValue kv)
+    {
+        if (i == _values.size()) {
+            _values.add(new ByteArrayByteIterator(kv.getBuffer(), kv.getValueOffset(), kv.getValueLength()));
+            return _values.get(i);
+        }
+        return _values.get(i).reset(kv.getBuffer(), kv.getValueOffset(), kv.getValueLength());
     }
 
     /**
@@ -201,7 +238,27 @@ public class HBaseClient extends com.yahoo.ycsb.DB
      * @param result A Vector of HashMaps, where each HashMap is a set field/value pairs for one record
      * @return Zero on success, a non-zero error code on error
      */
-    public int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String,ByteIterator>> result)
+    public int scan(String table, String startkey, int recordcount, Set<String> fields, final Vector<HashMap<String,ByteIterator>> result)
+    {
+        return scan(table, startkey, recordcount, fields, new ScanConsumer() {
+            public boolean consume(HashMap<String,ByteIterator> record) {
+                result.add(new HashMap<String,ByteIterator>(record));
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Perform a range scan, passing each row to the consumer as the scanner returns it.
+     *
+     * @param table The name of the table
+     * @param startkey The record key of the first record to read.
+     * @param recordcount The number of records to read
+     * @param fields The list of fields to read, or null for all of them
+     * @param consumer Receives the field/value pairs of each record; the same HashMap is reused for every record
+     * @return Zero on success, a non-zero error code on error
+     */
+    public int scan(String table, String startkey, int recordcount, Set<String> fields, ScanConsumer consumer)
     {
         //if this is a "new" table, init HTable object.  Else, use existing one
         if (!_table.equals(table)) {
@@ -214,7 +271,7 @@ public class HBaseClient extends com.yahoo.ycsb.DB
             catch (IOException e)
             {
                 System.err.println("Error accessing HBase table: "+e);
-                return ServerError;
+                return errorCode(e);
             }
         }
 
@@ -241,6 +298,7 @@ public class HBaseClient extends com.yahoo.ycsb.DB
         try {
             scanner = _hTable.getScanner(s);
             int numResults = 0;
+            HashMap<String,ByteIterator> rowResult = new HashMap<String, ByteIterator>();
             for (Result rr = scanner.next(); rr != null; rr = scanner.next())
             {
                 //get row key
@@ -250,17 +308,15 @@ public class HBaseClient extends com.yahoo.ycsb.DB
                     System.out.println("Got scan result for key: "+key);
                 }
 
-                HashMap<String,ByteIterator> rowResult = new HashMap<String, ByteIterator>();
-
+                rowResult.clear();
                 for (KeyValue kv : rr.raw()) {
                   rowResult.put(
                       Bytes.toString(kv.getQualifier()),
                       new ByteArrayByteIterator(kv.getValue()));
                 }
-                //add rowResult to result vector
-                result.add(rowResult);
+                //pass rowResult on; the consumer may stop the scan
                 numResults++;
-                if (numResults >= recordcount) //if hit recordcount, bail out
+                if (!consumer.consume(rowResult) || numResults >= recordcount) //if hit recordcount, bail out
                 {
                     break;
                 }
@@ -273,11 +329,13 @@ public class HBaseClient extends com.yahoo.ycsb.DB
             {
                 System.out.println("Error in getting/parsing scan result: "+e);
             }
-            return ServerError;
+            return errorCode(e);
         }
 
         finally {
-            scanner.close();
+            if (scanner != null) {
+                scanner.close();
+            }
         }
 
         return Ok;
@@ -305,7 +363,7 @@ public class HBaseClient extends com.yahoo.ycsb.DB
             catch (IOException e)
             {
                 System.err.println("Error accessing HBase table: "+e);
-                return ServerError;
+                return errorCode(e);
             }
         }
 
@@ -332,7 +390,7 @@ public class HBaseClient extends com.yahoo.ycsb.DB
             if (_debug) {
                 System.err.println("Error doing put: "+e);
             }
-            return ServerError;
+            return errorCode(e);
         }
         catch (ConcurrentModificationException e)
         {
@@ -357,6 +415,235 @@ public class HBaseClient extends com.yahoo.ycsb.DB
         return update(table,key,values);
     }
 
+    /**
+     * Read a batch of records with a single multi-get.
+     *
+     * @param table The name of the table
+     * @param keys The record keys of the records to read.
+     * @param fields The list of fields to read, or null for all of them
+     * @param result A Vector of HashMaps, one per key in the order of the keys, empty for records that were not found
+     * @return Zero on success, a non-zero error code on error
+     */
+    public int multiRead(String table, List<String> keys, Set<String> fields, Vector<HashMap<String,ByteIterator>> result)
+    {
+        //if this is a "new" table, init HTable object.  Else, use existing one
+        if (!_table.equals(table)) {
+            _hTable = null;
+            try
+            {
+                getHTable(table);
+                _table = table;
+            }
+            catch (IOException e)
+            {
+                System.err.println("Error accessing HBase table: "+e);
+                return errorCode(e);
+            }
+        }
+
+        List<Get> gets = new ArrayList<Get>(keys.size());
+        for (String key : keys)
+        {
+            Get g = new Get(Bytes.toBytes(key));
+            if (fields == null) {
+                g.addFamily(_columnFamilyBytes);
+            } else {
+                for (String field : fields) {
+                    g.addColumn(_columnFamilyBytes, Bytes.toBytes(field));
+                }
+            }
+            gets.add(g);
+        }
+
+        Result[] rs;
+        try
+        {
+            rs = _hTable.get(gets);
+        }
+        catch (IOException e)
+        {
+            System.err.println("Error doing multi-get: "+e);
+            return errorCode(e);
+        }
+
+        for (Result r : rs)
+        {
+            HashMap<String,ByteIterator> rowResult = new HashMap<String, ByteIterator>();
+            if (r != null && !r.isEmpty()) {
+                for (KeyValue kv : r.raw()) {
+                    rowResult.put(
+                        Bytes.toString(kv.getQualifier()),
+                        new ByteArrayByteIterator(kv.getValue()));
+                }
+            }
+            result.add(rowResult);
+        }
+        return Ok;
+    }
+
+    /**
+     * Insert a batch of records with a single multi-put.
+     *
+     * @param table The name of the table
+     * @param keys The record keys of the records to insert.
+     * @param values The field/value pairs of each record, in the order of the keys
+     * @return Zero on success, a non-zero error code on error
+     */
+    public int multiInsert(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+    {
+        return multiUpdate(table,keys,values);
+    }
+
+    /**
+     * Update a batch of records with a single multi-put.
+     *
+     * @param table The name of the table
+     * @param keys The record keys of the records to write
+     * @param values The field/value pairs to update in each record, in the order of the keys
+     * @return Zero on success, a non-zero error code on error
+     */
+    public int multiUpdate(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+    {
+        //if this is a "new" table, init HTable object.  Else, use existing one
+        if (!_table.equals(table)) {
+            _hTable = null;
+            try
+            {
+                getHTable(table);
+                _table = table;
+            }
+            catch (IOException e)
+            {
+                System.err.println("Error accessing HBase table: "+e);
+                return errorCode(e);
+            }
+        }
+
+        List<Put> puts = new ArrayList<Put>(keys.size());
+        for (int i = 0; i < keys.size(); i++)
+        {
+            Put p = new Put(Bytes.toBytes(keys.get(i)));
+            for (Map.Entry<String, ByteIterator> entry : values.get(i).entrySet())
+            {
+                p.add(_columnFamilyBytes,Bytes.toBytes(entry.getKey()),entry.getValue().toArray());
+            }
+            puts.add(p);
+        }
+
+        try
+        {
+            _hTable.put(puts);
+        }
+        catch (IOException e)
+        {
+            if (_debug) {
+                System.err.println("Error doing multi-put: "+e);
+            }
+            return errorCode(e);
+        }
+        catch (ConcurrentModificationException e)
+        {
+            //do nothing for now...hope this is rare
+            return ServerError;
+        }
+
+        return Ok;
+    }
+
+    /**
+     * Update a record only if one of its columns holds an expected value, with checkAndPut.
+     *
+     * @param table The name of the table
+     * @param key The record key of the record to write
+     * @param field The column to compare
+     * @param expected The value the column must hold for the update to happen
+     * @param values A HashMap of field/value pairs to update in the record
+     * @return Zero on success, CONDITION_FAILED if the column did not hold the expected value, a non-zero error code on error
+     */
+    public int compareAndSet(String table, String key, String field, String expected, HashMap<String,ByteIterator> values)
+    {
+        //if this is a "new" table, init HTable object.  Else, use existing one
+        if (!_table.equals(table)) {
+            _hTable = null;
+            try
+            {
+                getHTable(table);
+                _table = table;
+            }
+            catch (IOException e)
+            {
+                System.err.println("Error accessing HBase table: "+e);
+                return errorCode(e);
+            }
+        }
+
+        byte[] row = Bytes.toBytes(key);
+        Put p = new Put(row);
+        for (Map.Entry<String, ByteIterator> entry : values.entrySet())
+        {
+            p.add(_columnFamilyBytes,Bytes.toBytes(entry.getKey()),entry.getValue().toArray());
+        }
+
+        try
+        {
+            if (!_hTable.checkAndPut(row,_columnFamilyBytes,Bytes.toBytes(field),Bytes.toBytes(expected),p))
+            {
+                return CONDITION_FAILED;
+            }
+        }
+        catch (IOException e)
+        {
+            if (_debug) {
+                System.err.println("Error doing checkAndPut: "+e);
+            }
+            return errorCode(e);
+        }
+
+        return Ok;
+    }
+
+    /**
+     * Atomically add to a counter held in a column of a record. The counter is an 8 byte long, as HBase keeps
+     * counters; a missing record or column is created.
+     *
+     * @param table The name of the table
+     * @param key The record key of the record holding the counter.
+     * @param field The column holding the counter.
+     * @param delta How much to add to the counter.
+     * @return Zero on success, a non-zero error code on error
+     */
+    public int increment(String table, String key, String field, long delta)
+    {
+        //if this is a "new" table, init HTable object.  Else, use existing one
+        if (!_table.equals(table)) {
+            _hTable = null;
+            try
+            {
+                getHTable(table);
+                _table = table;
+            }
+            catch (IOException e)
+            {
+                System.err.println("Error accessing HBase table: "+e);
+                return errorCode(e);
+            }
+        }
+
+        try
+        {
+            _hTable.incrementColumnValue(Bytes.toBytes(key),_columnFamilyBytes,Bytes.toBytes(field),delta);
+        }
+        catch (IOException e)
+        {
+            if (_debug) {
+                System.err.println("Error doing increment: "+e);
+            }
+            return errorCode(e);
+        }
+
+        return Ok;
+    }
+
     /**
      * Delete a record from the database.
      *
@@ -377,7 +664,7 @@ public class HBaseClient extends com.yahoo.ycsb.DB
             catch (IOException e)
             {
                 System.err.println("Error accessing HBase table: "+e);
-                return ServerError;
+                return errorCode(e);
             }
         }
 
@@ -395,7 +682,7 @@ public class HBaseClient extends com.yahoo.ycsb.DB
             if (_debug) {
                 System.err.println("Error doing delete: "+e);
             }
-            return ServerError;
+            return errorCode(e);
         }
 
         return Ok;
@@ -285,7 +285,7 @@ public class HypertableClient extends com.yahoo.ycsb.DB
             for (Map.Entry<String, ByteIterator> entry : values.entrySet()) {
                 writer.add(key, _columnFamily, entry.getKey(), 
                         SerializedCellsFlag.AUTO_ASSIGN, 
-                        ByteBuffer.wrap(entry.getValue().toArray()));            
+                        entry.getValue().toByteBuffer());            
             }
             connection.mutator_set_cells_serialized(mutator, 
                     writer.buffer(), true);
@@ -20,7 +20,9 @@ package com.yahoo.ycsb.db;
 import com.yahoo.ycsb.DB;
 import com.yahoo.ycsb.DBException;
 import com.yahoo.ycsb.ByteIterator;
-import com.yahoo.ycsb.StringByteIterator;
+import com.yahoo.ycsb.ScanConsumer;
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.TypedValue;
 
 import java.sql.*;
 import java.util.*;
@@ -46,6 +48,9 @@ import java.util.concurrent.ConcurrentMap;
  * <li><b>db.user</b> User name for the connection.</li>
  * <li><b>db.passwd</b> Password for the connection.</li>
  * </ul>
+ *
+ * <p> Transactions (see {@link DB#start()}) run on every shard connection at once, but
+ * are committed shard by shard, so they are only atomic with a single shard.
  *  
  * @author sudipto
  *
@@ -56,8 +61,13 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
   private boolean initialized = false;
   private Properties props;
   private Integer jdbcFetchSize;
+  private boolean autoCommit;
+  private String incrementNumericType;
+  private String incrementTextType;
   private static final String DEFAULT_PROP = "";
   private ConcurrentMap<StatementType, PreparedStatement> cachedStatements;
+  // statements naming fields, which StatementType does not tell apart
+  private HashMap<String, PreparedStatement> cachedFieldStatements;
   
   /**
    * The statement type for the prepared statements.
@@ -88,6 +98,8 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
     int shardIndex;
     int numFields;
     String tableName;
+    // the columns written by an insert or update, in the order of its parameters
+    String columns;
     
     StatementType(Type type, String tableName, int numFields, int _shardIndex) {
       this.type = type;
@@ -96,6 +108,16 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
       this.shardIndex = _shardIndex;
     }
 
+    StatementType(Type type, String tableName, Map<String, ByteIterator> values, int _shardIndex) {
+      this(type, tableName, values.size(), _shardIndex);
+      StringBuilder names = new StringBuilder();
+      for (String field : values.keySet()) {
+        if (names.length() > 0) names.append(", ");
+        names.append(field);
+      }
+      this.columns = names.toString();
+    }
+
     @Override
     public int hashCode() {
       final int prime = 31;
@@ -104,6 +126,7 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
       result = prime * result
           + ((tableName == null) ? 0 : tableName.hashCode());
       result = prime * result + ((type == null) ? 0 : type.getHashCode());
+      result = prime * result + ((columns == null) ? 0 : columns.hashCode());
       return result;
     }
 
@@ -127,6 +150,11 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
         return false;
       if (type != other.type)
         return false;
+      if (columns == null) {
+        if (other.columns != null)
+          return false;
+      } else if (!columns.equals(other.columns))
+        return false;
       return true;
     }
   }
@@ -188,7 +216,10 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
       }
 
       String autoCommitStr = props.getProperty(JDBC_AUTO_COMMIT, Boolean.TRUE.toString());
-      Boolean autoCommit = Boolean.parseBoolean(autoCommitStr);
+      autoCommit = Boolean.parseBoolean(autoCommitStr);
+
+      incrementNumericType = props.getProperty(JDBC_INCREMENT_NUMERIC_TYPE, JDBC_INCREMENT_NUMERIC_TYPE_DEFAULT).trim();
+      incrementTextType = props.getProperty(JDBC_INCREMENT_TEXT_TYPE, JDBC_INCREMENT_TEXT_TYPE_DEFAULT).trim();
 
       try {
 		  if (driver != null) {
@@ -213,6 +244,7 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
           System.out.println("Using " + shardCount + " shards");
 
 		  cachedStatements = new ConcurrentHashMap<StatementType, PreparedStatement>();
+		  cachedFieldStatements = new HashMap<String, PreparedStatement>();
 		} catch (ClassNotFoundException e) {
 		  System.err.println("Error in initializing the JDBS driver: " + e);
 		  throw new DBException(e);
@@ -240,7 +272,11 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
 	throws SQLException {
 	  StringBuilder insert = new StringBuilder("INSERT INTO ");
 	  insert.append(insertType.tableName);
-	  insert.append(" VALUES(?");
+	  insert.append(" (");
+	  insert.append(PRIMARY_KEY);
+	  insert.append(", ");
+	  insert.append(insertType.columns);
+	  insert.append(") VALUES(?");
     for (int i = 0; i < insertType.numFields; i++) {
       insert.append(",?");
     }
@@ -283,12 +319,8 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
     StringBuilder update = new StringBuilder("UPDATE ");
     update.append(updateType.tableName);
     update.append(" SET ");
-    for (int i = 1; i <= updateType.numFields; i++) {
-      update.append(COLUMN_PREFIX);
-      update.append(i);
-      update.append("=?");
-      if (i < updateType.numFields) update.append(", ");
-    }
+    update.append(updateType.columns.replace(", ", "=?, "));
+    update.append("=?");
     update.append(" WHERE ");
     update.append(PRIMARY_KEY);
     update.append(" = ?;");
@@ -332,25 +364,39 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
       ResultSet resultSet = readStatement.executeQuery();
       if (!resultSet.next()) {
         resultSet.close();
-        return 1;
+        return Status.NOT_FOUND.getCode();
       }
       if (result != null && fields != null) {
         for (String field : fields) {
-          String value = resultSet.getString(field);
-          result.put(field, new StringByteIterator(value));
+          result.put(field, TypedValue.of(resultSet.getObject(field)));
         }
       }
       resultSet.close();
       return SUCCESS;
     } catch (SQLException e) {
         System.err.println("Error in processing read of table " + tableName + ": "+e);
-      return -2;
+      return errorCode(e);
     }
 	}
 
 	@Override
 	public int scan(String tableName, String startKey, int recordcount,
-			Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+			Set<String> fields, final Vector<HashMap<String, ByteIterator>> result) {
+    return scan(tableName, startKey, recordcount, fields, new ScanConsumer() {
+      public boolean consume(HashMap<String, ByteIterator> record) {
+        result.add(new HashMap<String, ByteIterator>(record));
+        return true;
+      }
+    });
+	}
+
+  /**
+   * Streams the rows of the result set to the consumer as they are fetched,
+   * reusing one HashMap for all of them.
+   */
+  @Override
+  public int scan(String tableName, String startKey, int recordcount,
+      Set<String> fields, ScanConsumer consumer) {
 	  if (tableName == null) {
       return -1;
     }
@@ -364,24 +410,36 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
         scanStatement = createAndCacheScanStatement(type, startKey);
       }
       scanStatement.setString(1, startKey);
+      scanStatement.setFetchSize(Math.min(recordcount, 1000));
       ResultSet resultSet = scanStatement.executeQuery();
-      for (int i = 0; i < recordcount && resultSet.next(); i++) {
-        if (result != null && fields != null) {
-          HashMap<String, ByteIterator> values = new HashMap<String, ByteIterator>();
-          for (String field : fields) {
-            String value = resultSet.getString(field);
-            values.put(field, new StringByteIterator(value));
+      try {
+        Collection<String> columns = fields;
+        if (columns == null) {
+          ResultSetMetaData metaData = resultSet.getMetaData();
+          List<String> all = new ArrayList<String>(metaData.getColumnCount());
+          for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            String column = metaData.getColumnName(i);
+            if (!column.equalsIgnoreCase(PRIMARY_KEY)) all.add(column);
+          }
+          columns = all;
+        }
+        HashMap<String, ByteIterator> values = new HashMap<String, ByteIterator>();
+        for (int i = 0; i < recordcount && resultSet.next(); i++) {
+          values.clear();
+          for (String field : columns) {
+            values.put(field, TypedValue.of(resultSet.getObject(field)));
           }
-          result.add(values);
+          if (!consumer.consume(values)) break;
         }
+      } finally {
+        resultSet.close();
       }
-      resultSet.close();
       return SUCCESS;
     } catch (SQLException e) {
       System.err.println("Error in processing scan of table: " + tableName + e);
-      return -2;
+      return errorCode(e);
     }
-	}
+  }
 
 	@Override
 	public int update(String tableName, String key, HashMap<String, ByteIterator> values) {
@@ -392,23 +450,22 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
       return -1;
     }
     try {
-      int numFields = values.size();
-      StatementType type = new StatementType(StatementType.Type.UPDATE, tableName, numFields, getShardIndexByKey(key));
+      StatementType type = new StatementType(StatementType.Type.UPDATE, tableName, values, getShardIndexByKey(key));
       PreparedStatement updateStatement = cachedStatements.get(type);
       if (updateStatement == null) {
         updateStatement = createAndCacheUpdateStatement(type, key);
       }
       int index = 1;
       for (Map.Entry<String, ByteIterator> entry : values.entrySet()) {
-        updateStatement.setString(index++, entry.getValue().toString());
+        setValue(updateStatement, index++, entry.getValue());
       }
       updateStatement.setString(index, key);
       int result = updateStatement.executeUpdate();
       if (result == 1) return SUCCESS;
-      else return 1;
+      else return Status.NOT_FOUND.getCode();
     } catch (SQLException e) {
       System.err.println("Error in processing update to table: " + tableName + e);
-      return -1;
+      return errorCode(e);
     }
 	}
 
@@ -421,8 +478,7 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
 	    return -1;
 	  }
 	  try {
-	    int numFields = values.size();
-	    StatementType type = new StatementType(StatementType.Type.INSERT, tableName, numFields, getShardIndexByKey(key));
+	    StatementType type = new StatementType(StatementType.Type.INSERT, tableName, values, getShardIndexByKey(key));
 	    PreparedStatement insertStatement = cachedStatements.get(type);
 	    if (insertStatement == null) {
 	      insertStatement = createAndCacheInsertStatement(type, key);
@@ -430,18 +486,142 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
       insertStatement.setString(1, key);
       int index = 2;
       for (Map.Entry<String, ByteIterator> entry : values.entrySet()) {
-        String field = entry.getValue().toString();
-        insertStatement.setString(index++, field);
+        setValue(insertStatement, index++, entry.getValue());
       }
       int result = insertStatement.executeUpdate();
       if (result == 1) return SUCCESS;
       else return 1;
     } catch (SQLException e) {
       System.err.println("Error in processing insert to table: " + tableName + e);
-      return -1;
+      return errorCode(e);
     }
 	}
 
+  /**
+   * Return the status code of a failed statement, as far as the driver tells the cause apart.
+   */
+  static int errorCode(SQLException e) {
+    if (e instanceof SQLTimeoutException) return Status.TIMEOUT.getCode();
+    if (e instanceof SQLTransientConnectionException) return Status.UNAVAILABLE.getCode();
+    if (e instanceof SQLSyntaxErrorException) return Status.BAD_REQUEST.getCode();
+    return Status.ERROR.getCode();
+  }
+
+  /**
+   * Whether a failed insert ran into an existing record (SQLState class 23, integrity constraint violation).
+   */
+  static boolean isDuplicateKey(SQLException e) {
+    if (e instanceof SQLIntegrityConstraintViolationException) return true;
+    String state = e.getSQLState();
+    return (state != null) && state.startsWith("23");
+  }
+
+  /**
+   * Whether a failed statement or commit was rolled back because it conflicted with another transaction: a
+   * serialization failure or a deadlock (SQLState class 40).
+   */
+  static boolean isConflict(SQLException e) {
+    if (e instanceof SQLTransactionRollbackException) return true;
+    String state = e.getSQLState();
+    return (state != null) && state.startsWith("40");
+  }
+
+  /**
+   * Bind a value as its native SQL type if it is typed, else as a string.
+   */
+  private static void setValue(PreparedStatement statement, int index, ByteIterator value)
+      throws SQLException {
+    if (value instanceof TypedValue) {
+      TypedValue typed = (TypedValue) value;
+      switch (typed.getType()) {
+      case LONG:
+        statement.setLong(index, typed.getLong());
+        return;
+      case DOUBLE:
+        statement.setDouble(index, typed.getDouble());
+        return;
+      case TIMESTAMP:
+        statement.setTimestamp(index, new Timestamp(typed.getLong()));
+        return;
+      case BINARY:
+        statement.setBytes(index, typed.getBytes());
+        return;
+      default:
+        break;
+      }
+    }
+    statement.setString(index, value.toString());
+  }
+
+  @Override
+  public int multiInsert(String tableName, List<String> keys, List<HashMap<String, ByteIterator>> values) {
+    return executeBatch(StatementType.Type.INSERT, tableName, keys, values);
+  }
+
+  @Override
+  public int multiUpdate(String tableName, List<String> keys, List<HashMap<String, ByteIterator>> values) {
+    return executeBatch(StatementType.Type.UPDATE, tableName, keys, values);
+  }
+
+  /**
+   * Add one insert or update per key to the batch of the statement for its shard, then execute
+   * the batches, one round trip per shard.
+   */
+  private int executeBatch(StatementType.Type kind, String tableName, List<String> keys,
+      List<HashMap<String, ByteIterator>> values) {
+    if (tableName == null) {
+      return -1;
+    }
+    Set<PreparedStatement> batches = new LinkedHashSet<PreparedStatement>();
+    try {
+      for (int i = 0; i < keys.size(); i++) {
+        String key = keys.get(i);
+        if (key == null) {
+          return -1;
+        }
+        HashMap<String, ByteIterator> record = values.get(i);
+        StatementType type = new StatementType(kind, tableName, record, getShardIndexByKey(key));
+        PreparedStatement statement = cachedStatements.get(type);
+        if (statement == null) {
+          statement = (kind == StatementType.Type.INSERT) ?
+              createAndCacheInsertStatement(type, key) : createAndCacheUpdateStatement(type, key);
+        }
+        int index = 1;
+        if (kind == StatementType.Type.INSERT) {
+          statement.setString(index++, key);
+        }
+        for (Map.Entry<String, ByteIterator> entry : record.entrySet()) {
+          setValue(statement, index++, entry.getValue());
+        }
+        if (kind == StatementType.Type.UPDATE) {
+          statement.setString(index, key);
+        }
+        statement.addBatch();
+        batches.add(statement);
+      }
+      int ret = SUCCESS;
+      for (PreparedStatement statement : batches) {
+        for (int count : statement.executeBatch()) {
+          if (count != 1 && count != Statement.SUCCESS_NO_INFO) ret = 1;
+        }
+      }
+      batches.clear();
+      return ret;
+    } catch (SQLException e) {
+      System.err.println("Error in processing batch " + kind + " to table: " + tableName + e);
+      return errorCode(e);
+    } finally {
+      //don't leave half-built batches on the cached statements
+      for (PreparedStatement statement : batches) {
+        try {
+          statement.clearBatch();
+        } catch (SQLException e) {
+          // ignore
+        }
+      }
+    }
+  }
+
 	@Override
 	public int delete(String tableName, String key) {
 	  if (tableName == null) {
@@ -459,10 +639,200 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
       deleteStatement.setString(1, key);
       int result = deleteStatement.executeUpdate();
       if (result == 1) return SUCCESS;
-      else return 1;
+      else return Status.NOT_FOUND.getCode();
     } catch (SQLException e) {
       System.err.println("Error in processing delete to table: " + tableName + e);
-      return -1;
+      return errorCode(e);
     }
 	}
+
+  /**
+   * Updates the record with a single UPDATE whose WHERE clause also matches the
+   * expected value, so no row is updated if the value has changed.
+   */
+  @Override
+  public int compareAndSet(String tableName, String key, String field, String expected,
+      HashMap<String, ByteIterator> values) {
+    if (tableName == null) {
+      return -1;
+    }
+    if (key == null) {
+      return -1;
+    }
+    try {
+      StringBuilder sql = new StringBuilder("UPDATE ");
+      sql.append(tableName);
+      sql.append(" SET ");
+      boolean first = true;
+      for (String name : values.keySet()) {
+        if (!first) sql.append(", ");
+        sql.append(name);
+        sql.append("=?");
+        first = false;
+      }
+      sql.append(" WHERE ");
+      sql.append(PRIMARY_KEY);
+      sql.append(" = ? AND ");
+      sql.append(field);
+      sql.append(" = ?;");
+      String cacheKey = "CAS/" + sql + "/" + getShardIndexByKey(key);
+      PreparedStatement casStatement = cachedFieldStatements.get(cacheKey);
+      if (casStatement == null) {
+        casStatement = getShardConnectionByKey(key).prepareStatement(sql.toString());
+        cachedFieldStatements.put(cacheKey, casStatement);
+      }
+      int index = 1;
+      for (ByteIterator value : values.values()) {
+        setValue(casStatement, index++, value);
+      }
+      casStatement.setString(index++, key);
+      casStatement.setString(index, expected);
+      return (casStatement.executeUpdate() == 1) ? SUCCESS : CONDITION_FAILED;
+    } catch (SQLException e) {
+      System.err.println("Error in processing compare-and-set of table: " + tableName + e);
+      return errorCode(e);
+    }
+  }
+
+  /**
+   * Increments a counter with a single UPDATE. Counters are kept as decimal strings in
+   * the VARCHAR columns, so the column is cast to jdbc.increment.numerictype (BIGINT)
+   * and back to jdbc.increment.texttype (VARCHAR(20)); MySQL needs SIGNED and CHAR. A NULL
+   * column counts as zero. If the record does not exist, it is inserted with just the
+   * counter, which needs the other columns to be nullable.
+   */
+  @Override
+  public int increment(String tableName, String key, String field, long delta) {
+    if (tableName == null) {
+      return -1;
+    }
+    if (key == null) {
+      return -1;
+    }
+    try {
+      PreparedStatement incrementStatement = getIncrementStatement(tableName, field, key, false);
+      incrementStatement.setLong(1, delta);
+      incrementStatement.setString(2, key);
+      if (incrementStatement.executeUpdate() == 1) return SUCCESS;
+
+      PreparedStatement insertStatement = getIncrementStatement(tableName, field, key, true);
+      insertStatement.setString(1, key);
+      insertStatement.setString(2, Long.toString(delta));
+      try {
+        if (insertStatement.executeUpdate() == 1) return SUCCESS;
+      } catch (SQLException e) {
+        if (!isDuplicateKey(e)) {
+          System.err.println("Error in processing increment of table: " + tableName + e);
+          return errorCode(e);
+        }
+        // another client created the record first; increment that one
+        if (incrementStatement.executeUpdate() == 1) return SUCCESS;
+      }
+      return 1;
+    } catch (SQLException e) {
+      System.err.println("Error in processing increment of table: " + tableName + e);
+      return errorCode(e);
+    }
+  }
+
+  private PreparedStatement getIncrementStatement(String tableName, String field, String key, boolean insert)
+  throws SQLException {
+    String cacheKey = (insert ? "INSERT/" : "UPDATE/") + tableName + "/" + field + "/" + getShardIndexByKey(key);
+    PreparedStatement stmt = cachedFieldStatements.get(cacheKey);
+    if (stmt != null) return stmt;
+    StringBuilder sql = new StringBuilder();
+    if (insert) {
+      sql.append("INSERT INTO ");
+      sql.append(tableName);
+      sql.append(" (");
+      sql.append(PRIMARY_KEY);
+      sql.append(", ");
+      sql.append(field);
+      sql.append(") VALUES(?,?);");
+    } else {
+      sql.append("UPDATE ");
+      sql.append(tableName);
+      sql.append(" SET ");
+      sql.append(field);
+      if (incrementNumericType.length() == 0) {
+        sql.append(" = COALESCE(");
+        sql.append(field);
+        sql.append(", '0') + ? WHERE ");
+      } else {
+        sql.append(" = CAST(COALESCE(CAST(");
+        sql.append(field);
+        sql.append(" AS ");
+        sql.append(incrementNumericType);
+        sql.append("), 0) + ? AS ");
+        sql.append(incrementTextType);
+        sql.append(") WHERE ");
+      }
+      sql.append(PRIMARY_KEY);
+      sql.append(" = ?;");
+    }
+    stmt = getShardConnectionByKey(key).prepareStatement(sql.toString());
+    cachedFieldStatements.put(cacheKey, stmt);
+    return stmt;
+  }
+
+  @Override
+  public int start() {
+    try {
+      for (Connection conn : conns) {
+        conn.setAutoCommit(false);
+      }
+      return SUCCESS;
+    } catch (SQLException e) {
+      System.err.println("Error in starting a transaction: " + e);
+      return errorCode(e);
+    }
+  }
+
+  @Override
+  public int commit() {
+    try {
+      for (Connection conn : conns) {
+        conn.commit();
+      }
+      return SUCCESS;
+    } catch (SQLException e) {
+      // the transaction is over either way
+      abort();
+      if (isConflict(e)) {
+        return Status.CONDITION_FAILED.getCode();
+      }
+      System.err.println("Error in committing a transaction: " + e);
+      return errorCode(e);
+    } finally {
+      restoreAutoCommit();
+    }
+  }
+
+  @Override
+  public int abort() {
+    int result = SUCCESS;
+    for (Connection conn : conns) {
+      try {
+        conn.rollback();
+      } catch (SQLException e) {
+        System.err.println("Error in aborting a transaction: " + e);
+        result = -1;
+      }
+    }
+    restoreAutoCommit();
+    return result;
+  }
+
+  private void restoreAutoCommit() {
+    if (!autoCommit) {
+      return;
+    }
+    for (Connection conn : conns) {
+      try {
+        conn.setAutoCommit(true);
+      } catch (SQLException e) {
+        System.err.println("Error in restoring auto commit: " + e);
+      }
+    }
+  }
 }
@@ -42,6 +42,21 @@ public interface JdbcDBClientConstants {
   /** The JDBC connection auto-commit property for the driver. */
   public static final String JDBC_AUTO_COMMIT = "jdbc.autocommit";
 
+  /**
+   * The SQL type increments cast a counter field to, e.g. SIGNED for MySQL; empty to add to the field
+   * without casts, for databases that convert strings to numbers implicitly.
+   */
+  public static final String JDBC_INCREMENT_NUMERIC_TYPE = "jdbc.increment.numerictype";
+
+  /** Default numeric type of increments. */
+  public static final String JDBC_INCREMENT_NUMERIC_TYPE_DEFAULT = "BIGINT";
+
+  /** The SQL type increments cast the sum back to, e.g. CHAR for MySQL. */
+  public static final String JDBC_INCREMENT_TEXT_TYPE = "jdbc.increment.texttype";
+
+  /** Default text type of increments. */
+  public static final String JDBC_INCREMENT_TEXT_TYPE_DEFAULT = "VARCHAR(20)";
+
   /** The name of the property for the number of fields in a record. */
   public static final String FIELD_COUNT_PROPERTY="fieldcount";
   
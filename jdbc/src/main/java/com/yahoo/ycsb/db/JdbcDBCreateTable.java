@@ -25,6 +25,8 @@ import java.sql.Statement;
 import java.util.Enumeration;
 import java.util.Properties;
 
+import com.yahoo.ycsb.FieldSchema;
+
 /**
  * Utility class to create the table to be used by the benchmark.
  * 
@@ -39,6 +41,7 @@ public class JdbcDBCreateTable implements JdbcDBClientConstants {
     System.out.println("  -P   location of the properties file to load.");
     System.out.println("  -n   name of the table.");
     System.out.println("  -f   number of fields (default 10).");
+    System.out.println("  The fieldschema or fieldschemafile property gives the column types.");
   }
   
   private static void createTable(Properties props, String tablename)
@@ -53,6 +56,15 @@ public class JdbcDBCreateTable implements JdbcDBClientConstants {
     if (driver == null || username == null || url == null) {
       throw new SQLException("Missing connection information.");
     }
+
+    FieldSchema schema;
+    try {
+      schema = FieldSchema.load(props, fieldcount);
+    } catch (IOException e) {
+      throw new SQLException("Can't read the field schema: " + e);
+    } catch (IllegalArgumentException e) {
+      throw new SQLException(e.getMessage());
+    }
     
     Connection conn = null;
     
@@ -70,12 +82,16 @@ public class JdbcDBCreateTable implements JdbcDBClientConstants {
       
       sql = new StringBuilder("CREATE TABLE ");
       sql.append(tablename);
-      sql.append(" (KEY VARCHAR PRIMARY KEY");
+      sql.append(" (");
+      sql.append(PRIMARY_KEY);
+      sql.append(" VARCHAR PRIMARY KEY");
       
       for (int idx = 0; idx < fieldcount; idx++) {
-        sql.append(", FIELD");
+        sql.append(", ");
+        sql.append(COLUMN_PREFIX);
         sql.append(idx);
-        sql.append(" VARCHAR");
+        sql.append(" ");
+        sql.append((schema == null) ? "VARCHAR" : sqlType(schema, idx));
       }
       sql.append(");");
       
@@ -92,6 +108,24 @@ public class JdbcDBCreateTable implements JdbcDBClientConstants {
     }
   }
   
+  /**
+   * The SQL type of the column of a field.
+   */
+  private static String sqlType(FieldSchema schema, int field) {
+    switch (schema.getType(field)) {
+    case LONG:
+      return "BIGINT";
+    case DOUBLE:
+      return "DOUBLE";
+    case TIMESTAMP:
+      return "TIMESTAMP";
+    case BINARY:
+      return "VARBINARY";
+    default:
+      return "VARCHAR";
+    }
+  }
+
   /**
    * @param args
    */
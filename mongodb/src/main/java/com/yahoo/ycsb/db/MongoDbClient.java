@@ -9,8 +9,11 @@
 
 package com.yahoo.ycsb.db;
 
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
@@ -30,6 +33,8 @@ import com.yahoo.ycsb.ByteArrayByteIterator;
 import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.DB;
 import com.yahoo.ycsb.DBException;
+import com.yahoo.ycsb.ScanConsumer;
+import com.yahoo.ycsb.TypedValue;
 
 /**
  * MongoDB client for YCSB framework.
@@ -200,7 +205,7 @@ public class MongoDbClient extends DB {
             DBCollection collection = db.getCollection(table);
             DBObject r = new BasicDBObject().append("_id", key);
             for (String k : values.keySet()) {
-                r.put(k, values.get(k).toArray());
+                r.put(k, toDocumentValue(values.get(k)));
             }
             WriteResult res = collection.insert(r, writeConcern);
             return res.getError() == null ? 0 : 1;
@@ -216,6 +221,102 @@ public class MongoDbClient extends DB {
         }
     }
 
+    /**
+     * Insert a batch of records with a single insert of all the documents.
+     *
+     * @param table The name of the table
+     * @param keys The record keys of the records to insert.
+     * @param values The field/value pairs to insert in each record, in the order of the keys
+     * @return Zero on success, a non-zero error code on error. See this class's description for a discussion of error codes.
+     */
+    @Override
+    public int multiInsert(String table, List<String> keys,
+            List<HashMap<String, ByteIterator>> values) {
+        com.mongodb.DB db = null;
+        try {
+            db = mongo.getDB(database);
+
+            db.requestStart();
+
+            DBCollection collection = db.getCollection(table);
+            List<DBObject> documents = new ArrayList<DBObject>(keys.size());
+            for (int i = 0; i < keys.size(); i++) {
+                DBObject r = new BasicDBObject().append("_id", keys.get(i));
+                for (Map.Entry<String, ByteIterator> entry : values.get(i).entrySet()) {
+                    r.put(entry.getKey(), toDocumentValue(entry.getValue()));
+                }
+                documents.add(r);
+            }
+            WriteResult res = collection.insert(documents, writeConcern);
+            return res.getError() == null ? 0 : 1;
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+            return 1;
+        }
+        finally {
+            if (db != null) {
+                db.requestDone();
+            }
+        }
+    }
+
+    /**
+     * Read a batch of records with a single $in query on their keys.
+     *
+     * @param table The name of the table
+     * @param keys The record keys of the records to read.
+     * @param fields The list of fields to read, or null for all of them
+     * @param result A Vector to which a HashMap of field/value pairs is added for each key, in the order of the keys
+     * @return Zero on success, a non-zero error code on error or if any record was not found.
+     */
+    @Override
+    public int multiRead(String table, List<String> keys, Set<String> fields,
+            Vector<HashMap<String, ByteIterator>> result) {
+        com.mongodb.DB db = null;
+        try {
+            db = mongo.getDB(database);
+
+            db.requestStart();
+
+            DBCollection collection = db.getCollection(table);
+            DBObject q = new BasicDBObject().append("_id",
+                    new BasicDBObject().append("$in", keys));
+            DBObject fieldsToReturn = null;
+            if (fields != null) {
+                fieldsToReturn = new BasicDBObject();
+                for (String field : fields) {
+                    fieldsToReturn.put(field, INCLUDE);
+                }
+            }
+
+            // the documents come back in any order
+            HashMap<Object, HashMap<String, ByteIterator>> found = new HashMap<Object, HashMap<String, ByteIterator>>();
+            DBCursor cursor = collection.find(q, fieldsToReturn);
+            while (cursor.hasNext()) {
+                DBObject obj = cursor.next();
+                HashMap<String, ByteIterator> resultMap = new HashMap<String, ByteIterator>();
+                fillMap(resultMap, obj);
+                found.put(obj.get("_id"), resultMap);
+            }
+
+            for (String key : keys) {
+                HashMap<String, ByteIterator> resultMap = found.get(key);
+                result.add(resultMap != null ? resultMap : new HashMap<String, ByteIterator>());
+            }
+            return found.size() == keys.size() ? 0 : 1;
+        }
+        catch (Exception e) {
+            System.err.println(e.toString());
+            return 1;
+        }
+        finally {
+            if (db != null) {
+                db.requestDone();
+            }
+        }
+    }
+
     /**
      * Read a record from the database. Each field/value pair from the result will be stored in a HashMap.
      *
@@ -292,7 +393,7 @@ public class MongoDbClient extends DB {
             Iterator<String> keys = values.keySet().iterator();
             while (keys.hasNext()) {
                 String tmpKey = keys.next();
-                fieldsToSet.put(tmpKey, values.get(tmpKey).toArray());
+                fieldsToSet.put(tmpKey, toDocumentValue(values.get(tmpKey)));
 
             }
             u.put("$set", fieldsToSet);
@@ -311,6 +412,43 @@ public class MongoDbClient extends DB {
         }
     }
 
+    /**
+     * Atomically add to a counter with $inc. The counter is a number, not the binary values other writes store, and
+     * a missing record or field is created.
+     *
+     * @param table The name of the table
+     * @param key The record key of the record holding the counter.
+     * @param field The field holding the counter.
+     * @param delta How much to add to the counter.
+     * @return Zero on success, a non-zero error code on error. See this class's description for a discussion of error codes.
+     */
+    @Override
+    public int increment(String table, String key, String field, long delta) {
+        com.mongodb.DB db = null;
+        try {
+            db = mongo.getDB(database);
+
+            db.requestStart();
+
+            DBCollection collection = db.getCollection(table);
+            DBObject q = new BasicDBObject().append("_id", key);
+            DBObject u = new BasicDBObject().append("$inc",
+                    new BasicDBObject().append(field, delta));
+            WriteResult res = collection.update(q, u, true, false,
+                    writeConcern);
+            return res.getN() == 1 ? 0 : 1;
+        }
+        catch (Exception e) {
+            System.err.println(e.toString());
+            return 1;
+        }
+        finally {
+            if (db != null) {
+                db.requestDone();
+            }
+        }
+    }
+
     /**
      * Perform a range scan for a set of records in the database. Each field/value pair from the result will be stored in a HashMap.
      *
@@ -323,8 +461,30 @@ public class MongoDbClient extends DB {
      */
     @Override
     public int scan(String table, String startkey, int recordcount,
-            Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+            Set<String> fields, final Vector<HashMap<String, ByteIterator>> result) {
+        return scan(table, startkey, recordcount, fields, new ScanConsumer() {
+            public boolean consume(HashMap<String, ByteIterator> record) {
+                result.add(new HashMap<String, ByteIterator>(record));
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Perform a range scan, passing each document to the consumer as the cursor returns it.
+     *
+     * @param table The name of the table
+     * @param startkey The record key of the first record to read.
+     * @param recordcount The number of records to read
+     * @param fields The list of fields to read, or null for all of them
+     * @param consumer Receives the field/value pairs of each record; the same HashMap is reused for every record
+     * @return Zero on success, a non-zero error code on error. See this class's description for a discussion of error codes.
+     */
+    @Override
+    public int scan(String table, String startkey, int recordcount,
+            Set<String> fields, ScanConsumer consumer) {
         com.mongodb.DB db = null;
+        DBCursor cursor = null;
         try {
             db = mongo.getDB(database);
             db.requestStart();
@@ -332,16 +492,15 @@ public class MongoDbClient extends DB {
             // { "_id":{"$gte":startKey, "$lte":{"appId":key+"\uFFFF"}} }
             DBObject scanRange = new BasicDBObject().append("$gte", startkey);
             DBObject q = new BasicDBObject().append("_id", scanRange);
-            DBCursor cursor = collection.find(q).limit(recordcount);
+            cursor = collection.find(q).limit(recordcount);
+            HashMap<String, ByteIterator> resultMap = new HashMap<String, ByteIterator>();
             while (cursor.hasNext()) {
-                // toMap() returns a Map, but result.add() expects a
-                // Map<String,String>. Hence, the suppress warnings.
-                HashMap<String, ByteIterator> resultMap = new HashMap<String, ByteIterator>();
-
+                resultMap.clear();
                 DBObject obj = cursor.next();
                 fillMap(resultMap, obj);
-
-                result.add(resultMap);
+                if (!consumer.consume(resultMap)) {
+                    break;
+                }
             }
 
             return 0;
@@ -351,11 +510,13 @@ public class MongoDbClient extends DB {
             return 1;
         }
         finally {
+            if (cursor != null) {
+                cursor.close();
+            }
             if (db != null) {
                 db.requestDone();
             }
         }
-
     }
 
     /**
@@ -371,7 +532,21 @@ public class MongoDbClient extends DB {
             if (entry.getValue() instanceof byte[]) {
                 resultMap.put(entry.getKey(), new ByteArrayByteIterator(
                         (byte[]) entry.getValue()));
+            } else if (entry.getValue() instanceof Number
+                    || entry.getValue() instanceof Date) {
+                resultMap.put(entry.getKey(), TypedValue.of(entry.getValue()));
             }
         }
     }
+
+    /**
+     * Typed values are stored as BSON numbers, dates and binary; untyped
+     * values as binary, as before.
+     */
+    protected Object toDocumentValue(ByteIterator value) {
+        if (value instanceof TypedValue) {
+            return ((TypedValue) value).getObject();
+        }
+        return value.toArray();
+    }
 }
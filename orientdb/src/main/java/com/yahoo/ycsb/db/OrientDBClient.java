@@ -17,13 +17,15 @@ import java.util.Vector;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.dictionary.ODictionary;
+import com.orientechnologies.orient.core.exception.OConcurrentModificationException;
 import com.orientechnologies.orient.core.intent.OIntentMassiveInsert;
 import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.DB;
 import com.yahoo.ycsb.DBException;
-import com.yahoo.ycsb.StringByteIterator;
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.TypedValue;
 
 /**
  * OrientDB client for YCSB framework.
@@ -97,6 +99,16 @@ public class OrientDBClient extends DB {
     }
   }
 
+  /**
+   * Typed values are stored as OrientDB longs, doubles, dates and binary;
+   * untyped values as strings.
+   */
+  private static Object toFieldValue(ByteIterator value) {
+    if (value instanceof TypedValue)
+      return ((TypedValue) value).getObject();
+    return value.toString();
+  }
+
   @Override
   /**
    * Insert a record in the database. Any field/value pairs in the specified values HashMap will be written into the record with the specified
@@ -110,8 +122,8 @@ public class OrientDBClient extends DB {
   public int insert(String table, String key, HashMap<String, ByteIterator> values) {
     try {
       final ODocument document = new ODocument(CLASS);
-      for (Entry<String, String> entry : StringByteIterator.getStringMap(values).entrySet())
-        document.field(entry.getKey(), entry.getValue());
+      for (Entry<String, ByteIterator> entry : values.entrySet())
+        document.field(entry.getKey(), toFieldValue(entry.getValue()));
       document.save();
       dictionary.put(key, document);
 
@@ -156,10 +168,10 @@ public class OrientDBClient extends DB {
       if (document != null) {
         if (fields != null)
           for (String field : fields)
-            result.put(field, new StringByteIterator((String) document.field(field)));
+            result.put(field, TypedValue.of(document.field(field)));
         else
           for (String field : document.fieldNames())
-            result.put(field, new StringByteIterator((String) document.field(field)));
+            result.put(field, TypedValue.of(document.field(field)));
         return 0;
       }
     } catch (Exception e) {
@@ -182,8 +194,8 @@ public class OrientDBClient extends DB {
     try {
       final ODocument document = dictionary.get(key);
       if (document != null) {
-        for (Entry<String, String> entry : StringByteIterator.getStringMap(values).entrySet())
-          document.field(entry.getKey(), entry.getValue());
+        for (Entry<String, ByteIterator> entry : values.entrySet())
+          document.field(entry.getKey(), toFieldValue(entry.getValue()));
         document.save();
         return 0;
       }
@@ -212,7 +224,7 @@ public class OrientDBClient extends DB {
         result.add(entry);
 
         for (String field : fields)
-          entry.put(field, new StringByteIterator((String) document.field(field)));
+          entry.put(field, TypedValue.of(document.field(field)));
       }
 
       return 0;
@@ -221,4 +233,56 @@ public class OrientDBClient extends DB {
     }
     return 1;
   }
+
+  @Override
+  /**
+   * Start a transaction.
+   *
+   * @return Zero on success, a non-zero error code on error.
+   */
+  public int start() {
+    try {
+      db.begin();
+      return 0;
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+    return 1;
+  }
+
+  @Override
+  /**
+   * Commit the current transaction. Fails if it conflicts with a transaction committed meanwhile.
+   *
+   * @return Zero on success, Status.CONDITION_FAILED's code if the transaction was aborted because of a conflict,
+   * another non-zero error code if it was aborted for another reason.
+   */
+  public int commit() {
+    try {
+      db.commit();
+      return 0;
+    } catch (OConcurrentModificationException e) {
+      //a conflict is an expected outcome under contention, not worth a stack trace
+      return Status.CONDITION_FAILED.getCode();
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+    return 1;
+  }
+
+  @Override
+  /**
+   * Abort the current transaction.
+   *
+   * @return Zero on success, a non-zero error code on error.
+   */
+  public int abort() {
+    try {
+      db.rollback();
+      return 0;
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+    return 1;
+  }
 }
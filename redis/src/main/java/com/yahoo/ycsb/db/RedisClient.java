@@ -8,9 +8,11 @@
 package com.yahoo.ycsb.db;
 import com.yahoo.ycsb.DB;
 import com.yahoo.ycsb.DBException;
+import com.yahoo.ycsb.Status;
 import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.StringByteIterator;
 
+import java.util.ArrayList;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -20,7 +22,10 @@ import java.util.Set;
 import java.util.Vector;
 
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
 import redis.clients.jedis.Protocol;
+import redis.clients.jedis.Response;
+import redis.clients.util.SafeEncoder;
 
 public class RedisClient extends DB {
 
@@ -67,6 +72,17 @@ public class RedisClient extends DB {
         return key.hashCode();
     }
 
+    /* Jedis sends hash fields as bytes, so handing it the values' bytes
+     * directly saves decoding them to Strings and encoding them back.
+     */
+    private static Map<byte[], byte[]> getBinaryMap(HashMap<String, ByteIterator> values) {
+        Map<byte[], byte[]> map = new HashMap<byte[], byte[]>(values.size() * 2);
+        for (Map.Entry<String, ByteIterator> entry : values.entrySet()) {
+            map.put(SafeEncoder.encode(entry.getKey()), entry.getValue().toArray());
+        }
+        return map;
+    }
+
     //XXX jedis.select(int index) to switch to `table`
 
     @Override
@@ -88,12 +104,12 @@ public class RedisClient extends DB {
             }
             assert !fieldIterator.hasNext() && !valueIterator.hasNext();
         }
-        return result.isEmpty() ? 1 : 0;
+        return result.isEmpty() ? Status.NOT_FOUND.getCode() : 0;
     }
 
     @Override
     public int insert(String table, String key, HashMap<String, ByteIterator> values) {
-        if (jedis.hmset(key, StringByteIterator.getStringMap(values)).equals("OK")) {
+        if (jedis.hmset(SafeEncoder.encode(key), getBinaryMap(values)).equals("OK")) {
             jedis.zadd(INDEX_KEY, hash(key), key);
             return 0;
         }
@@ -104,12 +120,92 @@ public class RedisClient extends DB {
     public int delete(String table, String key) {
         return jedis.del(key) == 0
             && jedis.zrem(INDEX_KEY, key) == 0
-               ? 1 : 0;
+               ? Status.NOT_FOUND.getCode() : 0;
     }
 
     @Override
     public int update(String table, String key, HashMap<String, ByteIterator> values) {
-        return jedis.hmset(key, StringByteIterator.getStringMap(values)).equals("OK") ? 0 : 1;
+        return jedis.hmset(SafeEncoder.encode(key), getBinaryMap(values)).equals("OK") ? 0 : 1;
+    }
+
+    @Override
+    public int multiRead(String table, List<String> keys, Set<String> fields,
+            Vector<HashMap<String, ByteIterator>> result) {
+        Pipeline pipeline = jedis.pipelined();
+        List<Response<Map<String, String>>> all = new ArrayList<Response<Map<String, String>>>();
+        List<Response<List<String>>> some = new ArrayList<Response<List<String>>>();
+        String[] fieldArray = fields == null ? null : fields.toArray(new String[fields.size()]);
+        for (String key : keys) {
+            if (fieldArray == null) {
+                all.add(pipeline.hgetAll(key));
+            }
+            else {
+                some.add(pipeline.hmget(key, fieldArray));
+            }
+        }
+        pipeline.sync();
+
+        int res = 0;
+        for (int i = 0; i < keys.size(); i++) {
+            HashMap<String, ByteIterator> values = new HashMap<String, ByteIterator>();
+            if (fieldArray == null) {
+                StringByteIterator.putAllAsByteIterators(values, all.get(i).get());
+            }
+            else {
+                List<String> fieldValues = some.get(i).get();
+                for (int j = 0; j < fieldArray.length; j++) {
+                    if (fieldValues.get(j) != null) {
+                        values.put(fieldArray[j], new StringByteIterator(fieldValues.get(j)));
+                    }
+                }
+            }
+            if (values.isEmpty()) {
+                res = Status.NOT_FOUND.getCode();
+            }
+            result.add(values);
+        }
+        return res;
+    }
+
+    @Override
+    public int multiInsert(String table, List<String> keys, List<HashMap<String, ByteIterator>> values) {
+        Pipeline pipeline = jedis.pipelined();
+        List<Response<String>> replies = new ArrayList<Response<String>>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            replies.add(pipeline.hmset(SafeEncoder.encode(keys.get(i)), getBinaryMap(values.get(i))));
+            pipeline.zadd(INDEX_KEY, hash(keys.get(i)), keys.get(i));
+        }
+        pipeline.sync();
+        return allOK(replies);
+    }
+
+    @Override
+    public int multiUpdate(String table, List<String> keys, List<HashMap<String, ByteIterator>> values) {
+        Pipeline pipeline = jedis.pipelined();
+        List<Response<String>> replies = new ArrayList<Response<String>>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            replies.add(pipeline.hmset(SafeEncoder.encode(keys.get(i)), getBinaryMap(values.get(i))));
+        }
+        pipeline.sync();
+        return allOK(replies);
+    }
+
+    private int allOK(List<Response<String>> replies) {
+        for (Response<String> reply : replies) {
+            if (!"OK".equals(reply.get())) {
+                return 1;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public int increment(String table, String key, String field, long delta) {
+        if (jedis.hincrBy(key, field, delta) == delta) {
+            // the counter may have just been created along with its record
+            jedis.zadd(INDEX_KEY, hash(key), key);
+        }
+        return 0;
     }
 
     @Override
@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.tools;
+
+/**
+ * Estimates the number of distinct keys in a stream in fixed memory (2^precision bytes).
+ * The relative standard error is about 1.04/sqrt(2^precision), e.g. 0.8% for the default precision of 14.
+ */
+public class HyperLogLog
+{
+	public static final int DEFAULT_PRECISION=14;
+
+	final int _precision;
+	final byte[] _registers;
+
+	public HyperLogLog()
+	{
+		this(DEFAULT_PRECISION);
+	}
+
+	public HyperLogLog(int precision)
+	{
+		if ( (precision<4) || (precision>24) )
+		{
+			throw new IllegalArgumentException("HyperLogLog precision must be between 4 and 24, got "+precision);
+		}
+		_precision=precision;
+		_registers=new byte[1<<precision];
+	}
+
+	public void add(String key)
+	{
+		addHash(hash(key));
+	}
+
+	void addHash(long hash)
+	{
+		int index=(int)(hash>>>(64-_precision));
+		//the rank of the first set bit in the remaining bits; the low bit set guarantees termination
+		long rest=(hash<<_precision)|(1L<<(_precision-1));
+		byte rank=(byte)(Long.numberOfLeadingZeros(rest)+1);
+		if (rank>_registers[index])
+		{
+			_registers[index]=rank;
+		}
+	}
+
+	/**
+	 * @return the estimated number of distinct keys added
+	 */
+	public long estimate()
+	{
+		int m=_registers.length;
+		double sum=0;
+		int zeros=0;
+		for (byte r : _registers)
+		{
+			sum+=1.0/(1L<<r);
+			if (r==0)
+			{
+				zeros++;
+			}
+		}
+		double alpha=0.7213/(1+1.079/m);
+		double estimate=alpha*m*m/sum;
+		if ( (estimate<=2.5*m) && (zeros>0) )
+		{
+			//linear counting is more accurate for small cardinalities
+			estimate=m*Math.log((double)m/zeros);
+		}
+		return Math.round(estimate);
+	}
+
+	/**
+	 * A 64 bit hash of a string: FNV-1a over the characters, followed by the MurmurHash3 finalizer so that every bit is
+	 * well mixed.
+	 */
+	static long hash(String key)
+	{
+		long h=0xCBF29CE484222325L;
+		for (int i=0; i<key.length(); i++)
+		{
+			h^=key.charAt(i);
+			h*=1099511628211L;
+		}
+		h=(h^(h>>>33))*0xFF51AFD7ED558CCDL;
+		h=(h^(h>>>33))*0xC4CEB9FE1A85EC53L;
+		return h^(h>>>33);
+	}
+}
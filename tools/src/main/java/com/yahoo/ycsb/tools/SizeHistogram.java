@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.tools;
+
+import java.io.PrintWriter;
+
+/**
+ * A histogram of sizes with a bounded number of buckets, written in the format HistogramGenerator reads.
+ *
+ * Buckets start one byte wide. When a size falls beyond the last bucket, the bucket width doubles and neighbouring
+ * buckets are merged, so memory stays bounded however large the sizes get.
+ */
+public class SizeHistogram
+{
+	public static final int DEFAULT_MAX_BUCKETS=4096;
+
+	long _blocksize=1;
+	final long[] _buckets;
+	long _count;
+
+	public SizeHistogram()
+	{
+		this(DEFAULT_MAX_BUCKETS);
+	}
+
+	public SizeHistogram(int maxbuckets)
+	{
+		_buckets=new long[maxbuckets];
+	}
+
+	public void add(long size)
+	{
+		long bucket=bucket(size);
+		while (bucket>=_buckets.length)
+		{
+			widen();
+			bucket=bucket(size);
+		}
+		_buckets[(int)bucket]++;
+		_count++;
+	}
+
+	public long count()
+	{
+		return _count;
+	}
+
+	/**
+	 * HistogramGenerator draws the largest size of a bucket, and bucket i holds sizes up to (i+1)*blocksize.
+	 */
+	long bucket(long size)
+	{
+		return Math.max(0,(size+_blocksize-1)/_blocksize-1);
+	}
+
+	void widen()
+	{
+		for (int i=0; i<_buckets.length; i++)
+		{
+			long merged=_buckets[i];
+			_buckets[i]=0;
+			_buckets[i/2]+=merged;
+		}
+		_blocksize*=2;
+	}
+
+	/**
+	 * @return the mean size, rounded up to the bucket boundaries as HistogramGenerator will generate them
+	 */
+	public double mean()
+	{
+		double sum=0;
+		for (int i=0; i<_buckets.length; i++)
+		{
+			sum+=(double)_buckets[i]*(i+1)*_blocksize;
+		}
+		return (_count==0) ? 0 : sum/_count;
+	}
+
+	public void write(PrintWriter out)
+	{
+		int last=_buckets.length-1;
+		while ( (last>0) && (_buckets[last]==0) )
+		{
+			last--;
+		}
+		//HistogramGenerator reads the counts as ints, so scale them down if needed
+		long max=0;
+		for (int i=0; i<=last; i++)
+		{
+			max=Math.max(max,_buckets[i]);
+		}
+		long divisor=(max+Integer.MAX_VALUE-1)/Integer.MAX_VALUE;
+		out.println("BlockSize\t"+_blocksize);
+		for (int i=0; i<=last; i++)
+		{
+			long count=_buckets[i]/Math.max(1,divisor);
+			out.println(i+"\t"+( ((count==0) && (_buckets[i]>0)) ? 1 : count ));
+		}
+	}
+}
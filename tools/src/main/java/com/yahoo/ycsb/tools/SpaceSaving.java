@@ -0,0 +1,154 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.tools;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Tracks the most frequent keys of a stream with a fixed number of counters (the Space-Saving algorithm of Metwally et al.).
+ *
+ * A key that is not tracked takes over the counter with the smallest count, inheriting that count as its error. Every
+ * key that occurs more than total/capacity times is therefore tracked, and a tracked key's count overestimates its
+ * true frequency by at most its error. The counters are kept in a min-heap, so each key costs O(log capacity).
+ */
+public class SpaceSaving
+{
+	static class Counter
+	{
+		String key;
+		long count;
+		long error;
+		int index;
+	}
+
+	final int _capacity;
+	final HashMap<String,Counter> _counters;
+	final Counter[] _heap;
+	int _size;
+	long _total;
+
+	public SpaceSaving(int capacity)
+	{
+		_capacity=capacity;
+		_counters=new HashMap<String,Counter>(capacity*2);
+		_heap=new Counter[capacity];
+	}
+
+	public void add(String key)
+	{
+		_total++;
+		Counter c=_counters.get(key);
+		if (c==null)
+		{
+			if (_size<_capacity)
+			{
+				c=new Counter();
+				c.index=_size;
+				_heap[_size++]=c;
+			}
+			else
+			{
+				//replace the least frequent key
+				c=_heap[0];
+				_counters.remove(c.key);
+				c.error=c.count;
+			}
+			c.key=key;
+			_counters.put(key,c);
+		}
+		c.count++;
+		siftDown(c.index);
+	}
+
+	/**
+	 * @return the number of keys added
+	 */
+	public long total()
+	{
+		return _total;
+	}
+
+	/**
+	 * @return the estimated counts of the tracked keys, most frequent first
+	 */
+	public long[] counts()
+	{
+		long[] counts=new long[_size];
+		for (int i=0; i<_size; i++)
+		{
+			counts[i]=_heap[i].count;
+		}
+		Arrays.sort(counts);
+		for (int i=0, j=_size-1; i<j; i++, j--)
+		{
+			long t=counts[i];
+			counts[i]=counts[j];
+			counts[j]=t;
+		}
+		return counts;
+	}
+
+	/**
+	 * @return how many of the tracked keys are guaranteed to be among the most frequent, i.e. how many leading entries of
+	 * counts() can be trusted
+	 */
+	public int guaranteed()
+	{
+		if (_size<_capacity)
+		{
+			return _size;
+		}
+		long min=_heap[0].count;
+		int n=0;
+		for (int i=0; i<_size; i++)
+		{
+			if (_heap[i].count-_heap[i].error>min)
+			{
+				n++;
+			}
+		}
+		return n;
+	}
+
+	void siftDown(int i)
+	{
+		Counter c=_heap[i];
+		for (;;)
+		{
+			int child=2*i+1;
+			if (child>=_size)
+			{
+				break;
+			}
+			if ( (child+1<_size) && (_heap[child+1].count<_heap[child].count) )
+			{
+				child++;
+			}
+			if (_heap[child].count>=c.count)
+			{
+				break;
+			}
+			_heap[i]=_heap[child];
+			_heap[i].index=i;
+			i=child;
+		}
+		_heap[i]=c;
+		c.index=i;
+	}
+}
@@ -0,0 +1,610 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.tools;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+import com.yahoo.ycsb.trace.TraceFile;
+import com.yahoo.ycsb.trace.TraceRecord;
+
+/**
+ * Fits the parameters of CoreWorkload to key access logs, and writes them out as a workload properties file.
+ *
+ * The logs are read in one pass in bounded memory: distinct keys are counted with a HyperLogLog sketch, the most
+ * popular keys are tracked with Space-Saving counters, and value sizes go into a histogram with a bounded number of
+ * buckets. From the popularity of the top keys the uniform, zipfian, hotspot and exponential request distributions
+ * are each fitted, and the one whose share of accesses to the top keys is closest to the logs is chosen. The fits only
+ * see the keys Space-Saving can vouch for, at most topkeys of them, so the top keys never reach further than that. The
+ * parameters of every distribution are written, so another can be tried by changing requestdistribution.
+ *
+ * Logs are either binary traces (as recorded with tracerecord.file) or text, with one access per line:
+ * <pre>timestamp key [operation [size]]</pre>
+ * separated by spaces, tabs or commas. The timestamp is in milliseconds. The operation is read (the default), update,
+ * insert, scan, readmodifywrite or delete. The size is the number of value bytes written for updates and inserts, and
+ * the number of records for scans. Lines starting with # are ignored, and files ending in .gz are decompressed.
+ */
+public class WorkloadFitter
+{
+	public static final int DEFAULT_TOP_KEYS=10000;
+
+	public static final int DEFAULT_FIELD_COUNT=10;
+
+	/**
+	 * The share of accesses that exponential.frac is fitted for.
+	 */
+	public static final double EXPONENTIAL_PERCENTILE=95;
+
+	/**
+	 * ZipfianGenerator only supports constants below 1.
+	 */
+	public static final double MAX_ZIPFIAN_CONSTANT=0.999;
+
+	static final int READ=0;
+	static final int UPDATE=1;
+	static final int INSERT=2;
+	static final int SCAN=3;
+	static final int READMODIFYWRITE=4;
+	static final int DELETE=5;
+
+	static final String[] OPERATIONS={"read","update","insert","scan","readmodifywrite","delete"};
+
+	static final Pattern SEPARATOR=Pattern.compile("[\\s,]+");
+
+	final int _fieldcount;
+	final SpaceSaving _popular;
+	final HyperLogLog _distinct=new HyperLogLog();
+	final SizeHistogram _fieldlengths=new SizeHistogram();
+	final long[] _operations=new long[OPERATIONS.length];
+	long _maxscanlength=0;
+	long _firsttimestamp=Long.MAX_VALUE;
+	long _lasttimestamp=Long.MIN_VALUE;
+	long _malformed=0;
+
+	public WorkloadFitter(int topkeys, int fieldcount)
+	{
+		_popular=new SpaceSaving(topkeys);
+		_fieldcount=fieldcount;
+	}
+
+	/**
+	 * Add one access.
+	 *
+	 * @param operation One of the operation constants.
+	 * @param size The bytes written per field for updates and inserts, the number of records for scans; negative if unknown.
+	 */
+	void access(long timestamp, String key, int operation, long size)
+	{
+		_popular.add(key);
+		_distinct.add(key);
+		_operations[operation]++;
+		_firsttimestamp=Math.min(_firsttimestamp,timestamp);
+		_lasttimestamp=Math.max(_lasttimestamp,timestamp);
+		if (size>=0)
+		{
+			if (operation==SCAN)
+			{
+				_maxscanlength=Math.max(_maxscanlength,size);
+			}
+			else if ( (operation==UPDATE) || (operation==INSERT) || (operation==READMODIFYWRITE) )
+			{
+				_fieldlengths.add(size);
+			}
+		}
+	}
+
+	/**
+	 * Read a log file, text or binary trace.
+	 */
+	public void read(String filename) throws IOException
+	{
+		if (isTrace(filename))
+		{
+			readTrace(filename);
+			return;
+		}
+		InputStream in=new FileInputStream(filename);
+		if (filename.endsWith(".gz"))
+		{
+			in=new GZIPInputStream(in,1<<16);
+		}
+		BufferedReader reader=new BufferedReader(new InputStreamReader(in,"UTF-8"),1<<16);
+		try
+		{
+			String line;
+			while ((line=reader.readLine())!=null)
+			{
+				readLine(line);
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+	}
+
+	void readLine(String line)
+	{
+		line=line.trim();
+		if ( (line.length()==0) || line.startsWith("#") )
+		{
+			return;
+		}
+		String[] columns=SEPARATOR.split(line);
+		try
+		{
+			if (columns.length<2)
+			{
+				throw new IllegalArgumentException();
+			}
+			long timestamp=Long.parseLong(columns[0]);
+			int operation=(columns.length>2) ? operation(columns[2]) : READ;
+			long size=(columns.length>3) ? Long.parseLong(columns[3]) : -1;
+			if ( (size>0) && (operation!=SCAN) )
+			{
+				size=(size+_fieldcount-1)/_fieldcount;
+			}
+			access(timestamp,columns[1],operation,size);
+		}
+		catch (IllegalArgumentException e)
+		{
+			if (_malformed++==0)
+			{
+				System.err.println("Skipping malformed line: "+line);
+			}
+		}
+	}
+
+	static int operation(String name)
+	{
+		for (int i=0; i<OPERATIONS.length; i++)
+		{
+			if (OPERATIONS[i].equalsIgnoreCase(name))
+			{
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("Unknown operation "+name);
+	}
+
+	static boolean isTrace(String filename) throws IOException
+	{
+		DataInputStream in=new DataInputStream(new FileInputStream(filename));
+		try
+		{
+			return in.readInt()==TraceFile.MAGIC;
+		}
+		catch (IOException e)
+		{
+			return false;
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	void readTrace(String filename) throws IOException
+	{
+		TraceFile trace=new TraceFile(filename);
+		TraceFile.Cursor cursor=trace.cursor(0,1);
+		TraceRecord record=new TraceRecord();
+		while (cursor.next(record))
+		{
+			long timestamp=trace.getStartTime()+record.timestamp/1000;
+			long size=record.length;
+			int operation;
+			switch (record.op)
+			{
+			case TraceRecord.UPDATE:
+				operation=UPDATE;
+				break;
+			case TraceRecord.INSERT:
+				operation=INSERT;
+				break;
+			case TraceRecord.SCAN:
+				operation=SCAN;
+				break;
+			case TraceRecord.DELETE:
+				operation=DELETE;
+				break;
+			default:
+				operation=READ;
+			}
+			if ( (operation==UPDATE) || (operation==INSERT) )
+			{
+				int fields=(record.fieldmask==TraceRecord.ALL_FIELDS) ? _fieldcount : Long.bitCount(record.fieldmask);
+				size=(size+Math.max(1,fields)-1)/Math.max(1,fields);
+			}
+			access(timestamp,record.key,operation,size);
+		}
+	}
+
+	/**
+	 * Fit the distributions and write the workload.
+	 *
+	 * @param samplerate The fraction of all accesses that the logs hold.
+	 * @param histogramfile Where to write the field length histogram.
+	 */
+	public void write(PrintWriter out, double samplerate, String histogramfile) throws IOException
+	{
+		long total=_popular.total();
+		if (total==0)
+		{
+			throw new IOException("No accesses to fit");
+		}
+		long[] counts=_popular.counts();
+		long distinct=Math.max(_distinct.estimate(),counts.length);
+		int ranks=Math.max(Math.min(2,counts.length),_popular.guaranteed());
+
+		//the observed share of accesses to the top r keys
+		double[] observed=new double[ranks];
+		double sum=0;
+		for (int r=0; r<ranks; r++)
+		{
+			sum+=counts[r];
+			observed[r]=sum/total;
+		}
+
+		double theta=fitZipfian(counts,ranks);
+		double zipfianerror=zipfianError(observed,distinct,theta);
+		double uniformerror=uniformError(observed,distinct);
+		int hotkeys=fitHotspot(observed,distinct);
+		double hotdatafraction=(double)hotkeys/distinct;
+		double hotopnfraction=observed[hotkeys-1];
+		double hotspoterror=hotspotError(observed,distinct,hotdatafraction,hotopnfraction);
+		double expfrac=fitExponential(observed,counts,ranks,distinct);
+		double exponentialerror=exponentialError(observed,distinct,expfrac);
+
+		String best="uniform";
+		double besterror=uniformerror;
+		if (zipfianerror<besterror)
+		{
+			best="zipfian";
+			besterror=zipfianerror;
+		}
+		if (hotspoterror<besterror)
+		{
+			best="hotspot";
+			besterror=hotspoterror;
+		}
+		if (exponentialerror<besterror)
+		{
+			best="exponential";
+			besterror=exponentialerror;
+		}
+
+		long operations=0;
+		for (int i=0; i<_operations.length; i++)
+		{
+			operations+=_operations[i];
+		}
+		long inserts=_operations[INSERT];
+
+		out.println("# Fitted by "+WorkloadFitter.class.getName()+" to "+total+" accesses of about "+distinct+" distinct keys");
+		out.println("workload=com.yahoo.ycsb.workloads.CoreWorkload");
+		out.println("recordcount="+Math.max(1,distinct-inserts));
+		out.println("operationcount="+Math.round(operations/samplerate));
+		if (_lasttimestamp>_firsttimestamp)
+		{
+			out.println("# observed throughput: "+Math.round(operations/samplerate*1000.0/(_lasttimestamp-_firsttimestamp))+" operations/sec");
+		}
+		out.println();
+		out.println("readproportion="+proportion(READ,operations));
+		out.println("updateproportion="+proportion(UPDATE,operations));
+		out.println("insertproportion="+proportion(INSERT,operations));
+		out.println("scanproportion="+proportion(SCAN,operations));
+		out.println("readmodifywriteproportion="+proportion(READMODIFYWRITE,operations));
+		out.println("deleteproportion="+proportion(DELETE,operations));
+		if (_maxscanlength>0)
+		{
+			out.println("maxscanlength="+_maxscanlength);
+		}
+		out.println();
+		out.println("# Largest difference between the fitted and the observed share of accesses to the "+ranks+" most popular keys:");
+		out.println("#   uniform "+format(uniformerror)+", zipfian "+format(zipfianerror)+", hotspot "+format(hotspoterror)+", exponential "+format(exponentialerror));
+		out.println("requestdistribution="+best);
+		out.println("zipfianconstant="+format(theta));
+		out.println("hotspotdatafraction="+format(hotdatafraction));
+		out.println("hotspotopnfraction="+format(hotopnfraction));
+		out.println("exponential.percentile="+format(EXPONENTIAL_PERCENTILE));
+		out.println("exponential.frac="+format(expfrac));
+		out.println();
+		out.println("fieldcount="+_fieldcount);
+		if (_fieldlengths.count()>0)
+		{
+			PrintWriter histogram=new PrintWriter(new OutputStreamWriter(new FileOutputStream(histogramfile),"UTF-8"));
+			try
+			{
+				_fieldlengths.write(histogram);
+			}
+			finally
+			{
+				histogram.close();
+			}
+			out.println("# mean field length: "+Math.round(_fieldlengths.mean())+" bytes");
+			out.println("fieldlengthdistribution=histogram");
+			out.println("fieldlengthhistogram="+histogramfile);
+		}
+		out.flush();
+	}
+
+	String proportion(int operation, long operations)
+	{
+		return format(operations==0 ? 0 : (double)_operations[operation]/operations);
+	}
+
+	static String format(double d)
+	{
+		return String.format(Locale.ROOT,"%.6g",d);
+	}
+
+	/**
+	 * Least squares fit of log(count) against log(rank): for a zipfian distribution the slope is minus the constant.
+	 */
+	static double fitZipfian(long[] counts, int ranks)
+	{
+		if (ranks<2)
+		{
+			return 0;
+		}
+		double sx=0, sy=0, sxx=0, sxy=0;
+		for (int r=0; r<ranks; r++)
+		{
+			double x=Math.log(r+1);
+			double y=Math.log(counts[r]);
+			sx+=x;
+			sy+=y;
+			sxx+=x*x;
+			sxy+=x*y;
+		}
+		double slope=(ranks*sxy-sx*sy)/(ranks*sxx-sx*sx);
+		return Math.max(0,Math.min(MAX_ZIPFIAN_CONSTANT,-slope));
+	}
+
+	static double zipfianError(double[] observed, long distinct, double theta)
+	{
+		double norm=harmonic(distinct,theta);
+		double h=0;
+		double error=0;
+		for (int r=0; r<observed.length; r++)
+		{
+			h+=Math.pow(r+1,-theta);
+			error=Math.max(error,Math.abs(h/norm-observed[r]));
+		}
+		return error;
+	}
+
+	/**
+	 * The generalized harmonic number H(n,theta), summed exactly for the first terms and integrated beyond.
+	 */
+	static double harmonic(long n, double theta)
+	{
+		long exact=Math.min(n,10000);
+		double sum=0;
+		for (long i=1; i<=exact; i++)
+		{
+			sum+=Math.pow(i,-theta);
+		}
+		if (n>exact)
+		{
+			double a=exact+0.5, b=n+0.5;
+			sum+=(theta==1) ? Math.log(b/a) : (Math.pow(b,1-theta)-Math.pow(a,1-theta))/(1-theta);
+		}
+		return sum;
+	}
+
+	static double uniformError(double[] observed, long distinct)
+	{
+		double error=0;
+		for (int r=0; r<observed.length; r++)
+		{
+			error=Math.max(error,Math.abs((double)(r+1)/distinct-observed[r]));
+		}
+		return error;
+	}
+
+	/**
+	 * The best two-level split of the keys: the number of top keys whose share of accesses exceeds their share of keys
+	 * by the most. Only the ranks Space-Saving guarantees are observed, which are at most topkeys; a hot set larger than
+	 * that is fitted as its topkeys most popular keys, so topkeys should exceed the expected hot set.
+	 */
+	static int fitHotspot(double[] observed, long distinct)
+	{
+		int best=1;
+		double bestgap=Double.NEGATIVE_INFINITY;
+		for (int r=0; r<observed.length; r++)
+		{
+			double gap=observed[r]-(double)(r+1)/distinct;
+			if (gap>bestgap)
+			{
+				bestgap=gap;
+				best=r+1;
+			}
+		}
+		return best;
+	}
+
+	static double hotspotError(double[] observed, long distinct, double datafraction, double opnfraction)
+	{
+		double hotkeys=datafraction*distinct;
+		double error=0;
+		for (int r=0; r<observed.length; r++)
+		{
+			double keys=r+1;
+			double share=(keys<=hotkeys) ? keys*opnfraction/hotkeys : opnfraction+(keys-hotkeys)*(1-opnfraction)/(distinct-hotkeys);
+			error=Math.max(error,Math.abs(share-observed[r]));
+		}
+		return error;
+	}
+
+	/**
+	 * The fraction of keys that receive EXPONENTIAL_PERCENTILE percent of the accesses: read off the top keys if they
+	 * get that many, otherwise extrapolated from a least squares fit of log(count) against rank.
+	 */
+	static double fitExponential(double[] observed, long[] counts, int ranks, long distinct)
+	{
+		double target=EXPONENTIAL_PERCENTILE/100.0;
+		for (int r=0; r<observed.length; r++)
+		{
+			if (observed[r]>=target)
+			{
+				return (double)(r+1)/distinct;
+			}
+		}
+		double gamma=0;
+		if (ranks>=2)
+		{
+			double sx=0, sy=0, sxx=0, sxy=0;
+			for (int r=0; r<ranks; r++)
+			{
+				double x=r+1;
+				double y=Math.log(counts[r]);
+				sx+=x;
+				sy+=y;
+				sxx+=x*x;
+				sxy+=x*y;
+			}
+			gamma=-(ranks*sxy-sx*sy)/(ranks*sxx-sx*sx);
+		}
+		if (gamma<=0)
+		{
+			return 1;
+		}
+		return Math.min(1,-Math.log(1-target)/gamma/distinct);
+	}
+
+	static double exponentialError(double[] observed, long distinct, double frac)
+	{
+		double gamma=-Math.log(1-EXPONENTIAL_PERCENTILE/100.0)/(frac*distinct);
+		double norm=1-Math.exp(-gamma*distinct);
+		double error=0;
+		for (int r=0; r<observed.length; r++)
+		{
+			error=Math.max(error,Math.abs((1-Math.exp(-gamma*(r+1)))/norm-observed[r]));
+		}
+		return error;
+	}
+
+	public static void usageMessage()
+	{
+		System.out.println("Usage: java "+WorkloadFitter.class.getName()+" [options] logfile...");
+		System.out.println("Options:");
+		System.out.println("  -o file: write the workload to file (default: standard output)");
+		System.out.println("  -histogram file: write the field length histogram to file (default: the workload file");
+		System.out.println("                   name followed by .hist, or fieldlength.hist)");
+		System.out.println("  -fieldcount n: the number of fields written per insert or update (default: "+DEFAULT_FIELD_COUNT+")");
+		System.out.println("  -topkeys n: the number of most popular keys to track, which bounds the hot set a hotspot");
+		System.out.println("              fit can find (default: "+DEFAULT_TOP_KEYS+")");
+		System.out.println("  -samplerate f: the fraction of all accesses the logs hold (default: 1)");
+		System.out.println("");
+		System.out.println("Log files are binary traces, or text with one \"timestamp key [operation [size]]\" per line.");
+	}
+
+	public static void main(String[] args)
+	{
+		String outfile=null;
+		String histogramfile=null;
+		int fieldcount=DEFAULT_FIELD_COUNT;
+		int topkeys=DEFAULT_TOP_KEYS;
+		double samplerate=1;
+
+		int argindex=0;
+		try
+		{
+			while ( (argindex<args.length) && args[argindex].startsWith("-") )
+			{
+				if ( (args[argindex].compareTo("-o")==0) && (argindex+1<args.length) )
+				{
+					outfile=args[argindex+1];
+				}
+				else if ( (args[argindex].compareTo("-histogram")==0) && (argindex+1<args.length) )
+				{
+					histogramfile=args[argindex+1];
+				}
+				else if ( (args[argindex].compareTo("-fieldcount")==0) && (argindex+1<args.length) )
+				{
+					fieldcount=Integer.parseInt(args[argindex+1]);
+				}
+				else if ( (args[argindex].compareTo("-topkeys")==0) && (argindex+1<args.length) )
+				{
+					topkeys=Integer.parseInt(args[argindex+1]);
+				}
+				else if ( (args[argindex].compareTo("-samplerate")==0) && (argindex+1<args.length) )
+				{
+					samplerate=Double.parseDouble(args[argindex+1]);
+				}
+				else
+				{
+					System.out.println("Unknown option "+args[argindex]);
+					usageMessage();
+					System.exit(0);
+				}
+				argindex+=2;
+			}
+		}
+		catch (NumberFormatException e)
+		{
+			System.out.println("Bad option value: "+e.getMessage());
+			usageMessage();
+			System.exit(0);
+		}
+
+		if ( (argindex==args.length) || (fieldcount<1) || (topkeys<1) || (samplerate<=0) || (samplerate>1) )
+		{
+			usageMessage();
+			System.exit(0);
+		}
+		if (histogramfile==null)
+		{
+			histogramfile=(outfile==null) ? "fieldlength.hist" : outfile+".hist";
+		}
+
+		WorkloadFitter fitter=new WorkloadFitter(topkeys,fieldcount);
+		try
+		{
+			for (; argindex<args.length; argindex++)
+			{
+				System.err.println("Reading "+args[argindex]);
+				fitter.read(args[argindex]);
+			}
+
+			PrintWriter out=new PrintWriter(new OutputStreamWriter((outfile==null) ? System.out : new FileOutputStream(outfile),"UTF-8"));
+			fitter.write(out,samplerate,histogramfile);
+			if (outfile!=null)
+			{
+				out.close();
+			}
+		}
+		catch (IOException e)
+		{
+			System.err.println("Could not fit workload: "+e.getMessage());
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package com.yahoo.ycsb.tools;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestHyperLogLog {
+  void assertEstimate(int distinct, double tolerance) {
+    HyperLogLog hll = new HyperLogLog();
+    for (int repeat = 0; repeat < 3; repeat++) {
+      for (int i = 0; i < distinct; i++) {
+        hll.add("user" + i);
+      }
+    }
+    double error = Math.abs(hll.estimate() - distinct) / (double) distinct;
+    assertTrue("relative error " + error + " for " + distinct + " keys", error <= tolerance);
+  }
+
+  @Test
+  public void testSmallCardinality() {
+    //linear counting is close to exact here
+    assertEstimate(1000, 0.01);
+  }
+
+  @Test
+  public void testLargeCardinality() {
+    //three standard errors of the default precision
+    assertEstimate(200000, 3 * 1.04 / Math.sqrt(1 << HyperLogLog.DEFAULT_PRECISION));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testRejectsPrecision() {
+    new HyperLogLog(3);
+  }
+}
@@ -0,0 +1,41 @@
+package com.yahoo.ycsb.tools;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestSizeHistogram {
+  @Test
+  public void testMeanWithinBucket() {
+    SizeHistogram histogram = new SizeHistogram(64);
+    for (int size = 1; size <= 10000; size++) {
+      histogram.add(size);
+    }
+    assertEquals(10000, histogram.count());
+    //the buckets widened until 10000 fit in 64 of them
+    assertEquals(256, histogram._blocksize);
+    //sizes are rounded up to their bucket's boundary, by less than a bucket
+    double error = histogram.mean() - 5000.5;
+    assertTrue("mean off by " + error, (error >= 0) && (error < histogram._blocksize));
+  }
+
+  @Test
+  public void testWritesHistogramGeneratorFormat() {
+    SizeHistogram histogram = new SizeHistogram(8);
+    histogram.add(1);
+    histogram.add(3);
+    histogram.add(3);
+    histogram.add(20);
+    StringWriter out = new StringWriter();
+    PrintWriter writer = new PrintWriter(out);
+    histogram.write(writer);
+    writer.flush();
+    String[] lines = out.toString().trim().split("\\s*\n");
+    assertEquals("BlockSize\t4", lines[0]);
+    //bucket i holds sizes up to (i+1)*4
+    assertEquals("0\t3", lines[1]);
+    assertEquals("4\t1", lines[lines.length - 1]);
+  }
+}
@@ -0,0 +1,47 @@
+package com.yahoo.ycsb.tools;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestSpaceSaving {
+  @Test
+  public void testTracksFrequentKeys() {
+    int capacity = 100;
+    SpaceSaving counters = new SpaceSaving(capacity);
+    //ten keys of 1000 accesses each among 20000 keys accessed once
+    for (int i = 0; i < 20000; i++) {
+      counters.add("cold" + i);
+      if (i % 20 == 0) {
+        for (int hot = 0; hot < 10; hot++) {
+          counters.add("hot" + hot);
+        }
+      }
+    }
+    assertEquals(30000, counters.total());
+    long[] counts = counters.counts();
+    assertEquals(capacity, counts.length);
+    //a tracked key is overestimated by at most total/capacity
+    for (int r = 0; r < 10; r++) {
+      assertTrue(counts[r] >= 1000);
+      assertTrue(counts[r] <= 1000 + counters.total() / capacity);
+    }
+    assertTrue(counts[10] < 1000);
+    assertTrue(counters.guaranteed() >= 10);
+  }
+
+  @Test
+  public void testExactBelowCapacity() {
+    SpaceSaving counters = new SpaceSaving(10);
+    for (int i = 0; i < 5; i++) {
+      for (int j = 0; j <= i; j++) {
+        counters.add("k" + i);
+      }
+    }
+    long[] counts = counters.counts();
+    assertEquals(5, counts.length);
+    for (int r = 0; r < 5; r++) {
+      assertEquals(5 - r, counts[r]);
+    }
+    assertEquals(5, counters.guaranteed());
+  }
+}
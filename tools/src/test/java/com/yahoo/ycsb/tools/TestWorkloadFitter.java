@@ -0,0 +1,59 @@
+package com.yahoo.ycsb.tools;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestWorkloadFitter {
+  @Test
+  public void testFitsHotspot() throws Exception {
+    //10000 keys, a tenth of which take 90% of the accesses
+    Random random = new Random(42);
+    WorkloadFitter fitter = new WorkloadFitter(2000, 10);
+    HashSet<Integer> keys = new HashSet<Integer>();
+    for (int i = 0; i < 200000; i++) {
+      int key = (random.nextDouble() < 0.9) ? random.nextInt(1000) : 1000 + random.nextInt(9000);
+      keys.add(key);
+      double op = random.nextDouble();
+      if (op < 0.05) {
+        fitter.readLine(i + " user" + key + " update 1000");
+      } else if (op < 0.06) {
+        fitter.readLine(i + "\tuser" + key + "\tdelete");
+      } else {
+        fitter.readLine(i + ",user" + key);
+      }
+    }
+
+    File histogram = File.createTempFile("fieldlength", ".hist");
+    histogram.deleteOnExit();
+    StringWriter out = new StringWriter();
+    PrintWriter writer = new PrintWriter(out);
+    fitter.write(writer, 1, histogram.getPath());
+    Properties p = new Properties();
+    p.load(new StringReader(out.toString()));
+
+    assertEquals("200000", p.getProperty("operationcount"));
+    assertEquals(0.94, Double.parseDouble(p.getProperty("readproportion")), 0.01);
+    assertEquals(0.05, Double.parseDouble(p.getProperty("updateproportion")), 0.01);
+    assertEquals(0.01, Double.parseDouble(p.getProperty("deleteproportion")), 0.005);
+    //not every cold key comes up
+    assertEquals(keys.size(), Long.parseLong(p.getProperty("recordcount")), keys.size() * 0.03);
+
+    assertEquals("hotspot", p.getProperty("requestdistribution"));
+    //the hot set is the 1000 hot keys
+    double hotkeys = Double.parseDouble(p.getProperty("hotspotdatafraction")) * Long.parseLong(p.getProperty("recordcount"));
+    assertEquals(1000, hotkeys, 30);
+    assertEquals(0.9, Double.parseDouble(p.getProperty("hotspotopnfraction")), 0.02);
+
+    //1000 bytes over 10 fields
+    assertEquals("histogram", p.getProperty("fieldlengthdistribution"));
+    assertTrue(histogram.length() > 0);
+  }
+}
@@ -10,6 +10,7 @@ import org.apache.log4j.Logger;
 import voldemort.client.ClientConfig;
 import voldemort.client.SocketStoreClientFactory;
 import voldemort.client.StoreClient;
+import voldemort.versioning.ObsoleteVersionException;
 import voldemort.versioning.VectorClock;
 import voldemort.versioning.Versioned;
 
@@ -132,6 +133,35 @@ public class VoldemortClient extends DB {
 		return OK;
 	}
 	
+	/**
+	 * Compares the field of the version read, then puts the new value with that version's
+	 * clock incremented. If another client wrote the record in between, the put is rejected
+	 * as obsolete, so the whole is atomic.
+	 */
+	@Override
+	public int compareAndSet(String table, String key, String field, String expected, HashMap<String, ByteIterator> values) {
+		if ( checkStore(table) == ERROR ) {
+			return ERROR;
+		}
+
+		Versioned<HashMap<String, String>> versionedValue = storeClient.get(key);
+		if ( versionedValue == null || !expected.equals(versionedValue.getValue().get(field)) )
+			return CONDITION_FAILED;
+
+		VectorClock version = ((VectorClock) versionedValue.getVersion()).incremented(0, 1);
+		HashMap<String, String> value = versionedValue.getValue();
+		for (Entry<String, ByteIterator> entry : values.entrySet()) {
+			value.put(entry.getKey(), entry.getValue().toString());
+		}
+
+		try {
+			storeClient.put(key, Versioned.value(value, version));
+		} catch ( ObsoleteVersionException e ) {
+			return CONDITION_FAILED;
+		}
+		return OK;
+	}
+
 	private int checkStore(String table) {
 		if ( table.compareTo(storeName) != 0 ) {
 			try {